@@ -0,0 +1,34 @@
+package ru.job4j.cars.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.cars.dto.CarModelDto;
+import ru.job4j.cars.service.CarModelService;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Модели марки для зависимого выпадающего списка формы объявления.
+ * GET /brands/{brandId}/models возвращает JSON вида [{"id": 1, "name": "Camry"}, ...], отсортированный по названию.
+ * Ответ разрешено кешировать в браузере: справочник моделей меняется редко.
+ */
+@RestController
+@AllArgsConstructor
+public class CarModelController {
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(10);
+
+    private final CarModelService carModelService;
+
+    @GetMapping("/brands/{brandId}/models")
+    public ResponseEntity<List<CarModelDto>> modelsOfBrand(@PathVariable long brandId) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(MAX_AGE).cachePublic())
+                .body(carModelService.findAllByBrandId(brandId));
+    }
+}
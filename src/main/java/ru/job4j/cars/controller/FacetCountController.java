@@ -0,0 +1,31 @@
+package ru.job4j.cars.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import ru.job4j.cars.dto.FacetCountsDto;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.service.ListingIndexService;
+
+/**
+ * Количества объявлений для боковой панели фильтра поиска.
+ * GET /search/facets принимает те же параметры, что и /search, и возвращает JSON вида
+ * {"total": 42, "facets": {"brandId": {"1": 30, "2": 12}, ...}} по всем справочным атрибутам автомобиля.
+ */
+@RestController
+@AllArgsConstructor
+public class FacetCountController {
+
+    private final ListingIndexService listingIndexService;
+
+    @GetMapping("/search/facets")
+    public FacetCountsDto facets(@ModelAttribute PostSearchFilter filter) {
+        if (!listingIndexService.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Индекс поиска ещё загружается");
+        }
+        return listingIndexService.facetCounts(filter);
+    }
+}
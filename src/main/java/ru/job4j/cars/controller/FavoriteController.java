@@ -0,0 +1,89 @@
+package ru.job4j.cars.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.service.FavoriteIds;
+import ru.job4j.cars.service.FavoriteService;
+
+import java.net.URI;
+
+/**
+ * Избранные объявления текущего пользователя.
+ * Набор избранного хранится в сессии и после каждого изменения заменяется новым.
+ */
+@Controller
+@RequestMapping("/favorites")
+@AllArgsConstructor
+public class FavoriteController {
+
+    private final FavoriteService favoriteService;
+
+    /**
+     * Показывает избранные объявления пользователя.
+     *
+     * @param session сессия с пользователем и его избранным
+     * @param model   модель для передачи данных в представление
+     * @return шаблон favorites.html
+     */
+    @GetMapping
+    public String list(HttpSession session, Model model) {
+        model.addAttribute("posts", favoriteService.findPosts(favorites(session)));
+        return "favorites";
+    }
+
+    /**
+     * Добавляет объявление в избранное или убирает из него и возвращает на предыдущую страницу.
+     *
+     * @param id       id объявления
+     * @param favorite true — добавить, false — убрать
+     * @param session  сессия с пользователем и его избранным
+     * @param request  запрос, из заголовка Referer которого берётся адрес возврата
+     * @return перенаправление на предыдущую страницу или на главную
+     */
+    @PostMapping("/{id}")
+    public String toggle(@PathVariable("id") long id, @RequestParam("favorite") boolean favorite,
+                         HttpSession session, HttpServletRequest request) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return "redirect:/users/login";
+        }
+        FavoriteIds favorites = favorites(session);
+        session.setAttribute("favorites", favorite
+                ? favoriteService.add(user.getId(), favorites, id)
+                : favoriteService.remove(user.getId(), favorites, id));
+        return "redirect:" + returnPath(request.getHeader("Referer"));
+    }
+
+    /**
+     * Путь и параметры предыдущей страницы без хоста, чтобы перенаправлять только внутри приложения.
+     */
+    private String returnPath(String referer) {
+        if (referer == null) {
+            return "/";
+        }
+        try {
+            URI uri = URI.create(referer);
+            String path = uri.getRawPath();
+            if (path == null || !path.startsWith("/") || path.startsWith("//")) {
+                return "/";
+            }
+            return uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path;
+        } catch (IllegalArgumentException e) {
+            return "/";
+        }
+    }
+
+    private FavoriteIds favorites(HttpSession session) {
+        FavoriteIds favorites = (FavoriteIds) session.getAttribute("favorites");
+        return favorites != null ? favorites : FavoriteIds.EMPTY;
+    }
+}
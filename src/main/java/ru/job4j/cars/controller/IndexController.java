@@ -6,9 +6,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.dto.PostSearchPage;
+import ru.job4j.cars.dto.PostSort;
 import ru.job4j.cars.model.Post;
+import ru.job4j.cars.service.BodyService;
+import ru.job4j.cars.service.BrandService;
+import ru.job4j.cars.service.CarModelService;
+import ru.job4j.cars.service.FuelTypeService;
 import ru.job4j.cars.service.PostPhotoService;
 import ru.job4j.cars.service.PostService;
+import ru.job4j.cars.service.TransmissionTypeService;
+import ru.job4j.cars.service.ViewCounterService;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -20,7 +29,12 @@ import java.util.List;
 public class IndexController {
 
     private final PostService postService;
-
+    private final BrandService brandService;
+    private final CarModelService carModelService;
+    private final BodyService bodyService;
+    private final FuelTypeService fuelTypeService;
+    private final TransmissionTypeService transmissionTypeService;
+    private final ViewCounterService viewCounterService;
 
     /**
      * Обрабатывает GET-запросы по маршрутам "/" и "/index".
@@ -38,11 +52,41 @@ public class IndexController {
             log.info("Контроллер отдал в шаблон {} фотографий", post.getPostPhotos().size());
         }
         model.addAttribute("posts", posts);
+        addSearchForm(model, new PostSearchFilter());
+        return "index";
+    }
+
+    /**
+     * Обрабатывает GET-запрос поиска объявлений по фильтру (слова описания, марка, модель, кузов, топливо,
+     * коробка передач, диапазоны цены, года и пробега) с выбранной сортировкой.
+     * Результаты выводятся постранично на главной странице.
+     *
+     * @param filter параметры поиска из формы
+     * @param model  модель для передачи данных в представление
+     * @return имя шаблона "index"
+     */
+    @GetMapping("/search")
+    public String search(@ModelAttribute PostSearchFilter filter, Model model) {
+        PostSearchPage page = postService.search(filter);
+        model.addAttribute("posts", page.getPosts());
+        model.addAttribute("searchPage", page);
+        addSearchForm(model, filter);
         return "index";
     }
 
+    private void addSearchForm(Model model, PostSearchFilter filter) {
+        model.addAttribute("filter", filter);
+        model.addAttribute("sorts", PostSort.values());
+        model.addAttribute("brands", brandService.findAllOrderById());
+        model.addAttribute("models", carModelService.findAllOrderById());
+        model.addAttribute("bodies", bodyService.findAllOrderById());
+        model.addAttribute("fuelTypes", fuelTypeService.findAllOrderById());
+        model.addAttribute("transmissionTypes", transmissionTypeService.findAllOrderById());
+    }
+
     /**
-     * Обрабатывает GET-запрос для просмотра конкретного поста по его ID
+     * Обрабатывает GET-запрос для просмотра конкретного поста по его ID.
+     * Учитывает просмотр; число просмотров включает ещё не записанные в базу.
      * @param id идентификатор поста
      * @param model модель для передачи данных в представление
      * @return шаблон showPost.html
@@ -54,7 +98,9 @@ public class IndexController {
                 .orElseThrow(() -> new RuntimeException("Пост с id=" + id + " не найден"));
 
         log.info("Открыт пост с id={}", id);
+        viewCounterService.record(id);
         model.addAttribute("post", post);
+        model.addAttribute("views", post.getViews() + viewCounterService.pending(id));
         return "post/showPost";
     }
 }
\ No newline at end of file
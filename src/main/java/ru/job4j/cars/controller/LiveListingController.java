@@ -0,0 +1,38 @@
+package ru.job4j.cars.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import ru.job4j.cars.service.LiveListingService;
+
+import java.io.IOException;
+
+/**
+ * Поток новых объявлений (Server-Sent Events).
+ * GET /posts/live отдаёт события вида
+ * id: 42
+ * event: listing
+ * data: {"id": 7, "description": "...", "price": 1000000.00, "brand": "Toyota", "model": "Camry",
+ * "year": 2020, "photoUrl": "/uploads/images/..."}.
+ * Номер события — номер события outbox, одинаковый на всех узлах. При переподключении браузер передаёт
+ * заголовок Last-Event-ID и получает пропущенные события, если они ещё хранятся, даже если попал на другой узел.
+ */
+@Controller
+@AllArgsConstructor
+public class LiveListingController {
+
+    private final LiveListingService liveListingService;
+
+    @GetMapping(value = "/posts/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void live(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!liveListingService.subscribe(request, response, lastEventId)) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+}
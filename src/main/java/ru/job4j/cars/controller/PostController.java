@@ -12,13 +12,9 @@ import ru.job4j.cars.model.*;
 import ru.job4j.cars.service.*;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,13 +40,12 @@ public class PostController {
     private final CarColorService carColorService;
     private final FuelTypeService fuelTypeService;
     private final WheelSideService wheelSideService;
-    private final PostPhotoService postPhotoService;
-
-    private final String uploadDir = "uploads/images";
+    private final PhotoIngestService photoIngestService;
 
     /**
      * Отображает форму для создания нового объявления.
      * Добавляет в модель все необходимые справочники для выбора характеристик автомобиля.
+     * Модели не добавляются: форма загружает модели выбранной марки через GET /brands/{brandId}/models.
      *
      * @param model объект Model для передачи данных в представление
      * @return имя шаблона формы создания объявления
@@ -58,7 +53,6 @@ public class PostController {
     @GetMapping("/createPost")
     public String showCreateForm(Model model) {
         model.addAttribute("brands", brandService.findAllOrderById());
-        model.addAttribute("models", carModelService.findAllOrderById());
         model.addAttribute("categories", categoryService.findAllOrderById());
         model.addAttribute("bodies", bodyService.findAllOrderById());
         model.addAttribute("engines", engineService.findAllOrderById());
@@ -107,6 +101,7 @@ public class PostController {
 
     /**
      * Создает объект Car на основе данных из DTO.
+     * Модель должна относиться к выбранной марке.
      *
      * @param dto DTO с данными автомобиля
      * @return созданный объект Car
@@ -118,7 +113,8 @@ public class PostController {
         car.setYearOfManufacture(dto.getYearOfManufacture());
         car.setCountOwners(dto.getCountOwners());
         car.setBrand(brandService.findById(dto.getBrandId().intValue()).orElseThrow());
-        car.setModel(carModelService.findById(dto.getModelId().intValue()).orElseThrow());
+        car.setModel(carModelService.findByIdAndBrandId(dto.getModelId(), dto.getBrandId())
+                .orElseThrow(() -> new IllegalArgumentException("Модель не относится к выбранной марке")));
         car.setCategory(categoryService.findById(dto.getCategoryId().intValue()).orElseThrow());
         car.setBody(bodyService.findById(dto.getBodyId().intValue()).orElseThrow());
         car.setEngine(engineService.findById(dto.getEngineId().intValue()).orElseThrow());
@@ -141,7 +137,7 @@ public class PostController {
      */
     public Post createPostFromDto(PostCreationDto dto, Car car, User user) {
         Post post = new Post();
-        post.setStatus("active");
+        post.setStatus(PostStatus.ACTIVE);
         post.setDescription(dto.getDescription());
         post.setPrice(dto.getPrice());
         post.setCreatedAt(LocalDateTime.now());
@@ -152,33 +148,14 @@ public class PostController {
     }
 
     /**
-     * Сохраняет загруженные фотографии на диск и создает записи в базе данных.
+     * Сохраняет загруженные фотографии на диск и создает записи в базе данных
+     * вместе с метаданными изображений.
      *
      * @param photos список загруженных файлов
      * @param post объявление, к которому привязываются фотографии
      * @throws IOException если возникает ошибка при сохранении файлов
      */
     public void savePhotos(List<MultipartFile> photos, Post post) throws IOException {
-        if (photos == null || photos.isEmpty()) {
-            return;
-        }
-
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        for (MultipartFile photo : photos) {
-            if (!photo.isEmpty()) {
-                String filename = UUID.randomUUID() + "_" + photo.getOriginalFilename();
-                Path filePath = uploadPath.resolve(filename);
-                Files.copy(photo.getInputStream(), filePath);
-
-                PostPhoto postPhoto = new PostPhoto();
-                postPhoto.setPhotoPath(filename);
-                postPhoto.setPost(post);
-                postPhotoService.create(postPhoto);
-            }
-        }
+        photoIngestService.saveAll(photos, post);
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package ru.job4j.cars.controller;
+
+import jakarta.servlet.http.HttpSession;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.model.SavedSearch;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.service.SavedSearchService;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Сохранённые поиски текущего пользователя: о новых объявлениях по ним приходят уведомления.
+ */
+@Controller
+@RequestMapping("/saved-searches")
+@AllArgsConstructor
+public class SavedSearchController {
+
+    private final SavedSearchService savedSearchService;
+
+    /**
+     * Показывает сохранённые поиски пользователя со ссылками на их результаты.
+     *
+     * @param session сессия с пользователем
+     * @param model   модель для передачи данных в представление
+     * @return шаблон savedSearches.html
+     */
+    @GetMapping
+    public String list(HttpSession session, Model model) {
+        User user = (User) session.getAttribute("user");
+        List<SavedSearch> searches = savedSearchService.findByUserId(user.getId());
+        Map<Long, String> links = new LinkedHashMap<>();
+        for (SavedSearch savedSearch : searches) {
+            links.put(savedSearch.getId(), searchLink(SavedSearchService.toFilter(savedSearch)));
+        }
+        model.addAttribute("searches", searches);
+        model.addAttribute("links", links);
+        return "savedSearches";
+    }
+
+    /**
+     * Сохраняет условия формы поиска.
+     *
+     * @param filter  параметры поиска из формы
+     * @param session сессия с пользователем
+     * @return перенаправление на список сохранённых поисков
+     */
+    @PostMapping
+    public String save(@ModelAttribute PostSearchFilter filter, HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        return savedSearchService.save(user, filter).isPresent()
+                ? "redirect:/saved-searches"
+                : "redirect:/saved-searches?error=true";
+    }
+
+    /**
+     * Удаляет сохранённый поиск пользователя.
+     *
+     * @param id      id сохранённого поиска
+     * @param session сессия с пользователем
+     * @return перенаправление на список сохранённых поисков
+     */
+    @PostMapping("/{id}/delete")
+    public String delete(@PathVariable("id") long id, HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        savedSearchService.delete(user.getId(), id);
+        return "redirect:/saved-searches";
+    }
+
+    /**
+     * Адрес страницы поиска с заданными условиями фильтра.
+     */
+    private String searchLink(PostSearchFilter filter) {
+        return UriComponentsBuilder.fromPath("/search")
+                .queryParamIfPresent("query", Optional.ofNullable(filter.getQuery()))
+                .queryParamIfPresent("brandId", Optional.ofNullable(filter.getBrandId()))
+                .queryParamIfPresent("modelId", Optional.ofNullable(filter.getModelId()))
+                .queryParamIfPresent("categoryId", Optional.ofNullable(filter.getCategoryId()))
+                .queryParamIfPresent("bodyId", Optional.ofNullable(filter.getBodyId()))
+                .queryParamIfPresent("engineId", Optional.ofNullable(filter.getEngineId()))
+                .queryParamIfPresent("transmissionTypeId", Optional.ofNullable(filter.getTransmissionTypeId()))
+                .queryParamIfPresent("driveTypeId", Optional.ofNullable(filter.getDriveTypeId()))
+                .queryParamIfPresent("carColorId", Optional.ofNullable(filter.getCarColorId()))
+                .queryParamIfPresent("fuelTypeId", Optional.ofNullable(filter.getFuelTypeId()))
+                .queryParamIfPresent("wheelSideId", Optional.ofNullable(filter.getWheelSideId()))
+                .queryParamIfPresent("priceFrom", Optional.ofNullable(filter.getPriceFrom()))
+                .queryParamIfPresent("priceTo", Optional.ofNullable(filter.getPriceTo()))
+                .queryParamIfPresent("yearFrom", Optional.ofNullable(filter.getYearFrom()))
+                .queryParamIfPresent("yearTo", Optional.ofNullable(filter.getYearTo()))
+                .queryParamIfPresent("mileageFrom", Optional.ofNullable(filter.getMileageFrom()))
+                .queryParamIfPresent("mileageTo", Optional.ofNullable(filter.getMileageTo()))
+                .encode()
+                .build()
+                .toUriString();
+    }
+}
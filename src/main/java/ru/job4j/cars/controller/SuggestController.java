@@ -0,0 +1,33 @@
+package ru.job4j.cars.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.cars.search.Suggestion;
+import ru.job4j.cars.service.SuggestService;
+
+import java.util.List;
+
+/**
+ * Подсказки марок и моделей при вводе.
+ * GET /suggest?q=toy возвращает JSON вида
+ * [{"type": "BRAND", "id": 1, "name": "Toyota", "brandId": 1, "brandName": "Toyota"},
+ * {"type": "MODEL", "id": 5, "name": "Camry", "brandId": 1, "brandName": "Toyota"}, ...].
+ * С параметром brandId подсказываются только модели этой марки.
+ */
+@RestController
+@AllArgsConstructor
+public class SuggestController {
+
+    private static final int MAX_LIMIT = 20;
+
+    private final SuggestService suggestService;
+
+    @GetMapping("/suggest")
+    public List<Suggestion> suggest(@RequestParam(name = "q", defaultValue = "") String query,
+                                    @RequestParam(required = false) Long brandId,
+                                    @RequestParam(defaultValue = "10") int limit) {
+        return suggestService.suggest(query, brandId, Math.min(limit, MAX_LIMIT));
+    }
+}
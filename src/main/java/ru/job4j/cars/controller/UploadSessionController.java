@@ -0,0 +1,119 @@
+package ru.job4j.cars.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import ru.job4j.cars.dto.UploadCommitDto;
+import ru.job4j.cars.dto.UploadSessionCreateDto;
+import ru.job4j.cars.dto.UploadSessionStatusDto;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.service.PostService;
+import ru.job4j.cars.service.UploadSessionException;
+import ru.job4j.cars.service.UploadSessionService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Докачиваемая загрузка фотографий объявления частями.
+ * <ul>
+ *     <li>POST /post/uploads — открыть сессию для файла заданного размера;</li>
+ *     <li>GET /post/uploads/{id} — узнать принятое смещение;</li>
+ *     <li>PUT /post/uploads/{id}?offset=N — отправить часть (application/octet-stream) начиная с N;</li>
+ *     <li>POST /post/uploads/commit — привязать собранные файлы к объявлению.</li>
+ * </ul>
+ * Текущее смещение также возвращается в заголовке Upload-Offset.
+ */
+@RestController
+@RequestMapping("/post/uploads")
+@AllArgsConstructor
+public class UploadSessionController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private final UploadSessionService uploadSessionService;
+    private final PostService postService;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionStatusDto> open(@RequestBody UploadSessionCreateDto dto,
+                                                       HttpSession session) throws IOException {
+        User user = currentUser(session);
+        long size = dto.getSize() != null ? dto.getSize() : 0L;
+        UploadSessionStatusDto status = uploadSessionService.open(user.getId(), dto.getFileName(), dto.getContentType(), size);
+        return ResponseEntity.created(URI.create("/post/uploads/" + status.getId()))
+                .header(UPLOAD_OFFSET, String.valueOf(status.getOffset()))
+                .body(status);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionStatusDto> status(@PathVariable("id") String id, HttpSession session) {
+        UploadSessionStatusDto status = uploadSessionService.status(currentUser(session).getId(), id);
+        return withOffset(status);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<UploadSessionStatusDto> append(@PathVariable("id") String id,
+                                                         @RequestParam("offset") long offset,
+                                                         HttpServletRequest request,
+                                                         HttpSession session) throws IOException {
+        User user = currentUser(session);
+        UploadSessionStatusDto status = uploadSessionService.append(user.getId(), id, offset, request.getInputStream());
+        return withOffset(status);
+    }
+
+    @PostMapping("/commit")
+    public List<String> commit(@RequestBody UploadCommitDto dto, HttpSession session) throws IOException {
+        User user = currentUser(session);
+        if (dto.getPostId() == null || dto.getUploadIds() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не указано объявление или загрузки");
+        }
+        Post post = postService.findById(dto.getPostId().intValue())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Объявление не найдено"));
+        if (!post.getUser().getId().equals(user.getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Объявление принадлежит другому пользователю");
+        }
+        return uploadSessionService.commit(user.getId(), post, dto.getUploadIds()).stream()
+                .map(PostPhoto::getImageUrl)
+                .toList();
+    }
+
+    @ExceptionHandler(UploadSessionException.class)
+    public ResponseEntity<Map<String, String>> handleUploadError(UploadSessionException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(statusOf(e.getReason()));
+        if (e.getOffset() >= 0) {
+            response.header(UPLOAD_OFFSET, String.valueOf(e.getOffset()));
+        }
+        return response.body(Map.of("error", e.getMessage()));
+    }
+
+    private HttpStatus statusOf(UploadSessionException.Reason reason) {
+        return switch (reason) {
+            case NOT_FOUND -> HttpStatus.NOT_FOUND;
+            case TOO_LARGE -> HttpStatus.PAYLOAD_TOO_LARGE;
+            case LIMIT_EXCEEDED -> HttpStatus.TOO_MANY_REQUESTS;
+            default -> HttpStatus.CONFLICT;
+        };
+    }
+
+    private ResponseEntity<UploadSessionStatusDto> withOffset(UploadSessionStatusDto status) {
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, String.valueOf(status.getOffset()))
+                .body(status);
+    }
+
+    private User currentUser(HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Требуется авторизация");
+        }
+        return user;
+    }
+}
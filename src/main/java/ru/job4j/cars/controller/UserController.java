@@ -7,15 +7,18 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import ru.job4j.cars.model.User;
+import ru.job4j.cars.service.FavoriteService;
 import ru.job4j.cars.service.UserService;
 
 @Controller
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final FavoriteService favoriteService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FavoriteService favoriteService) {
         this.userService = userService;
+        this.favoriteService = favoriteService;
     }
 
     @GetMapping("/register")
@@ -46,6 +49,7 @@ public class UserController {
         }
         var session = request.getSession();
         session.setAttribute("user", userOptional.get());
+        session.setAttribute("favorites", favoriteService.load(userOptional.get().getId()));
         return "redirect:/index";
     }
 
@@ -0,0 +1,15 @@
+package ru.job4j.cars.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Модель автомобиля для выпадающего списка формы: только id и название.
+ */
+@Data
+@AllArgsConstructor
+public class CarModelDto {
+
+    private Long id;
+    private String name;
+}
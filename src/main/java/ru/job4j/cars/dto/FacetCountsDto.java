@@ -0,0 +1,19 @@
+package ru.job4j.cars.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Количества объявлений для боковой панели фильтра.
+ * Ключи facets — имена параметров фильтра (brandId, modelId, ...),
+ * значения — количества по id значений справочника.
+ */
+@Data
+@AllArgsConstructor
+public class FacetCountsDto {
+
+    private int total;
+    private Map<String, Map<Long, Integer>> facets;
+}
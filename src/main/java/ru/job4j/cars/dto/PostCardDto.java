@@ -0,0 +1,26 @@
+package ru.job4j.cars.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Краткая карточка нового объявления для потока новых объявлений.
+ */
+@Data
+@AllArgsConstructor
+public class PostCardDto {
+
+    private Long id;
+    private String description;
+    private BigDecimal price;
+    private String brand;
+    private String model;
+    private Long year;
+
+    /**
+     * Адрес первой фотографии или null, если фотографий нет.
+     */
+    private String photoUrl;
+}
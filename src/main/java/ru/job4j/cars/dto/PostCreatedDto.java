@@ -0,0 +1,17 @@
+package ru.job4j.cars.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Id активного объявления и время его создания: по ним планируется истечение срока размещения.
+ */
+@Data
+@AllArgsConstructor
+public class PostCreatedDto {
+
+    private Long id;
+    private LocalDateTime createdAt;
+}
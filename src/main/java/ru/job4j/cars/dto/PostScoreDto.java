@@ -0,0 +1,15 @@
+package ru.job4j.cars.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Id объявления и его оценка популярности в логарифмической форме.
+ */
+@Data
+@AllArgsConstructor
+public class PostScoreDto {
+
+    private Long id;
+    private Double score;
+}
@@ -0,0 +1,43 @@
+package ru.job4j.cars.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Параметры поиска объявлений из формы фильтра.
+ * Незаполненные поля не ограничивают выборку; границы диапазонов включаются.
+ */
+@Data
+public class PostSearchFilter {
+
+    /**
+     * Слова для поиска в описании объявления; должны встретиться все.
+     */
+    private String query;
+
+    private Long brandId;
+    private Long modelId;
+    private Long categoryId;
+    private Long bodyId;
+    private Long engineId;
+    private Long transmissionTypeId;
+    private Long driveTypeId;
+    private Long carColorId;
+    private Long fuelTypeId;
+    private Long wheelSideId;
+
+    private BigDecimal priceFrom;
+    private BigDecimal priceTo;
+    private Long yearFrom;
+    private Long yearTo;
+    private Long mileageFrom;
+    private Long mileageTo;
+
+    private PostSort sort = PostSort.NEWEST;
+
+    /**
+     * Номер страницы результатов, начиная с 0.
+     */
+    private int page;
+}
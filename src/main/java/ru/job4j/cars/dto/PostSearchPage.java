@@ -0,0 +1,21 @@
+package ru.job4j.cars.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.job4j.cars.model.Post;
+
+import java.util.List;
+
+/**
+ * Страница результатов поиска объявлений.
+ * Общее количество не считается: признак следующей страницы определяется
+ * выборкой на одну запись больше размера страницы.
+ */
+@Data
+@AllArgsConstructor
+public class PostSearchPage {
+
+    private List<Post> posts;
+    private int page;
+    private boolean hasNext;
+}
@@ -0,0 +1,31 @@
+package ru.job4j.cars.dto;
+
+/**
+ * Порядок сортировки результатов поиска объявлений.
+ */
+public enum PostSort {
+
+    NEWEST("Сначала новые"),
+    PRICE_ASC("Сначала дешёвые"),
+    PRICE_DESC("Сначала дорогие"),
+    YEAR_DESC("Сначала новее по году"),
+    MILEAGE_ASC("С меньшим пробегом"),
+    /**
+     * По релевантности текстовому запросу; без запроса — как {@link #NEWEST}.
+     */
+    RELEVANCE("Сначала подходящие"),
+    /**
+     * По затухающей популярности; только без условий фильтра, с условиями — как {@link #NEWEST}.
+     */
+    POPULAR("Сначала популярные");
+
+    private final String displayName;
+
+    PostSort(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
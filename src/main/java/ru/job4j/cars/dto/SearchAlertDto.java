@@ -0,0 +1,17 @@
+package ru.job4j.cars.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Уведомление из очереди: новое объявление, подошедшее под сохранённый поиск пользователя.
+ */
+@Data
+@AllArgsConstructor
+public class SearchAlertDto {
+
+    private Long id;
+    private Long userId;
+    private Long savedSearchId;
+    private Long postId;
+}
@@ -0,0 +1,15 @@
+package ru.job4j.cars.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO для завершения докачиваемых загрузок: собранные файлы привязываются к объявлению.
+ */
+@Data
+public class UploadCommitDto {
+
+    private Long postId;
+    private List<String> uploadIds;
+}
@@ -0,0 +1,14 @@
+package ru.job4j.cars.dto;
+
+import lombok.Data;
+
+/**
+ * DTO для открытия сессии докачиваемой загрузки фотографии.
+ */
+@Data
+public class UploadSessionCreateDto {
+
+    private String fileName;
+    private String contentType;
+    private Long size;
+}
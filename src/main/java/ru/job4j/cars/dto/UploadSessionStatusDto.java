@@ -0,0 +1,20 @@
+package ru.job4j.cars.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Состояние сессии докачиваемой загрузки: сколько байт уже принято сервером.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionStatusDto {
+
+    private String id;
+    private String fileName;
+    private long size;
+    private long offset;
+    private boolean complete;
+}
@@ -30,6 +30,6 @@ public class AuthorizationFilter extends HttpFilter {
     }
 
     private boolean isAlwaysPermitted(String uri) {
-        return !uri.contains("/post/createPost");
+        return !uri.contains("/post/createPost") && !uri.contains("/favorites") && !uri.contains("/saved-searches");
     }
 }
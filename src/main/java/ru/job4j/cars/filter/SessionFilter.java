@@ -1,8 +1,11 @@
 package ru.job4j.cars.filter;
 
+import lombok.AllArgsConstructor;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import ru.job4j.cars.model.User;
+import ru.job4j.cars.service.FavoriteIds;
+import ru.job4j.cars.service.FavoriteService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpFilter;
@@ -13,12 +16,16 @@ import java.io.IOException;
 
 @Component
 @Order(2)
+@AllArgsConstructor
 public class SessionFilter extends HttpFilter {
 
+    private final FavoriteService favoriteService;
+
     @Override
     protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
         var session = request.getSession();
         addUserToSession(session, request);
+        addFavoritesToRequest(session, request);
         chain.doFilter(request, response);
     }
 
@@ -30,4 +37,18 @@ public class SessionFilter extends HttpFilter {
         }
         request.setAttribute("user", user);
     }
+
+    /**
+     * Набор избранного пользователя для отметок на карточках. Загружается при входе;
+     * если сессия началась раньше, чем появилось избранное, набор загружается здесь один раз.
+     */
+    private void addFavoritesToRequest(HttpSession session, HttpServletRequest request) {
+        var user = (User) session.getAttribute("user");
+        var favorites = (FavoriteIds) session.getAttribute("favorites");
+        if (favorites == null && user != null && user.getId() != null) {
+            favorites = favoriteService.load(user.getId());
+            session.setAttribute("favorites", favorites);
+        }
+        request.setAttribute("favorites", favorites != null ? favorites : FavoriteIds.EMPTY);
+    }
 }
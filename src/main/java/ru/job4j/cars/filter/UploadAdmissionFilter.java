@@ -0,0 +1,73 @@
+package ru.job4j.cars.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.job4j.cars.service.UploadBulkhead;
+
+import java.io.IOException;
+
+/**
+ * Фильтр допуска загрузок файлов: multipart-форм и частей докачиваемых загрузок.
+ * Срабатывает до разбора multipart-тела,
+ * поэтому отклонённый запрос не читается и не пишется на диск:
+ * клиент сразу получает 503 с заголовком Retry-After.
+ */
+@Component
+@Order(0)
+public class UploadAdmissionFilter extends HttpFilter {
+
+    /**
+     * Части докачиваемых загрузок, см. UploadSessionController.
+     */
+    private static final String CHUNK_UPLOAD_PREFIX = "/post/uploads/";
+
+    private final UploadBulkhead uploadBulkhead;
+
+    private final long maxRequestBytes;
+
+    public UploadAdmissionFilter(UploadBulkhead uploadBulkhead,
+                                 @Value("${spring.servlet.multipart.max-request-size:50MB}") DataSize maxRequestSize) {
+        this.uploadBulkhead = uploadBulkhead;
+        this.maxRequestBytes = maxRequestSize.toBytes();
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!isUpload(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long declared = request.getContentLengthLong();
+        var admission = uploadBulkhead.tryAdmit(declared >= 0 ? declared : maxRequestBytes);
+        if (!admission.isGranted()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Сервер перегружен загрузками, повторите попытку позже");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admission.release();
+        }
+    }
+
+    private boolean isUpload(HttpServletRequest request) {
+        var contentType = request.getContentType();
+        var multipart = "POST".equals(request.getMethod())
+                && contentType != null
+                && contentType.toLowerCase().startsWith("multipart/");
+        var chunk = "PUT".equals(request.getMethod())
+                && request.getRequestURI().startsWith(request.getContextPath() + CHUNK_UPLOAD_PREFIX);
+        return multipart || chunk;
+    }
+}
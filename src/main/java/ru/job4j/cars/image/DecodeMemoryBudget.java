@@ -0,0 +1,90 @@
+package ru.job4j.cars.image;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общий бюджет памяти на одновременное декодирование изображений.
+ * Память учитывается в килобайтах, чтобы бюджет в несколько гигабайт помещался в int-разрешения семафора.
+ * Каждое декодирование резервирует оценку размера растра и возвращает её по завершении.
+ */
+public class DecodeMemoryBudget {
+
+    private static final long KB = 1024L;
+
+    private final Semaphore permits;
+
+    private final int totalKb;
+
+    /**
+     * @param totalBytes общий бюджет памяти в байтах
+     */
+    public DecodeMemoryBudget(long totalBytes) {
+        if (totalBytes < KB) {
+            throw new IllegalArgumentException("Бюджет памяти на декодирование должен быть не меньше 1KB");
+        }
+        this.totalKb = (int) Math.min(Integer.MAX_VALUE, totalBytes / KB);
+        this.permits = new Semaphore(totalKb, true);
+    }
+
+    /**
+     * Резервирует память под декодирование.
+     *
+     * @param bytes   требуемый объём в байтах, не больше {@link #totalBytes()}
+     * @param timeout сколько ждать освобождения памяти
+     * @param unit    единица измерения timeout
+     * @return резерв, который нужно закрыть после декодирования
+     * @throws ImageDecodeException если память не освободилась за отведённое время
+     */
+    public Reservation reserve(long bytes, long timeout, TimeUnit unit) throws ImageDecodeException {
+        int kb = (int) Math.max(1L, (bytes + KB - 1) / KB);
+        if (kb > totalKb) {
+            throw new IllegalArgumentException("Запрошено " + bytes + " байт при бюджете " + totalBytes());
+        }
+        try {
+            if (!permits.tryAcquire(kb, timeout, unit)) {
+                throw new ImageDecodeException("Бюджет памяти на декодирование изображений исчерпан");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageDecodeException("Ожидание памяти на декодирование прервано", e);
+        }
+        return new Reservation(kb);
+    }
+
+    /**
+     * @return общий бюджет в байтах
+     */
+    public long totalBytes() {
+        return totalKb * KB;
+    }
+
+    /**
+     * @return свободная в данный момент память в байтах
+     */
+    public long availableBytes() {
+        return permits.availablePermits() * KB;
+    }
+
+    /**
+     * Зарезервированная под одно декодирование память.
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final int kb;
+
+        private boolean released;
+
+        private Reservation(int kb) {
+            this.kb = kb;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                permits.release(kb);
+            }
+        }
+    }
+}
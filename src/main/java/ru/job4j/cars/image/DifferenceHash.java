@@ -0,0 +1,59 @@
+package ru.job4j.cars.image;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+
+/**
+ * Перцептивный хеш изображения (dHash).
+ * Изображение уменьшается до 9x8 в оттенках серого, и каждый из 64 битов хеша показывает,
+ * ярче ли пиксель своего правого соседа. Повторное сжатие, изменение размера и небольшая
+ * правка цвета меняют лишь несколько битов, поэтому близость изображений измеряется
+ * расстоянием Хэмминга между хешами.
+ */
+public final class DifferenceHash {
+
+    private static final int WIDTH = 9;
+
+    private static final int HEIGHT = 8;
+
+    private DifferenceHash() {
+    }
+
+    /**
+     * Вычисляет хеш изображения.
+     *
+     * @param image изображение любого размера
+     * @return 64-битный хеш
+     */
+    public static long of(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.drawImage(image.getScaledInstance(WIDTH, HEIGHT, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        Raster raster = gray.getRaster();
+        long hash = 0L;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                boolean brighter = raster.getSample(x, y, 0) > raster.getSample(x + 1, y, 0);
+                hash = hash << 1 | (brighter ? 1L : 0L);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Расстояние Хэмминга между хешами: число различающихся битов.
+     *
+     * @param first  первый хеш
+     * @param second второй хеш
+     * @return число от 0 до 64
+     */
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+}
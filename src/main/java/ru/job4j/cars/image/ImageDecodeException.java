@@ -0,0 +1,18 @@
+package ru.job4j.cars.image;
+
+import java.io.IOException;
+
+/**
+ * Ошибка чтения изображения: неизвестный формат, слишком большое исходное изображение
+ * или исчерпанный бюджет памяти на декодирование.
+ */
+public class ImageDecodeException extends IOException {
+
+    public ImageDecodeException(String message) {
+        super(message);
+    }
+
+    public ImageDecodeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
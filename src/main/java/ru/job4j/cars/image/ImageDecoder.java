@@ -0,0 +1,162 @@
+package ru.job4j.cars.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Декодер загруженных изображений с ограничением по памяти.
+ * Размеры читаются из заголовка файла, после чего изображение декодируется сразу
+ * в уменьшенном разрешении через субдискретизацию {@link ImageReadParam}.
+ * Одновременно идущие декодирования делят общий {@link DecodeMemoryBudget},
+ * поэтому пачка больших панорам не может исчерпать кучу.
+ */
+@Slf4j
+@Component
+public class ImageDecoder {
+
+    /**
+     * Оценка памяти на пиксель декодированного растра (TYPE_INT_RGB / TYPE_INT_ARGB).
+     */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final DecodeMemoryBudget budget;
+
+    private final long waitMillis;
+
+    private final long maxSourcePixels;
+
+    public ImageDecoder(@Value("${app.image.decode-budget:64MB}") DataSize budget,
+                        @Value("${app.image.decode-wait:5s}") Duration wait,
+                        @Value("${app.image.max-source-pixels:150000000}") long maxSourcePixels) {
+        this.budget = new DecodeMemoryBudget(budget.toBytes());
+        this.waitMillis = wait.toMillis();
+        this.maxSourcePixels = maxSourcePixels;
+    }
+
+    /**
+     * Читает размеры и формат изображения из заголовка, не декодируя пиксели.
+     *
+     * @param file файл изображения
+     * @return сведения об изображении
+     * @throws IOException если файл не является изображением поддерживаемого формата
+     */
+    public ImageInfo probe(Path file) throws IOException {
+        try (ImageInputStream in = open(file)) {
+            ImageReader reader = readerFor(in, file);
+            try {
+                reader.setInput(in, true, true);
+                return info(reader, reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Декодирует изображение так, чтобы его большая сторона была не больше maxSide,
+     * и передаёт результат обработчику. Память под растр остаётся зарезервированной
+     * до выхода из обработчика, поэтому ссылку на изображение нельзя сохранять за его пределами.
+     *
+     * @param file      файл изображения
+     * @param maxSide   желаемый размер большей стороны в пикселях
+     * @param processor обработчик декодированного изображения
+     * @param <T>       тип результата обработки
+     * @return результат обработчика
+     * @throws IOException если изображение не удалось прочитать или не хватило бюджета памяти
+     */
+    public <T> T decode(Path file, int maxSide, Processor<T> processor) throws IOException {
+        try (ImageInputStream in = open(file)) {
+            ImageReader reader = readerFor(in, file);
+            try {
+                reader.setInput(in, true, true);
+                ImageInfo info = info(reader, reader.getWidth(0), reader.getHeight(0));
+                if (info.pixels() > maxSourcePixels) {
+                    throw new ImageDecodeException("Изображение " + file.getFileName() + " слишком велико: "
+                            + info.width() + "x" + info.height());
+                }
+                int subsampling = subsampling(info.width(), info.height(), maxSide);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                long estimate = estimateBytes(info.width(), info.height(), subsampling);
+                try (DecodeMemoryBudget.Reservation ignored = budget.reserve(estimate, waitMillis, TimeUnit.MILLISECONDS)) {
+                    log.debug("Декодирование {} ({}x{}) с шагом {}", file.getFileName(), info.width(), info.height(), subsampling);
+                    return processor.process(reader.read(0, param), info);
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Шаг субдискретизации: минимальный, при котором большая сторона не превышает maxSide,
+     * а оценка растра укладывается в общий бюджет памяти.
+     *
+     * @param width   ширина исходного изображения
+     * @param height  высота исходного изображения
+     * @param maxSide желаемый размер большей стороны
+     * @return шаг субдискретизации, не меньше 1
+     */
+    int subsampling(int width, int height, int maxSide) {
+        int longest = Math.max(width, height);
+        int step = Math.max(1, (longest + maxSide - 1) / Math.max(1, maxSide));
+        while (estimateBytes(width, height, step) > budget.totalBytes()) {
+            step++;
+        }
+        return step;
+    }
+
+    private long estimateBytes(int width, int height, int step) {
+        long outWidth = (width + step - 1) / step;
+        long outHeight = (height + step - 1) / step;
+        return outWidth * outHeight * BYTES_PER_PIXEL;
+    }
+
+    private ImageInputStream open(Path file) throws IOException {
+        ImageInputStream in = ImageIO.createImageInputStream(file.toFile());
+        if (in == null) {
+            throw new ImageDecodeException("Не удалось открыть " + file.getFileName());
+        }
+        return in;
+    }
+
+    private ImageReader readerFor(ImageInputStream in, Path file) throws ImageDecodeException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            throw new ImageDecodeException("Неизвестный формат изображения: " + file.getFileName());
+        }
+        return readers.next();
+    }
+
+    private ImageInfo info(ImageReader reader, int width, int height) throws IOException {
+        ImageReaderSpi provider = reader.getOriginatingProvider();
+        String[] mimeTypes = provider != null ? provider.getMIMETypes() : null;
+        String mimeType = mimeTypes != null && mimeTypes.length > 0 ? mimeTypes[0] : null;
+        return new ImageInfo(width, height, reader.getFormatName(), mimeType);
+    }
+
+    /**
+     * Обработчик декодированного изображения.
+     *
+     * @param <T> тип результата
+     */
+    @FunctionalInterface
+    public interface Processor<T> {
+
+        T process(BufferedImage image, ImageInfo info) throws IOException;
+    }
+}
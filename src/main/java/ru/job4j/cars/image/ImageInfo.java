@@ -0,0 +1,21 @@
+package ru.job4j.cars.image;
+
+/**
+ * Сведения об изображении, прочитанные из заголовка файла без декодирования пикселей.
+ *
+ * @param width      ширина в пикселях
+ * @param height     высота в пикселях
+ * @param formatName имя формата ImageIO (jpeg, png, ...)
+ * @param mimeType   MIME-тип формата
+ */
+public record ImageInfo(int width, int height, String formatName, String mimeType) {
+
+    /**
+     * Количество пикселей исходного изображения.
+     *
+     * @return ширина, умноженная на высоту
+     */
+    public long pixels() {
+        return (long) width * height;
+    }
+}
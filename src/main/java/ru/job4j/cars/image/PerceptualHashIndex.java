@@ -0,0 +1,319 @@
+package ru.job4j.cars.image;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс 64-битных перцептивных хешей для поиска по расстоянию Хэмминга
+ * (multi-index hashing).
+ * Хеш делится на 4 части по 16 бит, и для каждой части ведётся таблица
+ * «значение части → фотографии». Если хеши отличаются не более чем в r битах,
+ * то хотя бы одна из частей отличается не более чем в r / 4 битах, поэтому
+ * достаточно перебрать соседей каждой части в этом радиусе и проверить найденных
+ * кандидатов по полному хешу. Полный перебор всех фотографий не нужен.
+ * <p>
+ * Хеши, id фотографий и объявлений хранятся в примитивных массивах;
+ * индекс потокобезопасен: поиск идёт под блокировкой чтения, изменения — под блокировкой записи.
+ */
+public class PerceptualHashIndex {
+
+    /**
+     * Наибольший поддерживаемый радиус поиска: соседи каждой части перебираются в радиусе 3 бита.
+     */
+    public static final int MAX_DISTANCE = 15;
+
+    private static final int CHUNKS = 4;
+
+    private static final int CHUNK_BITS = 16;
+
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int INITIAL_BUCKET = 4;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slotsByPhoto = new HashMap<>();
+
+    private final int[][][] buckets = new int[CHUNKS][CHUNK_MASK + 1][];
+
+    private final int[][] bucketSizes = new int[CHUNKS][CHUNK_MASK + 1];
+
+    private long[] hashes = new long[INITIAL_CAPACITY];
+
+    private long[] photoIds = new long[INITIAL_CAPACITY];
+
+    private long[] postIds = new long[INITIAL_CAPACITY];
+
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+
+    private int freeCount;
+
+    private int used;
+
+    /**
+     * Добавляет фотографию или заменяет её хеш.
+     *
+     * @param photoId id фотографии
+     * @param postId  id объявления
+     * @param hash    перцептивный хеш
+     */
+    public void add(long photoId, long postId, long hash) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(photoId);
+            int slot = allocateSlot();
+            hashes[slot] = hash;
+            photoIds[slot] = photoId;
+            postIds[slot] = postId;
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                appendToBucket(chunk, chunkValue(hash, chunk), slot);
+            }
+            slotsByPhoto.put(photoId, slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет фотографию из индекса.
+     *
+     * @param photoId id фотографии
+     */
+    public void remove(long photoId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(photoId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет все фотографии объявления.
+     *
+     * @param postId id объявления
+     */
+    public void removePost(long postId) {
+        lock.writeLock().lock();
+        try {
+            List<Long> photos = new ArrayList<>();
+            for (Map.Entry<Long, Integer> entry : slotsByPhoto.entrySet()) {
+                if (postIds[entry.getValue()] == postId) {
+                    photos.add(entry.getKey());
+                }
+            }
+            photos.forEach(this::removeLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет все фотографии.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slotsByPhoto.clear();
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                Arrays.fill(buckets[chunk], null);
+                Arrays.fill(bucketSizes[chunk], 0);
+            }
+            used = 0;
+            freeCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Хеш фотографии из индекса.
+     *
+     * @param photoId id фотографии
+     * @return хеш или null, если фотографии нет в индексе
+     */
+    public Long hashOf(long photoId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsByPhoto.get(photoId);
+            return slot != null ? hashes[slot] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Объявление фотографии из индекса.
+     *
+     * @param photoId id фотографии
+     * @return id объявления или null, если фотографии нет в индексе
+     */
+    public Long postOf(long photoId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsByPhoto.get(photoId);
+            return slot != null ? postIds[slot] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Число фотографий в индексе.
+     *
+     * @return размер индекса
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsByPhoto.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Находит фотографии, хеш которых отличается от заданного не более чем в maxDistance битах.
+     *
+     * @param hash        искомый хеш
+     * @param maxDistance радиус поиска от 0 до {@link #MAX_DISTANCE}
+     * @return найденные фотографии, ближайшие первыми
+     */
+    public List<PhotoMatch> search(long hash, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("Радиус поиска должен быть от 0 до " + MAX_DISTANCE);
+        }
+        lock.readLock().lock();
+        try {
+            Search search = new Search(hash, maxDistance);
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                search.probe(chunk, chunkValue(hash, chunk), search.chunkRadius, 0);
+            }
+            search.matches.sort(Comparator.comparingInt(PhotoMatch::distance).thenComparingLong(PhotoMatch::photoId));
+            return search.matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long photoId) {
+        Integer slot = slotsByPhoto.remove(photoId);
+        if (slot == null) {
+            return;
+        }
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            removeFromBucket(chunk, chunkValue(hashes[slot], chunk), slot);
+        }
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (used == hashes.length) {
+            int capacity = used * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            photoIds = Arrays.copyOf(photoIds, capacity);
+            postIds = Arrays.copyOf(postIds, capacity);
+        }
+        return used++;
+    }
+
+    private void appendToBucket(int chunk, int value, int slot) {
+        int[] bucket = buckets[chunk][value];
+        int size = bucketSizes[chunk][value];
+        if (bucket == null) {
+            bucket = new int[INITIAL_BUCKET];
+        } else if (size == bucket.length) {
+            bucket = Arrays.copyOf(bucket, size * 2);
+        }
+        bucket[size] = slot;
+        buckets[chunk][value] = bucket;
+        bucketSizes[chunk][value] = size + 1;
+    }
+
+    private void removeFromBucket(int chunk, int value, int slot) {
+        int[] bucket = buckets[chunk][value];
+        int size = bucketSizes[chunk][value];
+        for (int i = 0; i < size; i++) {
+            if (bucket[i] == slot) {
+                bucket[i] = bucket[size - 1];
+                bucketSizes[chunk][value] = size - 1;
+                return;
+            }
+        }
+    }
+
+    private static int chunkValue(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & CHUNK_MASK;
+    }
+
+    /**
+     * Состояние одного поиска. Кандидат, найденный по нескольким частям хеша,
+     * учитывается только в первой из них, поэтому отдельное множество просмотренных не нужно.
+     */
+    private final class Search {
+
+        private final long hash;
+
+        private final int maxDistance;
+
+        private final int chunkRadius;
+
+        private final List<PhotoMatch> matches = new ArrayList<>();
+
+        private Search(long hash, int maxDistance) {
+            this.hash = hash;
+            this.maxDistance = maxDistance;
+            this.chunkRadius = maxDistance / CHUNKS;
+        }
+
+        /**
+         * Проверяет таблицу части для значения value и всех значений, отличающихся
+         * от него не более чем в flipsLeft битах начиная с бита fromBit.
+         */
+        private void probe(int chunk, int value, int flipsLeft, int fromBit) {
+            check(chunk, value);
+            if (flipsLeft == 0) {
+                return;
+            }
+            for (int bit = fromBit; bit < CHUNK_BITS; bit++) {
+                probe(chunk, value ^ (1 << bit), flipsLeft - 1, bit + 1);
+            }
+        }
+
+        private void check(int chunk, int value) {
+            int[] bucket = buckets[chunk][value];
+            int size = bucketSizes[chunk][value];
+            for (int i = 0; i < size; i++) {
+                int slot = bucket[i];
+                long candidate = hashes[slot];
+                int distance = DifferenceHash.distance(hash, candidate);
+                if (distance <= maxDistance && !foundInEarlierChunk(candidate, chunk)) {
+                    matches.add(new PhotoMatch(photoIds[slot], postIds[slot], distance));
+                }
+            }
+        }
+
+        private boolean foundInEarlierChunk(long candidate, int chunk) {
+            for (int earlier = 0; earlier < chunk; earlier++) {
+                int differing = Integer.bitCount(chunkValue(hash, earlier) ^ chunkValue(candidate, earlier));
+                if (differing <= chunkRadius) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.job4j.cars.image;
+
+/**
+ * Перцептивный хеш сохранённой фотографии.
+ *
+ * @param photoId id фотографии
+ * @param postId  id объявления
+ * @param hash    перцептивный хеш
+ */
+public record PhotoHash(long photoId, long postId, long hash) {
+}
@@ -0,0 +1,11 @@
+package ru.job4j.cars.image;
+
+/**
+ * Фотография, похожая на искомую.
+ *
+ * @param photoId  id фотографии
+ * @param postId   id объявления, к которому она относится
+ * @param distance расстояние Хэмминга между перцептивными хешами
+ */
+public record PhotoMatch(long photoId, long postId, int distance) {
+}
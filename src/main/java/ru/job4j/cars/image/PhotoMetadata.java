@@ -0,0 +1,16 @@
+package ru.job4j.cars.image;
+
+/**
+ * Метаданные загруженной фотографии, сохраняемые вместе с {@link ru.job4j.cars.model.PostPhoto}.
+ * Для файлов, которые не удалось прочитать как изображение, известны только размер и заявленный тип.
+ *
+ * @param width          ширина в пикселях или null
+ * @param height         высота в пикселях или null
+ * @param byteSize       размер файла в байтах
+ * @param mimeType       MIME-тип
+ * @param placeholder    data URI крошечной копии изображения или null
+ * @param perceptualHash перцептивный хеш {@link DifferenceHash} или null
+ */
+public record PhotoMetadata(Integer width, Integer height, long byteSize, String mimeType, String placeholder,
+                            Long perceptualHash) {
+}
@@ -0,0 +1,86 @@
+package ru.job4j.cars.image;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+/**
+ * Извлекает метаданные фотографии при загрузке: размеры, размер файла, MIME-тип
+ * и заглушку LQIP (крошечный PNG в data URI), которую шаблоны показывают до загрузки фотографии,
+ * а также перцептивный хеш для поиска повторно загруженных фотографий.
+ * Всё вычисляется по одному декодированию уменьшенной копии.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class PhotoMetadataExtractor {
+
+    /**
+     * Размер большей стороны при декодировании исходника для заглушки.
+     */
+    private static final int PLACEHOLDER_SOURCE_SIDE = 64;
+
+    /**
+     * Размер большей стороны заглушки.
+     */
+    private static final int PLACEHOLDER_SIDE = 16;
+
+    /**
+     * Ограничение длины заглушки, совпадает с размером колонки post_photos.placeholder.
+     */
+    private static final int PLACEHOLDER_MAX_LENGTH = 2048;
+
+    private final ImageDecoder imageDecoder;
+
+    /**
+     * Извлекает метаданные сохранённого на диск файла.
+     *
+     * @param file             сохранённый файл
+     * @param declaredMimeType тип, заявленный клиентом, используется если файл не удалось прочитать
+     * @return метаданные фотографии
+     * @throws IOException если не удалось определить размер файла
+     */
+    public PhotoMetadata extract(Path file, String declaredMimeType) throws IOException {
+        long byteSize = Files.size(file);
+        try {
+            return imageDecoder.decode(file, PLACEHOLDER_SOURCE_SIDE, (image, info) -> new PhotoMetadata(
+                    info.width(),
+                    info.height(),
+                    byteSize,
+                    info.mimeType() != null ? info.mimeType() : declaredMimeType,
+                    placeholder(image),
+                    DifferenceHash.of(image)
+            ));
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать изображение {}: {}", file.getFileName(), e.getMessage());
+            return new PhotoMetadata(null, null, byteSize, declaredMimeType, null, null);
+        }
+    }
+
+    private String placeholder(BufferedImage image) throws IOException {
+        double scale = (double) PLACEHOLDER_SIDE / Math.max(image.getWidth(), image.getHeight());
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage tiny = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = tiny.createGraphics();
+        try {
+            graphics.drawImage(image.getScaledInstance(width, height, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(tiny, "png", out);
+        String uri = "data:image/png;base64," + Base64.getEncoder().encodeToString(out.toByteArray());
+        return uri.length() <= PLACEHOLDER_MAX_LENGTH ? uri : null;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.job4j.cars.live;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Кольцевой буфер последних событий потока, общий для всех подписчиков.
+ * <p>
+ * Событие сериализуется в байты один раз при добавлении и получает порядковый номер в буфере, начиная с 1.
+ * Каждый подписчик хранит только свой курсор — номер следующего события — и читает буфер без блокировок.
+ * Номер в буфере свой у каждого узла, поэтому клиенту отдаётся не он, а номер события, общий для всех узлов
+ * и растущий от события к событию; по нему переподключившийся клиент находит продолжение ({@link #firstAfter}).
+ * Буфер хранит последние {@code capacity} событий; событие, которое подписчик не успел прочитать до того,
+ * как его вытеснили, больше не читается, и подписчик считается отставшим.
+ */
+public final class EventRing {
+
+    /**
+     * Номер события для записей без номера, например комментариев-пульса.
+     */
+    public static final long NO_ID = -1;
+
+    private final AtomicReferenceArray<Frame> frames;
+
+    private final int mask;
+
+    /**
+     * Номер следующего события. Увеличивается после записи события в ячейку,
+     * поэтому все события с меньшими номерами уже записаны.
+     */
+    private volatile long next = 1;
+
+    /**
+     * Создаёт буфер.
+     *
+     * @param capacity сколько последних событий хранить; округляется вверх до степени двойки
+     */
+    public EventRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость буфера должна быть положительной: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        size = size < capacity ? size << 1 : size;
+        this.frames = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Добавляет событие. Номера событий должны расти от события к событию.
+     *
+     * @param eventId номер события, общий для всех узлов, или {@link #NO_ID}
+     * @param bytes   сериализованное событие
+     * @return номер события в буфере
+     */
+    public synchronized long append(long eventId, byte[] bytes) {
+        long sequence = next;
+        frames.set((int) (sequence & mask), new Frame(sequence, eventId, bytes));
+        next = sequence + 1;
+        return sequence;
+    }
+
+    /**
+     * Байты события.
+     *
+     * @param sequence номер события, меньший {@link #next()}
+     * @return байты события или null, если событие уже вытеснено
+     */
+    public byte[] get(long sequence) {
+        Frame frame = frames.get((int) (sequence & mask));
+        return frame != null && frame.sequence == sequence ? frame.bytes : null;
+    }
+
+    /**
+     * Номер, который получит следующее событие.
+     *
+     * @return номер следующего события
+     */
+    public long next() {
+        return next;
+    }
+
+    /**
+     * Номер самого старого события, которое ещё хранится в буфере.
+     *
+     * @return номер самого старого события; равен {@link #next()}, если событий не было
+     */
+    public long oldest() {
+        return Math.max(1, next - frames.length());
+    }
+
+    /**
+     * Номер в буфере первого хранимого события с номером больше указанного.
+     * Записи без номера между такими событиями тоже входят в продолжение.
+     *
+     * @param eventId номер последнего полученного клиентом события
+     * @return номер в буфере; равен {@link #next()}, если таких событий в буфере нет
+     */
+    public long firstAfter(long eventId) {
+        long first = next;
+        for (long sequence = first - 1; sequence >= oldest(); sequence--) {
+            Frame frame = frames.get((int) (sequence & mask));
+            if (frame == null || frame.sequence != sequence
+                    || frame.eventId != NO_ID && frame.eventId <= eventId) {
+                break;
+            }
+            first = sequence;
+        }
+        return first;
+    }
+
+    /**
+     * Число хранимых событий.
+     *
+     * @return ёмкость буфера
+     */
+    public int capacity() {
+        return frames.length();
+    }
+
+    private record Frame(long sequence, long eventId, byte[] bytes) {
+    }
+}
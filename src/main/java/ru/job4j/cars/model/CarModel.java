@@ -14,4 +14,8 @@ public class CarModel {
 
     @Column(nullable = false, length = 255)
     private String name;
-}
\ No newline at end of file
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "brand_id", nullable = false, foreignKey = @ForeignKey(name = "FK_MODELS_BRAND"))
+    private Brand brand;
+}
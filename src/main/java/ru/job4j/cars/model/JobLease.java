@@ -0,0 +1,33 @@
+package ru.job4j.cars.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Аренда фоновой задачи: какой узел выполняет задачу и до какого времени.
+ * Узел продлевает аренду, пока работает; после срока её может захватить другой узел.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "job_leases")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class JobLease {
+
+    @Id
+    @Column(length = 100)
+    @EqualsAndHashCode.Include
+    private String name;
+
+    @Column(length = 100, nullable = false)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,80 @@
+package ru.job4j.cars.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Плоская строка поиска объявлений: объявление и id всех атрибутов его автомобиля в одной таблице,
+ * чтобы фильтры и сортировки читали её без соединений с автомобилями и справочниками.
+ * Таблица заполняется только SQL-запросами {@link ru.job4j.cars.repository.ListingSearchRepository}
+ * в транзакциях записи объявлений, фотографий и автомобилей, поэтому сущность неизменяемая.
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "listing_search")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class ListingSearch {
+
+    @Id
+    @Column(name = "post_id")
+    @EqualsAndHashCode.Include
+    private Long postId;
+
+    @Convert(converter = PostStatusConverter.class)
+    @Column(nullable = false)
+    private PostStatus status;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal price;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "brand_id", nullable = false)
+    private Long brandId;
+
+    @Column(name = "model_id", nullable = false)
+    private Long modelId;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Column(name = "body_id", nullable = false)
+    private Long bodyId;
+
+    @Column(name = "engine_id", nullable = false)
+    private Long engineId;
+
+    @Column(name = "transmission_type_id", nullable = false)
+    private Long transmissionTypeId;
+
+    @Column(name = "drive_type_id", nullable = false)
+    private Long driveTypeId;
+
+    @Column(name = "car_color_id", nullable = false)
+    private Long carColorId;
+
+    @Column(name = "fuel_type_id", nullable = false)
+    private Long fuelTypeId;
+
+    @Column(name = "wheel_side_id", nullable = false)
+    private Long wheelSideId;
+
+    @Column(name = "year_of_manufacture", nullable = false)
+    private Long yearOfManufacture;
+
+    @Column(nullable = false)
+    private Long mileage;
+
+    /**
+     * Путь к первой фотографии объявления, если она есть.
+     */
+    @Column(name = "cover_photo_path", length = 255)
+    private String coverPhotoPath;
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -20,8 +21,9 @@ public class Post {
     @EqualsAndHashCode.Include
     private Long id;
 
-    @Column(length = 6, nullable = false)
-    private String status;
+    @Convert(converter = PostStatusConverter.class)
+    @Column(nullable = false)
+    private PostStatus status;
 
     @Column(length = 255)
     private String description;
@@ -29,6 +31,32 @@ public class Post {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    /**
+     * Время последнего изменения: по нему индекс поиска догоняет изменения после загрузки снимка.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * Число просмотров. Меняется только пакетным прибавлением накопленных просмотров,
+     * поэтому сохранение объявления его не перезаписывает.
+     */
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long views;
+
+    /**
+     * Затухающая оценка популярности в логарифмической форме ({@link ru.job4j.cars.ranking.DecayedScore});
+     * null — у объявления ещё не было событий. Записывается только контрольными точками оценок.
+     */
+    @Column(insertable = false, updatable = false)
+    private Double popularity;
+
+    /**
+     * Сколько пользователей добавили объявление в избранное. Меняется только пакетными приращениями.
+     */
+    @Column(name = "favorite_count", nullable = false, insertable = false, updatable = false)
+    private int favoriteCount;
+
     @Column(nullable = false, precision = 10, scale = 2)
     private java.math.BigDecimal price;
 
@@ -42,4 +70,14 @@ public class Post {
 
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<PostPhoto> postPhotos;
-}
\ No newline at end of file
+
+    /**
+     * Время обрезается до микросекунд — точности столбца, иначе база округлит его,
+     * и сохранённое значение разойдётся со значением в объекте.
+     */
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
@@ -18,6 +18,39 @@ public class PostPhoto {
     @Column(name = "photo_path", nullable = false, length = 255)
     private String photoPath;
 
+    /**
+     * Ширина изображения в пикселях, null если файл не удалось прочитать как изображение.
+     */
+    @Column
+    private Integer width;
+
+    /**
+     * Высота изображения в пикселях.
+     */
+    @Column
+    private Integer height;
+
+    /**
+     * Размер файла в байтах.
+     */
+    @Column(name = "byte_size")
+    private Long byteSize;
+
+    @Column(name = "mime_type", length = 50)
+    private String mimeType;
+
+    /**
+     * Крошечная копия изображения в виде data URI, показывается до загрузки самой фотографии.
+     */
+    @Column(length = 2048)
+    private String placeholder;
+
+    /**
+     * Перцептивный хеш (dHash) изображения: похожие изображения отличаются в немногих битах.
+     */
+    @Column(name = "perceptual_hash")
+    private Long perceptualHash;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id", nullable = false, foreignKey = @ForeignKey(name = "FK_PHOTO_POST_ID"))
     private Post post;
@@ -26,4 +59,4 @@ public class PostPhoto {
     public String getImageUrl() {
         return "/uploads/images/" + this.photoPath;
     }
-}
\ No newline at end of file
+}
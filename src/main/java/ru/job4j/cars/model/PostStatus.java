@@ -0,0 +1,46 @@
+package ru.job4j.cars.model;
+
+import java.util.Arrays;
+
+/**
+ * Статус объявления. В базе хранится числовым кодом (smallint), см. {@link PostStatusConverter}:
+ * коды не зависят от порядка констант, поэтому новые статусы можно добавлять в любое место.
+ */
+public enum PostStatus {
+
+    ACTIVE((short) 1, "Активно"),
+    SOLD((short) 2, "Продано"),
+    CLOSED((short) 3, "Снято с продажи"),
+    EXPIRED((short) 4, "Срок размещения истёк");
+
+    private final short code;
+
+    private final String title;
+
+    PostStatus(short code, String title) {
+        this.code = code;
+        this.title = title;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Статус по коду из базы.
+     *
+     * @param code код статуса
+     * @return статус
+     * @throws IllegalArgumentException если код неизвестен
+     */
+    public static PostStatus fromCode(short code) {
+        return Arrays.stream(values())
+                .filter(status -> status.code == code)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестный код статуса объявления: " + code));
+    }
+}
@@ -0,0 +1,21 @@
+package ru.job4j.cars.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Хранение {@link PostStatus} в колонке smallint по коду статуса.
+ */
+@Converter
+public class PostStatusConverter implements AttributeConverter<PostStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(PostStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public PostStatus convertToEntityAttribute(Short code) {
+        return code == null ? null : PostStatus.fromCode(code);
+    }
+}
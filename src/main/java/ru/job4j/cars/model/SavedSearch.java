@@ -0,0 +1,82 @@
+package ru.job4j.cars.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Сохранённый поиск пользователя: условия фильтра поиска без сортировки и страницы.
+ * О новых объявлениях, подходящих под условия, пользователю приходят уведомления.
+ */
+@Data
+@Entity
+@Table(name = "saved_searches")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class SavedSearch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(name = "FK_SAVED_SEARCH_USER_ID"))
+    private User user;
+
+    @Column(length = 255)
+    private String query;
+
+    @Column(name = "brand_id")
+    private Long brandId;
+
+    @Column(name = "model_id")
+    private Long modelId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "body_id")
+    private Long bodyId;
+
+    @Column(name = "engine_id")
+    private Long engineId;
+
+    @Column(name = "transmission_type_id")
+    private Long transmissionTypeId;
+
+    @Column(name = "drive_type_id")
+    private Long driveTypeId;
+
+    @Column(name = "car_color_id")
+    private Long carColorId;
+
+    @Column(name = "fuel_type_id")
+    private Long fuelTypeId;
+
+    @Column(name = "wheel_side_id")
+    private Long wheelSideId;
+
+    @Column(name = "price_from", precision = 10, scale = 2)
+    private BigDecimal priceFrom;
+
+    @Column(name = "price_to", precision = 10, scale = 2)
+    private BigDecimal priceTo;
+
+    @Column(name = "year_from")
+    private Long yearFrom;
+
+    @Column(name = "year_to")
+    private Long yearTo;
+
+    @Column(name = "mileage_from")
+    private Long mileageFrom;
+
+    @Column(name = "mileage_to")
+    private Long mileageTo;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
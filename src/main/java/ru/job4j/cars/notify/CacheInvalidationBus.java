@@ -0,0 +1,186 @@
+package ru.job4j.cars.notify;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.repository.CacheEpochRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Сброс кешей в памяти на всех узлах после изменения данных.
+ * <p>
+ * Кеш регистрирует область ({@link #register}) с обработчиками сброса одного ключа и всей области.
+ * Узел, изменивший данные, после фиксации вызывает {@link #publish}: свой кеш сбрасывается сразу,
+ * а остальным узлам уходит NOTIFY с текстом «номер:область:ключ» ({@link PgListener}).
+ * Номер — счётчик сбросов в базе ({@link CacheEpochRepository}), уведомления приходят по его возрастанию.
+ * <p>
+ * Пропуск в номерах значит, что уведомление потеряно, и узел сбрасывает все кеши целиком. Так же узел
+ * поступает после каждого подключения к LISTEN. Раз в app.cache.epoch-check узел сверяет свой номер
+ * со счётчиком в базе: если за интервал не пришли уведомления, которые уже были зафиксированы при
+ * прошлой сверке, кеши тоже сбрасываются целиком. Без PostgreSQL сверка остаётся единственным способом
+ * узнать о чужих изменениях.
+ * <p>
+ * Если разослать сброс не удалось, изменение уже зафиксировано, поэтому ошибка только записывается
+ * в журнал: другие узлы увидят изменение после своего полного сброса.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    /**
+     * Канал LISTEN/NOTIFY сбросов кешей.
+     */
+    public static final String CHANNEL = "cache_invalidation";
+
+    private final CacheEpochRepository cacheEpochRepository;
+
+    private final Map<String, List<Region>> regions = new ConcurrentHashMap<>();
+
+    private final Counter flushes;
+
+    /**
+     * Номер последнего учтённого сброса; -1, пока узел не сверился со счётчиком.
+     */
+    private long epoch = -1;
+
+    /**
+     * Номер в базе при прошлой сверке.
+     */
+    private long checkedEpoch = -1;
+
+    public CacheInvalidationBus(CacheEpochRepository cacheEpochRepository, PgListener pgListener,
+                                MeterRegistry registry) {
+        this.cacheEpochRepository = cacheEpochRepository;
+        this.flushes = Counter.builder("cache.flushes").description("Полные сбросы кешей из-за пропущенных уведомлений")
+                .register(registry);
+        pgListener.listen(CHANNEL, this::onMessage);
+        pgListener.onReconnect(this::resync);
+    }
+
+    /**
+     * Регистрирует кеш области.
+     *
+     * @param region имя области без двоеточий
+     * @param evict  сброс по ключу
+     * @param flush  сброс всей области
+     */
+    public void register(String region, Consumer<String> evict, Runnable flush) {
+        regions.computeIfAbsent(region, key -> new CopyOnWriteArrayList<>()).add(new Region(evict, flush));
+    }
+
+    /**
+     * Сбрасывает ключ области на этом узле и рассылает сброс остальным. Вызывается после фиксации изменения.
+     *
+     * @param region область
+     * @param key    ключ; null — вся область
+     */
+    public void publish(String region, String key) {
+        String message = region + ":" + (key != null ? key : "");
+        evict(region, key != null ? key : "");
+        try {
+            long published = cacheEpochRepository.increment(CHANNEL, number -> number + ":" + message);
+            synchronized (this) {
+                if (published == epoch + 1) {
+                    epoch = published;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось разослать сброс кеша {}", message, e);
+        }
+    }
+
+    /**
+     * Сверяет номер узла со счётчиком при старте.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        resync();
+    }
+
+    /**
+     * Сбрасывает все кеши и принимает номер счётчика: уведомления до него могли быть потеряны.
+     */
+    public void resync() {
+        long current = cacheEpochRepository.current();
+        synchronized (this) {
+            flushAll();
+            epoch = current;
+            checkedEpoch = current;
+        }
+    }
+
+    /**
+     * Сбрасывает все кеши, если уведомления, зафиксированные к прошлой сверке, так и не пришли.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.epoch-check:30s}", initialDelayString = "${app.cache.epoch-check:30s}")
+    public void check() {
+        long current = cacheEpochRepository.current();
+        synchronized (this) {
+            if (epoch >= 0 && epoch < checkedEpoch) {
+                log.warn("Не получены сбросы кешей {}..{}, кеши сбрасываются целиком", epoch + 1, checkedEpoch);
+                flushAll();
+                epoch = current;
+            } else if (epoch < 0) {
+                epoch = current;
+            }
+            checkedEpoch = current;
+        }
+    }
+
+    /**
+     * Обрабатывает уведомление «номер:область:ключ».
+     *
+     * @param payload текст уведомления
+     */
+    synchronized void onMessage(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3) {
+            log.warn("Непонятное уведомление о сбросе кеша: {}", payload);
+            return;
+        }
+        long number = Long.parseLong(parts[0]);
+        if (epoch >= 0 && number > epoch + 1) {
+            log.warn("Пропущены сбросы кешей {}..{}, кеши сбрасываются целиком", epoch + 1, number - 1);
+            flushAll();
+        } else {
+            evict(parts[1], parts[2]);
+        }
+        epoch = Math.max(epoch, number);
+    }
+
+    /**
+     * Номер последнего учтённого сброса.
+     *
+     * @return номер; -1, если узел ещё не сверился со счётчиком
+     */
+    public synchronized long epoch() {
+        return epoch;
+    }
+
+    private void evict(String region, String key) {
+        for (Region cache : regions.getOrDefault(region, List.of())) {
+            if (key.isEmpty()) {
+                cache.flush().run();
+            } else {
+                cache.evict().accept(key);
+            }
+        }
+    }
+
+    private void flushAll() {
+        regions.values().forEach(caches -> caches.forEach(cache -> cache.flush().run()));
+        flushes.increment();
+    }
+
+    private record Region(Consumer<String> evict, Runnable flush) {
+    }
+}
@@ -0,0 +1,207 @@
+package ru.job4j.cars.notify;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Приём уведомлений PostgreSQL LISTEN/NOTIFY на отдельном соединении.
+ * <p>
+ * Соединение открывается в обход пула: оно всё время занято ожиданием уведомлений и не должно
+ * отнимать соединения у запросов. Один поток ждёт уведомления, раздаёт их обработчикам своих каналов
+ * и подписывается на каналы, добавленные после подключения. Обработчики вызываются в этом потоке
+ * и должны только передавать работу дальше.
+ * <p>
+ * Уведомления, отправленные, пока соединения нет, теряются. Поэтому после каждого подключения,
+ * в том числе первого, вызываются обработчики {@link #onReconnect(Runnable)}: подписчики должны
+ * сами дочитать пропущенное. Оборванное соединение открывается заново через app.notify.reconnect-delay.
+ * С другими базами (H2 в тестах) приём выключен.
+ */
+@Slf4j
+@Component
+public class PgListener {
+
+    private static final int WAIT_MILLIS = 500;
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    private final Duration reconnectDelay;
+
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+
+    private final List<Runnable> reconnectHandlers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+
+    private volatile boolean connected;
+
+    private Thread thread;
+
+    public PgListener(@Value("${spring.datasource.url}") String url,
+                      @Value("${spring.datasource.username:}") String username,
+                      @Value("${spring.datasource.password:}") String password,
+                      @Value("${app.notify.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    /**
+     * Подписывает обработчик на канал. Можно вызывать в любой момент, в том числе до запуска.
+     *
+     * @param channel имя канала: строчные латинские буквы, цифры и подчёркивание
+     * @param handler обработчик текста уведомления
+     */
+    public void listen(String channel, Consumer<String> handler) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Недопустимое имя канала " + channel);
+        }
+        handlers.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * Добавляет обработчик, вызываемый после каждого подключения, когда подписки на каналы уже действуют.
+     *
+     * @param handler обработчик
+     */
+    public void onReconnect(Runnable handler) {
+        reconnectHandlers.add(handler);
+    }
+
+    /**
+     * Принимаются ли сейчас уведомления.
+     *
+     * @return true, если соединение открыто, подписки действуют и обработчики подключения отработали
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Запускает поток приёма уведомлений, если база — PostgreSQL.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!url.startsWith("jdbc:postgresql:")) {
+            log.info("LISTEN/NOTIFY выключен: база не PostgreSQL");
+            return;
+        }
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::run, "pg-listener");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Останавливает поток приёма и закрывает соединение.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(WAIT_MILLIS * 4L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                Set<String> listening = new HashSet<>();
+                listenNew(connection, listening);
+                log.info("LISTEN/NOTIFY: соединение открыто, каналы {}", listening);
+                reconnectHandlers.forEach(this::runSafely);
+                connected = true;
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(WAIT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getName(), notification.getParameter());
+                        }
+                    }
+                    listenNew(connection, listening);
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("LISTEN/NOTIFY: соединение потеряно, повтор через {}", reconnectDelay, e);
+                }
+            } finally {
+                connected = false;
+            }
+            pause();
+        }
+    }
+
+    /**
+     * Подписывает соединение на каналы, у которых появились обработчики.
+     */
+    private void listenNew(Connection connection, Set<String> listening) throws SQLException {
+        for (String channel : handlers.keySet()) {
+            if (listening.add(channel)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+            }
+        }
+    }
+
+    private void dispatch(String channel, String payload) {
+        for (Consumer<String> handler : handlers.getOrDefault(channel, List.of())) {
+            runSafely(() -> handler.accept(payload));
+        }
+    }
+
+    private void runSafely(Runnable handler) {
+        try {
+            handler.run();
+        } catch (RuntimeException e) {
+            log.error("LISTEN/NOTIFY: ошибка обработчика", e);
+        }
+    }
+
+    private void pause() {
+        if (!running) {
+            return;
+        }
+        try {
+            Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
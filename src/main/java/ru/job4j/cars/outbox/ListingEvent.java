@@ -0,0 +1,28 @@
+package ru.job4j.cars.outbox;
+
+/**
+ * Событие изменения объявления из таблицы listing_events.
+ * Изменение автомобиля даёт по событию на каждое его объявление, изменение фотографии — событие её объявления.
+ *
+ * @param id       номер события; события одного объявления нумеруются в порядке изменений
+ * @param postId   id объявления
+ * @param entity   что изменилось
+ * @param entityId id изменённого объявления, автомобиля или фотографии
+ * @param change   вид изменения
+ */
+public record ListingEvent(long id, long postId, Entity entity, long entityId, Change change) {
+
+    /**
+     * Изменённая сущность.
+     */
+    public enum Entity {
+        POST, CAR, PHOTO
+    }
+
+    /**
+     * Вид изменения.
+     */
+    public enum Change {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,20 @@
+package ru.job4j.cars.outbox;
+
+import java.util.List;
+
+/**
+ * Подписчик на события изменений объявлений внутри приложения.
+ * События доставляются хотя бы один раз: после ошибки любого подписчика пакет доставляется всем
+ * подписчикам повторно, поэтому обработка должна быть идемпотентной. События одного объявления
+ * приходят в порядке изменений. Исключение — событие транзакции, зафиксировавшейся позже следующих:
+ * оно доставляется отдельным пакетом, когда станет видно, после событий с большими номерами.
+ */
+public interface ListingEventListener {
+
+    /**
+     * Обрабатывает пакет событий.
+     *
+     * @param events события по возрастанию номера внутри пакета
+     */
+    void onListingEvents(List<ListingEvent> events);
+}
@@ -0,0 +1,291 @@
+package ru.job4j.cars.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.notify.PgListener;
+import ru.job4j.cars.repository.ListingEventRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Доставка событий из таблицы listing_events подписчикам {@link ListingEventListener} на этом узле.
+ * <p>
+ * Каждый узел читает все события сам, поэтому курсор — номер последнего доставленного события —
+ * хранится в памяти и при старте ставится на последнее событие в базе: прошлое состояние подписчики
+ * загружают сами. События читаются раз в app.outbox.poll-interval, а на PostgreSQL ещё и сразу
+ * по NOTIFY из фиксирующей транзакции ({@link PgListener}) и после переподключения к LISTEN.
+ * <p>
+ * Номера событий выдаются при вставке, а видны они становятся при фиксации, поэтому событие с меньшим
+ * номером может появиться позже большего. Доставляется только непрерывная цепочка после курсора;
+ * дыру перед следующим событием ждём до app.outbox.gap-timeout, чтобы сохранить порядок, и затем
+ * идём дальше, а недостающие номера запоминаем. При каждом опросе они запрашиваются снова, и событие
+ * транзакции, зафиксировавшейся поздно, доставляется отдельной порцией, как только станет видно.
+ * Номер, не появившийся за app.outbox.missing-timeout, считается номером откаченной транзакции
+ * (счётчик outbox.skipped).
+ * Если подписчик бросил исключение, курсор не сдвигается и порция доставляется всем подписчикам
+ * заново, так что доставка — хотя бы один раз.
+ */
+@Slf4j
+@Component
+public class ListingEventRelay {
+
+    /**
+     * Сколько недостающих номеров ждать одновременно.
+     */
+    private static final int MAX_MISSING = 10_000;
+
+    private final ListingEventRepository listingEventRepository;
+
+    private final List<ListingEventListener> listeners;
+
+    private final PgListener pgListener;
+
+    private final Duration pollInterval;
+
+    private final int batchSize;
+
+    private final Duration gapTimeout;
+
+    private final Counter delivered;
+
+    private final Counter skipped;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean pollScheduled = new AtomicBoolean();
+
+    /**
+     * Недостающие номера, которые ещё могут появиться, и когда их отсутствие замечено (System.nanoTime()).
+     */
+    private final Map<Long, Long> missing = new LinkedHashMap<>();
+
+    private Duration missingTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Номер последнего доставленного события; -1, пока курсор не поставлен.
+     */
+    private long cursor = -1;
+
+    /**
+     * Номер, которого не хватает в цепочке, и когда его отсутствие замечено.
+     */
+    private long gapId;
+
+    private long gapSince;
+
+    public ListingEventRelay(ListingEventRepository listingEventRepository,
+                             List<ListingEventListener> listeners,
+                             PgListener pgListener,
+                             @Value("${app.outbox.poll-interval:1s}") Duration pollInterval,
+                             @Value("${app.outbox.batch-size:500}") int batchSize,
+                             @Value("${app.outbox.gap-timeout:5s}") Duration gapTimeout,
+                             MeterRegistry registry) {
+        this.listingEventRepository = listingEventRepository;
+        this.listeners = listeners;
+        this.pgListener = pgListener;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.delivered = Counter.builder("outbox.delivered").register(registry);
+        this.skipped = Counter.builder("outbox.skipped").description("Номера событий, которые так и не появились")
+                .register(registry);
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "listing-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = pool;
+    }
+
+    /**
+     * Задаёт, сколько запрашивать недостающий номер, прежде чем счесть его номером откаченной транзакции.
+     * Должно быть больше самой долгой транзакции, меняющей объявления.
+     *
+     * @param missingTimeout время ожидания недостающего номера
+     */
+    @Value("${app.outbox.missing-timeout:10m}")
+    public synchronized void setMissingTimeout(Duration missingTimeout) {
+        this.missingTimeout = missingTimeout;
+    }
+
+    /**
+     * Подписывается на уведомления о новых событиях и запускает опрос.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        pgListener.listen(ListingEventRepository.CHANNEL, payload -> wake());
+        pgListener.onReconnect(this::wake);
+        executor.scheduleWithFixedDelay(this::pollSafely, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает доставку; недоставленные события остаются в базе.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Планирует внеочередной опрос, если он ещё не запланирован.
+     */
+    private void wake() {
+        if (pollScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                pollScheduled.set(false);
+                pollSafely();
+            });
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.error("Не удалось доставить события изменений объявлений", e);
+        }
+    }
+
+    /**
+     * Доставляет подписчикам появившиеся недостающие события и все события после курсора, порция за порцией.
+     *
+     * @return число доставленных событий
+     */
+    public synchronized int poll() {
+        if (cursor < 0) {
+            cursor = listingEventRepository.findLastId().orElse(0L);
+        }
+        int total = deliverLate();
+        List<ListingEvent> batch;
+        List<ListingEvent> ready;
+        do {
+            batch = listingEventRepository.findAfter(cursor, batchSize);
+            ready = contiguous(batch);
+            if (!ready.isEmpty()) {
+                deliver(ready);
+                cursor = ready.get(ready.size() - 1).id();
+                total += ready.size();
+            }
+        } while (batch.size() == batchSize && ready.size() == batch.size());
+        return total;
+    }
+
+    /**
+     * Доставляет события с недостающими номерами, которые стали видны, и забывает номера,
+     * ждать которые дольше нет смысла.
+     */
+    private int deliverLate() {
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        List<ListingEvent> late = listingEventRepository.findByIds(List.copyOf(missing.keySet()));
+        if (!late.isEmpty()) {
+            deliver(late);
+            late.forEach(event -> missing.remove(event.id()));
+            log.info("Доставлено {} событий, зафиксированных позже следующих за ними", late.size());
+        }
+        long now = System.nanoTime();
+        int expired = 0;
+        for (Iterator<Long> since = missing.values().iterator(); since.hasNext();) {
+            if (now - since.next() >= missingTimeout.toNanos()) {
+                since.remove();
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.warn("{} номеров событий не появились за {} и считаются откаченными", expired, missingTimeout);
+            skipped.increment(expired);
+        }
+        return late.size();
+    }
+
+    private void deliver(List<ListingEvent> events) {
+        for (ListingEventListener listener : listeners) {
+            listener.onListingEvents(events);
+        }
+        delivered.increment(events.size());
+    }
+
+    /**
+     * Начало порции без дыр после курсора. Дыра, которую ждут дольше app.outbox.gap-timeout, пропускается,
+     * а её номера запоминаются как недостающие.
+     */
+    private List<ListingEvent> contiguous(List<ListingEvent> batch) {
+        List<ListingEvent> ready = new ArrayList<>(batch.size());
+        long expected = cursor + 1;
+        for (ListingEvent event : batch) {
+            if (event.id() != expected) {
+                if (!gapExpired(expected)) {
+                    break;
+                }
+                log.debug("События {}..{} ещё не видны, доставка продолжается без них", expected, event.id() - 1);
+                remember(expected, event.id());
+            }
+            ready.add(event);
+            expected = event.id() + 1;
+        }
+        return ready;
+    }
+
+    /**
+     * Запоминает недостающие номера [from, to). Сверх {@link #MAX_MISSING} номера сразу считаются пропущенными.
+     */
+    private void remember(long from, long to) {
+        long now = System.nanoTime();
+        long overflow = 0;
+        for (long id = from; id < to; id++) {
+            if (missing.size() < MAX_MISSING) {
+                missing.put(id, now);
+            } else {
+                overflow++;
+            }
+        }
+        if (overflow > 0) {
+            log.warn("Слишком много недостающих номеров событий, {} номеров до {} не ждём", overflow, to - 1);
+            skipped.increment(overflow);
+        }
+    }
+
+    private boolean gapExpired(long missingId) {
+        long now = System.nanoTime();
+        if (gapId != missingId) {
+            gapId = missingId;
+            gapSince = now;
+        }
+        return now - gapSince >= gapTimeout.toNanos();
+    }
+
+    /**
+     * Число недостающих номеров, которые ещё ждут.
+     *
+     * @return число номеров
+     */
+    public synchronized int missing() {
+        return missing.size();
+    }
+
+    /**
+     * Номер последнего доставленного события.
+     *
+     * @return номер события; -1, если опроса ещё не было
+     */
+    public synchronized long cursor() {
+        return cursor;
+    }
+}
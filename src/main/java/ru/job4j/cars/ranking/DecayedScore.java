@@ -0,0 +1,56 @@
+package ru.job4j.cars.ranking;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Экспоненциально затухающая оценка: сумма весов событий, каждый из которых убывает вдвое за период полураспада.
+ * <p>
+ * Оценка хранится в логарифмической форме относительно фиксированной эпохи: событие с весом w в момент t
+ * даёт ln(w) + λ(t − эпоха), где λ = ln 2 / полураспад, а события складываются через ln(e^a + e^b).
+ * Настоящая оценка в момент t отличается от хранимой на одну и ту же для всех величину λ(t − эпоха),
+ * поэтому порядок оценок не меняется со временем: их не нужно пересчитывать, чтобы учесть затухание,
+ * а добавить событие — это одна операция над одним числом. Логарифм не даёт значениям переполниться.
+ */
+public final class DecayedScore {
+
+    /**
+     * Эпоха отсчёта оценок. Менять нельзя: оценки в базе посчитаны относительно неё.
+     */
+    public static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private final double ratePerMilli;
+
+    /**
+     * @param halfLife за сколько вес события убывает вдвое
+     */
+    public DecayedScore(Duration halfLife) {
+        if (halfLife.isNegative() || halfLife.isZero()) {
+            throw new IllegalArgumentException("Недопустимый период полураспада: " + halfLife);
+        }
+        this.ratePerMilli = Math.log(2) / halfLife.toMillis();
+    }
+
+    /**
+     * Оценка одного события.
+     *
+     * @param weight     вес события, больше нуля
+     * @param timeMillis время события, мс
+     * @return оценка в логарифмической форме
+     */
+    public double of(double weight, long timeMillis) {
+        return Math.log(weight) + ratePerMilli * (timeMillis - EPOCH_MILLIS);
+    }
+
+    /**
+     * Сумма двух оценок в логарифмической форме без переполнения.
+     *
+     * @param a оценка
+     * @param b оценка
+     * @return ln(e^a + e^b)
+     */
+    public static double plus(double a, double b) {
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.exp(-Math.abs(a - b)));
+    }
+}
@@ -0,0 +1,179 @@
+package ru.job4j.cars.ranking;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * K объектов с наибольшими оценками: индексированная мин-куча с позицией каждого id.
+ * <p>
+ * В корне лежит наименьшая оценка из K, поэтому проверка «попадает ли объект в K лучших» стоит O(1),
+ * а вставка, вытеснение, изменение оценки и удаление по id — O(log K): позиция объекта в куче известна,
+ * и его не нужно искать. Id и оценки хранятся в примитивных массивах.
+ * <p>
+ * Класс не потокобезопасен.
+ */
+public final class TopKHeap {
+
+    private final int capacity;
+
+    private final long[] ids;
+
+    private final double[] scores;
+
+    private final Map<Long, Integer> positions = new HashMap<>();
+
+    private int size;
+
+    /**
+     * Создаёт пустую кучу.
+     *
+     * @param capacity сколько лучших объектов хранить
+     */
+    public TopKHeap(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Недопустимый размер кучи: " + capacity);
+        }
+        this.capacity = capacity;
+        this.ids = new long[capacity];
+        this.scores = new double[capacity];
+    }
+
+    /**
+     * Задаёт оценку объекта. Объект из кучи меняет оценку на новую; новый объект попадает в кучу,
+     * если она не заполнена или его оценка выше наименьшей, которая тогда вытесняется.
+     *
+     * @param id    id объекта
+     * @param score оценка
+     * @return true, если объект теперь в куче
+     */
+    public boolean offer(long id, double score) {
+        Integer position = positions.get(id);
+        if (position != null) {
+            double old = scores[position];
+            scores[position] = score;
+            if (score > old) {
+                siftDown(position);
+            } else {
+                siftUp(position);
+            }
+            return true;
+        }
+        if (size < capacity) {
+            place(size, id, score);
+            siftUp(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        positions.remove(ids[0]);
+        place(0, id, score);
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Удаляет объект из кучи.
+     *
+     * @param id id объекта
+     * @return true, если объект был в куче
+     */
+    public boolean remove(long id) {
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return false;
+        }
+        size--;
+        if (position < size) {
+            place(position, ids[size], scores[size]);
+            siftDown(position);
+            siftUp(position);
+        }
+        return true;
+    }
+
+    /**
+     * Оценка объекта из кучи.
+     *
+     * @param id id объекта
+     * @return оценка или пусто, если объекта в куче нет
+     */
+    public OptionalDouble score(long id) {
+        Integer position = positions.get(id);
+        return position != null ? OptionalDouble.of(scores[position]) : OptionalDouble.empty();
+    }
+
+    /**
+     * Id объектов по убыванию оценки, при равных оценках — по убыванию id.
+     *
+     * @return id объектов
+     */
+    public long[] sorted() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                ? Double.compare(scores[b], scores[a])
+                : Long.compare(ids[b], ids[a]));
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = ids[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Число объектов в куче.
+     *
+     * @return не больше размера кучи
+     */
+    public int size() {
+        return size;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (scores[parent] <= scores[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        double score = scores[a];
+        place(a, ids[b], scores[b]);
+        place(b, id, score);
+    }
+
+    private void place(int position, long id, double score) {
+        ids[position] = id;
+        scores[position] = score;
+        positions.put(id, position);
+    }
+}
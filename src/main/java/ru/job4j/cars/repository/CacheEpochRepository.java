@@ -0,0 +1,59 @@
+package ru.job4j.cars.repository;
+
+import lombok.AllArgsConstructor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.function.LongFunction;
+
+/**
+ * Счётчик сбросов кешей в таблице cache_epoch (одна строка).
+ * Увеличение счётчика и NOTIFY выполняются одной транзакцией: строка счётчика блокируется до фиксации,
+ * поэтому уведомления доставляются слушателям в порядке номеров.
+ */
+@AllArgsConstructor
+@Repository
+public class CacheEpochRepository {
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Увеличивает счётчик и на PostgreSQL отправляет уведомление с новым номером.
+     *
+     * @param channel канал LISTEN/NOTIFY
+     * @param payload текст уведомления по новому номеру
+     * @return новый номер
+     */
+    public long increment(String channel, LongFunction<String> payload) {
+        return crudRepository.tx(session -> {
+            session.createNativeMutationQuery("UPDATE cache_epoch SET epoch = epoch + 1 WHERE id = 1")
+                    .executeUpdate();
+            long epoch = session.createNativeQuery("SELECT epoch FROM cache_epoch WHERE id = 1", Long.class)
+                    .getSingleResult();
+            if (session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect) {
+                session.doWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                        statement.setString(1, channel);
+                        statement.setString(2, payload.apply(epoch));
+                        statement.execute();
+                    }
+                });
+            }
+            return epoch;
+        });
+    }
+
+    /**
+     * Текущий номер.
+     *
+     * @return номер последнего разосланного сброса
+     */
+    public long current() {
+        return crudRepository.tx(session -> session.createNativeQuery(
+                        "SELECT epoch FROM cache_epoch WHERE id = 1", Long.class)
+                .getSingleResult());
+    }
+}
@@ -2,6 +2,7 @@ package ru.job4j.cars.repository;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Repository;
+import ru.job4j.cars.dto.CarModelDto;
 import ru.job4j.cars.model.CarModel;
 
 import java.util.List;
@@ -68,4 +69,42 @@ public class CarModelRepository {
                 Map.of("fId", carModelId)
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Все модели вместе с марками, одним запросом.
+     *
+     * @return список моделей с загруженной маркой.
+     */
+    public List<CarModel> findAllWithBrand() {
+        return crudRepository.query("FROM CarModel m LEFT JOIN FETCH m.brand ORDER BY m.id ASC", CarModel.class);
+    }
+
+    /**
+     * Модели марки, отсортированные по названию.
+     *
+     * @param brandId ID марки
+     * @return id и названия моделей.
+     */
+    public List<CarModelDto> findAllByBrandId(long brandId) {
+        return crudRepository.query(
+                "SELECT new ru.job4j.cars.dto.CarModelDto(m.id, m.name) FROM CarModel m WHERE m.brand.id = :brandId ORDER BY m.name ASC",
+                CarModelDto.class,
+                Map.of("brandId", brandId)
+        );
+    }
+
+    /**
+     * Найти модель автомобиля по ID, только если она относится к марке.
+     *
+     * @param carModelId ID модели
+     * @param brandId    ID марки
+     * @return модель автомобиля.
+     */
+    public Optional<CarModel> findByIdAndBrandId(long carModelId, long brandId) {
+        return crudRepository.optional(
+                "FROM CarModel WHERE id = :fId AND brand.id = :brandId",
+                CarModel.class,
+                Map.of("fId", carModelId, "brandId", brandId)
+        );
+    }
+}
@@ -1,9 +1,12 @@
 package ru.job4j.cars.repository;
 
 import lombok.AllArgsConstructor;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.*;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -26,12 +29,19 @@ public class CarRepository {
     }
 
     /**
-     * Обновить в базе автомобиль.
+     * Обновить в базе автомобиль и строки поиска его объявлений, записать события изменения объявлений.
+     * Время изменения объявлений тоже сдвигается: по нему индекс поиска, восстановленный из снимка,
+     * дочитывает изменения, сделанные, пока узел не работал.
      *
      * @param car автомобиль.
      */
     public void update(Car car) {
-        crudRepository.run(session -> session.merge(car));
+        crudRepository.run(session -> {
+            session.merge(car);
+            touchPosts(session, car.getId());
+            ListingSearchRepository.refreshCar(session, car.getId());
+            ListingEventRepository.recordCar(session, car.getId());
+        });
     }
 
     /**
@@ -40,10 +50,20 @@ public class CarRepository {
      * @param carId ID
      */
     public void delete(int carId) {
-        crudRepository.run(
-                "DELETE FROM Car WHERE id = :fId",
-                Map.of("fId", carId)
-        );
+        crudRepository.run(session -> {
+            touchPosts(session, carId);
+            ListingEventRepository.recordCar(session, carId);
+            session.createMutationQuery("DELETE FROM Car WHERE id = :fId")
+                    .setParameter("fId", carId)
+                    .executeUpdate();
+        });
+    }
+
+    private static void touchPosts(Session session, long carId) {
+        session.createMutationQuery("UPDATE Post p SET p.updatedAt = :now WHERE p.car.id = :carId")
+                .setParameter("now", LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .setParameter("carId", carId)
+                .executeUpdate();
     }
 
     /**
@@ -0,0 +1,80 @@
+package ru.job4j.cars.repository;
+
+import jakarta.persistence.PersistenceException;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Избранные объявления пользователей в таблице favorites.
+ * Число добавлений в избранное в posts.favorite_count этот репозиторий не меняет:
+ * его приращения накапливаются и записываются пакетами.
+ */
+@AllArgsConstructor
+@Repository
+public class FavoriteRepository {
+
+    private static final String INSERT = """
+            INSERT INTO favorites (user_id, post_id, created_at)
+            SELECT CAST(:userId AS BIGINT), p.id, CAST(:now AS TIMESTAMP) FROM posts p
+            WHERE p.id = :postId
+                AND NOT EXISTS (SELECT 1 FROM favorites f WHERE f.user_id = :userId AND f.post_id = :postId)
+            """;
+
+    private static final String DELETE = """
+            DELETE FROM favorites WHERE user_id = :userId AND post_id = :postId
+            """;
+
+    private static final String SELECT_POST_IDS = """
+            SELECT post_id FROM favorites WHERE user_id = :userId
+            """;
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Добавляет объявление в избранное пользователя.
+     *
+     * @param userId id пользователя
+     * @param postId id объявления
+     * @return true, если объявление добавлено; false, если оно уже в избранном или не существует
+     */
+    public boolean add(long userId, long postId) {
+        try {
+            return crudRepository.tx(session -> session.createNativeMutationQuery(INSERT)
+                    .setParameter("userId", userId)
+                    .setParameter("postId", postId)
+                    .setParameter("now", LocalDateTime.now())
+                    .executeUpdate()) == 1;
+        } catch (PersistenceException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Убирает объявление из избранного пользователя.
+     *
+     * @param userId id пользователя
+     * @param postId id объявления
+     * @return true, если объявление было в избранном
+     */
+    public boolean remove(long userId, long postId) {
+        return crudRepository.tx(session -> session.createNativeMutationQuery(DELETE)
+                .setParameter("userId", userId)
+                .setParameter("postId", postId)
+                .executeUpdate()) == 1;
+    }
+
+    /**
+     * Id избранных объявлений пользователя.
+     *
+     * @param userId id пользователя
+     * @return id объявлений в произвольном порядке
+     */
+    public List<Long> findPostIdsByUserId(long userId) {
+        return crudRepository.tx(session -> session.createNativeQuery(SELECT_POST_IDS, Long.class)
+                .setParameter("userId", userId)
+                .list());
+    }
+}
@@ -0,0 +1,80 @@
+package ru.job4j.cars.repository;
+
+import jakarta.persistence.PersistenceException;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.JobLease;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Аренды фоновых задач в базе. Захват — сравнение с обменом одним UPDATE:
+ * аренду получает тот, кто уже владеет ею, или кто угодно, если её срок истёк.
+ * Сроки считаются по часам узлов, поэтому срок аренды должен заметно превышать возможное расхождение часов.
+ */
+@AllArgsConstructor
+@Repository
+public class JobLeaseRepository {
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Захватывает или продлевает аренду задачи.
+     *
+     * @param name  имя задачи
+     * @param owner идентификатор узла
+     * @param ttl   срок аренды
+     * @return true, если аренда теперь принадлежит узлу
+     */
+    public boolean tryAcquire(String name, String owner, Duration ttl) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(ttl);
+        int updated = crudRepository.tx(session -> session.createMutationQuery("""
+                        UPDATE JobLease l SET l.owner = :owner, l.expiresAt = :until
+                        WHERE l.name = :name AND (l.owner = :owner OR l.expiresAt < :now)
+                        """)
+                .setParameter("owner", owner)
+                .setParameter("until", until)
+                .setParameter("name", name)
+                .setParameter("now", now)
+                .executeUpdate());
+        if (updated == 1) {
+            return true;
+        }
+        if (findByName(name).isPresent()) {
+            return false;
+        }
+        try {
+            crudRepository.run(session -> session.persist(new JobLease(name, owner, until)));
+            return true;
+        } catch (PersistenceException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Отпускает аренду, если она принадлежит узлу, чтобы другой узел мог захватить её сразу.
+     *
+     * @param name  имя задачи
+     * @param owner идентификатор узла
+     */
+    public void release(String name, String owner) {
+        crudRepository.run(
+                "UPDATE JobLease l SET l.expiresAt = :now WHERE l.name = :name AND l.owner = :owner",
+                Map.of("now", LocalDateTime.now(), "name", name, "owner", owner)
+        );
+    }
+
+    /**
+     * Аренда задачи.
+     *
+     * @param name имя задачи
+     * @return аренда, если задача хоть раз захватывалась
+     */
+    public Optional<JobLease> findByName(String name) {
+        return crudRepository.optional("FROM JobLease WHERE name = :name", JobLease.class, Map.of("name", name));
+    }
+}
@@ -0,0 +1,182 @@
+package ru.job4j.cars.repository;
+
+import lombok.AllArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.outbox.ListingEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Исходящие события изменений объявлений в таблице listing_events (transactional outbox).
+ * <p>
+ * Статические методы вызываются репозиториями объявлений, автомобилей и фотографий в той же транзакции,
+ * что и изменение, — событие фиксируется тогда и только тогда, когда фиксируется изменение.
+ * Строка события пишется после изменения строки объявления: конкурирующая транзакция ждёт её блокировки
+ * и получает больший номер, поэтому события одного объявления нумеруются в порядке изменений.
+ * На PostgreSQL транзакция также отправляет NOTIFY в канал {@value #CHANNEL}; уведомление доставляется
+ * при фиксации и будит рассылку событий, не дожидаясь очередного опроса.
+ */
+@AllArgsConstructor
+@Repository
+public class ListingEventRepository {
+
+    /**
+     * Канал LISTEN/NOTIFY о новых событиях.
+     */
+    public static final String CHANNEL = "listing_events";
+
+    private static final String INSERT = """
+            INSERT INTO listing_events (post_id, entity, entity_id, change_type, created_at)
+            VALUES (:postId, :entity, :entityId, :change, :now)
+            """;
+
+    private static final String INSERT_FOR_CAR = """
+            INSERT INTO listing_events (post_id, entity, entity_id, change_type, created_at)
+            SELECT p.id, :entity, p.car_id, :change, CAST(:now AS TIMESTAMP) FROM posts p
+            WHERE p.car_id = :carId ORDER BY p.id
+            """;
+
+    private static final String NOTIFY = "NOTIFY " + CHANNEL;
+
+    private static final String SELECT_AFTER = """
+            SELECT id, post_id, entity, entity_id, change_type FROM listing_events
+            WHERE id > :afterId ORDER BY id ASC
+            """;
+
+    private static final String SELECT_BY_IDS = """
+            SELECT id, post_id, entity, entity_id, change_type FROM listing_events
+            WHERE id IN (:ids) ORDER BY id ASC
+            """;
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Записывает событие в текущей транзакции.
+     *
+     * @param session  сессия транзакции, изменившей объявление
+     * @param postId   id объявления
+     * @param entity   что изменилось
+     * @param entityId id изменённой сущности
+     * @param change   вид изменения
+     */
+    public static void record(Session session, long postId, ListingEvent.Entity entity, long entityId,
+                              ListingEvent.Change change) {
+        session.createNativeMutationQuery(INSERT)
+                .setParameter("postId", postId)
+                .setParameter("entity", entity.name())
+                .setParameter("entityId", entityId)
+                .setParameter("change", change.name())
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+        notifyRelay(session);
+    }
+
+    /**
+     * Записывает события изменения нескольких объявлений в текущей транзакции.
+     *
+     * @param session сессия транзакции, изменившей объявления
+     * @param postIds id объявлений
+     * @param change  вид изменения
+     */
+    public static void recordPosts(Session session, Collection<Long> postIds, ListingEvent.Change change) {
+        for (long postId : postIds) {
+            record(session, postId, ListingEvent.Entity.POST, postId, change);
+        }
+    }
+
+    /**
+     * Записывает событие изменения автомобиля для каждого его объявления в текущей транзакции.
+     *
+     * @param session сессия транзакции, изменившей автомобиль
+     * @param carId   id автомобиля
+     */
+    public static void recordCar(Session session, long carId) {
+        int recorded = session.createNativeMutationQuery(INSERT_FOR_CAR)
+                .setParameter("entity", ListingEvent.Entity.CAR.name())
+                .setParameter("change", ListingEvent.Change.UPDATED.name())
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("carId", carId)
+                .executeUpdate();
+        if (recorded > 0) {
+            notifyRelay(session);
+        }
+    }
+
+    private static void notifyRelay(Session session) {
+        if (session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect) {
+            session.createNativeMutationQuery(NOTIFY).executeUpdate();
+        }
+    }
+
+    /**
+     * События с номером больше заданного.
+     *
+     * @param afterId номер, после которого начинается порция
+     * @param limit   размер порции
+     * @return события по возрастанию номера
+     */
+    public List<ListingEvent> findAfter(long afterId, int limit) {
+        return crudRepository.tx(session -> session.createNativeQuery(SELECT_AFTER, Object[].class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .list()
+                .stream()
+                .map(ListingEventRepository::toEvent)
+                .toList());
+    }
+
+    /**
+     * События с заданными номерами, которые уже видны.
+     *
+     * @param ids номера событий
+     * @return найденные события по возрастанию номера
+     */
+    public List<ListingEvent> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return crudRepository.tx(session -> session.createNativeQuery(SELECT_BY_IDS, Object[].class)
+                .setParameterList("ids", ids)
+                .list()
+                .stream()
+                .map(ListingEventRepository::toEvent)
+                .toList());
+    }
+
+    private static ListingEvent toEvent(Object[] row) {
+        return new ListingEvent(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                ListingEvent.Entity.valueOf((String) row[2]), ((Number) row[3]).longValue(),
+                ListingEvent.Change.valueOf((String) row[4]));
+    }
+
+    /**
+     * Номер последнего события.
+     *
+     * @return номер последнего события или пусто, если событий нет
+     */
+    public Optional<Long> findLastId() {
+        return crudRepository.tx(session -> session.createNativeQuery(
+                        "SELECT MAX(id) FROM listing_events", Long.class)
+                .uniqueResultOptional());
+    }
+
+    /**
+     * Удаляет события, записанные раньше заданного момента.
+     *
+     * @param before граница времени записи
+     * @return число удалённых событий
+     */
+    public int deleteBefore(LocalDateTime before) {
+        return crudRepository.tx(session -> session.createNativeMutationQuery(
+                        "DELETE FROM listing_events WHERE created_at < :before")
+                .setParameter("before", before)
+                .executeUpdate());
+    }
+}
@@ -0,0 +1,120 @@
+package ru.job4j.cars.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.search.ListingRow;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Чтение активных объявлений в виде плоских строк для индекса поиска в памяти.
+ */
+@AllArgsConstructor
+@Repository
+public class ListingRepository {
+
+    private static final String SELECT_ROWS = """
+            SELECT p.id, c.brand.id, c.model.id, c.category.id, c.body.id, c.engine.id,
+                   c.transmissionType.id, c.driveType.id, c.carColor.id, c.fuelType.id, c.wheelSide.id,
+                   p.price, c.yearOfManufacture, c.mileage, p.createdAt, p.description
+            FROM Post p JOIN p.car c
+            WHERE p.status = ru.job4j.cars.model.PostStatus.ACTIVE
+            """;
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Активные объявления с id больше заданного, по возрастанию id.
+     * Используется для постраничной загрузки индекса поиска.
+     *
+     * @param afterId id, после которого начинается страница
+     * @param limit   размер страницы
+     * @return строки индекса
+     */
+    public List<ListingRow> findActiveRowsAfter(long afterId, int limit) {
+        return crudRepository.tx(session -> session.createQuery(
+                        SELECT_ROWS + " AND p.id > :afterId ORDER BY p.id ASC", Object[].class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .list()
+                .stream()
+                .map(ListingRepository::toRow)
+                .toList());
+    }
+
+    /**
+     * Строка индекса для одного объявления.
+     *
+     * @param postId id объявления
+     * @return строка, если объявление существует и активно
+     */
+    public Optional<ListingRow> findActiveRow(long postId) {
+        return crudRepository.optional(SELECT_ROWS + " AND p.id = :postId", Object[].class, Map.of("postId", postId))
+                .map(ListingRepository::toRow);
+    }
+
+    /**
+     * Активные объявления из заданного набора id.
+     *
+     * @param postIds id объявлений
+     * @return строки индекса для тех из них, что существуют и активны
+     */
+    public List<ListingRow> findActiveRows(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+        return crudRepository.query(SELECT_ROWS + " AND p.id IN (:postIds)", Object[].class, Map.of("postIds", postIds))
+                .stream()
+                .map(ListingRepository::toRow)
+                .toList();
+    }
+
+    /**
+     * Id всех активных объявлений по возрастанию; используется для сверки индекса с базой.
+     *
+     * @return id активных объявлений
+     */
+    public List<Long> findActiveIds() {
+        return crudRepository.query("SELECT p.id FROM Post p WHERE p.status = ru.job4j.cars.model.PostStatus.ACTIVE ORDER BY p.id ASC", Long.class);
+    }
+
+    /**
+     * Id объявлений с любым статусом, изменённых позже заданного момента.
+     *
+     * @param since момент, после которого искать изменения
+     * @return id изменённых объявлений
+     */
+    public List<Long> findIdsUpdatedAfter(LocalDateTime since) {
+        return crudRepository.query("SELECT p.id FROM Post p WHERE p.updatedAt > :since ORDER BY p.id ASC",
+                Long.class, Map.of("since", since));
+    }
+
+    /**
+     * Время последнего изменения среди всех объявлений.
+     *
+     * @return время или пустой результат, если объявлений нет
+     */
+    public Optional<LocalDateTime> findLastUpdatedAt() {
+        return crudRepository.optional("SELECT max(p.updatedAt) FROM Post p", LocalDateTime.class, Map.of());
+    }
+
+    private static ListingRow toRow(Object[] row) {
+        BigDecimal price = (BigDecimal) row[11];
+        LocalDateTime createdAt = (LocalDateTime) row[14];
+        return new ListingRow(
+                (Long) row[0], (Long) row[1], (Long) row[2], (Long) row[3], (Long) row[4], (Long) row[5],
+                (Long) row[6], (Long) row[7], (Long) row[8], (Long) row[9], (Long) row[10],
+                price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue(),
+                (Long) row[12], (Long) row[13],
+                createdAt.toInstant(ZoneOffset.UTC).toEpochMilli(),
+                (String) row[15]
+        );
+    }
+}
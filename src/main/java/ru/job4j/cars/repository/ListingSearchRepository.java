@@ -0,0 +1,123 @@
+package ru.job4j.cars.repository;
+
+import lombok.AllArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.ListingSearch;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Плоская таблица поиска объявлений listing_search.
+ * <p>
+ * Строки пересобираются из posts, cars и post_photos SQL-запросами внутри тех же транзакций,
+ * что меняют объявление, его фотографии или автомобиль: таблица никогда не расходится с данными.
+ * Удалённые объявления убираются из неё каскадом по внешнему ключу.
+ * Объявления, созданные до появления таблицы, дозаполняются {@link #backfill(long, int)}.
+ */
+@AllArgsConstructor
+@Repository
+public class ListingSearchRepository {
+
+    private static final String DELETE_ROWS = """
+            DELETE FROM listing_search WHERE post_id IN (SELECT p.id FROM posts p WHERE %s)
+            """;
+
+    private static final String INSERT_ROWS = """
+            INSERT INTO listing_search (post_id, status, price, created_at, brand_id, model_id, category_id,
+                body_id, engine_id, transmission_type_id, drive_type_id, car_color_id, fuel_type_id, wheel_side_id,
+                year_of_manufacture, mileage, cover_photo_path)
+            SELECT p.id, p.status, p.price, p.created_at, c.brand_id, c.model_id, c.category_id,
+                c.body_id, c.engine_id, c.transmission_type_id, c.drive_type_id, c.car_color_id, c.fuel_type_id,
+                c.wheel_side_id, c.year_of_manufacture, c.mileage,
+                (SELECT ph.photo_path FROM post_photos ph
+                 WHERE ph.id = (SELECT MIN(ph2.id) FROM post_photos ph2 WHERE ph2.post_id = p.id))
+            FROM posts p JOIN cars c ON c.id = p.car_id
+            WHERE %s
+            """;
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Пересобирает строку поиска объявления в текущей транзакции.
+     *
+     * @param session сессия транзакции, изменившей объявление
+     * @param postId  id объявления
+     */
+    public static void refreshPost(Session session, long postId) {
+        refresh(session, "p.id = :postId", Map.of("postId", postId));
+    }
+
+    /**
+     * Пересобирает строки поиска нескольких объявлений в текущей транзакции.
+     *
+     * @param session сессия транзакции, изменившей объявления
+     * @param postIds id объявлений
+     */
+    public static void refreshPosts(Session session, Collection<Long> postIds) {
+        refresh(session, "p.id IN (:ids)", Map.of("ids", postIds));
+    }
+
+    /**
+     * Пересобирает строки поиска всех объявлений автомобиля в текущей транзакции.
+     *
+     * @param session сессия транзакции, изменившей автомобиль
+     * @param carId   id автомобиля
+     */
+    public static void refreshCar(Session session, long carId) {
+        refresh(session, "p.car_id = :carId", Map.of("carId", carId));
+    }
+
+    /**
+     * Дозаполняет строки поиска для порции объявлений, у которых их ещё нет.
+     *
+     * @param afterId id, после которого искать объявления без строки
+     * @param limit   размер порции
+     * @return id объявлений порции по возрастанию; пустой список — дозаполнять больше нечего
+     */
+    public List<Long> backfill(long afterId, int limit) {
+        return crudRepository.tx(session -> {
+            List<Long> ids = session.createQuery("""
+                            SELECT p.id FROM Post p
+                            WHERE p.id > :afterId AND NOT EXISTS (SELECT 1 FROM ListingSearch ls WHERE ls.postId = p.id)
+                            ORDER BY p.id ASC
+                            """, Long.class)
+                    .setParameter("afterId", afterId)
+                    .setMaxResults(limit)
+                    .list();
+            if (!ids.isEmpty()) {
+                refreshPosts(session, ids);
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Строка поиска объявления.
+     *
+     * @param postId id объявления
+     * @return строка, если объявление существует
+     */
+    public Optional<ListingSearch> findByPostId(long postId) {
+        return crudRepository.optional("FROM ListingSearch WHERE postId = :postId", ListingSearch.class,
+                Map.of("postId", postId));
+    }
+
+    private static void refresh(Session session, String condition, Map<String, Object> args) {
+        session.flush();
+        for (String statement : List.of(DELETE_ROWS, INSERT_ROWS)) {
+            var query = session.createNativeMutationQuery(statement.formatted(condition));
+            args.forEach((name, value) -> {
+                if (value instanceof Collection<?> values) {
+                    query.setParameterList(name, values);
+                } else {
+                    query.setParameter(name, value);
+                }
+            });
+            query.executeUpdate();
+        }
+    }
+}
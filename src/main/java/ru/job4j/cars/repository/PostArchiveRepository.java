@@ -0,0 +1,97 @@
+package ru.job4j.cars.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.outbox.ListingEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Перенос неактивных объявлений вместе с фотографиями в архивные таблицы.
+ * Основная таблица объявлений остаётся небольшой, и её индексы не разрастаются за счёт
+ * проданных и снятых объявлений, которые поиск никогда не читает.
+ */
+@AllArgsConstructor
+@Repository
+public class PostArchiveRepository {
+
+    private static final String COPY_POSTS = """
+            INSERT INTO posts_archive (id, status, description, created_at, updated_at, price, car_id, user_id, archived_at)
+            SELECT id, status, description, created_at, updated_at, price, car_id, user_id, :archivedAt
+            FROM posts WHERE id IN (:ids) AND status <> :active
+            """;
+
+    private static final String COPY_PHOTOS = """
+            INSERT INTO post_photos_archive (id, post_id, photo_path, width, height, byte_size, mime_type,
+                placeholder, perceptual_hash)
+            SELECT ph.id, ph.post_id, ph.photo_path, ph.width, ph.height, ph.byte_size, ph.mime_type,
+                ph.placeholder, ph.perceptual_hash
+            FROM post_photos ph JOIN posts_archive a ON a.id = ph.post_id
+            WHERE a.id IN (:ids)
+            """;
+
+    private static final String DELETE_PHOTOS = """
+            DELETE FROM post_photos WHERE post_id IN (SELECT id FROM posts_archive WHERE id IN (:ids))
+            """;
+
+    private static final String DELETE_POSTS = """
+            DELETE FROM posts WHERE id IN (SELECT id FROM posts_archive WHERE id IN (:ids))
+            """;
+
+    private static final String SELECT_ARCHIVED_IDS = """
+            SELECT id FROM posts_archive WHERE id IN (:ids)
+            """;
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Неактивные объявления, не менявшиеся с заданного момента, по возрастанию id.
+     *
+     * @param before граница времени последнего изменения
+     * @param limit  размер порции
+     * @return id объявлений
+     */
+    public List<Long> findArchivableIds(LocalDateTime before, int limit) {
+        return crudRepository.tx(session -> session.createQuery(
+                        "SELECT p.id FROM Post p WHERE p.status <> :active AND p.updatedAt < :before ORDER BY p.id ASC",
+                        Long.class)
+                .setParameter("active", PostStatus.ACTIVE)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    /**
+     * Переносит объявления в архив одной транзакцией: копирует объявления и их фотографии
+     * в архивные таблицы, удаляет из основных и записывает события удаления. Объявления, ставшие с тех пор активными, остаются на месте.
+     *
+     * @param postIds    id объявлений
+     * @param archivedAt время архивации
+     * @return id перенесённых объявлений
+     */
+    public List<Long> archive(Collection<Long> postIds, LocalDateTime archivedAt) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+        return crudRepository.tx(session -> {
+            session.createNativeMutationQuery(COPY_POSTS)
+                    .setParameterList("ids", postIds)
+                    .setParameter("archivedAt", archivedAt)
+                    .setParameter("active", PostStatus.ACTIVE.getCode())
+                    .executeUpdate();
+            for (String statement : List.of(COPY_PHOTOS, DELETE_PHOTOS, DELETE_POSTS)) {
+                session.createNativeMutationQuery(statement)
+                        .setParameterList("ids", postIds)
+                        .executeUpdate();
+            }
+            List<Long> archived = session.createNativeQuery(SELECT_ARCHIVED_IDS, Long.class)
+                    .setParameterList("ids", postIds)
+                    .list();
+            ListingEventRepository.recordPosts(session, archived, ListingEvent.Change.DELETED);
+            return archived;
+        });
+    }
+}
@@ -2,11 +2,15 @@ package ru.job4j.cars.repository;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Repository;
+import ru.job4j.cars.image.PhotoHash;
 import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.outbox.ListingEvent;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @AllArgsConstructor
 @Repository
@@ -21,17 +25,48 @@ public class PostPhotoRepository {
      * @return фотография объявления с id.
      */
     public PostPhoto create(PostPhoto photo) {
-        crudRepository.run(session -> session.persist(photo));
+        crudRepository.run(session -> {
+            session.persist(photo);
+            ListingSearchRepository.refreshPost(session, photo.getPost().getId());
+            ListingEventRepository.record(session, photo.getPost().getId(), ListingEvent.Entity.PHOTO, photo.getId(),
+                    ListingEvent.Change.CREATED);
+        });
         return photo;
     }
 
+    /**
+     * Сохранить в базе фотографии одного объявления одной транзакцией: сохраняются все или ни одной.
+     *
+     * @param photos фотографии одного объявления.
+     * @return фотографии с id.
+     */
+    public List<PostPhoto> createAll(List<PostPhoto> photos) {
+        if (photos.isEmpty()) {
+            return photos;
+        }
+        crudRepository.run(session -> {
+            for (PostPhoto photo : photos) {
+                session.persist(photo);
+                ListingEventRepository.record(session, photo.getPost().getId(), ListingEvent.Entity.PHOTO,
+                        photo.getId(), ListingEvent.Change.CREATED);
+            }
+            ListingSearchRepository.refreshPost(session, photos.get(0).getPost().getId());
+        });
+        return photos;
+    }
+
     /**
      * Обновить в базе фотографию объявления.
      *
      * @param photo фотография объявления.
      */
     public void update(PostPhoto photo) {
-        crudRepository.run(session -> session.merge(photo));
+        crudRepository.run(session -> {
+            session.merge(photo);
+            ListingSearchRepository.refreshPost(session, photo.getPost().getId());
+            ListingEventRepository.record(session, photo.getPost().getId(), ListingEvent.Entity.PHOTO, photo.getId(),
+                    ListingEvent.Change.UPDATED);
+        });
     }
 
     /**
@@ -40,10 +75,19 @@ public class PostPhotoRepository {
      * @param photoId ID
      */
     public void delete(int photoId) {
-        crudRepository.run(
-                "DELETE FROM PostPhoto WHERE id = :fId",
-                Map.of("fId", photoId)
-        );
+        crudRepository.run(session -> {
+            Optional<Long> postId = session.createQuery("SELECT ph.post.id FROM PostPhoto ph WHERE ph.id = :fId", Long.class)
+                    .setParameter("fId", photoId)
+                    .uniqueResultOptional();
+            session.createMutationQuery("DELETE FROM PostPhoto WHERE id = :fId")
+                    .setParameter("fId", photoId)
+                    .executeUpdate();
+            postId.ifPresent(id -> {
+                ListingSearchRepository.refreshPost(session, id);
+                ListingEventRepository.record(session, id, ListingEvent.Entity.PHOTO, photoId,
+                        ListingEvent.Change.DELETED);
+            });
+        });
     }
 
     /**
@@ -82,4 +126,44 @@ public class PostPhotoRepository {
                 Map.of("postId", postId)
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Какие из имён файлов записаны за фотографиями, в том числе архивными.
+     *
+     * @param photoPaths имена файлов в каталоге загрузок
+     * @return имена, на которые есть ссылки
+     */
+    public Set<String> findExistingPaths(Collection<String> photoPaths) {
+        if (photoPaths.isEmpty()) {
+            return Set.of();
+        }
+        return crudRepository.tx(session -> Set.copyOf(session.createNativeQuery("""
+                        SELECT photo_path FROM post_photos WHERE photo_path IN (:paths)
+                        UNION
+                        SELECT photo_path FROM post_photos_archive WHERE photo_path IN (:paths)
+                        """, String.class)
+                .setParameterList("paths", photoPaths)
+                .list()));
+    }
+
+    /**
+     * Перцептивные хеши фотографий с id больше заданного, по возрастанию id.
+     * Используется для постраничной загрузки индекса похожих фотографий.
+     *
+     * @param afterId id, после которого начинается страница
+     * @param limit   размер страницы
+     * @return хеши фотографий
+     */
+    public List<PhotoHash> findPerceptualHashesAfter(long afterId, int limit) {
+        return crudRepository.tx(session -> session.createQuery(
+                        "SELECT p.id, p.post.id, p.perceptualHash FROM PostPhoto p "
+                                + "WHERE p.perceptualHash IS NOT NULL AND p.id > :afterId ORDER BY p.id ASC",
+                        Object[].class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .list()
+                .stream()
+                .map(row -> new PhotoHash((Long) row[0], (Long) row[1], (Long) row[2]))
+                .toList());
+    }
+}
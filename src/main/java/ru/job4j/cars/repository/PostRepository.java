@@ -1,53 +1,110 @@
 package ru.job4j.cars.repository;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.springframework.stereotype.Repository;
+import ru.job4j.cars.dto.PostCreatedDto;
+import ru.job4j.cars.dto.PostScoreDto;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.dto.PostSort;
+import ru.job4j.cars.model.ListingSearch;
 import ru.job4j.cars.model.Post;
 import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.outbox.ListingEvent;
+import ru.job4j.cars.search.TextAnalyzer;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Repository
 @Slf4j
 public class PostRepository {
 
+    private static final String UPDATE_FROM_VALUES = """
+            UPDATE posts AS p SET %s
+            FROM (VALUES %s) AS v(id, amount)
+            WHERE p.id = v.id
+            """;
+
+    private static final String UPDATE_BY_CASE = """
+            UPDATE posts SET %s
+            WHERE id IN (:ids)
+            """;
+
+    /**
+     * Прибавление к оценке популярности в логарифмической форме: ln(e^a + e^b), см. DecayedScore.
+     */
+    private static final String ADD_POPULARITY = """
+            popularity = CASE WHEN popularity IS NULL THEN %1$s
+                ELSE GREATEST(popularity, %1$s) + LN(1 + EXP(-ABS(popularity - %1$s))) END""";
+
     private final CrudRepository crudRepository;
 
     /**
-     * Сохранить в базе.
+     * Сохранить в базе вместе со строкой поиска и событием создания.
      *
      * @param post объявление.
      * @return объявление с id.
      */
     public Post create(Post post) {
-        crudRepository.run(session -> session.persist(post));
+        crudRepository.run(session -> {
+            session.persist(post);
+            ListingSearchRepository.refreshPost(session, post.getId());
+            ListingEventRepository.record(session, post.getId(), ListingEvent.Entity.POST, post.getId(),
+                    ListingEvent.Change.CREATED);
+        });
         return post;
     }
 
     /**
-     * Обновить в базе объявление.
+     * Обновить в базе объявление, его строку поиска и записать событие изменения.
      *
      * @param post объявление.
      */
     public void update(Post post) {
-        crudRepository.run(session -> session.merge(post));
+        crudRepository.run(session -> {
+            session.merge(post);
+            ListingSearchRepository.refreshPost(session, post.getId());
+            ListingEventRepository.record(session, post.getId(), ListingEvent.Entity.POST, post.getId(),
+                    ListingEvent.Change.UPDATED);
+        });
     }
 
     /**
-     * Удалить объявление по id.
+     * Удалить объявление по id и записать событие удаления, если оно было.
      *
      * @param postId ID
      */
     public void delete(int postId) {
-        crudRepository.run(
-                "DELETE FROM Post WHERE id = :fId",
-                Map.of("fId", postId)
-        );
+        crudRepository.run(session -> {
+            int deleted = session.createMutationQuery("DELETE FROM Post WHERE id = :fId")
+                    .setParameter("fId", postId)
+                    .executeUpdate();
+            if (deleted > 0) {
+                ListingEventRepository.record(session, postId, ListingEvent.Entity.POST, postId,
+                        ListingEvent.Change.DELETED);
+            }
+        });
     }
 
     /**
@@ -61,14 +118,123 @@ public class PostRepository {
 
     /**
      * Список активных объявлений, отсортированных по дате создания (новые первые).
+     * Порядок берётся из таблицы поиска, объявления загружаются с автомобилем, маркой, моделью и первой фотографией.
      *
      * @return список активных объявлений.
      */
     public List<Post> findActivePostsOrderByCreatedAtDesc() {
-        return crudRepository.query(
-                "SELECT DISTINCT p FROM Post p LEFT JOIN FETCH p.car c LEFT JOIN FETCH c.model LEFT JOIN FETCH c.brand WHERE p.status = 'active' ORDER BY p.createdAt DESC",
-                Post.class
-        );
+        return findAllByIdsWithCover(crudRepository.query(
+                """
+                        SELECT ls.postId FROM ListingSearch ls
+                        WHERE ls.status = ru.job4j.cars.model.PostStatus.ACTIVE
+                        ORDER BY ls.createdAt DESC, ls.postId DESC
+                        """,
+                Long.class
+        ));
+    }
+
+    /**
+     * Активные объявления с id больше заданного, по возрастанию id: id и время создания.
+     * Используется для постраничной загрузки сроков размещения.
+     *
+     * @param afterId id, после которого начинается страница
+     * @param limit   размер страницы
+     * @return id и время создания объявлений
+     */
+    public List<PostCreatedDto> findActiveCreatedAfter(long afterId, int limit) {
+        return crudRepository.tx(session -> session.createQuery(
+                        """
+                                SELECT new ru.job4j.cars.dto.PostCreatedDto(p.id, p.createdAt) FROM Post p
+                                WHERE p.status = ru.job4j.cars.model.PostStatus.ACTIVE AND p.id > :afterId
+                                ORDER BY p.id ASC
+                                """, PostCreatedDto.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    /**
+     * Переводит в статус «срок истёк» активные объявления, созданные не позже границы,
+     * одним UPDATE вместе с их строками поиска и событиями изменения. Остальные объявления из набора не меняются.
+     *
+     * @param postIds       id объявлений
+     * @param createdBefore граница времени создания
+     * @return id объявлений, срок которых истёк
+     */
+    public List<Long> expire(Collection<Long> postIds, LocalDateTime createdBefore) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+        return crudRepository.tx(session -> {
+            List<Long> expired = session.createQuery("""
+                            SELECT p.id FROM Post p
+                            WHERE p.id IN :ids AND p.status = :active AND p.createdAt <= :createdBefore
+                            """, Long.class)
+                    .setParameterList("ids", postIds)
+                    .setParameter("active", PostStatus.ACTIVE)
+                    .setParameter("createdBefore", createdBefore)
+                    .list();
+            if (!expired.isEmpty()) {
+                session.createMutationQuery("""
+                                UPDATE Post p SET p.status = :expired, p.updatedAt = :now
+                                WHERE p.id IN :ids AND p.status = :active
+                                """)
+                        .setParameter("expired", PostStatus.EXPIRED)
+                        .setParameter("now", LocalDateTime.now())
+                        .setParameterList("ids", expired)
+                        .setParameter("active", PostStatus.ACTIVE)
+                        .executeUpdate();
+                ListingSearchRepository.refreshPosts(session, expired);
+                ListingEventRepository.recordPosts(session, expired, ListingEvent.Change.UPDATED);
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * Прибавляет накопленные просмотры к счётчикам объявлений одним UPDATE.
+     * Удалённые объявления пропускаются.
+     *
+     * @param deltas приращения просмотров по id объявления
+     */
+    public void addViews(Map<Long, Long> deltas) {
+        updateByIds(deltas, "views = views + %1$s", "BIGINT");
+    }
+
+    /**
+     * Прибавляет накопленные изменения к числу добавлений объявлений в избранное одним UPDATE.
+     *
+     * @param deltas приращения по id объявления, могут быть отрицательными
+     */
+    public void addFavoriteCounts(Map<Long, Long> deltas) {
+        updateByIds(deltas, "favorite_count = favorite_count + %1$s", "INT");
+    }
+
+    /**
+     * Прибавляет к оценкам популярности объявлений приращения, накопленные узлом, одним UPDATE.
+     * Оценки складываются в логарифмической форме, поэтому приращения разных узлов не затирают друг друга.
+     *
+     * @param deltas приращения оценок по id объявления
+     */
+    public void addPopularity(Map<Long, Double> deltas) {
+        updateByIds(deltas, ADD_POPULARITY, "DOUBLE PRECISION");
+    }
+
+    /**
+     * Самые популярные активные объявления по сохранённой оценке.
+     *
+     * @param limit сколько объявлений выбрать
+     * @return id и оценки по убыванию оценки
+     */
+    public List<PostScoreDto> findMostPopularActive(int limit) {
+        return crudRepository.tx(session -> session.createQuery(
+                        """
+                                SELECT new ru.job4j.cars.dto.PostScoreDto(p.id, p.popularity) FROM Post p
+                                WHERE p.status = ru.job4j.cars.model.PostStatus.ACTIVE AND p.popularity IS NOT NULL
+                                ORDER BY p.popularity DESC
+                                """, PostScoreDto.class)
+                .setMaxResults(limit)
+                .list());
     }
 
     /**
@@ -141,4 +307,178 @@ public class PostRepository {
         return posts;
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Поиск активных объявлений по фильтру.
+     * Сначала по плоской таблице поиска listing_search выбираются только id страницы (запрос строится
+     * через Criteria API из заполненных полей фильтра, без соединений со справочниками), затем одним запросом загружаются сами объявления
+     * с автомобилем, маркой и моделью, и ещё одним — по одной фотографии на объявление.
+     * Текстовый запрос здесь проверяется через LIKE по основам слов и не ранжируется:
+     * этот путь используется, только пока загружается индекс в памяти.
+     *
+     * @param filter параметры поиска.
+     * @param offset сколько объявлений пропустить.
+     * @param limit  максимальное количество объявлений.
+     * @return объявления в порядке сортировки фильтра.
+     */
+    public List<Post> search(PostSearchFilter filter, int offset, int limit) {
+        return findAllByIdsWithCover(crudRepository.tx(session -> findSearchIds(session, filter, offset, limit)));
+    }
+
+    /**
+     * Объявления с автомобилем, маркой, моделью и первой фотографией в порядке переданных id.
+     * Отсутствующие в базе id пропускаются.
+     *
+     * @param ids id объявлений
+     * @return объявления в порядке ids
+     */
+    public List<Post> findAllByIdsWithCover(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Post> posts = crudRepository.query(
+                        """
+                                SELECT p FROM Post p
+                                JOIN FETCH p.car c
+                                JOIN FETCH c.model
+                                JOIN FETCH c.brand
+                                WHERE p.id IN :ids
+                                """,
+                        Post.class,
+                        Map.of("ids", ids)
+                ).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        Map<Long, List<PostPhoto>> covers = findCoverPhotos(ids);
+        posts.forEach((id, post) -> post.setPostPhotos(covers.getOrDefault(id, List.of())));
+        return ids.stream().filter(posts::containsKey).map(posts::get).toList();
+    }
+
+    private List<Long> findSearchIds(Session session, PostSearchFilter filter, int offset, int limit) {
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<ListingSearch> listing = query.from(ListingSearch.class);
+        query.select(listing.get("postId"))
+                .where(searchPredicates(cb, query, listing, filter).toArray(new Predicate[0]))
+                .orderBy(searchOrder(cb, listing, filter.getSort()));
+        return session.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .list();
+    }
+
+    private List<Predicate> searchPredicates(CriteriaBuilder cb, CriteriaQuery<Long> query, Root<ListingSearch> listing,
+                                             PostSearchFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(listing.get("status"), PostStatus.ACTIVE));
+        addEqual(predicates, cb, listing.get("brandId"), filter.getBrandId());
+        addEqual(predicates, cb, listing.get("modelId"), filter.getModelId());
+        addEqual(predicates, cb, listing.get("categoryId"), filter.getCategoryId());
+        addEqual(predicates, cb, listing.get("bodyId"), filter.getBodyId());
+        addEqual(predicates, cb, listing.get("engineId"), filter.getEngineId());
+        addEqual(predicates, cb, listing.get("transmissionTypeId"), filter.getTransmissionTypeId());
+        addEqual(predicates, cb, listing.get("driveTypeId"), filter.getDriveTypeId());
+        addEqual(predicates, cb, listing.get("carColorId"), filter.getCarColorId());
+        addEqual(predicates, cb, listing.get("fuelTypeId"), filter.getFuelTypeId());
+        addEqual(predicates, cb, listing.get("wheelSideId"), filter.getWheelSideId());
+        addRange(predicates, cb, listing.get("price"), filter.getPriceFrom(), filter.getPriceTo());
+        addRange(predicates, cb, listing.get("yearOfManufacture"), filter.getYearFrom(), filter.getYearTo());
+        addRange(predicates, cb, listing.get("mileage"), filter.getMileageFrom(), filter.getMileageTo());
+        List<String> terms = TextAnalyzer.terms(filter.getQuery());
+        if (!terms.isEmpty()) {
+            Subquery<Long> described = query.subquery(Long.class);
+            Root<Post> post = described.from(Post.class);
+            described.select(post.get("id"))
+                    .where(terms.stream()
+                            .map(term -> cb.like(cb.lower(post.get("description")), "%" + term + "%"))
+                            .toArray(Predicate[]::new));
+            predicates.add(listing.get("postId").in(described));
+        }
+        return predicates;
+    }
+
+    private void addEqual(List<Predicate> predicates, CriteriaBuilder cb, Path<?> path, Object value) {
+        if (value != null) {
+            predicates.add(cb.equal(path, value));
+        }
+    }
+
+    private <T extends Comparable<? super T>> void addRange(List<Predicate> predicates, CriteriaBuilder cb,
+                                                            Path<T> path, T from, T to) {
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(path, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThanOrEqualTo(path, to));
+        }
+    }
+
+    /**
+     * Сортировка с id в конце, чтобы порядок при равных значениях и страницы были стабильными.
+     */
+    private List<Order> searchOrder(CriteriaBuilder cb, Root<ListingSearch> listing, PostSort sort) {
+        Path<Long> id = listing.get("postId");
+        return switch (sort != null ? sort : PostSort.NEWEST) {
+            case PRICE_ASC -> List.of(cb.asc(listing.get("price")), cb.asc(id));
+            case PRICE_DESC -> List.of(cb.desc(listing.get("price")), cb.desc(id));
+            case YEAR_DESC -> List.of(cb.desc(listing.get("yearOfManufacture")), cb.desc(id));
+            case MILEAGE_ASC -> List.of(cb.asc(listing.get("mileage")), cb.asc(id));
+            default -> List.of(cb.desc(listing.get("createdAt")), cb.desc(id));
+        };
+    }
+
+    /**
+     * Обновляет столбец объявлений значениями по id одним UPDATE. В PostgreSQL значения соединяются
+     * с таблицей как список VALUES, в остальных базах подставляются выражением CASE.
+     *
+     * @param values     значения по id объявления
+     * @param assignment присваивание, где %1$s — значение для строки
+     * @param sqlType    SQL-тип значений
+     */
+    private void updateByIds(Map<Long, ?> values, String assignment, String sqlType) {
+        if (values.isEmpty()) {
+            return;
+        }
+        crudRepository.run(session -> {
+            boolean postgres = session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+            StringJoiner rows = new StringJoiner(postgres ? ", " : " ", postgres ? "" : "CASE id ", postgres ? "" : " END");
+            for (int i = 0; i < values.size(); i++) {
+                rows.add(postgres
+                        ? "(:id%d, CAST(:amount%d AS %s))".formatted(i, i, sqlType)
+                        : "WHEN :id%d THEN CAST(:amount%d AS %s)".formatted(i, i, sqlType));
+            }
+            var query = session.createNativeMutationQuery(postgres
+                    ? UPDATE_FROM_VALUES.formatted(assignment.formatted("v.amount"), rows)
+                    : UPDATE_BY_CASE.formatted(assignment.formatted(rows)));
+            int i = 0;
+            for (Map.Entry<Long, ?> value : values.entrySet()) {
+                query.setParameter("id" + i, value.getKey());
+                query.setParameter("amount" + i, value.getValue());
+                i++;
+            }
+            if (!postgres) {
+                query.setParameterList("ids", values.keySet());
+            }
+            query.executeUpdate();
+        });
+    }
+
+    /**
+     * Первая фотография каждого объявления, сгруппированная по id объявления.
+     */
+    private Map<Long, List<PostPhoto>> findCoverPhotos(List<Long> postIds) {
+        return crudRepository.query(
+                        """
+                                SELECT ph FROM PostPhoto ph
+                                WHERE ph.id IN (
+                                    SELECT MIN(p2.id) FROM PostPhoto p2
+                                    WHERE p2.post.id IN :ids
+                                    GROUP BY p2.post.id
+                                )
+                                """,
+                        PostPhoto.class,
+                        Map.of("ids", postIds)
+                ).stream()
+                .collect(Collectors.groupingBy(photo -> photo.getPost().getId()));
+    }
+}
@@ -0,0 +1,93 @@
+package ru.job4j.cars.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.SavedSearch;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сохранённые поиски пользователей.
+ */
+@AllArgsConstructor
+@Repository
+public class SavedSearchRepository {
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Сохранить в базе.
+     *
+     * @param savedSearch сохранённый поиск
+     * @return сохранённый поиск с id
+     */
+    public SavedSearch create(SavedSearch savedSearch) {
+        crudRepository.run(session -> session.persist(savedSearch));
+        return savedSearch;
+    }
+
+    /**
+     * Удалить сохранённый поиск пользователя вместе с его неотправленными уведомлениями.
+     *
+     * @param id     id сохранённого поиска
+     * @param userId id владельца
+     * @return true, если поиск принадлежал пользователю и удалён
+     */
+    public boolean delete(long id, long userId) {
+        return crudRepository.tx(session -> session.createMutationQuery(
+                        "DELETE FROM SavedSearch WHERE id = :id AND user.id = :userId")
+                .setParameter("id", id)
+                .setParameter("userId", userId)
+                .executeUpdate()) == 1;
+    }
+
+    /**
+     * Сохранённые поиски пользователя, сначала более новые.
+     *
+     * @param userId id пользователя
+     * @return сохранённые поиски
+     */
+    public List<SavedSearch> findByUserId(long userId) {
+        return crudRepository.query(
+                "FROM SavedSearch s WHERE s.user.id = :userId ORDER BY s.id DESC",
+                SavedSearch.class,
+                Map.of("userId", userId)
+        );
+    }
+
+    /**
+     * Порция всех сохранённых поисков по возрастанию id, начиная после заданного.
+     *
+     * @param afterId id, после которого начинается порция
+     * @param limit   размер порции
+     * @return сохранённые поиски
+     */
+    public List<SavedSearch> findAllAfter(long afterId, int limit) {
+        return crudRepository.tx(session -> session.createQuery(
+                        "FROM SavedSearch s WHERE s.id > :afterId ORDER BY s.id ASC", SavedSearch.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    /**
+     * Порция сохранённых поисков, созданных не раньше заданного момента, по возрастанию id,
+     * начиная после заданного id.
+     *
+     * @param since   момент создания, с которого читаются поиски
+     * @param afterId id, после которого начинается порция
+     * @param limit   размер порции
+     * @return сохранённые поиски
+     */
+    public List<SavedSearch> findCreatedSince(LocalDateTime since, long afterId, int limit) {
+        return crudRepository.tx(session -> session.createQuery(
+                        "FROM SavedSearch s WHERE s.createdAt >= :since AND s.id > :afterId ORDER BY s.id ASC",
+                        SavedSearch.class)
+                .setParameter("since", since)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .list());
+    }
+}
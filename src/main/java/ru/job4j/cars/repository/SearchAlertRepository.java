@@ -0,0 +1,106 @@
+package ru.job4j.cars.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.dto.SearchAlertDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Очередь уведомлений по сохранённым поискам в таблице search_alerts.
+ * Уведомление ставится в очередь при создании объявления, а отправляется позже пакетами;
+ * отправленные уведомления помечаются временем отправки и со временем удаляются.
+ */
+@AllArgsConstructor
+@Repository
+public class SearchAlertRepository {
+
+    private static final String ENQUEUE = """
+            INSERT INTO search_alerts (user_id, saved_search_id, post_id, created_at)
+            SELECT s.user_id, s.id, p.id, CAST(:now AS TIMESTAMP)
+            FROM saved_searches s JOIN posts p ON p.id = :postId
+            WHERE s.id IN (:searchIds) AND s.user_id <> p.user_id
+                AND NOT EXISTS (SELECT 1 FROM search_alerts a WHERE a.saved_search_id = s.id AND a.post_id = p.id)
+            """;
+
+    private static final String SELECT_UNSENT = """
+            SELECT id, user_id, saved_search_id, post_id FROM search_alerts
+            WHERE sent_at IS NULL ORDER BY id ASC
+            """;
+
+    private static final String MARK_SENT = """
+            UPDATE search_alerts SET sent_at = :now WHERE id IN (:ids)
+            """;
+
+    private static final String DELETE_SENT = """
+            DELETE FROM search_alerts WHERE sent_at < :before
+            """;
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Ставит в очередь уведомления о новом объявлении по подошедшим сохранённым поискам.
+     * Поиски автора объявления и уже удалённые поиски пропускаются, повторно одно уведомление не ставится.
+     *
+     * @param postId    id объявления
+     * @param searchIds id сохранённых поисков, под которые подошло объявление
+     * @param now       время постановки в очередь
+     * @return число поставленных уведомлений
+     */
+    public int enqueue(long postId, Collection<Long> searchIds, LocalDateTime now) {
+        if (searchIds.isEmpty()) {
+            return 0;
+        }
+        return crudRepository.tx(session -> session.createNativeMutationQuery(ENQUEUE)
+                .setParameter("postId", postId)
+                .setParameterList("searchIds", searchIds)
+                .setParameter("now", now)
+                .executeUpdate());
+    }
+
+    /**
+     * Самые старые неотправленные уведомления.
+     *
+     * @param limit размер порции
+     * @return уведомления по возрастанию id
+     */
+    public List<SearchAlertDto> findUnsent(int limit) {
+        return crudRepository.tx(session -> session.createNativeQuery(SELECT_UNSENT, Object[].class)
+                .setMaxResults(limit)
+                .list()
+                .stream()
+                .map(row -> new SearchAlertDto(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                        ((Number) row[2]).longValue(), ((Number) row[3]).longValue()))
+                .toList());
+    }
+
+    /**
+     * Помечает уведомления отправленными одним UPDATE.
+     *
+     * @param ids id уведомлений
+     * @param now время отправки
+     */
+    public void markSent(Collection<Long> ids, LocalDateTime now) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        crudRepository.run(session -> session.createNativeMutationQuery(MARK_SENT)
+                .setParameterList("ids", ids)
+                .setParameter("now", now)
+                .executeUpdate());
+    }
+
+    /**
+     * Удаляет уведомления, отправленные раньше заданного момента.
+     *
+     * @param before граница времени отправки
+     * @return число удалённых уведомлений
+     */
+    public int deleteSentBefore(LocalDateTime before) {
+        return crudRepository.tx(session -> session.createNativeMutationQuery(DELETE_SENT)
+                .setParameter("before", before)
+                .executeUpdate());
+    }
+}
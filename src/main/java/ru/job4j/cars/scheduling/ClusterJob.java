@@ -0,0 +1,46 @@
+package ru.job4j.cars.scheduling;
+
+import java.time.Duration;
+
+/**
+ * Фоновая задача, которую в кластере выполняет только один узел — владелец её аренды в базе.
+ * Задачи запускает {@link ClusterJobRunner}; задачи, которые должен выполнять каждый узел
+ * (например, обслуживание собственного индекса в памяти), остаются на {@code @Scheduled}.
+ */
+public interface ClusterJob {
+
+    /**
+     * Имя задачи: ключ аренды и тег метрик.
+     *
+     * @return имя задачи
+     */
+    String name();
+
+    /**
+     * Пауза между окончанием одного запуска и началом следующего, без учёта разброса.
+     *
+     * @return интервал запусков
+     */
+    Duration interval();
+
+    /**
+     * Срок аренды. Должен с запасом превышать интервал и самый долгий запуск:
+     * пока аренда действует, задачу не запустит никакой другой узел.
+     *
+     * @return срок аренды
+     */
+    default Duration leaseTtl() {
+        return interval().multipliedBy(2);
+    }
+
+    /**
+     * Выполняет задачу. Вызывается, только когда узел владеет арендой.
+     */
+    void run();
+
+    /**
+     * Аренда перешла к другому узлу: задача должна сбросить состояние, накопленное между запусками.
+     */
+    default void leaseLost() {
+    }
+}
@@ -0,0 +1,198 @@
+package ru.job4j.cars.scheduling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.repository.JobLeaseRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Запуск задач {@link ClusterJob} так, чтобы в кластере каждую выполнял один узел.
+ * <p>
+ * Перед каждым запуском узел захватывает или продлевает аренду задачи в таблице job_leases
+ * (сравнение с обменом со сроком, {@link JobLeaseRepository}), а после успешного запуска продлевает её
+ * ещё раз, чтобы срок отсчитывался от окончания работы. Пока аренда действует, остальные узлы задачу
+ * пропускают; если владелец пропал, после срока аренды её подхватывает другой узел.
+ * Следующий запуск планируется только после окончания текущего, а флаг выполнения не даёт запустить
+ * задачу вручную поверх идущего запуска. К интервалу добавляется случайный разброс, чтобы узлы
+ * не обращались к аренде одновременно.
+ * <p>
+ * Метрики: jobs.run (таймер, теги job и outcome=success|failure) и jobs.skipped
+ * (теги job и reason=lease|running).
+ */
+@Slf4j
+@Component
+public class ClusterJobRunner {
+
+    private final Map<String, ScheduledJob> jobs;
+
+    private final JobLeaseRepository jobLeaseRepository;
+
+    private final double jitter;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param jobs               все задачи приложения
+     * @param jobLeaseRepository аренды задач
+     * @param registry           реестр метрик
+     * @param jitter             доля интервала, на которую случайно откладывается запуск
+     */
+    public ClusterJobRunner(List<ClusterJob> jobs,
+                            JobLeaseRepository jobLeaseRepository,
+                            MeterRegistry registry,
+                            @Value("${app.jobs.jitter:0.1}") double jitter) {
+        this.jobs = jobs.stream().collect(Collectors.toMap(ClusterJob::name,
+                job -> new ScheduledJob(job, registry), (a, b) -> {
+                    throw new IllegalStateException("Две задачи с именем " + a.job.name());
+                }));
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.jitter = jitter;
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(Math.max(1, jobs.size()), runnable -> {
+            Thread thread = new Thread(runnable, "cluster-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = pool;
+    }
+
+    /**
+     * Планирует первые запуски всех задач со случайной задержкой в пределах разброса.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (ScheduledJob job : jobs.values()) {
+            schedule(job, Duration.ZERO);
+            log.info("Задача {} запланирована с интервалом {}", job.job.name(), job.job.interval());
+        }
+    }
+
+    /**
+     * Запускает задачу сейчас в текущем потоке, если аренда у этого узла и задача не выполняется.
+     *
+     * @param name имя задачи
+     * @return true, если задача выполнилась
+     */
+    public boolean runNow(String name) {
+        ScheduledJob job = jobs.get(name);
+        if (job == null) {
+            throw new IllegalArgumentException("Неизвестная задача " + name);
+        }
+        return runOnce(job);
+    }
+
+    /**
+     * Останавливает планирование, даёт идущим запускам закончиться и отпускает аренды этого узла,
+     * чтобы другие узлы подхватили задачи сразу.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ScheduledJob job : jobs.values()) {
+            if (job.leaseHeld) {
+                jobLeaseRepository.release(job.job.name(), owner);
+            }
+        }
+    }
+
+    private void schedule(ScheduledJob job, Duration delay) {
+        long spread = (long) (job.job.interval().toMillis() * jitter);
+        long delayMillis = delay.toMillis() + (spread > 0 ? ThreadLocalRandom.current().nextLong(spread) : 0);
+        executor.schedule(() -> {
+            runOnce(job);
+            if (!executor.isShutdown()) {
+                schedule(job, job.job.interval());
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean runOnce(ScheduledJob job) {
+        ClusterJob clusterJob = job.job;
+        if (!job.running.compareAndSet(false, true)) {
+            job.skippedRunning.increment();
+            return false;
+        }
+        try {
+            if (!jobLeaseRepository.tryAcquire(clusterJob.name(), owner, clusterJob.leaseTtl())) {
+                if (job.leaseHeld) {
+                    job.leaseHeld = false;
+                    log.info("Аренда задачи {} перешла к другому узлу", clusterJob.name());
+                    clusterJob.leaseLost();
+                }
+                job.skippedLease.increment();
+                return false;
+            }
+            job.leaseHeld = true;
+            long started = System.nanoTime();
+            try {
+                clusterJob.run();
+                job.succeeded.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                job.failed.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                log.error("Ошибка задачи {}", clusterJob.name(), e);
+                return false;
+            }
+            jobLeaseRepository.tryAcquire(clusterJob.name(), owner, clusterJob.leaseTtl());
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Не удалось получить аренду задачи {}", clusterJob.name(), e);
+            return false;
+        } finally {
+            job.running.set(false);
+        }
+    }
+
+    /**
+     * Задача с её состоянием на этом узле и метриками.
+     */
+    private static final class ScheduledJob {
+
+        private final ClusterJob job;
+
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private final Timer succeeded;
+
+        private final Timer failed;
+
+        private final Counter skippedLease;
+
+        private final Counter skippedRunning;
+
+        private volatile boolean leaseHeld;
+
+        private ScheduledJob(ClusterJob job, MeterRegistry registry) {
+            this.job = job;
+            this.succeeded = Timer.builder("jobs.run").tag("job", job.name()).tag("outcome", "success").register(registry);
+            this.failed = Timer.builder("jobs.run").tag("job", job.name()).tag("outcome", "failure").register(registry);
+            this.skippedLease = Counter.builder("jobs.skipped").tag("job", job.name()).tag("reason", "lease")
+                    .register(registry);
+            this.skippedRunning = Counter.builder("jobs.skipped").tag("job", job.name()).tag("reason", "running")
+                    .register(registry);
+        }
+    }
+}
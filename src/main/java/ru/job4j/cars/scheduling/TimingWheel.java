@@ -0,0 +1,202 @@
+package ru.job4j.cars.scheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Иерархическое колесо таймеров: множество отложенных событий (id и срок) с добавлением
+ * и срабатыванием за O(1) на событие, без сортировки и без опроса всех событий на каждом шаге.
+ * <p>
+ * Уровень 0 — кольцо из wheelSize корзин по tick миллисекунд; каждый следующий уровень создаётся
+ * по необходимости, и его корзина охватывает целый оборот предыдущего. Событие кладётся на самый
+ * нижний уровень, в окно которого попадает его срок. Когда время доходит до начала корзины верхнего
+ * уровня, её события перекладываются ниже, а корзины уровня 0 срабатывают целиком.
+ * Событие срабатывает не раньше своего срока и не позже чем через tick после него.
+ * <p>
+ * Отменять события нельзя: получатель должен сам проверить, что событие ещё актуально.
+ * Класс не потокобезопасен.
+ */
+public final class TimingWheel {
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    private final List<Level> levels = new ArrayList<>();
+
+    /**
+     * Просроченные на момент добавления события: срабатывают при следующем {@link #advance}.
+     */
+    private final Bucket overdue = new Bucket();
+
+    /**
+     * Начало текущей корзины уровня 0, кратно tickMillis.
+     */
+    private long currentTime;
+
+    private int size;
+
+    /**
+     * Создаёт пустое колесо.
+     *
+     * @param tickMillis длительность корзины нижнего уровня, мс
+     * @param wheelSize  число корзин на уровне
+     * @param startTime  начальное время, мс
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long startTime) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("Недопустимые параметры колеса: tick=" + tickMillis + ", size=" + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = startTime - Math.floorMod(startTime, tickMillis);
+        levels.add(new Level(tickMillis));
+    }
+
+    /**
+     * Добавляет событие.
+     *
+     * @param id       id события
+     * @param deadline срок, мс
+     */
+    public void add(long id, long deadline) {
+        if (deadline < currentTime) {
+            overdue.add(id, deadline);
+        } else {
+            place(id, deadline);
+        }
+        size++;
+    }
+
+    /**
+     * Продвигает время и отдаёт все события со сроком раньше now.
+     *
+     * @param now     текущее время, мс
+     * @param expired получатель id сработавших событий
+     * @return число сработавших событий
+     */
+    public int advance(long now, LongConsumer expired) {
+        int fired = overdue.drain(expired);
+        while (currentTime + tickMillis <= now) {
+            if (size == fired) {
+                currentTime = now - Math.floorMod(now, tickMillis);
+                break;
+            }
+            fired += levels.get(0).bucket(currentTime).drain(expired);
+            currentTime += tickMillis;
+            cascade();
+        }
+        size -= fired;
+        return fired;
+    }
+
+    /**
+     * Число ожидающих событий.
+     *
+     * @return число событий
+     */
+    public int size() {
+        return size;
+    }
+
+    private void place(long id, long deadline) {
+        for (int i = 0;; i++) {
+            Level level = level(i);
+            long levelStart = currentTime - Math.floorMod(currentTime, level.tick);
+            if (deadline - levelStart < level.interval) {
+                level.bucket(deadline).add(id, deadline);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Перекладывает на нижние уровни корзины, начало которых совпало с текущим временем.
+     * Сверху вниз, чтобы события, спустившиеся с верхнего уровня, спускались дальше в том же шаге.
+     */
+    private void cascade() {
+        for (int i = levels.size() - 1; i > 0; i--) {
+            Level level = levels.get(i);
+            if (Math.floorMod(currentTime, level.tick) == 0) {
+                Bucket bucket = level.bucket(currentTime);
+                long[] ids = Arrays.copyOf(bucket.ids, bucket.size);
+                long[] deadlines = Arrays.copyOf(bucket.deadlines, bucket.size);
+                bucket.clear();
+                for (int j = 0; j < ids.length; j++) {
+                    place(ids[j], deadlines[j]);
+                }
+            }
+        }
+    }
+
+    private Level level(int index) {
+        while (levels.size() <= index) {
+            levels.add(new Level(levels.get(levels.size() - 1).interval));
+        }
+        return levels.get(index);
+    }
+
+    private final class Level {
+
+        private final long tick;
+
+        /**
+         * Охват уровня; при переполнении — без ограничения.
+         */
+        private final long interval;
+
+        private final Bucket[] buckets = new Bucket[wheelSize];
+
+        private Level(long tick) {
+            this.tick = tick;
+            this.interval = tick > Long.MAX_VALUE / wheelSize ? Long.MAX_VALUE : tick * wheelSize;
+        }
+
+        private Bucket bucket(long time) {
+            int index = (int) Math.floorMod(Math.floorDiv(time, tick), (long) wheelSize);
+            if (buckets[index] == null) {
+                buckets[index] = new Bucket();
+            }
+            return buckets[index];
+        }
+    }
+
+    private static final class Bucket {
+
+        private static final long[] EMPTY = new long[0];
+
+        private long[] ids = EMPTY;
+
+        private long[] deadlines = EMPTY;
+
+        private int size;
+
+        private void add(long id, long deadline) {
+            if (size == ids.length) {
+                int capacity = Math.max(4, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                deadlines = Arrays.copyOf(deadlines, capacity);
+            }
+            ids[size] = id;
+            deadlines[size] = deadline;
+            size++;
+        }
+
+        private int drain(LongConsumer consumer) {
+            int drained = size;
+            for (int i = 0; i < drained; i++) {
+                consumer.accept(ids[i]);
+            }
+            clear();
+            return drained;
+        }
+
+        private void clear() {
+            ids = EMPTY;
+            deadlines = EMPTY;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.job4j.cars.search;
+
+import ru.job4j.cars.dto.PostSearchFilter;
+
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Справочные атрибуты автомобиля, по которым индекс хранит битовые карты
+ * «значение → объявления».
+ */
+public enum Facet {
+
+    BRAND("brandId", ListingRow::brandId, PostSearchFilter::getBrandId),
+    MODEL("modelId", ListingRow::modelId, PostSearchFilter::getModelId),
+    CATEGORY("categoryId", ListingRow::categoryId, PostSearchFilter::getCategoryId),
+    BODY("bodyId", ListingRow::bodyId, PostSearchFilter::getBodyId),
+    ENGINE("engineId", ListingRow::engineId, PostSearchFilter::getEngineId),
+    TRANSMISSION_TYPE("transmissionTypeId", ListingRow::transmissionTypeId, PostSearchFilter::getTransmissionTypeId),
+    DRIVE_TYPE("driveTypeId", ListingRow::driveTypeId, PostSearchFilter::getDriveTypeId),
+    CAR_COLOR("carColorId", ListingRow::carColorId, PostSearchFilter::getCarColorId),
+    FUEL_TYPE("fuelTypeId", ListingRow::fuelTypeId, PostSearchFilter::getFuelTypeId),
+    WHEEL_SIDE("wheelSideId", ListingRow::wheelSideId, PostSearchFilter::getWheelSideId);
+
+    private final String paramName;
+
+    private final ToLongFunction<ListingRow> rowValue;
+
+    private final Function<PostSearchFilter, Long> filterValue;
+
+    Facet(String paramName, ToLongFunction<ListingRow> rowValue, Function<PostSearchFilter, Long> filterValue) {
+        this.paramName = paramName;
+        this.rowValue = rowValue;
+        this.filterValue = filterValue;
+    }
+
+    /**
+     * Имя параметра фильтра, соответствующего атрибуту.
+     *
+     * @return имя параметра
+     */
+    public String getParamName() {
+        return paramName;
+    }
+
+    long valueOf(ListingRow row) {
+        return rowValue.applyAsLong(row);
+    }
+
+    Long valueOf(PostSearchFilter filter) {
+        return filterValue.apply(filter);
+    }
+}
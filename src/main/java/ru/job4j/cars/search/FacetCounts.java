@@ -0,0 +1,14 @@
+package ru.job4j.cars.search;
+
+import java.util.Map;
+
+/**
+ * Количества объявлений по значениям справочных атрибутов для текущего фильтра.
+ * Для атрибута, по которому фильтр уже выбран, количества посчитаны без этого условия,
+ * чтобы в боковой панели оставались видны альтернативы.
+ *
+ * @param total  число объявлений, подходящих под весь фильтр
+ * @param counts количества по атрибутам: id значения → число объявлений; значения без объявлений опущены
+ */
+public record FacetCounts(int total, Map<Facet, Map<Long, Integer>> counts) {
+}
@@ -0,0 +1,172 @@
+package ru.job4j.cars.search;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Столбцовое хранилище объявлений индекса: по массиву примитивов на поле, номер слота — индекс в массиве.
+ * Цена хранится в копейках (long), год — short, пробег, id объявления и id справочников — int,
+ * время создания — миллисекунды (long). Так одно объявление занимает около 70 байт
+ * вместо сущностей Post/Car с BigDecimal и Long, а проход по одному полю читает память подряд.
+ * <p>
+ * Класс не потокобезопасен: синхронизацию обеспечивает {@link ListingIndex}.
+ */
+final class ListingColumns {
+
+    private int[] postIds;
+
+    private long[] createdAt;
+
+    private long[] prices;
+
+    private short[] years;
+
+    private int[] mileages;
+
+    private final int[][] facetValues = new int[Facet.values().length][];
+
+    ListingColumns(int capacity) {
+        postIds = new int[capacity];
+        createdAt = new long[capacity];
+        prices = new long[capacity];
+        years = new short[capacity];
+        mileages = new int[capacity];
+        for (int i = 0; i < facetValues.length; i++) {
+            facetValues[i] = new int[capacity];
+        }
+    }
+
+    /**
+     * Помещаются ли значения объявления в типы столбцов.
+     *
+     * @param row данные объявления
+     * @return false, если id не помещается в int, год — в short или пробег — в int
+     */
+    static boolean fits(ListingRow row) {
+        boolean fits = fitsInt(row.postId()) && fitsInt(row.mileage())
+                && row.year() >= Short.MIN_VALUE && row.year() <= Short.MAX_VALUE;
+        for (Facet facet : Facet.values()) {
+            fits &= fitsInt(facet.valueOf(row));
+        }
+        return fits;
+    }
+
+    /**
+     * Записывает объявление в слот. Значения должны проходить проверку {@link #fits(ListingRow)}.
+     *
+     * @param slot слот
+     * @param row  данные объявления
+     */
+    void set(int slot, ListingRow row) {
+        ensureCapacity(slot + 1);
+        postIds[slot] = (int) row.postId();
+        createdAt[slot] = row.createdAt();
+        prices[slot] = row.priceCents();
+        years[slot] = (short) row.year();
+        mileages[slot] = (int) row.mileage();
+        for (Facet facet : Facet.values()) {
+            facetValues[facet.ordinal()][slot] = (int) facet.valueOf(row);
+        }
+    }
+
+    /**
+     * Копирует значения слота в другое хранилище.
+     *
+     * @param slot       слот этого хранилища
+     * @param target     хранилище назначения
+     * @param targetSlot слот назначения
+     */
+    void copyTo(int slot, ListingColumns target, int targetSlot) {
+        target.ensureCapacity(targetSlot + 1);
+        target.postIds[targetSlot] = postIds[slot];
+        target.createdAt[targetSlot] = createdAt[slot];
+        target.prices[targetSlot] = prices[slot];
+        target.years[targetSlot] = years[slot];
+        target.mileages[targetSlot] = mileages[slot];
+        for (int i = 0; i < facetValues.length; i++) {
+            target.facetValues[i][targetSlot] = facetValues[i][slot];
+        }
+    }
+
+    /**
+     * Записывает значения слота в снимок; порядок полей должен совпадать с {@link #read(ByteBuffer, int)}.
+     *
+     * @param slot слот
+     * @param out  поток снимка
+     * @throws IOException ошибка записи
+     */
+    void write(int slot, DataOutput out) throws IOException {
+        out.writeInt(postIds[slot]);
+        out.writeLong(createdAt[slot]);
+        out.writeLong(prices[slot]);
+        out.writeShort(years[slot]);
+        out.writeInt(mileages[slot]);
+        for (int[] values : facetValues) {
+            out.writeInt(values[slot]);
+        }
+    }
+
+    /**
+     * Читает значения слота из снимка, записанные {@link #write(int, DataOutput)}.
+     *
+     * @param in   содержимое снимка
+     * @param slot слот
+     */
+    void read(ByteBuffer in, int slot) {
+        ensureCapacity(slot + 1);
+        postIds[slot] = in.getInt();
+        createdAt[slot] = in.getLong();
+        prices[slot] = in.getLong();
+        years[slot] = in.getShort();
+        mileages[slot] = in.getInt();
+        for (int[] values : facetValues) {
+            values[slot] = in.getInt();
+        }
+    }
+
+    long postId(int slot) {
+        return postIds[slot];
+    }
+
+    long value(NumericColumn column, int slot) {
+        return switch (column) {
+            case CREATED_AT -> createdAt[slot];
+            case PRICE -> prices[slot];
+            case YEAR -> years[slot];
+            default -> mileages[slot];
+        };
+    }
+
+    long value(Facet facet, int slot) {
+        return facetValues[facet.ordinal()][slot];
+    }
+
+    /**
+     * Сравнение слотов по значению столбца, при равенстве — по id объявления; оба по возрастанию.
+     */
+    int compare(NumericColumn column, int first, int second) {
+        int compare = Long.compare(value(column, first), value(column, second));
+        return compare != 0 ? compare : Integer.compare(postIds[first], postIds[second]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= postIds.length) {
+            return;
+        }
+        int size = Math.max(capacity, postIds.length * 2);
+        postIds = Arrays.copyOf(postIds, size);
+        createdAt = Arrays.copyOf(createdAt, size);
+        prices = Arrays.copyOf(prices, size);
+        years = Arrays.copyOf(years, size);
+        mileages = Arrays.copyOf(mileages, size);
+        for (int i = 0; i < facetValues.length; i++) {
+            facetValues[i] = Arrays.copyOf(facetValues[i], size);
+        }
+    }
+
+    private static boolean fitsInt(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,508 @@
+package ru.job4j.cars.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс активных объявлений в памяти для фильтрации без обращения к базе.
+ * <p>
+ * Каждому объявлению выделяется слот; значения полей лежат в примитивных столбцах {@link ListingColumns}.
+ * Для каждого значения каждого справочного атрибута ({@link Facet}) хранится {@link SlotBitmap} слотов,
+ * поэтому фильтр по атрибутам — это пересечение битовых карт, начиная с самой маленькой.
+ * По цене, году, пробегу и дате создания заранее отсортированы перестановки слотов ({@link SortedColumn}):
+ * узкий диапазон превращается в битовую карту двоичным поиском, широкий проверяется по столбцам
+ * у уже отобранных слотов, при большом числе кандидатов — параллельно по блокам.
+ * Слова описаний хранятся в {@link TextIndex}: текстовый запрос — это пересечение карт его терминов,
+ * а порядок по релевантности считается по BM25 только для отобранных кандидатов.
+ * Страница результатов берётся обходом перестановки столбца сортировки, если кандидатов много,
+ * или отбором первых K кандидатов, если их мало.
+ * <p>
+ * Индекс потокобезопасен: поиск идёт под блокировкой чтения, изменения — под блокировкой записи.
+ */
+public class ListingIndex {
+
+    /**
+     * Если кандидатов не меньше 1/8 всех объявлений, страница набирается обходом столбца сортировки.
+     */
+    private static final int DENSE_FRACTION = 8;
+
+    /**
+     * Диапазон превращается в битовую карту, только если он хотя бы вдвое уже текущего набора кандидатов;
+     * иначе дешевле проверить значение у каждого кандидата.
+     */
+    private static final int NARROW_RANGE_FACTOR = 2;
+
+    /**
+     * С какого числа кандидатов проверка широких диапазонов идёт параллельно.
+     */
+    private static final int PARALLEL_SCAN_MIN = 1 << 17;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slotsByPost = new HashMap<>();
+
+    private final SlotBitmap live = new SlotBitmap();
+
+    private final Map<Facet, Map<Long, SlotBitmap>> facets = new EnumMap<>(Facet.class);
+
+    private final Map<NumericColumn, SortedColumn> sorted = new EnumMap<>(NumericColumn.class);
+
+    private final TextIndex text;
+
+    private final ListingColumns store;
+
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+
+    private int freeCount;
+
+    private int used;
+
+    private long version;
+
+    public ListingIndex() {
+        this(new ListingColumns(INITIAL_CAPACITY), new TextIndex());
+    }
+
+    private ListingIndex(ListingColumns store, TextIndex text) {
+        this.store = store;
+        this.text = text;
+        for (Facet facet : Facet.values()) {
+            facets.put(facet, new HashMap<>());
+        }
+        for (NumericColumn column : NumericColumn.values()) {
+            sorted.put(column, new SortedColumn(store, column));
+        }
+    }
+
+    /**
+     * Строит индекс по полному набору объявлений. Перестановки столбцов сортируются один раз,
+     * а не поэлементными вставками. Объявления, не помещающиеся в столбцы, пропускаются.
+     *
+     * @param listings активные объявления
+     * @return заполненный индекс
+     */
+    public static ListingIndex of(Collection<ListingRow> listings) {
+        ListingIndex index = new ListingIndex(new ListingColumns(Math.max(INITIAL_CAPACITY, listings.size())), new TextIndex());
+        for (ListingRow row : listings) {
+            if (ListingColumns.fits(row) && !index.slotsByPost.containsKey(row.postId())) {
+                int slot = index.used++;
+                index.store.set(slot, row);
+                index.register(slot);
+                index.text.add(slot, row.description());
+            }
+        }
+        index.sortColumns();
+        return index;
+    }
+
+    /**
+     * Восстанавливает индекс из снимка: столбцы снимка становятся хранилищем индекса,
+     * битовые карты и перестановки строятся заново. Описания повторно не разбираются.
+     *
+     * @param snapshot прочитанный снимок; после восстановления его нельзя использовать
+     * @return заполненный индекс
+     */
+    static ListingIndex restore(ListingSnapshot snapshot) {
+        ListingIndex index = new ListingIndex(snapshot.columns(), new TextIndex(snapshot.dictionary()));
+        for (int slot = 0; slot < snapshot.size(); slot++) {
+            index.register(slot);
+            index.text.add(slot, snapshot.terms()[slot], snapshot.frequencies()[slot]);
+        }
+        index.used = snapshot.size();
+        index.sortColumns();
+        return index;
+    }
+
+    /**
+     * Копия содержимого индекса для записи на диск. Копируются только примитивные столбцы
+     * и ссылки на неизменяемые массивы терминов, поэтому блокировка чтения держится недолго.
+     *
+     * @param watermark метка изменений в базе, которые уже учтены в индексе
+     * @return снимок
+     */
+    public ListingSnapshot snapshot(long watermark) {
+        lock.readLock().lock();
+        try {
+            int[] slots = live.toArray();
+            ListingColumns columns = new ListingColumns(Math.max(1, slots.length));
+            int[][] terms = new int[slots.length][];
+            int[][] frequencies = new int[slots.length][];
+            for (int i = 0; i < slots.length; i++) {
+                store.copyTo(slots[i], columns, i);
+                terms[i] = text.terms(slots[i]);
+                frequencies[i] = text.frequencies(slots[i]);
+            }
+            return new ListingSnapshot(watermark, slots.length, columns, text.dictionary(), terms, frequencies);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет объявление или заменяет его данные. Объявление, значения которого
+     * не помещаются в столбцы, удаляется из индекса.
+     *
+     * @param row данные объявления
+     */
+    public void upsert(ListingRow row) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(row.postId());
+            if (ListingColumns.fits(row)) {
+                int slot = allocateSlot();
+                store.set(slot, row);
+                register(slot);
+                text.add(slot, row.description());
+                for (SortedColumn column : sorted.values()) {
+                    column.insert(slot);
+                }
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет объявление из индекса.
+     *
+     * @param postId id объявления
+     */
+    public void remove(long postId) {
+        lock.writeLock().lock();
+        try {
+            if (removeLocked(postId)) {
+                version++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Число объявлений в индексе.
+     *
+     * @return размер индекса
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsByPost.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Номер версии: увеличивается при каждом изменении индекса.
+     *
+     * @return версия индекса
+     */
+    public long version() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id всех объявлений индекса по возрастанию.
+     *
+     * @return id объявлений
+     */
+    public long[] postIds() {
+        lock.readLock().lock();
+        try {
+            return slotsByPost.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Находит страницу объявлений, подходящих под запрос, в порядке его сортировки.
+     *
+     * @param query  запрос
+     * @param offset сколько объявлений пропустить
+     * @param limit  максимальное число объявлений
+     * @return id объявлений страницы
+     */
+    public List<Long> search(ListingQuery query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Selection selection = select(query);
+            if (selection.slots.isEmpty() || limit <= 0) {
+                return List.of();
+            }
+            int[] page;
+            if (query.relevance()) {
+                page = rankByRelevance(exact(selection), query, offset, limit);
+            } else if (selection.slots.cardinality() * DENSE_FRACTION >= live.cardinality()) {
+                page = walkSortedColumn(selection, query, offset, limit);
+            } else {
+                page = topCandidates(exact(selection), query, offset, limit);
+            }
+            List<Long> postIds = new ArrayList<>(page.length);
+            for (int slot : page) {
+                postIds.add(store.postId(slot));
+            }
+            return postIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количества объявлений по значениям всех атрибутов за один проход по битовым картам:
+     * для каждого значения считается мощность пересечения его карты с набором слотов,
+     * подходящих под остальные условия фильтра.
+     *
+     * @param query запрос
+     * @return общее число и количества по атрибутам
+     */
+    public FacetCounts facetCounts(ListingQuery query) {
+        lock.readLock().lock();
+        try {
+            SlotBitmap matching = exact(select(query));
+            Map<Facet, Map<Long, Integer>> counts = new EnumMap<>(Facet.class);
+            for (Facet facet : Facet.values()) {
+                SlotBitmap base = query.facets().containsKey(facet) ? exact(select(query.without(facet))) : matching;
+                counts.put(facet, countValues(facet, base));
+            }
+            return new FacetCounts(matching.cardinality(), counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Точный набор отобранных слотов: широкие диапазоны проверяются по столбцам,
+     * при большом числе кандидатов — параллельно по блокам битовой карты.
+     */
+    private SlotBitmap exact(Selection selection) {
+        if (selection.residual.isEmpty()) {
+            return selection.slots;
+        }
+        boolean parallel = selection.slots.blockCount() > 1 && selection.slots.cardinality() >= PARALLEL_SCAN_MIN;
+        return selection.slots.filter(slot -> selection.residual.matches(store, slot), parallel);
+    }
+
+    private Map<Long, Integer> countValues(Facet facet, SlotBitmap base) {
+        Map<Long, Integer> counts = new TreeMap<>();
+        if (base.isEmpty()) {
+            return counts;
+        }
+        facets.get(facet).forEach((value, bitmap) -> {
+            int count = bitmap.andCardinality(base);
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Отбор кандидатов: пересечение битовых карт атрибутов и терминов от меньшей к большей,
+     * затем узкие диапазоны через перестановки столбцов; широкие диапазоны остаются для проверки по столбцам.
+     */
+    private Selection select(ListingQuery query) {
+        List<SlotBitmap> bitmaps = new ArrayList<>();
+        for (Map.Entry<Facet, Long> entry : query.facets().entrySet()) {
+            bitmaps.add(facets.get(entry.getKey()).get(entry.getValue()));
+        }
+        for (String term : query.terms()) {
+            bitmaps.add(text.postings(term));
+        }
+        if (bitmaps.contains(null)) {
+            return new Selection(new SlotBitmap(), Residual.NONE);
+        }
+        bitmaps.sort(Comparator.comparingInt(SlotBitmap::cardinality));
+        SlotBitmap slots = live;
+        for (SlotBitmap bitmap : bitmaps) {
+            slots = slots.and(bitmap);
+        }
+        Map<NumericColumn, ListingQuery.Range> residual = new EnumMap<>(NumericColumn.class);
+        for (Map.Entry<NumericColumn, ListingQuery.Range> entry : query.ranges().entrySet()) {
+            SortedColumn column = sorted.get(entry.getKey());
+            int from = column.lowerBound(entry.getValue().from());
+            int to = Math.max(from, column.upperBound(entry.getValue().to()));
+            if ((long) (to - from) * NARROW_RANGE_FACTOR < slots.cardinality()) {
+                slots = slots.and(rangeBitmap(column, from, to));
+            } else {
+                residual.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new Selection(slots, Residual.of(residual));
+    }
+
+    /**
+     * Слоты позиций [from, to) перестановки. Слоты добавляются по возрастанию, чтобы вставка шла в конец блоков.
+     */
+    private static SlotBitmap rangeBitmap(SortedColumn column, int from, int to) {
+        int[] slots = new int[to - from];
+        for (int i = from; i < to; i++) {
+            slots[i - from] = column.slotAt(i);
+        }
+        Arrays.sort(slots);
+        SlotBitmap bitmap = new SlotBitmap();
+        for (int slot : slots) {
+            bitmap.add(slot);
+        }
+        return bitmap;
+    }
+
+    private int[] walkSortedColumn(Selection selection, ListingQuery query, int offset, int limit) {
+        SortedColumn column = sorted.get(query.sortColumn());
+        int[] page = new int[limit];
+        int found = 0;
+        int skipped = 0;
+        int size = column.size();
+        for (int i = 0; i < size && found < limit; i++) {
+            int slot = column.slotAt(query.descending() ? size - 1 - i : i);
+            if (selection.slots.contains(slot) && selection.residual.matches(store, slot)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page[found++] = slot;
+                }
+            }
+        }
+        return Arrays.copyOf(page, found);
+    }
+
+    private int[] topCandidates(SlotBitmap candidates, ListingQuery query, int offset, int limit) {
+        NumericColumn column = query.sortColumn();
+        int direction = query.descending() ? -1 : 1;
+        SlotOrder.Top top = new SlotOrder.Top(offset + limit, (a, b) -> store.compare(column, a, b) * direction);
+        candidates.forEach(top::offer);
+        int[] page = top.sorted();
+        return offset >= page.length ? new int[0] : Arrays.copyOfRange(page, offset, page.length);
+    }
+
+    /**
+     * Первые кандидаты по убыванию оценки BM25; при равной оценке — по убыванию столбца сортировки запроса.
+     * Оценки считаются один раз на кандидата, куча упорядочивает номера кандидатов.
+     */
+    private int[] rankByRelevance(SlotBitmap matching, ListingQuery query, int offset, int limit) {
+        int[] termIds = text.termIds(query.terms());
+        double[] idf = text.idf(termIds);
+        int[] candidates = matching.toArray();
+        double[] scores = new double[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            scores[i] = text.score(candidates[i], termIds, idf);
+        }
+        NumericColumn column = query.sortColumn();
+        SlotOrder.Top top = new SlotOrder.Top(offset + limit, (a, b) -> {
+            int compare = Double.compare(scores[b], scores[a]);
+            return compare != 0 ? compare : store.compare(column, candidates[b], candidates[a]);
+        });
+        for (int i = 0; i < candidates.length; i++) {
+            top.offer(i);
+        }
+        int[] ranked = top.sorted();
+        int[] page = new int[Math.max(0, ranked.length - offset)];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = candidates[ranked[offset + i]];
+        }
+        return page;
+    }
+
+    private void register(int slot) {
+        slotsByPost.put(store.postId(slot), slot);
+        live.add(slot);
+        addToFacets(slot);
+    }
+
+    private void sortColumns() {
+        for (NumericColumn column : NumericColumn.values()) {
+            sorted.put(column, SortedColumn.build(store, column, used));
+        }
+    }
+
+    private void addToFacets(int slot) {
+        for (Facet facet : Facet.values()) {
+            facets.get(facet).computeIfAbsent(store.value(facet, slot), value -> new SlotBitmap()).add(slot);
+        }
+    }
+
+    private boolean removeLocked(long postId) {
+        Integer slot = slotsByPost.remove(postId);
+        if (slot == null) {
+            return false;
+        }
+        live.remove(slot);
+        for (Facet facet : Facet.values()) {
+            Map<Long, SlotBitmap> values = facets.get(facet);
+            long value = store.value(facet, slot);
+            SlotBitmap bitmap = values.get(value);
+            bitmap.remove(slot);
+            if (bitmap.isEmpty()) {
+                values.remove(value);
+            }
+        }
+        for (SortedColumn column : sorted.values()) {
+            column.remove(slot);
+        }
+        text.remove(slot);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    private int allocateSlot() {
+        return freeCount > 0 ? freeSlots[--freeCount] : used++;
+    }
+
+    /**
+     * Отобранные слоты и диапазоны, которые ещё нужно проверить по столбцам.
+     */
+    private record Selection(SlotBitmap slots, Residual residual) {
+    }
+
+    /**
+     * Широкие диапазоны в виде параллельных массивов, чтобы проверка слота не создавала объектов.
+     */
+    private record Residual(NumericColumn[] columns, long[] from, long[] to) {
+
+        static final Residual NONE = new Residual(new NumericColumn[0], new long[0], new long[0]);
+
+        static Residual of(Map<NumericColumn, ListingQuery.Range> ranges) {
+            NumericColumn[] columns = ranges.keySet().toArray(new NumericColumn[0]);
+            long[] from = new long[columns.length];
+            long[] to = new long[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                from[i] = ranges.get(columns[i]).from();
+                to[i] = ranges.get(columns[i]).to();
+            }
+            return new Residual(columns, from, to);
+        }
+
+        boolean isEmpty() {
+            return columns.length == 0;
+        }
+
+        boolean matches(ListingColumns store, int slot) {
+            for (int i = 0; i < columns.length; i++) {
+                long value = store.value(columns[i], slot);
+                if (value < from[i] || value > to[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
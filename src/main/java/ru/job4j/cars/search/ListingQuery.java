@@ -0,0 +1,178 @@
+package ru.job4j.cars.search;
+
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.dto.PostSort;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Фильтр поиска в терминах индекса: значения справочных атрибутов, включающие
+ * диапазоны числовых столбцов (цена в копейках), термины текстового запроса и порядок сортировки.
+ */
+public final class ListingQuery {
+
+    private final Map<Facet, Long> facets;
+
+    private final Map<NumericColumn, Range> ranges;
+
+    private final List<String> terms;
+
+    private final boolean relevance;
+
+    private final NumericColumn sortColumn;
+
+    private final boolean descending;
+
+    private ListingQuery(Map<Facet, Long> facets, Map<NumericColumn, Range> ranges, List<String> terms,
+                         boolean relevance, NumericColumn sortColumn, boolean descending) {
+        this.facets = facets;
+        this.ranges = ranges;
+        this.terms = terms;
+        this.relevance = relevance;
+        this.sortColumn = sortColumn;
+        this.descending = descending;
+    }
+
+    /**
+     * Переводит фильтр формы поиска в запрос к индексу.
+     *
+     * @param filter фильтр поиска
+     * @return запрос к индексу
+     */
+    public static ListingQuery from(PostSearchFilter filter) {
+        Map<Facet, Long> facets = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            Long value = facet.valueOf(filter);
+            if (value != null) {
+                facets.put(facet, value);
+            }
+        }
+        Map<NumericColumn, Range> ranges = new EnumMap<>(NumericColumn.class);
+        putRange(ranges, NumericColumn.PRICE, cents(filter.getPriceFrom(), RoundingMode.CEILING),
+                cents(filter.getPriceTo(), RoundingMode.FLOOR));
+        putRange(ranges, NumericColumn.YEAR, filter.getYearFrom(), filter.getYearTo());
+        putRange(ranges, NumericColumn.MILEAGE, filter.getMileageFrom(), filter.getMileageTo());
+        List<String> terms = TextAnalyzer.terms(filter.getQuery()).stream().distinct().toList();
+        PostSort sort = filter.getSort() != null ? filter.getSort() : PostSort.NEWEST;
+        boolean relevance = sort == PostSort.RELEVANCE && !terms.isEmpty();
+        return switch (sort) {
+            case PRICE_ASC -> new ListingQuery(facets, ranges, terms, false, NumericColumn.PRICE, false);
+            case PRICE_DESC -> new ListingQuery(facets, ranges, terms, false, NumericColumn.PRICE, true);
+            case YEAR_DESC -> new ListingQuery(facets, ranges, terms, false, NumericColumn.YEAR, true);
+            case MILEAGE_ASC -> new ListingQuery(facets, ranges, terms, false, NumericColumn.MILEAGE, false);
+            default -> new ListingQuery(facets, ranges, terms, relevance, NumericColumn.CREATED_AT, true);
+        };
+    }
+
+    /**
+     * Цена в копейках с округлением к границе диапазона.
+     *
+     * @param price цена в рублях или null
+     * @param mode  CEILING для нижней границы, FLOOR для верхней
+     * @return цена в копейках или null
+     */
+    static Long cents(BigDecimal price, RoundingMode mode) {
+        return price != null ? price.movePointRight(2).setScale(0, mode).longValue() : null;
+    }
+
+    private static void putRange(Map<NumericColumn, Range> ranges, NumericColumn column, Long from, Long to) {
+        if (from != null || to != null) {
+            ranges.put(column, new Range(from != null ? from : Long.MIN_VALUE, to != null ? to : Long.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Тот же запрос без условия на атрибут: по нему считаются количества для значений этого атрибута,
+     * чтобы выбор одного значения не скрывал остальные.
+     *
+     * @param facet атрибут
+     * @return запрос без условия на атрибут
+     */
+    ListingQuery without(Facet facet) {
+        Map<Facet, Long> others = new EnumMap<>(Facet.class);
+        others.putAll(facets);
+        others.remove(facet);
+        return new ListingQuery(others, ranges, terms, relevance, sortColumn, descending);
+    }
+
+    /**
+     * Нормализованный ключ условий запроса без сортировки: одинаковые фильтры,
+     * заданные в разном порядке или с разной сортировкой и страницей, дают один ключ.
+     *
+     * @return ключ для кеширования
+     */
+    public String conditionKey() {
+        StringJoiner key = new StringJoiner(";");
+        facets.forEach((facet, value) -> key.add(facet.name() + "=" + value));
+        ranges.forEach((column, range) -> key.add(column.name() + "=" + range.from() + ".." + range.to()));
+        if (!terms.isEmpty()) {
+            key.add("TEXT=" + String.join(" ", terms.stream().sorted().toList()));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Подходит ли объявление под условия запроса, без обращения к индексу.
+     *
+     * @param row      строка объявления
+     * @param rowTerms термины описания объявления
+     * @return true, если выполнены все условия
+     */
+    boolean matches(ListingRow row, Set<String> rowTerms) {
+        for (Map.Entry<Facet, Long> entry : facets.entrySet()) {
+            if (entry.getKey().valueOf(row) != entry.getValue()) {
+                return false;
+            }
+        }
+        for (Map.Entry<NumericColumn, Range> entry : ranges.entrySet()) {
+            if (!entry.getValue().contains(entry.getKey().valueOf(row))) {
+                return false;
+            }
+        }
+        return rowTerms.containsAll(terms);
+    }
+
+    Map<Facet, Long> facets() {
+        return Collections.unmodifiableMap(facets);
+    }
+
+    Map<NumericColumn, Range> ranges() {
+        return Collections.unmodifiableMap(ranges);
+    }
+
+    List<String> terms() {
+        return terms;
+    }
+
+    /**
+     * Упорядочивать ли по релевантности тексту; при равной релевантности — по столбцу сортировки.
+     */
+    boolean relevance() {
+        return relevance;
+    }
+
+    NumericColumn sortColumn() {
+        return sortColumn;
+    }
+
+    boolean descending() {
+        return descending;
+    }
+
+    /**
+     * Включающий диапазон значений столбца.
+     */
+    record Range(long from, long to) {
+
+        boolean contains(long value) {
+            return value >= from && value <= to;
+        }
+    }
+}
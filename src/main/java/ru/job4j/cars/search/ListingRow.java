@@ -0,0 +1,40 @@
+package ru.job4j.cars.search;
+
+/**
+ * Проекция активного объявления для индекса поиска: id справочных значений автомобиля
+ * числовые поля, по которым идёт фильтрация и сортировка, и описание для полнотекстового поиска.
+ *
+ * @param postId             id объявления
+ * @param brandId            марка
+ * @param modelId            модель
+ * @param categoryId         категория
+ * @param bodyId             кузов
+ * @param engineId           двигатель
+ * @param transmissionTypeId коробка передач
+ * @param driveTypeId        привод
+ * @param carColorId         цвет
+ * @param fuelTypeId         топливо
+ * @param wheelSideId        расположение руля
+ * @param priceCents         цена в копейках
+ * @param year               год выпуска
+ * @param mileage            пробег
+ * @param createdAt          время создания объявления в миллисекундах
+ * @param description        описание объявления или null
+ */
+public record ListingRow(long postId,
+                         long brandId,
+                         long modelId,
+                         long categoryId,
+                         long bodyId,
+                         long engineId,
+                         long transmissionTypeId,
+                         long driveTypeId,
+                         long carColorId,
+                         long fuelTypeId,
+                         long wheelSideId,
+                         long priceCents,
+                         long year,
+                         long mileage,
+                         long createdAt,
+                         String description) {
+}
@@ -0,0 +1,219 @@
+package ru.job4j.cars.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Снимок индекса объявлений на диске для быстрого перезапуска без полного чтения базы.
+ * <p>
+ * Формат файла (числа big-endian):
+ * <pre>
+ * int  MAGIC, int FORMAT_VERSION, int число атрибутов Facet
+ * long watermark, int число объявлений, int число терминов
+ * термины: short длина, байты UTF-8 — по порядку id
+ * объявления: столбцы {@link ListingColumns}, затем int число терминов и пары (int id, int частота)
+ * long CRC32 всего, что записано выше
+ * </pre>
+ * Файл пишется во временный и атомарно заменяет старый, а читается через {@link FileChannel#map}:
+ * чтение идёт прямо из страничного кеша без промежуточных буферов.
+ * Снимок с другой версией формата, другим набором атрибутов или неверной контрольной суммой
+ * не читается — тогда индекс загружается из базы целиком.
+ * При изменении формата или состава {@link Facet} нужно увеличить {@link #FORMAT_VERSION}.
+ */
+public final class ListingSnapshot {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x4C495358;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final long watermark;
+
+    private final int size;
+
+    private final ListingColumns columns;
+
+    private final String[] dictionary;
+
+    private final int[][] terms;
+
+    private final int[][] frequencies;
+
+    ListingSnapshot(long watermark, int size, ListingColumns columns, String[] dictionary,
+                    int[][] terms, int[][] frequencies) {
+        this.watermark = watermark;
+        this.size = size;
+        this.columns = columns;
+        this.dictionary = dictionary;
+        this.terms = terms;
+        this.frequencies = frequencies;
+    }
+
+    /**
+     * Метка изменений в базе, которые уже учтены в снимке (миллисекунды UTC).
+     * Изменения позже неё нужно дочитать из базы после восстановления.
+     *
+     * @return метка
+     */
+    public long watermark() {
+        return watermark;
+    }
+
+    /**
+     * Число объявлений в снимке.
+     *
+     * @return число объявлений
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Строит индекс по снимку. Снимок можно превратить в индекс только один раз.
+     *
+     * @return индекс
+     */
+    public ListingIndex toIndex() {
+        return ListingIndex.restore(this);
+    }
+
+    /**
+     * Записывает снимок во временный файл рядом с целевым и атомарно подменяет им целевой.
+     *
+     * @param file путь к файлу снимка
+     * @throws IOException ошибка записи
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 checksum = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Files.newOutputStream(temp), checksum), BUFFER_SIZE))) {
+                writeContent(out);
+                out.flush();
+                out.writeLong(checksum.getValue());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Читает снимок, отображая файл в память.
+     *
+     * @param file путь к файлу снимка
+     * @return снимок
+     * @throws IOException файл не читается, повреждён или записан в другом формате
+     */
+    public static ListingSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < Long.BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Недопустимый размер снимка индекса: " + length);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int contentLength = (int) length - Long.BYTES;
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.slice(0, contentLength));
+            if (checksum.getValue() != buffer.getLong(contentLength)) {
+                throw new IOException("Неверная контрольная сумма снимка индекса " + file);
+            }
+            try {
+                return readContent(buffer.slice(0, contentLength));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Повреждённый снимок индекса " + file, e);
+            }
+        }
+    }
+
+    ListingColumns columns() {
+        return columns;
+    }
+
+    String[] dictionary() {
+        return dictionary;
+    }
+
+    int[][] terms() {
+        return terms;
+    }
+
+    int[][] frequencies() {
+        return frequencies;
+    }
+
+    private void writeContent(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(Facet.values().length);
+        out.writeLong(watermark);
+        out.writeInt(size);
+        out.writeInt(dictionary.length);
+        for (String term : dictionary) {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+        for (int slot = 0; slot < size; slot++) {
+            columns.write(slot, out);
+            out.writeInt(terms[slot].length);
+            for (int i = 0; i < terms[slot].length; i++) {
+                out.writeInt(terms[slot][i]);
+                out.writeInt(frequencies[slot][i]);
+            }
+        }
+    }
+
+    private static ListingSnapshot readContent(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION || in.getInt() != Facet.values().length) {
+            throw new IOException("Снимок индекса записан в другом формате");
+        }
+        long watermark = in.getLong();
+        int size = in.getInt();
+        String[] dictionary = new String[in.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[in.getShort()];
+            in.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        ListingColumns columns = new ListingColumns(Math.max(1, size));
+        int[][] terms = new int[size][];
+        int[][] frequencies = new int[size][];
+        for (int slot = 0; slot < size; slot++) {
+            columns.read(in, slot);
+            terms[slot] = new int[in.getInt()];
+            frequencies[slot] = new int[terms[slot].length];
+            for (int i = 0; i < terms[slot].length; i++) {
+                terms[slot][i] = checkTerm(in.getInt(), dictionary.length);
+                frequencies[slot][i] = in.getInt();
+            }
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("Лишние данные в конце снимка индекса");
+        }
+        return new ListingSnapshot(watermark, size, columns, dictionary, terms, frequencies);
+    }
+
+    private static int checkTerm(int id, int dictionarySize) {
+        if (id < 0 || id >= dictionarySize) {
+            throw new IllegalArgumentException("Неизвестный id термина " + id);
+        }
+        return id;
+    }
+}
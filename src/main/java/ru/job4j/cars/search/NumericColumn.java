@@ -0,0 +1,24 @@
+package ru.job4j.cars.search;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Числовые поля объявления, по которым индекс хранит отсортированные столбцы.
+ */
+enum NumericColumn {
+
+    CREATED_AT(ListingRow::createdAt),
+    PRICE(ListingRow::priceCents),
+    YEAR(ListingRow::year),
+    MILEAGE(ListingRow::mileage);
+
+    private final ToLongFunction<ListingRow> value;
+
+    NumericColumn(ToLongFunction<ListingRow> value) {
+        this.value = value;
+    }
+
+    long valueOf(ListingRow row) {
+        return value.applyAsLong(row);
+    }
+}
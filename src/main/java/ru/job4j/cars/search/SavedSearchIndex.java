@@ -0,0 +1,138 @@
+package ru.job4j.cars.search;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс сохранённых поисков для проверки нового объявления.
+ * <p>
+ * Перебирать все сохранённые поиски на каждое новое объявление дорого, поэтому каждый поиск
+ * хранится в одной корзине по самому избирательному своему условию: модели, если она задана,
+ * иначе марке, иначе диапазону цены. Для цены корзины логарифмические — каждая вдвое шире предыдущей,
+ * и поиск попадает во все корзины, которые пересекает его диапазон. Поиски без этих условий лежат
+ * в общем списке. Новое объявление проверяется только по поискам из корзин его модели, марки и цены
+ * и из общего списка; для каждого кандидата проверяются все условия.
+ * <p>
+ * Поиски добавляются и удаляются без блокировок: проверка пропускает поиск, удалённый по ходу.
+ */
+public final class SavedSearchIndex {
+
+    private final Map<Long, ListingQuery> searches = new ConcurrentHashMap<>();
+
+    private final Map<Long, Set<Long>> byModel = new ConcurrentHashMap<>();
+
+    private final Map<Long, Set<Long>> byBrand = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Set<Long>> byPrice = new ConcurrentHashMap<>();
+
+    private final Set<Long> unindexed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Добавляет сохранённый поиск или заменяет его условия.
+     *
+     * @param searchId id сохранённого поиска
+     * @param query    условия поиска
+     */
+    public void add(long searchId, ListingQuery query) {
+        remove(searchId);
+        searches.put(searchId, query);
+        Long modelId = query.facets().get(Facet.MODEL);
+        Long brandId = query.facets().get(Facet.BRAND);
+        ListingQuery.Range price = query.ranges().get(NumericColumn.PRICE);
+        if (modelId != null) {
+            addTo(byModel, modelId, searchId);
+        } else if (brandId != null) {
+            addTo(byBrand, brandId, searchId);
+        } else if (price != null) {
+            for (int bucket = priceBucket(price.from()); bucket <= priceBucket(price.to()); bucket++) {
+                addTo(byPrice, bucket, searchId);
+            }
+        } else {
+            unindexed.add(searchId);
+        }
+    }
+
+    /**
+     * Удаляет сохранённый поиск.
+     *
+     * @param searchId id сохранённого поиска
+     */
+    public void remove(long searchId) {
+        ListingQuery query = searches.remove(searchId);
+        if (query == null) {
+            return;
+        }
+        Long modelId = query.facets().get(Facet.MODEL);
+        Long brandId = query.facets().get(Facet.BRAND);
+        ListingQuery.Range price = query.ranges().get(NumericColumn.PRICE);
+        if (modelId != null) {
+            removeFrom(byModel, modelId, searchId);
+        } else if (brandId != null) {
+            removeFrom(byBrand, brandId, searchId);
+        } else if (price != null) {
+            for (int bucket = priceBucket(price.from()); bucket <= priceBucket(price.to()); bucket++) {
+                removeFrom(byPrice, bucket, searchId);
+            }
+        } else {
+            unindexed.remove(searchId);
+        }
+    }
+
+    /**
+     * Сохранённые поиски, под которые подходит объявление.
+     *
+     * @param row строка объявления
+     * @return id подходящих поисков
+     */
+    public List<Long> match(ListingRow row) {
+        Set<Long> candidates = new HashSet<>(unindexed);
+        candidates.addAll(byModel.getOrDefault(row.modelId(), Set.of()));
+        candidates.addAll(byBrand.getOrDefault(row.brandId(), Set.of()));
+        candidates.addAll(byPrice.getOrDefault(priceBucket(row.priceCents()), Set.of()));
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        Set<String> terms = new HashSet<>(TextAnalyzer.terms(row.description()));
+        return candidates.stream()
+                .filter(searchId -> {
+                    ListingQuery query = searches.get(searchId);
+                    return query != null && query.matches(row, terms);
+                })
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Число сохранённых поисков в индексе.
+     *
+     * @return размер индекса
+     */
+    public int size() {
+        return searches.size();
+    }
+
+    /**
+     * Логарифмическая корзина цены: номер старшего бита цены в копейках, 0 — для цены не больше 1 копейки.
+     */
+    static int priceBucket(long priceCents) {
+        return priceCents > 1 ? 63 - Long.numberOfLeadingZeros(priceCents) : 0;
+    }
+
+    private static <K> void addTo(Map<K, Set<Long>> buckets, K key, long searchId) {
+        buckets.compute(key, (k, ids) -> {
+            Set<Long> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            result.add(searchId);
+            return result;
+        });
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Long>> buckets, K key, long searchId) {
+        buckets.computeIfPresent(key, (k, ids) -> {
+            ids.remove(searchId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
@@ -0,0 +1,528 @@
+package ru.job4j.cars.search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Сжатое множество неотрицательных int (номеров слотов индекса) в духе Roaring bitmap.
+ * Пространство чисел делится на блоки по 65536 значений по старшим 16 битам;
+ * редкий блок хранится отсортированным массивом char (до {@value #ARRAY_MAX} значений),
+ * плотный — битовой картой из 1024 long. Пересечение и подсчёт пересечения идут поблочно
+ * и не распаковывают множества целиком.
+ * <p>
+ * Класс не потокобезопасен: синхронизацию обеспечивает владелец.
+ */
+public final class SlotBitmap {
+
+    /**
+     * Наибольшее число значений в блоке-массиве; при превышении блок становится битовой картой.
+     */
+    static final int ARRAY_MAX = 4096;
+
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[4];
+
+    private Object[] containers = new Object[4];
+
+    private int size;
+
+    /**
+     * Добавляет значение.
+     *
+     * @param value неотрицательное число
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        Object container = containers[index];
+        if (container instanceof ArrayContainer array) {
+            if (array.add((char) value) && array.cardinality > ARRAY_MAX) {
+                containers[index] = array.toBitmap();
+            }
+        } else {
+            ((BitmapContainer) container).add((char) value);
+        }
+    }
+
+    /**
+     * Удаляет значение, если оно есть.
+     *
+     * @param value неотрицательное число
+     */
+    public void remove(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Object container = containers[index];
+        int cardinality;
+        if (container instanceof ArrayContainer array) {
+            array.remove((char) value);
+            cardinality = array.cardinality;
+        } else {
+            BitmapContainer bitmap = (BitmapContainer) container;
+            bitmap.remove((char) value);
+            cardinality = bitmap.cardinality;
+            if (cardinality <= ARRAY_MAX) {
+                containers[index] = bitmap.toArray();
+            }
+        }
+        if (cardinality == 0) {
+            removeContainer(index);
+        }
+    }
+
+    /**
+     * Проверяет наличие значения.
+     *
+     * @param value неотрицательное число
+     * @return true, если значение есть в множестве
+     */
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Object container = containers[index];
+        return container instanceof ArrayContainer array
+                ? array.contains((char) value)
+                : ((BitmapContainer) container).contains((char) value);
+    }
+
+    /**
+     * Число значений в множестве.
+     *
+     * @return мощность множества
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinality(containers[i]);
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Пересечение с другим множеством; исходные множества не меняются.
+     *
+     * @param other другое множество
+     * @return новое множество
+     */
+    public SlotBitmap and(SlotBitmap other) {
+        SlotBitmap result = new SlotBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object container = and(containers[i], other.containers[j]);
+                if (cardinality(container) > 0) {
+                    result.insertContainer(result.size, keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Мощность пересечения без построения самого пересечения.
+     *
+     * @param other другое множество
+     * @return число общих значений
+     */
+    public int andCardinality(SlotBitmap other) {
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                total += andCardinality(containers[i], other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Обходит значения по возрастанию.
+     *
+     * @param action действие над каждым значением
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof ArrayContainer array) {
+                for (int k = 0; k < array.cardinality; k++) {
+                    action.accept(high | array.values[k]);
+                }
+            } else {
+                long[] words = ((BitmapContainer) container).words;
+                for (int w = 0; w < WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept(high | w << 6 | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Подмножество значений, для которых выполняется условие. Блоки по 65536 значений
+     * не зависят друг от друга, поэтому при parallel они проверяются параллельно
+     * в общем пуле ForkJoin; условие должно быть безопасно для чтения из нескольких потоков.
+     *
+     * @param predicate условие
+     * @param parallel  проверять ли блоки параллельно
+     * @return новое множество
+     */
+    public SlotBitmap filter(IntPredicate predicate, boolean parallel) {
+        Object[] filtered = new Object[size];
+        IntStream blocks = IntStream.range(0, size);
+        (parallel ? blocks.parallel() : blocks).forEach(i -> filtered[i] = filter(keys[i] << 16, containers[i], predicate));
+        SlotBitmap result = new SlotBitmap();
+        for (int i = 0; i < size; i++) {
+            if (cardinality(filtered[i]) > 0) {
+                result.insertContainer(result.size, keys[i], filtered[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Число блоков по 65536 значений: столько задач получает параллельная проверка.
+     *
+     * @return число непустых блоков
+     */
+    public int blockCount() {
+        return size;
+    }
+
+    /**
+     * Значения множества по возрастанию.
+     *
+     * @return новый массив
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality()];
+        int[] position = {0};
+        forEach(value -> result[position[0]++] = value);
+        return result;
+    }
+
+    /**
+     * Независимая копия множества.
+     *
+     * @return новое множество с теми же значениями
+     */
+    public SlotBitmap copy() {
+        SlotBitmap copy = new SlotBitmap();
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.containers = new Object[containers.length];
+        for (int i = 0; i < size; i++) {
+            copy.containers[i] = containers[i] instanceof ArrayContainer array ? array.copy() : ((BitmapContainer) containers[i]).copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Множество из перечисленных значений.
+     *
+     * @param values значения в любом порядке
+     * @return новое множество
+     */
+    public static SlotBitmap of(int... values) {
+        SlotBitmap bitmap = new SlotBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    private void insertContainer(int index, char key, Object container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private static int cardinality(Object container) {
+        return container instanceof ArrayContainer array ? array.cardinality : ((BitmapContainer) container).cardinality;
+    }
+
+    private static Object and(Object first, Object second) {
+        if (first instanceof BitmapContainer a && second instanceof BitmapContainer b) {
+            return a.and(b);
+        }
+        if (first instanceof ArrayContainer a) {
+            return a.and(second);
+        }
+        return ((ArrayContainer) second).and(first);
+    }
+
+    private static int andCardinality(Object first, Object second) {
+        if (first instanceof BitmapContainer a && second instanceof BitmapContainer b) {
+            return a.andCardinality(b);
+        }
+        if (first instanceof ArrayContainer a) {
+            return a.andCardinality(second);
+        }
+        return ((ArrayContainer) second).andCardinality(first);
+    }
+
+    private static Object filter(int high, Object container, IntPredicate predicate) {
+        if (container instanceof ArrayContainer array) {
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(1, array.cardinality)];
+            for (int k = 0; k < array.cardinality; k++) {
+                if (predicate.test(high | array.values[k])) {
+                    result.values[result.cardinality++] = array.values[k];
+                }
+            }
+            return result;
+        }
+        long[] words = ((BitmapContainer) container).words;
+        BitmapContainer result = new BitmapContainer();
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            long kept = 0;
+            while (word != 0) {
+                long bit = word & -word;
+                if (predicate.test(high | w << 6 | Long.numberOfTrailingZeros(word))) {
+                    kept |= bit;
+                }
+                word ^= bit;
+            }
+            result.words[w] = kept;
+            result.cardinality += Long.bitCount(kept);
+        }
+        return result.cardinality <= ARRAY_MAX ? result.toArray() : result;
+    }
+
+    private static boolean containsIn(Object container, char value) {
+        return container instanceof ArrayContainer array
+                ? array.contains(value)
+                : ((BitmapContainer) container).contains(value);
+    }
+
+    /**
+     * Редкий блок: отсортированный массив младших 16 бит.
+     */
+    private static final class ArrayContainer {
+
+        private char[] values = new char[4];
+
+        private int cardinality;
+
+        boolean add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX + 1));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return true;
+        }
+
+        void remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+        }
+
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        Object and(Object other) {
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(1, cardinality)];
+            if (other instanceof ArrayContainer array) {
+                result.cardinality = merge(array, result.values);
+                return result;
+            }
+            for (int i = 0; i < cardinality; i++) {
+                if (containsIn(other, values[i])) {
+                    result.values[result.cardinality++] = values[i];
+                }
+            }
+            return result;
+        }
+
+        int andCardinality(Object other) {
+            if (other instanceof ArrayContainer array) {
+                return merge(array, null);
+            }
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (containsIn(other, values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Пересечение двух отсортированных массивов слиянием; target может быть null, если нужен только размер.
+         */
+        private int merge(ArrayContainer other, char[] target) {
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < other.cardinality) {
+                if (values[i] < other.values[j]) {
+                    i++;
+                } else if (values[i] > other.values[j]) {
+                    j++;
+                } else {
+                    if (target != null) {
+                        target[count] = values[i];
+                    }
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+
+        ArrayContainer copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, values.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+    }
+
+    /**
+     * Плотный блок: битовая карта на 65536 значений.
+     */
+    private static final class BitmapContainer {
+
+        private final long[] words = new long[WORDS];
+
+        private int cardinality;
+
+        void add(char value) {
+            long before = words[value >>> 6];
+            long after = before | 1L << value;
+            words[value >>> 6] = after;
+            if (before != after) {
+                cardinality++;
+            }
+        }
+
+        void remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            words[value >>> 6] = after;
+            if (before != after) {
+                cardinality--;
+            }
+        }
+
+        boolean contains(char value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        Object and(BitmapContainer other) {
+            int count = andCardinality(other);
+            if (count <= ARRAY_MAX) {
+                ArrayContainer result = new ArrayContainer();
+                result.values = new char[Math.max(1, count)];
+                for (int w = 0; w < WORDS; w++) {
+                    long word = words[w] & other.words[w];
+                    while (word != 0) {
+                        result.values[result.cardinality++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+                return result;
+            }
+            BitmapContainer result = new BitmapContainer();
+            for (int w = 0; w < WORDS; w++) {
+                result.words[w] = words[w] & other.words[w];
+            }
+            result.cardinality = count;
+            return result;
+        }
+
+        int andCardinality(BitmapContainer other) {
+            int count = 0;
+            for (int w = 0; w < WORDS; w++) {
+                count += Long.bitCount(words[w] & other.words[w]);
+            }
+            return count;
+        }
+
+        ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(1, cardinality)];
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    array.values[array.cardinality++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return array;
+        }
+
+        BitmapContainer copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ru.job4j.cars.search;
+
+/**
+ * Сортировка и отбор первых K слотов по произвольному порядку без упаковки в Integer.
+ */
+final class SlotOrder {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private SlotOrder() {
+    }
+
+    /**
+     * Порядок слотов: отрицательное значение, если a идёт раньше b.
+     */
+    @FunctionalInterface
+    interface SlotComparator {
+
+        int compare(int a, int b);
+    }
+
+    /**
+     * Устойчивая сортировка слиянием первых size элементов массива.
+     */
+    static void sort(int[] items, int size, SlotComparator order) {
+        int[] buffer = new int[size];
+        System.arraycopy(items, 0, buffer, 0, size);
+        mergeSort(buffer, items, 0, size, order);
+    }
+
+    private static void mergeSort(int[] source, int[] target, int from, int to, SlotComparator order) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(target, from, to, order);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(target, source, from, middle, order);
+        mergeSort(target, source, middle, to, order);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle && order.compare(source[left], source[right]) <= 0) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+
+    private static void insertionSort(int[] items, int from, int to, SlotComparator order) {
+        for (int i = from + 1; i < to; i++) {
+            int item = items[i];
+            int j = i - 1;
+            while (j >= from && order.compare(items[j], item) > 0) {
+                items[j + 1] = items[j];
+                j--;
+            }
+            items[j + 1] = item;
+        }
+    }
+
+    /**
+     * Первые K слотов в заданном порядке. Хранит кучу из K элементов,
+     * в корне которой худший из отобранных, поэтому отбор из n слотов стоит O(n log K).
+     */
+    static final class Top {
+
+        private final int[] heap;
+
+        private final SlotComparator order;
+
+        private int size;
+
+        Top(int limit, SlotComparator order) {
+            this.heap = new int[Math.max(0, limit)];
+            this.order = order;
+        }
+
+        void offer(int slot) {
+            if (size < heap.length) {
+                heap[size] = slot;
+                siftUp(size);
+                size++;
+            } else if (size > 0 && order.compare(slot, heap[0]) < 0) {
+                heap[0] = slot;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Отобранные слоты от лучшего к худшему.
+         */
+        int[] sorted() {
+            int[] result = new int[size];
+            System.arraycopy(heap, 0, result, 0, size);
+            sort(result, size, order);
+            return result;
+        }
+
+        private void siftUp(int index) {
+            int child = index;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (order.compare(heap[child], heap[parent]) <= 0) {
+                    return;
+                }
+                swap(child, parent);
+                child = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            int parent = index;
+            while (true) {
+                int worst = parent;
+                int left = 2 * parent + 1;
+                int right = left + 1;
+                if (left < size && order.compare(heap[left], heap[worst]) > 0) {
+                    worst = left;
+                }
+                if (right < size && order.compare(heap[right], heap[worst]) > 0) {
+                    worst = right;
+                }
+                if (worst == parent) {
+                    return;
+                }
+                swap(parent, worst);
+                parent = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int item = heap[a];
+            heap[a] = heap[b];
+            heap[b] = item;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ru.job4j.cars.search;
+
+import java.util.Arrays;
+
+/**
+ * Заранее отсортированная перестановка слотов по числовому столбцу {@link ListingColumns}.
+ * Хранит только номера слотов, сами значения читаются из столбцов. При равных значениях
+ * порядок — по возрастанию id объявления, поэтому обход с конца даёт порядок
+ * «значение по убыванию, id по убыванию», как в SQL-поиске.
+ * Диапазон значений находится двоичным поиском, вставка и удаление сдвигают хвост массива.
+ */
+final class SortedColumn {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final ListingColumns store;
+
+    private final NumericColumn column;
+
+    private int[] slots;
+
+    private int size;
+
+    SortedColumn(ListingColumns store, NumericColumn column) {
+        this(store, column, MIN_CAPACITY);
+    }
+
+    private SortedColumn(ListingColumns store, NumericColumn column, int capacity) {
+        this.store = store;
+        this.column = column;
+        this.slots = new int[capacity];
+    }
+
+    /**
+     * Строит перестановку слотов 0..size-1 одной сортировкой, без поэлементных вставок.
+     * Используется при загрузке индекса целиком.
+     *
+     * @param store  столбцы с уже записанными слотами
+     * @param column столбец сортировки
+     * @param size   число заполненных слотов
+     * @return отсортированная перестановка
+     */
+    static SortedColumn build(ListingColumns store, NumericColumn column, int size) {
+        SortedColumn sorted = new SortedColumn(store, column, Math.max(MIN_CAPACITY, size));
+        for (int i = 0; i < size; i++) {
+            sorted.slots[i] = i;
+        }
+        SlotOrder.sort(sorted.slots, size, (a, b) -> store.compare(column, a, b));
+        sorted.size = size;
+        return sorted;
+    }
+
+    /**
+     * Вставляет слот; его значения уже должны быть записаны в столбцы.
+     */
+    void insert(int slot) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        int index = position(slot);
+        System.arraycopy(slots, index, slots, index + 1, size - index);
+        slots[index] = slot;
+        size++;
+    }
+
+    /**
+     * Удаляет слот; вызывается, пока в столбцах ещё лежат его значения.
+     */
+    void remove(int slot) {
+        int index = position(slot);
+        if (index < size && slots[index] == slot) {
+            System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Первая позиция со значением не меньше from.
+     */
+    int lowerBound(long from) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (store.value(column, slots[middle]) < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Первая позиция со значением больше to.
+     */
+    int upperBound(long to) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (store.value(column, slots[middle]) <= to) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    int slotAt(int index) {
+        return slots[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int position(int slot) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (store.compare(column, slots[middle], slot) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
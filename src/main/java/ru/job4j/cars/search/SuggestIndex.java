@@ -0,0 +1,228 @@
+package ru.job4j.cars.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Неизменяемый индекс подсказок по названиям марок и моделей.
+ * <p>
+ * Ключи — нормализованные названия (нижний регистр, «ё» как «е», знаки препинания как пробел)
+ * и их окончания с начала каждого слова. Ключи разложены по рангам и внутри ранга отсортированы:
+ * все ключи с заданным префиксом лежат подряд, диапазон находится двоичным поиском,
+ * а обход рангов по порядку останавливается, как только набрано нужное число подсказок.
+ * Модель индексируется и сама по себе, и вместе с маркой («toyota camry»).
+ * Кириллические названия индексируются ещё и в латинской транслитерации, а запрос пробуется
+ * как есть, в транслитерации и в другой раскладке клавиатуры: «тойота», «ещнщеф» и «Toyota»
+ * находят одну марку.
+ * <p>
+ * Ранги по порядку: начало названия марки, начало названия модели, начало «марка модель»,
+ * начало другого слова названия. Совпадения в другой раскладке идут после всех прямых,
+ * внутри ранга подсказки упорядочены по ключу, то есть по названию.
+ */
+public final class SuggestIndex {
+
+    private static final int RANK_BRAND = 0;
+
+    private static final int RANK_MODEL = 1;
+
+    private static final int RANK_BRAND_AND_MODEL = 2;
+
+    private static final int RANK_INNER_WORD = 3;
+
+    private static final int RANKS = 4;
+
+    private static final String LATIN_KEYS = "`qwertyuiop[]asdfghjkl;'zxcvbnm,.";
+
+    private static final String CYRILLIC_KEYS = "ёйцукенгшщзхъфывапролджэячсмитьбю";
+
+    private static final String[] TRANSLIT = {
+            "a", "b", "v", "g", "d", "e", "zh", "z", "i", "y", "k", "l", "m", "n", "o", "p",
+            "r", "s", "t", "u", "f", "kh", "ts", "ch", "sh", "sch", "", "y", "", "e", "yu", "ya"
+    };
+
+    /**
+     * Отсортированные ключи каждого ранга.
+     */
+    private final String[][] keys;
+
+    /**
+     * Номер подсказки для каждого ключа.
+     */
+    private final int[][] entries;
+
+    private final Suggestion[] suggestions;
+
+    private SuggestIndex(String[][] keys, int[][] entries, Suggestion[] suggestions) {
+        this.keys = keys;
+        this.entries = entries;
+        this.suggestions = suggestions;
+    }
+
+    /**
+     * Строит индекс по маркам и моделям.
+     *
+     * @param suggestions все марки и модели
+     * @return индекс
+     */
+    public static SuggestIndex of(Collection<Suggestion> suggestions) {
+        Suggestion[] all = suggestions.toArray(new Suggestion[0]);
+        List<List<Key>> byRank = new ArrayList<>();
+        for (int rank = 0; rank < RANKS; rank++) {
+            byRank.add(new ArrayList<>());
+        }
+        for (int i = 0; i < all.length; i++) {
+            Suggestion suggestion = all[i];
+            if (suggestion.type() == Suggestion.Type.BRAND) {
+                addKeys(byRank, suggestion.name(), i, RANK_BRAND);
+            } else {
+                addKeys(byRank, suggestion.name(), i, RANK_MODEL);
+                if (suggestion.brandName() != null) {
+                    addKeys(byRank, suggestion.brandName() + " " + suggestion.name(), i, RANK_BRAND_AND_MODEL);
+                }
+            }
+        }
+        String[][] keys = new String[RANKS][];
+        int[][] entries = new int[RANKS][];
+        for (int rank = 0; rank < RANKS; rank++) {
+            List<Key> rankKeys = byRank.get(rank);
+            rankKeys.sort(Comparator.comparing(Key::text).thenComparingInt(Key::entry));
+            keys[rank] = rankKeys.stream().map(Key::text).toArray(String[]::new);
+            entries[rank] = rankKeys.stream().mapToInt(Key::entry).toArray();
+        }
+        return new SuggestIndex(keys, entries, all);
+    }
+
+    /**
+     * Подсказки для введённого начала названия.
+     *
+     * @param query   введённый текст
+     * @param brandId если задан — только модели этой марки
+     * @param limit   максимальное число подсказок
+     * @return подсказки в порядке уместности
+     */
+    public List<Suggestion> suggest(String query, Long brandId, int limit) {
+        String lowerCase = query == null ? "" : query.toLowerCase(Locale.ROOT);
+        String normalized = normalize(lowerCase);
+        Set<String> direct = new LinkedHashSet<>();
+        if (!normalized.isBlank()) {
+            direct.add(normalized);
+            direct.add(transliterate(normalized));
+        }
+        String switched = normalize(switchLayout(lowerCase));
+        Set<Integer> found = new LinkedHashSet<>();
+        for (int rank = 0; rank < RANKS; rank++) {
+            for (String prefix : direct) {
+                collect(rank, prefix, brandId, limit, found);
+            }
+        }
+        if (!switched.isBlank() && !direct.contains(switched)) {
+            for (int rank = 0; rank < RANKS; rank++) {
+                collect(rank, switched, brandId, limit, found);
+            }
+        }
+        return found.stream().map(entry -> suggestions[entry]).toList();
+    }
+
+    /**
+     * Добавляет подсказки ранга, ключ которых начинается с префикса, пока не набрано limit подсказок.
+     */
+    private void collect(int rank, String prefix, Long brandId, int limit, Set<Integer> found) {
+        String[] rankKeys = keys[rank];
+        for (int i = lowerBound(rankKeys, prefix); i < rankKeys.length && found.size() < limit
+                && rankKeys[i].startsWith(prefix); i++) {
+            Suggestion suggestion = suggestions[entries[rank][i]];
+            if (brandId == null || (suggestion.type() == Suggestion.Type.MODEL && brandId.equals(suggestion.brandId()))) {
+                found.add(entries[rank][i]);
+            }
+        }
+    }
+
+    /**
+     * Приводит название или запрос к виду ключей индекса.
+     *
+     * @param text текст или null
+     * @return нижний регистр, «ё» как «е», слова из букв и цифр через один пробел
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (char c : text.toLowerCase(Locale.ROOT).replace('ё', 'е').toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            } else if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+                normalized.append(' ');
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Латинская транслитерация кириллицы; остальные символы не меняются.
+     */
+    static String transliterate(String text) {
+        StringBuilder latin = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if (c >= 'а' && c <= 'я') {
+                latin.append(TRANSLIT[c - 'а']);
+            } else {
+                latin.append(c);
+            }
+        }
+        return latin.toString();
+    }
+
+    /**
+     * Текст, набранный не в той раскладке: латинские клавиши заменяются кириллическими и наоборот.
+     */
+    static String switchLayout(String text) {
+        StringBuilder switched = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            int latin = LATIN_KEYS.indexOf(c);
+            int cyrillic = CYRILLIC_KEYS.indexOf(c);
+            if (latin >= 0) {
+                switched.append(CYRILLIC_KEYS.charAt(latin));
+            } else if (cyrillic >= 0) {
+                switched.append(LATIN_KEYS.charAt(cyrillic));
+            } else {
+                switched.append(c);
+            }
+        }
+        return switched.toString();
+    }
+
+    private static void addKeys(List<List<Key>> byRank, String text, int entry, int rank) {
+        String normalized = normalize(text).strip();
+        Set<String> forms = new LinkedHashSet<>(List.of(normalized, transliterate(normalized)));
+        for (String form : forms) {
+            if (form.isEmpty()) {
+                continue;
+            }
+            byRank.get(rank).add(new Key(form, entry));
+            for (int i = form.indexOf(' '); i >= 0; i = form.indexOf(' ', i + 1)) {
+                byRank.get(RANK_INNER_WORD).add(new Key(form.substring(i + 1), entry));
+            }
+        }
+    }
+
+    private static int lowerBound(String[] keys, String prefix) {
+        int position = Arrays.binarySearch(keys, prefix);
+        if (position < 0) {
+            return -position - 1;
+        }
+        while (position > 0 && keys[position - 1].equals(prefix)) {
+            position--;
+        }
+        return position;
+    }
+
+    private record Key(String text, int entry) {
+    }
+}
@@ -0,0 +1,32 @@
+package ru.job4j.cars.search;
+
+/**
+ * Подсказка при вводе марки или модели.
+ *
+ * @param type      марка или модель
+ * @param id        id марки или модели
+ * @param name      название
+ * @param brandId   для модели — id её марки, для марки — её id
+ * @param brandName для модели — название её марки, для марки — её название
+ */
+public record Suggestion(Type type, long id, String name, Long brandId, String brandName) {
+
+    public enum Type {
+        BRAND,
+        MODEL
+    }
+
+    /**
+     * Подсказка-марка.
+     */
+    public static Suggestion brand(long id, String name) {
+        return new Suggestion(Type.BRAND, id, name, id, name);
+    }
+
+    /**
+     * Подсказка-модель; марка может быть неизвестна.
+     */
+    public static Suggestion model(long id, String name, Long brandId, String brandName) {
+        return new Suggestion(Type.MODEL, id, name, brandId, brandName);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.job4j.cars.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разбор текста объявления и поискового запроса на термины полнотекстового индекса.
+ * <p>
+ * Текст приводится к нижнему регистру, «ё» заменяется на «е», словами считаются
+ * последовательности букв и цифр. У русских и английских слов отрезается самое длинное
+ * известное окончание, если после этого остаётся не меньше {@value #MIN_STEM} символов:
+ * «дилера», «дилером» и «дилеру» дают один термин, «cars» и «car» — тоже.
+ * Это не полноценный морфологический анализ, но он одинаково применяется к текстам и запросам.
+ */
+public final class TextAnalyzer {
+
+    /**
+     * Наименьшая длина основы после отрезания окончания.
+     */
+    static final int MIN_STEM = 3;
+
+    /**
+     * Слова длиннее обрезаются: в описаниях это обычно ссылки и артикулы.
+     */
+    static final int MAX_TERM = 32;
+
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией", "ий", "ый", "ой", "ей",
+            "ая", "яя", "ое", "ее", "ые", "ие", "ую", "юю", "ом", "ем", "ам", "ям", "ах", "ях", "ов", "ев",
+            "ью", "ия", "ию", "ии", "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"
+    };
+
+    private static final String[] ENGLISH_ENDINGS = {"ing", "ed", "s"};
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Термины текста в порядке появления, с повторами.
+     *
+     * @param text текст или null
+     * @return термины
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(stem(normalized.substring(start, Math.min(i, start + MAX_TERM))));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Основа слова в нижнем регистре.
+     *
+     * @param word слово из букв и цифр в нижнем регистре
+     * @return слово без окончания
+     */
+    static String stem(String word) {
+        String[] endings = isCyrillic(word) ? RUSSIAN_ENDINGS : ENGLISH_ENDINGS;
+        for (String ending : endings) {
+            if (word.endsWith(ending) && word.length() - ending.length() >= MIN_STEM && !word.endsWith("ss")) {
+                return word.substring(0, word.length() - ending.length());
+            }
+        }
+        return word;
+    }
+
+    private static boolean isCyrillic(String word) {
+        return Character.UnicodeBlock.of(word.charAt(word.length() - 1)) == Character.UnicodeBlock.CYRILLIC;
+    }
+}
@@ -0,0 +1,233 @@
+package ru.job4j.cars.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Инвертированный индекс описаний объявлений по слотам {@link ListingIndex}.
+ * <p>
+ * Для каждого термина хранится {@link SlotBitmap} слотов, в описании которых он встречается,
+ * поэтому текстовое условие пересекается с остальными фильтрами так же, как справочные атрибуты.
+ * Для ранжирования по BM25 у каждого слота хранятся отсортированные id его терминов,
+ * их частоты и длина описания. Id терминов не освобождаются: словарь описаний растёт медленно.
+ * <p>
+ * Класс не потокобезопасен: синхронизацию обеспечивает {@link ListingIndex}.
+ */
+final class TextIndex {
+
+    /**
+     * Насыщение частоты термина в BM25.
+     */
+    private static final double K1 = 1.2;
+
+    /**
+     * Влияние длины описания в BM25.
+     */
+    private static final double B = 0.75;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+
+    private SlotBitmap[] postings = new SlotBitmap[INITIAL_CAPACITY];
+
+    private int[][] slotTerms = new int[INITIAL_CAPACITY][];
+
+    private int[][] slotFrequencies = new int[INITIAL_CAPACITY][];
+
+    private int[] lengths = new int[INITIAL_CAPACITY];
+
+    private long totalLength;
+
+    private int documents;
+
+    TextIndex() {
+    }
+
+    /**
+     * Индекс с готовым словарём терминов, например прочитанным из снимка.
+     *
+     * @param dictionary термины по порядку их id
+     */
+    TextIndex(String[] dictionary) {
+        for (String term : dictionary) {
+            termId(term);
+        }
+    }
+
+    /**
+     * Индексирует описание слота. Слот должен быть свободен.
+     *
+     * @param slot слот объявления
+     * @param text описание или null
+     */
+    void add(int slot, String text) {
+        Map<Integer, Integer> frequencies = new TreeMap<>();
+        for (String term : TextAnalyzer.terms(text)) {
+            frequencies.merge(termId(term), 1, Integer::sum);
+        }
+        int[] ids = new int[frequencies.size()];
+        int[] counts = new int[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : frequencies.entrySet()) {
+            ids[i] = entry.getKey();
+            counts[i++] = entry.getValue();
+        }
+        add(slot, ids, counts);
+    }
+
+    /**
+     * Индексирует уже разобранное описание слота. Слот должен быть свободен.
+     *
+     * @param slot   слот объявления
+     * @param ids    id терминов по возрастанию
+     * @param counts сколько раз встречается каждый термин
+     */
+    void add(int slot, int[] ids, int[] counts) {
+        ensureSlot(slot);
+        int length = 0;
+        for (int i = 0; i < ids.length; i++) {
+            postings[ids[i]].add(slot);
+            length += counts[i];
+        }
+        slotTerms[slot] = ids;
+        slotFrequencies[slot] = counts;
+        lengths[slot] = length;
+        totalLength += length;
+        documents++;
+    }
+
+    /**
+     * Удаляет описание слота из индекса.
+     *
+     * @param slot слот объявления
+     */
+    void remove(int slot) {
+        if (slot >= slotTerms.length || slotTerms[slot] == null) {
+            return;
+        }
+        for (int id : slotTerms[slot]) {
+            postings[id].remove(slot);
+        }
+        totalLength -= lengths[slot];
+        documents--;
+        slotTerms[slot] = null;
+        slotFrequencies[slot] = null;
+        lengths[slot] = 0;
+    }
+
+    /**
+     * Слоты, в описании которых есть термин.
+     *
+     * @param term термин после {@link TextAnalyzer}
+     * @return слоты или null, если термин не встречается
+     */
+    SlotBitmap postings(String term) {
+        Integer id = termIds.get(term);
+        return id != null && !postings[id].isEmpty() ? postings[id] : null;
+    }
+
+    /**
+     * Id терминов запроса; неизвестные термины получают -1.
+     *
+     * @param terms термины запроса
+     * @return id терминов
+     */
+    int[] termIds(List<String> terms) {
+        return terms.stream().mapToInt(term -> termIds.getOrDefault(term, -1)).toArray();
+    }
+
+    /**
+     * Обратная документная частота терминов: редкие слова весят больше частых.
+     *
+     * @param ids id терминов
+     * @return idf по BM25
+     */
+    double[] idf(int[] ids) {
+        double[] idf = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int frequency = ids[i] >= 0 ? postings[ids[i]].cardinality() : 0;
+            idf[i] = Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+        }
+        return idf;
+    }
+
+    /**
+     * Оценка BM25 описания слота для запроса.
+     *
+     * @param slot слот объявления
+     * @param ids  id терминов запроса
+     * @param idf  idf терминов запроса
+     * @return оценка; больше — релевантнее
+     */
+    double score(int slot, int[] ids, double[] idf) {
+        int[] terms = slotTerms[slot];
+        double averageLength = documents > 0 ? Math.max(1.0, (double) totalLength / documents) : 1.0;
+        double norm = K1 * (1 - B + B * lengths[slot] / averageLength);
+        double score = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int position = ids[i] >= 0 ? Arrays.binarySearch(terms, ids[i]) : -1;
+            if (position >= 0) {
+                int frequency = slotFrequencies[slot][position];
+                score += idf[i] * frequency * (K1 + 1) / (frequency + norm);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Словарь терминов по порядку их id.
+     *
+     * @return термины
+     */
+    String[] dictionary() {
+        String[] dictionary = new String[termIds.size()];
+        termIds.forEach((term, id) -> dictionary[id] = term);
+        return dictionary;
+    }
+
+    /**
+     * Id терминов описания слота по возрастанию. Массив не меняется после индексации, копировать его не нужно.
+     *
+     * @param slot слот объявления
+     * @return id терминов; пустой массив, если слот не проиндексирован
+     */
+    int[] terms(int slot) {
+        return slot < slotTerms.length && slotTerms[slot] != null ? slotTerms[slot] : new int[0];
+    }
+
+    /**
+     * Частоты терминов описания слота в порядке {@link #terms(int)}.
+     *
+     * @param slot слот объявления
+     * @return частоты терминов
+     */
+    int[] frequencies(int slot) {
+        return slot < slotFrequencies.length && slotFrequencies[slot] != null ? slotFrequencies[slot] : new int[0];
+    }
+
+    private int termId(String term) {
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = termIds.size();
+            termIds.put(term, id);
+            if (id == postings.length) {
+                postings = Arrays.copyOf(postings, id * 2);
+            }
+            postings[id] = new SlotBitmap();
+        }
+        return id;
+    }
+
+    private void ensureSlot(int slot) {
+        if (slot >= slotTerms.length) {
+            int capacity = Math.max(slotTerms.length * 2, slot + 1);
+            slotTerms = Arrays.copyOf(slotTerms, capacity);
+            slotFrequencies = Arrays.copyOf(slotFrequencies, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+    }
+}
@@ -3,27 +3,42 @@ package ru.job4j.cars.service;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.job4j.cars.model.Brand;
+import ru.job4j.cars.notify.CacheInvalidationBus;
 import ru.job4j.cars.repository.BrandRepository;
 
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Марки автомобилей. Изменение марки сбрасывает кеши с названиями марок на всех узлах.
+ */
 @Service
 @AllArgsConstructor
 public class BrandService {
 
+    /**
+     * Область кешей марок; ключ — id марки.
+     */
+    public static final String CACHE_REGION = "brands";
+
     private final BrandRepository brandRepository;
 
+    private final CacheInvalidationBus cacheInvalidationBus;
+
     public Brand create(Brand brand) {
-        return brandRepository.create(brand);
+        Brand created = brandRepository.create(brand);
+        cacheInvalidationBus.publish(CACHE_REGION, String.valueOf(created.getId()));
+        return created;
     }
 
     public void update(Brand brand) {
         brandRepository.update(brand);
+        cacheInvalidationBus.publish(CACHE_REGION, String.valueOf(brand.getId()));
     }
 
     public void delete(int brandId) {
         brandRepository.delete(brandId);
+        cacheInvalidationBus.publish(CACHE_REGION, String.valueOf(brandId));
     }
 
     public List<Brand> findAllOrderById() {
@@ -1,29 +1,57 @@
 package ru.job4j.cars.service;
 
-import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.job4j.cars.dto.CarModelDto;
 import ru.job4j.cars.model.CarModel;
+import ru.job4j.cars.notify.CacheInvalidationBus;
 import ru.job4j.cars.repository.CarModelRepository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
-@AllArgsConstructor
+/**
+ * Модели автомобилей. Списки моделей по марке кешируются: справочник меняется редко,
+ * а форма объявления запрашивает их при каждом выборе марки. Изменение моделей сбрасывает этот кеш
+ * и индекс подсказок на всех узлах ({@link CacheInvalidationBus}): новая модель — только список своей марки,
+ * изменение и удаление — все списки, потому что прежняя марка модели неизвестна.
+ */
 @Service
 public class CarModelService {
 
+    /**
+     * Область кешей моделей; ключ — id марки модели.
+     */
+    public static final String CACHE_REGION = "models";
+
     private final CarModelRepository carModelRepository;
 
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final Map<Long, List<CarModelDto>> modelsByBrand = new ConcurrentHashMap<>();
+
+    public CarModelService(CarModelRepository carModelRepository, CacheInvalidationBus cacheInvalidationBus) {
+        this.carModelRepository = carModelRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        cacheInvalidationBus.register(CACHE_REGION, brandId -> modelsByBrand.remove(Long.valueOf(brandId)),
+                modelsByBrand::clear);
+    }
+
     public CarModel create(CarModel carModel) {
-        return carModelRepository.create(carModel);
+        CarModel created = carModelRepository.create(carModel);
+        cacheInvalidationBus.publish(CACHE_REGION, String.valueOf(created.getBrand().getId()));
+        return created;
     }
 
     public void update(CarModel carModel) {
         carModelRepository.update(carModel);
+        cacheInvalidationBus.publish(CACHE_REGION, null);
     }
 
     public void delete(int carModelId) {
         carModelRepository.delete(carModelId);
+        cacheInvalidationBus.publish(CACHE_REGION, null);
     }
 
     public List<CarModel> findAllOrderById() {
@@ -33,4 +61,33 @@ public class CarModelService {
     public Optional<CarModel> findById(int carModelId) {
         return carModelRepository.findById(carModelId);
     }
+
+    /**
+     * Модели марки по названию, из кеша. Пустые списки не кешируются,
+     * чтобы запросы с несуществующими марками не засоряли кеш.
+     *
+     * @param brandId ID марки
+     * @return id и названия моделей
+     */
+    public List<CarModelDto> findAllByBrandId(long brandId) {
+        List<CarModelDto> models = modelsByBrand.get(brandId);
+        if (models == null) {
+            models = List.copyOf(carModelRepository.findAllByBrandId(brandId));
+            if (!models.isEmpty()) {
+                modelsByBrand.put(brandId, models);
+            }
+        }
+        return models;
+    }
+
+    /**
+     * Модель по ID, только если она относится к марке.
+     *
+     * @param carModelId ID модели
+     * @param brandId    ID марки
+     * @return модель автомобиля
+     */
+    public Optional<CarModel> findByIdAndBrandId(long carModelId, long brandId) {
+        return carModelRepository.findByIdAndBrandId(carModelId, brandId);
+    }
 }
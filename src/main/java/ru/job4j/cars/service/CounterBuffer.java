@@ -0,0 +1,103 @@
+package ru.job4j.cars.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Приращения счётчиков объявлений, накопленные в памяти до пакетной записи в базу.
+ * <p>
+ * Приращения складываются в {@link LongAdder} по id объявления, которые не блокируют друг друга
+ * при одновременных изменениях одного счётчика. Сброс забирает накопленное порциями и обнуляет счётчики;
+ * порции, которые записать не удалось, возвращаются обратно.
+ */
+final class CounterBuffer {
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    private final int batchSize;
+
+    /**
+     * @param batchSize сколько счётчиков записывать одной порцией
+     */
+    CounterBuffer(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Прибавляет приращение к счётчику объявления.
+     *
+     * @param postId id объявления
+     * @param delta  приращение, может быть отрицательным
+     */
+    void add(long postId, long delta) {
+        LongAdder adder = pending.get(postId);
+        if (adder == null) {
+            adder = pending.computeIfAbsent(postId, id -> new LongAdder());
+        }
+        adder.add(delta);
+    }
+
+    /**
+     * Приращение счётчика, ещё не записанное в базу.
+     *
+     * @param postId id объявления
+     * @return накопленное приращение
+     */
+    long pending(long postId) {
+        LongAdder adder = pending.get(postId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Передаёт накопленные приращения записи порциями. Если запись порции не удалась,
+     * она и все следующие возвращаются в счётчики, а исключение пробрасывается.
+     *
+     * @param writer запись порции приращений по id объявления
+     */
+    void flush(Consumer<Map<Long, Long>> writer) {
+        List<Map<Long, Long>> batches = drain();
+        for (int i = 0; i < batches.size(); i++) {
+            try {
+                writer.accept(batches.get(i));
+            } catch (RuntimeException e) {
+                batches.subList(i, batches.size()).forEach(batch -> batch.forEach(this::add));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Забирает накопленные приращения, обнуляя счётчики. Счётчики без изменений удаляются,
+     * чтобы в памяти оставались только меняющиеся объявления; приращение, успевшее попасть в удалённый
+     * счётчик, переносится в новый.
+     */
+    private List<Map<Long, Long>> drain() {
+        List<Map<Long, Long>> batches = new ArrayList<>();
+        Map<Long, Long> batch = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta == 0) {
+                pending.remove(entry.getKey(), entry.getValue());
+                long late = entry.getValue().sumThenReset();
+                if (late != 0) {
+                    add(entry.getKey(), late);
+                }
+                continue;
+            }
+            batch.put(entry.getKey(), delta);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new HashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.image.PerceptualHashIndex;
+import ru.job4j.cars.image.PhotoHash;
+import ru.job4j.cars.image.PhotoMatch;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.repository.PostPhotoRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск похожих фотографий для модерации: одни и те же снимки, загруженные
+ * в разные объявления с другим сжатием или размером.
+ * Перцептивные хеши всех фотографий держатся в {@link PerceptualHashIndex};
+ * индекс заполняется из базы при старте и обновляется при добавлении и удалении фотографий.
+ */
+@Slf4j
+@Service
+public class DuplicatePhotoService {
+
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final PerceptualHashIndex index = new PerceptualHashIndex();
+
+    private final PostPhotoRepository postPhotoRepository;
+
+    private final int defaultDistance;
+
+    public DuplicatePhotoService(PostPhotoRepository postPhotoRepository,
+                                 @Value("${app.image.duplicate-distance:10}") int defaultDistance) {
+        this.postPhotoRepository = postPhotoRepository;
+        this.defaultDistance = defaultDistance;
+    }
+
+    /**
+     * Заполняет индекс хешами всех сохранённых фотографий.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        index.clear();
+        long afterId = 0L;
+        List<PhotoHash> page;
+        do {
+            page = postPhotoRepository.findPerceptualHashesAfter(afterId, LOAD_BATCH_SIZE);
+            for (PhotoHash photo : page) {
+                index.add(photo.photoId(), photo.postId(), photo.hash());
+                afterId = photo.photoId();
+            }
+        } while (page.size() == LOAD_BATCH_SIZE);
+        log.info("Индекс похожих фотографий загружен: {} фотографий", index.size());
+    }
+
+    /**
+     * Добавляет сохранённую фотографию в индекс. Фотографии без хеша пропускаются.
+     *
+     * @param photo фотография с id
+     */
+    public void register(PostPhoto photo) {
+        if (photo == null || photo.getId() == null || photo.getPerceptualHash() == null || photo.getPost() == null) {
+            return;
+        }
+        index.add(photo.getId(), photo.getPost().getId(), photo.getPerceptualHash());
+    }
+
+    /**
+     * Удаляет фотографию из индекса.
+     *
+     * @param photoId id фотографии
+     */
+    public void unregister(long photoId) {
+        index.remove(photoId);
+    }
+
+    /**
+     * Удаляет из индекса все фотографии объявления.
+     *
+     * @param postId id объявления
+     */
+    public void unregisterPost(long postId) {
+        index.removePost(postId);
+    }
+
+    /**
+     * Фотографии, похожие на изображение с заданным хешем, с радиусом по умолчанию.
+     *
+     * @param hash перцептивный хеш
+     * @return похожие фотографии, ближайшие первыми
+     */
+    public List<PhotoMatch> findSimilar(long hash) {
+        return findSimilar(hash, defaultDistance);
+    }
+
+    /**
+     * Фотографии, хеш которых отличается от заданного не более чем в maxDistance битах.
+     *
+     * @param hash        перцептивный хеш
+     * @param maxDistance радиус поиска, не больше {@link PerceptualHashIndex#MAX_DISTANCE}
+     * @return похожие фотографии, ближайшие первыми
+     */
+    public List<PhotoMatch> findSimilar(long hash, int maxDistance) {
+        return index.search(hash, maxDistance);
+    }
+
+    /**
+     * Фотографии из других объявлений, похожие на фотографию с заданным id.
+     *
+     * @param photoId id фотографии
+     * @return похожие фотографии или пустой список, если фотографии нет в индексе
+     */
+    public List<PhotoMatch> findDuplicatesOfPhoto(long photoId) {
+        Long hash = index.hashOf(photoId);
+        Long postId = index.postOf(photoId);
+        if (hash == null || postId == null) {
+            return List.of();
+        }
+        return index.search(hash, defaultDistance).stream()
+                .filter(match -> match.postId() != postId)
+                .toList();
+    }
+
+    /**
+     * Фотографии из других объявлений, похожие на любую фотографию объявления.
+     * Для каждой найденной фотографии остаётся наименьшее расстояние.
+     *
+     * @param postId id объявления
+     * @return похожие фотографии, ближайшие первыми
+     */
+    public List<PhotoMatch> findDuplicatesOfPost(long postId) {
+        Map<Long, PhotoMatch> best = new LinkedHashMap<>();
+        for (PostPhoto photo : postPhotoRepository.findByPostId((int) postId)) {
+            if (photo.getPerceptualHash() == null) {
+                continue;
+            }
+            for (PhotoMatch match : index.search(photo.getPerceptualHash(), defaultDistance)) {
+                if (match.postId() != postId) {
+                    best.merge(match.photoId(), match, (a, b) -> a.distance() <= b.distance() ? a : b);
+                }
+            }
+        }
+        List<PhotoMatch> matches = new ArrayList<>(best.values());
+        matches.sort(Comparator.comparingInt(PhotoMatch::distance).thenComparingLong(PhotoMatch::photoId));
+        return matches;
+    }
+}
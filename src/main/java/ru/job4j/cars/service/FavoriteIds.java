@@ -0,0 +1,99 @@
+package ru.job4j.cars.service;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Id избранных объявлений пользователя, которые хранятся в его сессии.
+ * <p>
+ * Отсортированный массив long: восемь байт на объявление без объектов-обёрток, проверка — двоичный поиск.
+ * Набор неизменяемый: добавление и удаление возвращают новый набор, который кладётся в сессию вместо старого,
+ * поэтому параллельные запросы одной сессии никогда не видят его наполовину изменённым.
+ */
+public final class FavoriteIds implements Serializable {
+
+    public static final FavoriteIds EMPTY = new FavoriteIds(new long[0]);
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] ids;
+
+    private FavoriteIds(long[] ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * Набор из id объявлений.
+     *
+     * @param postIds id объявлений
+     * @return набор
+     */
+    public static FavoriteIds of(Collection<Long> postIds) {
+        return new FavoriteIds(postIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray());
+    }
+
+    /**
+     * Есть ли объявление в избранном. Принимает Long, чтобы вызываться из шаблонов с id объявления.
+     *
+     * @param postId id объявления
+     * @return true, если объявление в избранном
+     */
+    public boolean contains(Long postId) {
+        return postId != null && Arrays.binarySearch(ids, postId) >= 0;
+    }
+
+    /**
+     * Набор с добавленным объявлением.
+     *
+     * @param postId id объявления
+     * @return новый набор или этот, если объявление уже в нём
+     */
+    public FavoriteIds with(long postId) {
+        int position = Arrays.binarySearch(ids, postId);
+        if (position >= 0) {
+            return this;
+        }
+        int insertAt = -position - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertAt);
+        result[insertAt] = postId;
+        System.arraycopy(ids, insertAt, result, insertAt + 1, ids.length - insertAt);
+        return new FavoriteIds(result);
+    }
+
+    /**
+     * Набор без объявления.
+     *
+     * @param postId id объявления
+     * @return новый набор или этот, если объявления в нём нет
+     */
+    public FavoriteIds without(long postId) {
+        int position = Arrays.binarySearch(ids, postId);
+        if (position < 0) {
+            return this;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+        return new FavoriteIds(result);
+    }
+
+    /**
+     * Id объявлений по возрастанию.
+     *
+     * @return копия id
+     */
+    public long[] toArray() {
+        return ids.clone();
+    }
+
+    /**
+     * Число избранных объявлений.
+     *
+     * @return размер набора
+     */
+    public int size() {
+        return ids.length;
+    }
+}
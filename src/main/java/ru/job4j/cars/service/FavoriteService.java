@@ -0,0 +1,119 @@
+package ru.job4j.cars.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.FavoriteRepository;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Избранные объявления пользователей.
+ * <p>
+ * Набор избранного пользователя загружается одним запросом при входе и хранится в сессии ({@link FavoriteIds}),
+ * поэтому отметка «в избранном» на карточках проверяется в памяти. Число добавлений в избранное хранится
+ * в posts.favorite_count и загружается вместе с объявлением; его изменения накапливаются в памяти
+ * ({@link CounterBuffer}) и раз в app.posts.favorites-flush-interval записываются пакетными UPDATE,
+ * как просмотры. Добавление в избранное учитывается и в популярности объявления.
+ */
+@Slf4j
+@Service
+public class FavoriteService {
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final CounterBuffer counts = new CounterBuffer(FLUSH_BATCH_SIZE);
+
+    private final FavoriteRepository favoriteRepository;
+
+    private final PostRepository postRepository;
+
+    private final PopularityService popularityService;
+
+    public FavoriteService(FavoriteRepository favoriteRepository, PostRepository postRepository,
+                           PopularityService popularityService) {
+        this.favoriteRepository = favoriteRepository;
+        this.postRepository = postRepository;
+        this.popularityService = popularityService;
+    }
+
+    /**
+     * Загружает избранное пользователя.
+     *
+     * @param userId id пользователя
+     * @return набор id избранных объявлений
+     */
+    public FavoriteIds load(long userId) {
+        return FavoriteIds.of(favoriteRepository.findPostIdsByUserId(userId));
+    }
+
+    /**
+     * Добавляет объявление в избранное.
+     *
+     * @param userId    id пользователя
+     * @param favorites текущий набор избранного пользователя
+     * @param postId    id объявления
+     * @return новый набор избранного
+     */
+    public FavoriteIds add(long userId, FavoriteIds favorites, long postId) {
+        if (favoriteRepository.add(userId, postId)) {
+            counts.add(postId, 1);
+            popularityService.recordFavorite(postId);
+            return favorites.with(postId);
+        }
+        return favorites;
+    }
+
+    /**
+     * Убирает объявление из избранного.
+     *
+     * @param userId    id пользователя
+     * @param favorites текущий набор избранного пользователя
+     * @param postId    id объявления
+     * @return новый набор избранного
+     */
+    public FavoriteIds remove(long userId, FavoriteIds favorites, long postId) {
+        if (favoriteRepository.remove(userId, postId)) {
+            counts.add(postId, -1);
+        }
+        return favorites.without(postId);
+    }
+
+    /**
+     * Избранные объявления с автомобилем и первой фотографией, сначала более новые объявления.
+     *
+     * @param favorites набор избранного пользователя
+     * @return объявления
+     */
+    public List<Post> findPosts(FavoriteIds favorites) {
+        long[] ids = favorites.toArray();
+        return postRepository.findAllByIdsWithCover(Arrays.stream(ids).boxed()
+                .sorted((a, b) -> Long.compare(b, a))
+                .toList());
+    }
+
+    /**
+     * Записывает накопленные изменения числа добавлений в избранное.
+     */
+    @Scheduled(fixedDelayString = "${app.posts.favorites-flush-interval:10s}",
+            initialDelayString = "${app.posts.favorites-flush-interval:10s}")
+    public synchronized void flush() {
+        try {
+            counts.flush(postRepository::addFavoriteCounts);
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать число добавлений в избранное", e);
+        }
+    }
+
+    /**
+     * Сбрасывает накопленные изменения при остановке приложения.
+     */
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.repository.ListingEventRepository;
+import ru.job4j.cars.scheduling.ClusterJob;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Удаление событий изменений объявлений старше app.outbox.retention.
+ * Узлы читают события сразу после записи, поэтому срок хранения нужен только для узлов,
+ * надолго потерявших базу. В кластере выполняется одним узлом.
+ */
+@Slf4j
+@Service
+public class ListingEventCleanupService implements ClusterJob {
+
+    private final ListingEventRepository listingEventRepository;
+
+    private final Duration interval;
+
+    private final Duration retention;
+
+    public ListingEventCleanupService(ListingEventRepository listingEventRepository,
+                                      @Value("${app.outbox.cleanup-interval:1h}") Duration interval,
+                                      @Value("${app.outbox.retention:1d}") Duration retention) {
+        this.listingEventRepository = listingEventRepository;
+        this.interval = interval;
+        this.retention = retention;
+    }
+
+    @Override
+    public String name() {
+        return "listing-events-cleanup";
+    }
+
+    @Override
+    public Duration interval() {
+        return interval;
+    }
+
+    @Override
+    public void run() {
+        int deleted = listingEventRepository.deleteBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Удалено старых событий изменений объявлений: {}", deleted);
+        }
+    }
+}
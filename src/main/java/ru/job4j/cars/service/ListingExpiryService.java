@@ -0,0 +1,155 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.dto.PostCreatedDto;
+import ru.job4j.cars.repository.PostRepository;
+import ru.job4j.cars.scheduling.ClusterJob;
+import ru.job4j.cars.scheduling.TimingWheel;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Истечение срока размещения объявлений: через app.posts.expire-after после создания
+ * активное объявление получает статус {@link ru.job4j.cars.model.PostStatus#EXPIRED}.
+ * <p>
+ * Сроки держатся в памяти в колесе таймеров ({@link TimingWheel}), а не выбираются из базы
+ * запросом по диапазону дат на каждом шаге. Колесо заполняется всеми активными объявлениями при захвате
+ * аренды, а на каждом шаге дочитываются только объявления с id больше уже загруженных — по первичному ключу.
+ * Транзакции могут фиксироваться не в порядке выдачи id, поэтому колесо раз в app.posts.expiry-reload
+ * загружается заново, подбирая пропущенные объявления.
+ * Сработавшие сроки переводятся в новый статус порциями; объявление, которое успели продать или снять,
+ * запрос пропускает, поэтому отменять сроки в колесе не нужно.
+ * <p>
+ * Задача кластерная ({@link ClusterJob}): работает только узел, владеющий её арендой; при потере аренды
+ * колесо сбрасывается, а новый владелец загружает его заново.
+ */
+@Slf4j
+@Service
+public class ListingExpiryService implements ClusterJob {
+
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private static final int EXPIRE_BATCH_SIZE = 500;
+
+    private static final int WHEEL_SIZE = 64;
+
+    private final PostRepository postRepository;
+
+    private final ListingIndexService listingIndexService;
+
+    private final Duration expireAfter;
+
+    private final Duration tick;
+
+    private final Duration leaseTtl;
+
+    private final Duration reload;
+
+    /**
+     * Сроки размещения; null, пока узел не владеет арендой.
+     */
+    private TimingWheel wheel;
+
+    private long loadedUpToId;
+
+    private long loadedAt;
+
+    public ListingExpiryService(PostRepository postRepository,
+                                ListingIndexService listingIndexService,
+                                @Value("${app.posts.expire-after:30d}") Duration expireAfter,
+                                @Value("${app.posts.expiry-tick:1m}") Duration tick,
+                                @Value("${app.posts.expiry-lease-ttl:5m}") Duration leaseTtl,
+                                @Value("${app.posts.expiry-reload:1d}") Duration reload) {
+        this.postRepository = postRepository;
+        this.listingIndexService = listingIndexService;
+        this.expireAfter = expireAfter;
+        this.tick = tick;
+        this.leaseTtl = leaseTtl;
+        this.reload = reload;
+    }
+
+    @Override
+    public String name() {
+        return "listing-expiry";
+    }
+
+    @Override
+    public Duration interval() {
+        return tick;
+    }
+
+    @Override
+    public Duration leaseTtl() {
+        return leaseTtl;
+    }
+
+    /**
+     * Шаг колеса: дочитывает новые объявления и переводит в новый статус те, чей срок истёк.
+     * При ошибке колесо сбрасывается и на следующем шаге загружается заново.
+     */
+    @Override
+    public synchronized void run() {
+        long now = millis(LocalDateTime.now());
+        try {
+            if (wheel == null || now - loadedAt >= reload.toMillis()) {
+                wheel = new TimingWheel(tick.toMillis(), WHEEL_SIZE, now);
+                loadedUpToId = 0;
+                loadedAt = now;
+            }
+            loadNew();
+            List<Long> due = new ArrayList<>();
+            wheel.advance(now, due::add);
+            expire(due);
+        } catch (RuntimeException e) {
+            wheel = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Аренда у другого узла: колесо больше не нужно, новый владелец загрузит своё.
+     */
+    @Override
+    public synchronized void leaseLost() {
+        wheel = null;
+    }
+
+    private void loadNew() {
+        long expireAfterMillis = expireAfter.toMillis();
+        List<PostCreatedDto> batch;
+        do {
+            batch = postRepository.findActiveCreatedAfter(loadedUpToId, LOAD_BATCH_SIZE);
+            for (PostCreatedDto post : batch) {
+                wheel.add(post.getId(), millis(post.getCreatedAt()) + expireAfterMillis);
+                loadedUpToId = post.getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+    }
+
+    private void expire(List<Long> due) {
+        LocalDateTime createdBefore = LocalDateTime.now().minus(expireAfter);
+        int total = 0;
+        for (int from = 0; from < due.size(); from += EXPIRE_BATCH_SIZE) {
+            List<Long> expired = postRepository.expire(
+                    due.subList(from, Math.min(due.size(), from + EXPIRE_BATCH_SIZE)), createdBefore);
+            expired.forEach(listingIndexService::remove);
+            total += expired.size();
+        }
+        if (total > 0) {
+            log.info("Истёк срок размещения объявлений: {}", total);
+        }
+    }
+
+    /**
+     * Время создания объявлений хранится без зоны, поэтому и текущее время берётся так же.
+     */
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,382 @@
+package ru.job4j.cars.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.dto.FacetCountsDto;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.outbox.ListingEvent;
+import ru.job4j.cars.outbox.ListingEventListener;
+import ru.job4j.cars.repository.ListingRepository;
+import ru.job4j.cars.repository.PostRepository;
+import ru.job4j.cars.search.FacetCounts;
+import ru.job4j.cars.search.ListingIndex;
+import ru.job4j.cars.search.ListingQuery;
+import ru.job4j.cars.search.ListingRow;
+import ru.job4j.cars.search.ListingSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Поиск объявлений по индексу в памяти ({@link ListingIndex}).
+ * Индекс обновляется при создании, изменении и удалении объявлений, а изменения, сделанные на других
+ * узлах, приходят событиями из outbox ({@link ru.job4j.cars.outbox.ListingEventRelay}).
+ * Пока индекс не загружен, {@link #isReady()} возвращает false и поиск идёт через базу.
+ * Объявления, изменённые во время загрузки, перечитываются после неё, чтобы не потерять изменения.
+ * <p>
+ * При старте индекс восстанавливается из снимка на диске ({@link ListingSnapshot}), после чего
+ * дочитываются объявления, изменённые позже метки снимка (posts.updated_at), а набор id сверяется
+ * с активными объявлениями в базе, чтобы убрать удалённые. Если снимка нет или он не читается,
+ * индекс загружается из базы целиком. Снимок перезаписывается по расписанию и при остановке.
+ * Количества для боковой панели фильтра кешируются по нормализованному ключу фильтра
+ * и пересчитываются, когда меняется версия индекса.
+ */
+@Slf4j
+@Service
+public class ListingIndexService implements ListingEventListener {
+
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    /**
+     * Сколько id перечитывать одним запросом при догоняющей загрузке.
+     */
+    private static final int REFRESH_BATCH_SIZE = 1_000;
+
+    /**
+     * Запас при дочитывании изменений: транзакция, начатая до метки, могла зафиксироваться после неё.
+     */
+    private static final Duration CATCH_UP_OVERLAP = Duration.ofMinutes(1);
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ListingRepository listingRepository;
+
+    private final PostRepository postRepository;
+
+    private final Set<Long> changedDuringLoad = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, CachedCounts> facetCountCache;
+
+    private final Path snapshotPath;
+
+    private volatile ListingIndex index;
+
+    /**
+     * Время последнего изменения в базе, которое уже учтено в индексе; null, если объявлений не было.
+     */
+    private volatile LocalDateTime watermark;
+
+    private volatile boolean loading;
+
+    public ListingIndexService(ListingRepository listingRepository, PostRepository postRepository,
+                               @Value("${app.search.facet-cache-size:1000}") int facetCacheSize,
+                               @Value("${app.search.snapshot-path:./data/listing-index.snapshot}") String snapshotPath) {
+        this.listingRepository = listingRepository;
+        this.postRepository = postRepository;
+        this.snapshotPath = Path.of(snapshotPath);
+        this.facetCountCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCounts> eldest) {
+                return size() > facetCacheSize;
+            }
+        });
+    }
+
+    /**
+     * Восстанавливает индекс из снимка и догоняет базу; без снимка загружает индекс из базы целиком.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ListingSnapshot snapshot = readSnapshot();
+        if (snapshot == null) {
+            rebuild();
+            return;
+        }
+        replaceIndex(() -> {
+            watermark = snapshot.watermark() > 0 ? toDateTime(snapshot.watermark()) : null;
+            return snapshot.toIndex();
+        });
+        catchUp();
+        reconcile(index);
+        log.info("Индекс поиска объявлений восстановлен из снимка: {} объявлений", index.size());
+    }
+
+    /**
+     * Загружает индекс из базы заново, подменяет им текущий и записывает снимок.
+     */
+    public void rebuild() {
+        replaceIndex(this::loadFromDatabase);
+        log.info("Индекс поиска объявлений загружен: {} объявлений", index.size());
+        writeSnapshot();
+    }
+
+    /**
+     * Дочитывает объявления, изменённые после метки индекса, и записывает снимок.
+     */
+    @Scheduled(fixedDelayString = "${app.search.snapshot-interval:10m}",
+            initialDelayString = "${app.search.snapshot-interval:10m}")
+    public void catchUpAndSnapshot() {
+        if (index != null && !loading) {
+            catchUp();
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Записывает снимок при остановке, чтобы следующий старт дочитывал как можно меньше.
+     */
+    @PreDestroy
+    public void stop() {
+        writeSnapshot();
+    }
+
+    /**
+     * Готов ли индекс к поиску.
+     *
+     * @return true, если индекс загружен
+     */
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Перечитывает объявление из базы: активное попадает в индекс, остальные удаляются из него.
+     *
+     * @param postId id объявления
+     */
+    public void refresh(long postId) {
+        if (loading) {
+            changedDuringLoad.add(postId);
+        }
+        ListingIndex current = index;
+        if (current == null) {
+            return;
+        }
+        listingRepository.findActiveRow(postId)
+                .ifPresentOrElse(current::upsert, () -> current.remove(postId));
+    }
+
+    /**
+     * Удаляет объявление из индекса.
+     *
+     * @param postId id объявления
+     */
+    public void remove(long postId) {
+        if (loading) {
+            changedDuringLoad.add(postId);
+        }
+        ListingIndex current = index;
+        if (current != null) {
+            current.remove(postId);
+        }
+    }
+
+    /**
+     * Перечитывает объявления из событий изменений, в том числе сделанных на других узлах.
+     *
+     * @param events события изменений объявлений
+     */
+    @Override
+    public void onListingEvents(List<ListingEvent> events) {
+        List<Long> postIds = events.stream().map(ListingEvent::postId).distinct().toList();
+        if (loading) {
+            changedDuringLoad.addAll(postIds);
+        }
+        ListingIndex current = index;
+        if (current != null) {
+            refreshAll(current, postIds);
+        }
+    }
+
+    /**
+     * Страница объявлений, подходящих под фильтр, в порядке его сортировки.
+     *
+     * @param filter параметры поиска
+     * @param offset сколько объявлений пропустить
+     * @param limit  максимальное количество объявлений
+     * @return объявления с автомобилем и первой фотографией
+     */
+    public List<Post> search(PostSearchFilter filter, int offset, int limit) {
+        List<Long> ids = index.search(ListingQuery.from(filter), offset, limit);
+        return postRepository.findAllByIdsWithCover(ids);
+    }
+
+    /**
+     * Количества объявлений по значениям всех справочных атрибутов под фильтром.
+     * Сортировка и страница фильтра на результат не влияют.
+     *
+     * @param filter параметры поиска
+     * @return общее число и количества по атрибутам
+     */
+    public FacetCountsDto facetCounts(PostSearchFilter filter) {
+        ListingIndex current = index;
+        ListingQuery query = ListingQuery.from(filter);
+        String key = query.conditionKey();
+        long version = current.version();
+        CachedCounts cached = facetCountCache.get(key);
+        if (cached == null || cached.version() != version || cached.index() != current) {
+            cached = new CachedCounts(current, version, toDto(current.facetCounts(query)));
+            facetCountCache.put(key, cached);
+        }
+        return cached.counts();
+    }
+
+    /**
+     * Перечитывает объявления, изменённые после метки, и сдвигает метку.
+     * Метка берётся до чтения изменений: то, что изменится во время чтения, попадёт в следующий раз.
+     * Без метки (объявлений при загрузке не было) перечитываются все объявления.
+     */
+    private synchronized void catchUp() {
+        ListingIndex current = index;
+        if (current == null) {
+            return;
+        }
+        Optional<LocalDateTime> last = listingRepository.findLastUpdatedAt();
+        LocalDateTime since = watermark != null ? watermark.minus(CATCH_UP_OVERLAP) : EPOCH;
+        List<Long> changed = listingRepository.findIdsUpdatedAfter(since);
+        refreshAll(current, changed);
+        last.ifPresent(value -> watermark = value);
+        log.debug("Индекс поиска объявлений: перечитано {} изменённых объявлений", changed.size());
+    }
+
+    /**
+     * Сверяет id индекса с активными объявлениями базы: лишние удаляются, недостающие загружаются.
+     * Нужна после восстановления из снимка, потому что удаление объявления не оставляет метки времени.
+     */
+    private void reconcile(ListingIndex current) {
+        List<Long> active = listingRepository.findActiveIds();
+        long[] indexed = current.postIds();
+        List<Long> missing = new ArrayList<>();
+        int removed = 0;
+        int i = 0;
+        int j = 0;
+        while (i < active.size() || j < indexed.length) {
+            if (j == indexed.length || (i < active.size() && active.get(i) < indexed[j])) {
+                missing.add(active.get(i++));
+            } else if (i == active.size() || active.get(i) > indexed[j]) {
+                current.remove(indexed[j++]);
+                removed++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        refreshAll(current, missing);
+        log.debug("Индекс поиска объявлений сверен с базой: добавлено {}, удалено {}", missing.size(), removed);
+    }
+
+    private void refreshAll(ListingIndex current, List<Long> postIds) {
+        for (int from = 0; from < postIds.size(); from += REFRESH_BATCH_SIZE) {
+            List<Long> batch = postIds.subList(from, Math.min(postIds.size(), from + REFRESH_BATCH_SIZE));
+            Set<Long> inactive = new HashSet<>(batch);
+            for (ListingRow row : listingRepository.findActiveRows(batch)) {
+                current.upsert(row);
+                inactive.remove(row.postId());
+            }
+            inactive.forEach(current::remove);
+        }
+    }
+
+    private void replaceIndex(Supplier<ListingIndex> loader) {
+        loading = true;
+        changedDuringLoad.clear();
+        try {
+            index = loader.get();
+            facetCountCache.clear();
+        } finally {
+            loading = false;
+        }
+        for (Long postId : changedDuringLoad) {
+            refresh(postId);
+        }
+        changedDuringLoad.clear();
+    }
+
+    /**
+     * Полная загрузка страницами по id. Метка берётся до чтения, поэтому изменения во время загрузки
+     * будут перечитаны при следующем дочитывании.
+     */
+    private ListingIndex loadFromDatabase() {
+        LocalDateTime last = listingRepository.findLastUpdatedAt().orElse(null);
+        List<ListingRow> rows = new ArrayList<>();
+        long afterId = 0L;
+        List<ListingRow> page;
+        do {
+            page = listingRepository.findActiveRowsAfter(afterId, LOAD_BATCH_SIZE);
+            rows.addAll(page);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).postId();
+            }
+        } while (page.size() == LOAD_BATCH_SIZE);
+        watermark = last;
+        return ListingIndex.of(rows);
+    }
+
+    private ListingSnapshot readSnapshot() {
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+        try {
+            return ListingSnapshot.read(snapshotPath);
+        } catch (IOException e) {
+            log.warn("Снимок индекса поиска {} не прочитан, индекс будет загружен из базы", snapshotPath, e);
+            return null;
+        }
+    }
+
+    private synchronized void writeSnapshot() {
+        ListingIndex current = index;
+        LocalDateTime mark = watermark;
+        if (current == null || loading) {
+            return;
+        }
+        try {
+            ListingSnapshot snapshot = current.snapshot(mark != null ? toMillis(mark) : 0L);
+            snapshot.write(snapshotPath);
+            log.debug("Снимок индекса поиска записан: {} объявлений", snapshot.size());
+        } catch (IOException e) {
+            log.warn("Не удалось записать снимок индекса поиска в {}", snapshotPath, e);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static FacetCountsDto toDto(FacetCounts counts) {
+        Map<String, Map<Long, Integer>> facets = new LinkedHashMap<>();
+        counts.counts().forEach((facet, values) -> facets.put(facet.getParamName(), values));
+        return new FacetCountsDto(counts.total(), facets);
+    }
+
+    /**
+     * Посчитанные количества и версия индекса, на которой они посчитаны.
+     */
+    private record CachedCounts(ListingIndex index, long version, FacetCountsDto counts) {
+    }
+}
@@ -0,0 +1,48 @@
+package ru.job4j.cars.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.repository.ListingSearchRepository;
+
+import java.util.List;
+
+/**
+ * Дозаполнение плоской таблицы поиска объявлений.
+ * Новые и изменённые объявления попадают в неё сами при записи, а при старте приложения
+ * порциями добавляются строки для объявлений, созданных до её появления.
+ */
+@Slf4j
+@AllArgsConstructor
+@Service
+public class ListingSearchService {
+
+    private static final int BACKFILL_BATCH_SIZE = 1_000;
+
+    private final ListingSearchRepository listingSearchRepository;
+
+    /**
+     * Добавляет строки поиска всем объявлениям, у которых их нет.
+     *
+     * @return число добавленных строк
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public int backfill() {
+        int total = 0;
+        long afterId = 0;
+        List<Long> batch;
+        do {
+            batch = listingSearchRepository.backfill(afterId, BACKFILL_BATCH_SIZE);
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1);
+                total += batch.size();
+            }
+        } while (batch.size() == BACKFILL_BATCH_SIZE);
+        if (total > 0) {
+            log.info("Таблица поиска дозаполнена: {} объявлений", total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,280 @@
+package ru.job4j.cars.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.dto.PostCardDto;
+import ru.job4j.cars.live.EventRing;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.outbox.ListingEvent;
+import ru.job4j.cars.outbox.ListingEventListener;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Поток новых объявлений для открытых страниц (Server-Sent Events).
+ * <p>
+ * Карточка нового объявления сериализуется в событие один раз и кладётся в общий {@link EventRing}
+ * на app.live.buffer-size событий; подписчики читают его по своим курсорам ({@link LiveSubscriber}).
+ * После добавления события один поток рассылки будит всех подписчиков, и каждый пишет без блокировки
+ * столько, сколько принимает его соединение. Медленный подписчик, отставший больше чем на буфер,
+ * отключается. Раз в app.live.heartbeat в поток пишется комментарий, чтобы прокси не закрывали
+ * простаивающие соединения, а оборванные соединения обнаруживались.
+ * <p>
+ * Новые объявления приходят событиями из outbox ({@link ru.job4j.cars.outbox.ListingEventRelay}),
+ * поэтому поток показывает объявления, созданные на любом узле. Номер события SSE — номер события outbox:
+ * он одинаков на всех узлах, и клиент, переподключившийся с Last-Event-ID к другому узлу, получает
+ * хранящиеся там события после этого номера без пропусков и повторов. Пульс номера не получает.
+ * Событие, пришедшее позже событий с большими номерами ({@link ListingEventListener}), отправляется
+ * подключённым клиентам без номера, чтобы не сдвигать их Last-Event-ID назад.
+ */
+@Slf4j
+@Service
+public class LiveListingService implements ListingEventListener {
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] LISTING_EVENT = "\nevent: listing\ndata: ".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Сколько номеров обработанных событий создания помнить, чтобы не отправить их повторно.
+     */
+    private static final int HANDLED_EVENTS_REMEMBERED = 4096;
+
+    private final EventRing ring;
+
+    private final Set<LiveSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "live-listings");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Запланирована ли рассылка, которая ещё не началась: события, добавленные до её начала, она разошлёт вместе.
+     */
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+    private final PostRepository postRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxSubscribers;
+
+    private final Duration maxConnection;
+
+    private final Counter rejected;
+
+    private final Counter dropped;
+
+    /**
+     * Наибольший номер полученного события outbox: событие с меньшим номером пришло с опозданием.
+     */
+    private long lastListingEventId;
+
+    /**
+     * Номера обработанных событий создания: повторно доставленные пропускаются, самые старые вытесняются.
+     */
+    private final Set<Long> handledListingEventIds = new LinkedHashSet<>();
+
+    public LiveListingService(PostRepository postRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${app.live.buffer-size:1024}") int bufferSize,
+                              @Value("${app.live.max-subscribers:1000}") int maxSubscribers,
+                              @Value("${app.live.max-connection:30m}") Duration maxConnection,
+                              MeterRegistry registry) {
+        this.postRepository = postRepository;
+        this.objectMapper = objectMapper;
+        this.ring = new EventRing(bufferSize);
+        this.maxSubscribers = maxSubscribers;
+        this.maxConnection = maxConnection;
+        Gauge.builder("live.subscribers", subscribers, Set::size)
+                .description("Открытые подписки на поток новых объявлений")
+                .register(registry);
+        this.rejected = Counter.builder("live.rejected").register(registry);
+        this.dropped = Counter.builder("live.dropped").description("Подписчики, отключённые из-за отставания")
+                .register(registry);
+    }
+
+    /**
+     * Подписывает запрос на поток: переводит его в асинхронный режим и начинает отправку событий.
+     *
+     * @param request     запрос
+     * @param response    ответ
+     * @param lastEventId номер события outbox, последнего полученного при переподключении, или null
+     * @return false, если подписчиков уже слишком много и запрос не подписан
+     * @throws IOException ошибка открытия потока ответа
+     */
+    public boolean subscribe(HttpServletRequest request, HttpServletResponse response, Long lastEventId)
+            throws IOException {
+        if (subscribers.size() >= maxSubscribers) {
+            rejected.increment();
+            return false;
+        }
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(maxConnection.toMillis());
+        LiveSubscriber subscriber = new LiveSubscriber(asyncContext, ring, resumeFrom(lastEventId), this::unsubscribe);
+        subscribers.add(subscriber);
+        subscriber.start();
+        return true;
+    }
+
+    /**
+     * Курсор нового подписчика: первое хранящееся событие после последнего полученного,
+     * иначе — следующее новое событие.
+     */
+    private long resumeFrom(Long lastEventId) {
+        return lastEventId == null ? ring.next() : ring.firstAfter(lastEventId);
+    }
+
+    private void unsubscribe(LiveSubscriber subscriber) {
+        if (subscribers.remove(subscriber) && subscriber.isLagged()) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Отправляет подписчикам карточки новых активных объявлений из событий.
+     * Ошибка только записывается в журнал: объявления к этому моменту уже созданы,
+     * а повторная доставка показала бы их в потоке дважды.
+     *
+     * @param events события изменений объявлений
+     */
+    @Override
+    public synchronized void onListingEvents(List<ListingEvent> events) {
+        Map<Long, Long> created = new HashMap<>();
+        Set<Long> late = new HashSet<>();
+        for (ListingEvent event : events) {
+            if (event.entity() == ListingEvent.Entity.POST && event.change() == ListingEvent.Change.CREATED
+                    && handle(event.id())) {
+                created.put(event.postId(), event.id());
+                if (event.id() < lastListingEventId) {
+                    late.add(event.id());
+                }
+            }
+        }
+        if (!events.isEmpty()) {
+            lastListingEventId = Math.max(lastListingEventId, events.get(events.size() - 1).id());
+        }
+        if (created.isEmpty()) {
+            return;
+        }
+        try {
+            List<Post> posts = new ArrayList<>(postRepository.findAllByIdsWithCover(List.copyOf(created.keySet())));
+            posts.sort(Comparator.comparing(post -> created.get(post.getId())));
+            for (Post post : posts) {
+                if (post.getStatus() == PostStatus.ACTIVE) {
+                    long outboxId = created.get(post.getId());
+                    long eventId = late.contains(outboxId) ? EventRing.NO_ID : outboxId;
+                    ring.append(eventId, frame(eventId, LISTING_EVENT, objectMapper.writeValueAsBytes(toCard(post))));
+                }
+            }
+            wake();
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Не удалось отправить в поток новые объявления {}", created.keySet(), e);
+        }
+    }
+
+    /**
+     * Запоминает событие создания как обработанное.
+     *
+     * @return false, если событие уже обрабатывалось
+     */
+    private boolean handle(long eventId) {
+        if (!handledListingEventIds.add(eventId)) {
+            return false;
+        }
+        if (handledListingEventIds.size() > HANDLED_EVENTS_REMEMBERED) {
+            handledListingEventIds.remove(handledListingEventIds.iterator().next());
+        }
+        return true;
+    }
+
+    /**
+     * Событие SSE: «id: номер события outbox» (без номера — пустая строка комментария), тип и данные,
+     * заканчивается пустой строкой.
+     */
+    private static byte[] frame(long eventId, byte[] event, byte[] data) {
+        byte[] id = (eventId == EventRing.NO_ID ? ":" : "id: " + eventId).getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[id.length + event.length + data.length + 2];
+        System.arraycopy(id, 0, frame, 0, id.length);
+        System.arraycopy(event, 0, frame, id.length, event.length);
+        System.arraycopy(data, 0, frame, id.length + event.length, data.length);
+        frame[frame.length - 2] = '\n';
+        frame[frame.length - 1] = '\n';
+        return frame;
+    }
+
+    private static PostCardDto toCard(Post post) {
+        List<PostPhoto> photos = post.getPostPhotos();
+        return new PostCardDto(post.getId(), post.getDescription(), post.getPrice(),
+                post.getCar().getBrand().getName(), post.getCar().getModel().getName(),
+                post.getCar().getYearOfManufacture(),
+                photos == null || photos.isEmpty() ? null : photos.get(0).getImageUrl());
+    }
+
+    /**
+     * Пишет в поток комментарий, если есть подписчики.
+     */
+    @Scheduled(fixedDelayString = "${app.live.heartbeat:15s}", initialDelayString = "${app.live.heartbeat:15s}")
+    public void heartbeat() {
+        if (!subscribers.isEmpty()) {
+            ring.append(EventRing.NO_ID, HEARTBEAT);
+            wake();
+        }
+    }
+
+    /**
+     * Планирует рассылку, если она ещё не запланирована.
+     */
+    private void wake() {
+        if (dispatchScheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> {
+                dispatchScheduled.set(false);
+                subscribers.forEach(LiveSubscriber::drain);
+            });
+        }
+    }
+
+    /**
+     * Закрывает все подписки при остановке приложения.
+     */
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(LiveSubscriber::close);
+    }
+}
@@ -0,0 +1,173 @@
+package ru.job4j.cars.service;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import lombok.extern.slf4j.Slf4j;
+import ru.job4j.cars.live.EventRing;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Подписчик потока новых объявлений: асинхронный запрос и курсор в общем буфере событий.
+ * <p>
+ * Запись неблокирующая: подписчик пишет события, пока {@link ServletOutputStream#isReady()}, а когда
+ * клиент не успевает принимать, ждёт вызова {@link #onWritePossible()} от контейнера. Новые события
+ * копятся только в общем буфере, поэтому отстающий подписчик не занимает памяти; когда его следующее
+ * событие вытеснено из буфера, подписчик отключается. Браузер переподключается с Last-Event-ID
+ * и получает пропущенные события, если они ещё в буфере, иначе — только новые.
+ */
+@Slf4j
+final class LiveSubscriber implements WriteListener, AsyncListener {
+
+    private final AsyncContext asyncContext;
+
+    private final ServletOutputStream out;
+
+    private final EventRing ring;
+
+    private final Consumer<LiveSubscriber> onClose;
+
+    /**
+     * Номер следующего события для отправки. Меняется только внутри {@link #drain()}.
+     */
+    private long cursor;
+
+    /**
+     * Записаны ли события после последнего сброса в сеть.
+     */
+    private boolean unflushed;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Отключён ли подписчик из-за того, что его следующее событие вытеснено из буфера.
+     */
+    private volatile boolean lagged;
+
+    /**
+     * Число запросов на отправку, не обработанных потоком, который сейчас отправляет события.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    LiveSubscriber(AsyncContext asyncContext, EventRing ring, long cursor,
+                   Consumer<LiveSubscriber> onClose) throws IOException {
+        this.asyncContext = asyncContext;
+        this.out = asyncContext.getResponse().getOutputStream();
+        this.ring = ring;
+        this.cursor = cursor;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Начинает отправку: после регистрации слушателя контейнер сам вызывает {@link #onWritePossible()}.
+     */
+    void start() {
+        asyncContext.addListener(this);
+        out.setWriteListener(this);
+    }
+
+    /**
+     * Отправляет клиенту накопившиеся события, пока запись не заблокировалась бы.
+     * Вызывается и контейнером, и потоком рассылки без блокировок: событие отправляет тот поток,
+     * который первым начал отправку, а вызовы по ходу отправки только заставляют его проверить буфер ещё раз.
+     */
+    void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            writeAvailable();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void writeAvailable() {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            while (out.isReady()) {
+                if (cursor >= ring.next()) {
+                    if (!unflushed) {
+                        return;
+                    }
+                    unflushed = false;
+                    out.flush();
+                    continue;
+                }
+                byte[] frame = ring.get(cursor);
+                if (frame == null) {
+                    lagged = true;
+                    close();
+                    return;
+                }
+                out.write(frame);
+                cursor++;
+                unflushed = true;
+            }
+        } catch (IOException | IllegalStateException e) {
+            close();
+        }
+    }
+
+    /**
+     * Завершает запрос и отписывает подписчика.
+     */
+    void close() {
+        finish(true);
+    }
+
+    private void finish(boolean complete) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        onClose.accept(this);
+        if (complete) {
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                log.debug("Запрос подписчика уже завершён", e);
+            }
+        }
+    }
+
+    boolean isLagged() {
+        return lagged;
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        finish(false);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
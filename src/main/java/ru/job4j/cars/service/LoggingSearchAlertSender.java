@@ -0,0 +1,21 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.dto.SearchAlertDto;
+
+import java.util.List;
+
+/**
+ * Доставка уведомлений в журнал: у пользователей пока нет адресов для почты или других каналов.
+ */
+@Slf4j
+@Component
+public class LoggingSearchAlertSender implements SearchAlertSender {
+
+    @Override
+    public void send(long userId, List<SearchAlertDto> alerts) {
+        log.info("Пользователю {} новые объявления по сохранённым поискам: {}", userId,
+                alerts.stream().map(SearchAlertDto::getPostId).distinct().toList());
+    }
+}
@@ -0,0 +1,107 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.repository.PostPhotoRepository;
+import ru.job4j.cars.scheduling.ClusterJob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Удаление файлов фотографий, на которые не ссылается ни одна фотография, в том числе архивная:
+ * остатки удалённых объявлений и фотографий и файлы прерванных сохранений.
+ * Файлы моложе app.photos.gc-grace не трогаются — их запись в базе может ещё не зафиксироваться.
+ * В кластере выполняется одним узлом; каталог загрузок общий для всех узлов.
+ */
+@Slf4j
+@Service
+public class PhotoGarbageCollectionService implements ClusterJob {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private final PostPhotoRepository postPhotoRepository;
+
+    private final Duration interval;
+
+    private final Duration grace;
+
+    public PhotoGarbageCollectionService(PostPhotoRepository postPhotoRepository,
+                                         @Value("${app.photos.gc-interval:6h}") Duration interval,
+                                         @Value("${app.photos.gc-grace:1d}") Duration grace) {
+        this.postPhotoRepository = postPhotoRepository;
+        this.interval = interval;
+        this.grace = grace;
+    }
+
+    @Override
+    public String name() {
+        return "photo-gc";
+    }
+
+    @Override
+    public Duration interval() {
+        return interval;
+    }
+
+    @Override
+    public void run() {
+        try {
+            collect(PhotoIngestService.UPLOAD_DIR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Удаляет из каталога старые файлы без ссылок, проверяя ссылки порциями.
+     *
+     * @param directory каталог фотографий
+     * @return число удалённых файлов
+     * @throws IOException ошибка чтения каталога
+     */
+    int collect(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        long olderThan = System.currentTimeMillis() - grace.toMillis();
+        int deleted = 0;
+        List<Path> batch = new ArrayList<>(BATCH_SIZE);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toMillis() < olderThan) {
+                    batch.add(file);
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    deleted += deleteUnreferenced(batch);
+                    batch.clear();
+                }
+            }
+        }
+        deleted += deleteUnreferenced(batch);
+        if (deleted > 0) {
+            log.info("Удалено файлов фотографий без ссылок: {}", deleted);
+        }
+        return deleted;
+    }
+
+    private int deleteUnreferenced(List<Path> files) throws IOException {
+        Set<String> referenced = postPhotoRepository.findExistingPaths(
+                files.stream().map(file -> file.getFileName().toString()).toList());
+        int deleted = 0;
+        for (Path file : files) {
+            if (!referenced.contains(file.getFileName().toString()) && Files.deleteIfExists(file)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,115 @@
+package ru.job4j.cars.service;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ru.job4j.cars.image.PhotoMetadata;
+import ru.job4j.cars.image.PhotoMetadataExtractor;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Приём фотографий объявления: сохранение файла на диск, извлечение метаданных
+ * и создание записи {@link PostPhoto}.
+ */
+@AllArgsConstructor
+@Service
+public class PhotoIngestService {
+
+    /**
+     * Каталог файлов фотографий; общий для всех узлов.
+     */
+    static final Path UPLOAD_DIR = Paths.get("uploads/images");
+
+    private final PostPhotoService postPhotoService;
+
+    private final PhotoMetadataExtractor metadataExtractor;
+
+    /**
+     * Сохраняет загруженные фотографии и привязывает их к объявлению.
+     *
+     * @param photos загруженные файлы, пустые пропускаются
+     * @param post   объявление
+     * @return созданные фотографии
+     * @throws IOException если не удалось сохранить файл
+     */
+    public List<PostPhoto> saveAll(List<MultipartFile> photos, Post post) throws IOException {
+        List<PostPhoto> saved = new ArrayList<>();
+        if (photos == null || photos.isEmpty()) {
+            return saved;
+        }
+        Files.createDirectories(UPLOAD_DIR);
+        for (MultipartFile photo : photos) {
+            if (!photo.isEmpty()) {
+                String filename = UUID.randomUUID() + "_" + photo.getOriginalFilename();
+                Path filePath = UPLOAD_DIR.resolve(filename);
+                Files.copy(photo.getInputStream(), filePath);
+                saved.add(register(filePath, photo.getContentType(), post));
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Извлекает метаданные уже сохранённого в каталоге загрузок файла и создаёт запись фотографии.
+     *
+     * @param filePath         путь к файлу в каталоге загрузок
+     * @param declaredMimeType тип, заявленный клиентом
+     * @param post             объявление
+     * @return созданная фотография
+     * @throws IOException если файл недоступен
+     */
+    public PostPhoto register(Path filePath, String declaredMimeType, Post post) throws IOException {
+        return postPhotoService.create(describe(filePath, declaredMimeType, post));
+    }
+
+    /**
+     * Создаёт записи фотографий для уже описанных файлов одной транзакцией.
+     *
+     * @param photos фотографии одного объявления, подготовленные {@link #describe}
+     * @return сохранённые фотографии
+     */
+    public List<PostPhoto> registerAll(List<PostPhoto> photos) {
+        return postPhotoService.createAll(photos);
+    }
+
+    /**
+     * Извлекает метаданные уже сохранённого в каталоге загрузок файла, не сохраняя запись фотографии.
+     *
+     * @param filePath         путь к файлу в каталоге загрузок
+     * @param declaredMimeType тип, заявленный клиентом
+     * @param post             объявление
+     * @return несохранённая фотография
+     * @throws IOException если файл недоступен
+     */
+    public PostPhoto describe(Path filePath, String declaredMimeType, Post post) throws IOException {
+        PhotoMetadata metadata = metadataExtractor.extract(filePath, declaredMimeType);
+        PostPhoto postPhoto = new PostPhoto();
+        postPhoto.setPhotoPath(filePath.getFileName().toString());
+        postPhoto.setWidth(metadata.width());
+        postPhoto.setHeight(metadata.height());
+        postPhoto.setByteSize(metadata.byteSize());
+        postPhoto.setMimeType(metadata.mimeType());
+        postPhoto.setPlaceholder(metadata.placeholder());
+        postPhoto.setPerceptualHash(metadata.perceptualHash());
+        postPhoto.setPost(post);
+        return postPhoto;
+    }
+
+    /**
+     * Каталог, в котором хранятся фотографии объявлений.
+     *
+     * @return путь к каталогу загрузок
+     */
+    public Path uploadDir() {
+        return UPLOAD_DIR;
+    }
+}
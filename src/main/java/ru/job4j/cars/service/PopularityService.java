@@ -0,0 +1,225 @@
+package ru.job4j.cars.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.dto.PostScoreDto;
+import ru.job4j.cars.ranking.DecayedScore;
+import ru.job4j.cars.ranking.TopKHeap;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Популярность объявлений для сортировки «сначала популярные».
+ * <p>
+ * Оценка объявления — затухающая сумма событий ({@link DecayedScore}): создание объявления даёт вес
+ * app.posts.popularity-new-weight, добавление в избранное — app.posts.popularity-favorite-weight, каждый просмотр — 1;
+ * вес события убывает вдвое за app.posts.popularity-half-life.
+ * Оценки меняются по одному событию и не пересчитываются запросом по всем объявлениям.
+ * <p>
+ * В памяти держатся app.posts.popularity-top лучших активных объявлений в {@link TopKHeap}.
+ * Приращения оценок, накопленные узлом, раз в app.posts.popularity-checkpoint прибавляются к столбцу
+ * posts.popularity, после чего куча загружается из базы заново: так в неё попадают события других узлов
+ * и пропадают снятые и проданные объявления. Между контрольными точками объявление вне кучи сравнивается
+ * только по событиям этого узла, поэтому может попасть в неё позже, чем по полной оценке.
+ */
+@Slf4j
+@Service
+public class PopularityService {
+
+    private static final int CHECKPOINT_BATCH_SIZE = 500;
+
+    private final PostRepository postRepository;
+
+    private final DecayedScore decay;
+
+    private final int topSize;
+
+    private final double newListingWeight;
+
+    private final double favoriteWeight;
+
+    private TopKHeap top;
+
+    /**
+     * Приращения оценок с последней контрольной точки.
+     */
+    private Map<Long, Double> unsaved = new HashMap<>();
+
+    /**
+     * Id из кучи по убыванию оценки: читается без блокировки.
+     */
+    private volatile long[] ranking = new long[0];
+
+    public PopularityService(PostRepository postRepository,
+                             @Value("${app.posts.popularity-half-life:1d}") Duration halfLife,
+                             @Value("${app.posts.popularity-top:1000}") int topSize,
+                             @Value("${app.posts.popularity-new-weight:10}") double newListingWeight,
+                             @Value("${app.posts.popularity-favorite-weight:5}") double favoriteWeight) {
+        this.postRepository = postRepository;
+        this.decay = new DecayedScore(halfLife);
+        this.topSize = topSize;
+        this.newListingWeight = newListingWeight;
+        this.favoriteWeight = favoriteWeight;
+        this.top = new TopKHeap(topSize);
+    }
+
+    /**
+     * Загружает самые популярные объявления из базы.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        log.info("Популярные объявления загружены: {}", ranking.length);
+    }
+
+    /**
+     * Учитывает созданное объявление: новое объявление сразу получает оценку, которая затем затухает.
+     *
+     * @param postId    id объявления
+     * @param createdAt время создания
+     */
+    public synchronized void recordCreated(long postId, LocalDateTime createdAt) {
+        add(postId, decay.of(newListingWeight, millis(createdAt)));
+        publish();
+    }
+
+    /**
+     * Учитывает добавление объявления в избранное.
+     *
+     * @param postId id объявления
+     */
+    public synchronized void recordFavorite(long postId) {
+        add(postId, decay.of(favoriteWeight, millis(LocalDateTime.now())));
+        publish();
+    }
+
+    /**
+     * Учитывает просмотры объявлений, записанные в базу.
+     *
+     * @param views число просмотров по id объявления
+     */
+    public synchronized void recordViews(Map<Long, Long> views) {
+        long now = millis(LocalDateTime.now());
+        views.forEach((postId, count) -> add(postId, decay.of(count, now)));
+        publish();
+    }
+
+    /**
+     * Убирает объявление из популярных, например после продажи или удаления.
+     *
+     * @param postId id объявления
+     */
+    public synchronized void remove(long postId) {
+        if (top.remove(postId)) {
+            publish();
+        }
+    }
+
+    /**
+     * Страница самых популярных объявлений.
+     *
+     * @param offset сколько объявлений пропустить
+     * @param limit  максимальное количество объявлений
+     * @return id объявлений по убыванию популярности
+     */
+    public List<Long> page(int offset, int limit) {
+        long[] current = ranking;
+        int from = Math.min(offset, current.length);
+        return Arrays.stream(current, from, from + Math.min(limit, current.length - from))
+                .boxed()
+                .toList();
+    }
+
+    /**
+     * Контрольная точка: прибавляет накопленные приращения к оценкам в базе и загружает кучу заново.
+     * Приращения, которые записать не удалось, попадут в следующую контрольную точку.
+     */
+    @Scheduled(fixedDelayString = "${app.posts.popularity-checkpoint:1m}",
+            initialDelayString = "${app.posts.popularity-checkpoint:1m}")
+    public void checkpoint() {
+        try {
+            save();
+            reload();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить оценки популярности", e);
+        }
+    }
+
+    /**
+     * Сохраняет накопленные приращения при остановке приложения.
+     */
+    @PreDestroy
+    public void stop() {
+        save();
+    }
+
+    private void save() {
+        List<Map.Entry<Long, Double>> deltas;
+        synchronized (this) {
+            deltas = new ArrayList<>(unsaved.entrySet());
+            unsaved = new HashMap<>();
+        }
+        for (int from = 0; from < deltas.size(); from += CHECKPOINT_BATCH_SIZE) {
+            Map<Long, Double> batch = new HashMap<>();
+            deltas.subList(from, Math.min(deltas.size(), from + CHECKPOINT_BATCH_SIZE))
+                    .forEach(delta -> batch.put(delta.getKey(), delta.getValue()));
+            try {
+                postRepository.addPopularity(batch);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    deltas.subList(from, deltas.size())
+                            .forEach(delta -> unsaved.merge(delta.getKey(), delta.getValue(), DecayedScore::plus));
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Собирает кучу из оценок в базе и приращений, накопленных после их сохранения.
+     */
+    private void reload() {
+        List<PostScoreDto> stored = postRepository.findMostPopularActive(topSize);
+        synchronized (this) {
+            top = new TopKHeap(topSize);
+            stored.forEach(score -> top.offer(score.getId(), score.getScore()));
+            unsaved.forEach(this::offer);
+            publish();
+        }
+    }
+
+    private void add(long postId, double score) {
+        unsaved.merge(postId, score, DecayedScore::plus);
+        offer(postId, score);
+    }
+
+    private void offer(long postId, double score) {
+        OptionalDouble old = top.score(postId);
+        top.offer(postId, old.isPresent() ? DecayedScore.plus(old.getAsDouble(), score) : score);
+    }
+
+    private void publish() {
+        ranking = top.sorted();
+    }
+
+    /**
+     * Время создания объявлений хранится без зоны, поэтому и текущее время берётся так же.
+     */
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
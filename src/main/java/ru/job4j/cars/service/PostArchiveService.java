@@ -0,0 +1,87 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.repository.PostArchiveRepository;
+import ru.job4j.cars.scheduling.ClusterJob;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Архивация проданных, снятых и истёкших объявлений. По расписанию переносит в архив объявления,
+ * которые неактивны и не менялись дольше заданного срока, порциями по короткой транзакции,
+ * чтобы не держать долгих блокировок на основной таблице. В кластере выполняется одним узлом.
+ */
+@Slf4j
+@Service
+public class PostArchiveService implements ClusterJob {
+
+    private final PostArchiveRepository postArchiveRepository;
+
+    private final DuplicatePhotoService duplicatePhotoService;
+
+    private final ListingIndexService listingIndexService;
+
+    private final Duration archiveAfter;
+
+    private final int batchSize;
+
+    private final Duration interval;
+
+    public PostArchiveService(PostArchiveRepository postArchiveRepository,
+                              DuplicatePhotoService duplicatePhotoService,
+                              ListingIndexService listingIndexService,
+                              @Value("${app.posts.archive-after:90d}") Duration archiveAfter,
+                              @Value("${app.posts.archive-batch-size:500}") int batchSize,
+                              @Value("${app.posts.archive-interval:1h}") Duration interval) {
+        this.postArchiveRepository = postArchiveRepository;
+        this.duplicatePhotoService = duplicatePhotoService;
+        this.listingIndexService = listingIndexService;
+        this.archiveAfter = archiveAfter;
+        this.batchSize = batchSize;
+        this.interval = interval;
+    }
+
+    @Override
+    public String name() {
+        return "post-archive";
+    }
+
+    @Override
+    public Duration interval() {
+        return interval;
+    }
+
+    @Override
+    public void run() {
+        archiveExpired();
+    }
+
+    /**
+     * Переносит в архив все накопившиеся объявления, порция за порцией.
+     *
+     * @return число перенесённых объявлений
+     */
+    public int archiveExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime before = now.minus(archiveAfter);
+        int total = 0;
+        List<Long> batch;
+        do {
+            batch = postArchiveRepository.findArchivableIds(before, batchSize);
+            List<Long> archived = postArchiveRepository.archive(batch, now);
+            for (long postId : archived) {
+                duplicatePhotoService.unregisterPost(postId);
+                listingIndexService.remove(postId);
+            }
+            total += archived.size();
+        } while (batch.size() == batchSize);
+        if (total > 0) {
+            log.info("В архив перенесено объявлений: {}", total);
+        }
+        return total;
+    }
+}
@@ -14,8 +14,18 @@ public class PostPhotoService {
 
     private final PostPhotoRepository postPhotoRepository;
 
+    private final DuplicatePhotoService duplicatePhotoService;
+
     public PostPhoto create(PostPhoto photo) {
-        return postPhotoRepository.create(photo);
+        PostPhoto created = postPhotoRepository.create(photo);
+        duplicatePhotoService.register(created);
+        return created;
+    }
+
+    public List<PostPhoto> createAll(List<PostPhoto> photos) {
+        List<PostPhoto> created = postPhotoRepository.createAll(photos);
+        created.forEach(duplicatePhotoService::register);
+        return created;
     }
 
     public void update(PostPhoto photo) {
@@ -24,6 +34,7 @@ public class PostPhotoService {
 
     public void delete(int photoId) {
         postPhotoRepository.delete(photoId);
+        duplicatePhotoService.unregister(photoId);
     }
 
     public List<PostPhoto> findAllOrderById() {
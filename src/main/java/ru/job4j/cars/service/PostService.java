@@ -4,8 +4,13 @@ import lombok.AllArgsConstructor;
 import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.dto.PostSearchPage;
+import ru.job4j.cars.dto.PostSort;
 import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostStatus;
 import ru.job4j.cars.repository.PostRepository;
+import ru.job4j.cars.search.ListingQuery;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,18 +19,50 @@ import java.util.Optional;
 @Service
 public class PostService {
 
+    /**
+     * Размер страницы результатов поиска.
+     */
+    public static final int SEARCH_PAGE_SIZE = 20;
+
+    /**
+     * Сколько результатов поиска можно пролистать; страницы дальше пусты.
+     * Смещение страницы не переполняет int, а индекс не отбирает лучшие из огромного числа объявлений.
+     */
+    public static final int MAX_SEARCH_RESULTS = 10_000;
+
     private final PostRepository postRepository;
 
+    private final DuplicatePhotoService duplicatePhotoService;
+
+    private final ListingIndexService listingIndexService;
+
+    private final PopularityService popularityService;
+
+    private final SavedSearchService savedSearchService;
+
     public Post create(Post post) {
-        return postRepository.create(post);
+        Post created = postRepository.create(post);
+        listingIndexService.refresh(created.getId());
+        if (created.getStatus() == PostStatus.ACTIVE) {
+            popularityService.recordCreated(created.getId(), created.getCreatedAt());
+            savedSearchService.postCreated(created.getId());
+        }
+        return created;
     }
 
     public void update(Post post) {
         postRepository.update(post);
+        listingIndexService.refresh(post.getId());
+        if (post.getStatus() != PostStatus.ACTIVE) {
+            popularityService.remove(post.getId());
+        }
     }
 
     public void delete(int postId) {
         postRepository.delete(postId);
+        duplicatePhotoService.unregisterPost(postId);
+        listingIndexService.remove(postId);
+        popularityService.remove(postId);
     }
 
     @Transactional
@@ -53,4 +90,32 @@ public class PostService {
         return postRepository.findByUserId(userId);
     }
 
+    /**
+     * Поиск активных объявлений по фильтру, постранично.
+     * Идёт по индексу в памяти, а пока он загружается — запросом к базе.
+     * Сортировка по популярности без условий фильтра берёт страницу из популярных объявлений в памяти.
+     * Страницы дальше {@value #MAX_SEARCH_RESULTS} результатов пусты.
+     *
+     * @param filter параметры поиска
+     * @return страница результатов
+     */
+    public PostSearchPage search(PostSearchFilter filter) {
+        int page = Math.max(0, filter.getPage());
+        long start = (long) page * SEARCH_PAGE_SIZE;
+        if (start >= MAX_SEARCH_RESULTS) {
+            return new PostSearchPage(List.of(), page, false);
+        }
+        int offset = (int) start;
+        List<Post> posts;
+        if (filter.getSort() == PostSort.POPULAR && ListingQuery.from(filter).conditionKey().isEmpty()) {
+            posts = postRepository.findAllByIdsWithCover(popularityService.page(offset, SEARCH_PAGE_SIZE + 1));
+        } else if (listingIndexService.isReady()) {
+            posts = listingIndexService.search(filter, offset, SEARCH_PAGE_SIZE + 1);
+        } else {
+            posts = postRepository.search(filter, offset, SEARCH_PAGE_SIZE + 1);
+        }
+        boolean more = posts.size() > SEARCH_PAGE_SIZE;
+        return new PostSearchPage(more ? posts.subList(0, SEARCH_PAGE_SIZE) : posts, page,
+                more && offset + SEARCH_PAGE_SIZE < MAX_SEARCH_RESULTS);
+    }
 }
@@ -0,0 +1,250 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.model.SavedSearch;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.repository.ListingRepository;
+import ru.job4j.cars.repository.SavedSearchRepository;
+import ru.job4j.cars.repository.SearchAlertRepository;
+import ru.job4j.cars.search.ListingQuery;
+import ru.job4j.cars.search.ListingRow;
+import ru.job4j.cars.search.SavedSearchIndex;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+/**
+ * Сохранённые поиски и постановка уведомлений о новых объявлениях в очередь.
+ * <p>
+ * Все сохранённые поиски держатся в {@link SavedSearchIndex}, поэтому новое объявление проверяется
+ * только по поискам с его моделью, маркой или ценой, а не по всем. Подошедшие поиски одним INSERT
+ * ставятся в очередь search_alerts, откуда уведомления пакетами отправляет {@link SearchAlertService}.
+ * <p>
+ * Поиски не изменяются после сохранения, поэтому поиски, сохранённые на других узлах, раз в
+ * app.alerts.searches-refresh дочитываются по времени создания с перекрытием {@link #REFRESH_OVERLAP}:
+ * транзакции фиксируются не в порядке id, и поиск с меньшим id может появиться в базе позже поиска
+ * с большим. Перечитанные повторно поиски индекс просто заменяет. Поиски, удалённые на других узлах,
+ * остаются в индексе до перестроения раз в app.alerts.searches-rebuild, но уведомлений не дают:
+ * очередь заполняется соединением с saved_searches.
+ */
+@Slf4j
+@Service
+public class SavedSearchService {
+
+    private static final int LOAD_BATCH_SIZE = 1_000;
+
+    private static final int MAX_QUERY_LENGTH = 255;
+
+    /**
+     * Насколько раньше последнего прочитанного поиска начинается дочитывание: покрывает поиски,
+     * зафиксированные позже поисков с большим id, и расхождение часов узлов.
+     */
+    static final Duration REFRESH_OVERLAP = Duration.ofMinutes(5);
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final SavedSearchRepository savedSearchRepository;
+
+    private final SearchAlertRepository searchAlertRepository;
+
+    private final ListingRepository listingRepository;
+
+    private final int maxSearchesPerUser;
+
+    private volatile SavedSearchIndex index = new SavedSearchIndex();
+
+    /**
+     * Наибольшее время создания поиска, прочитанного из базы.
+     */
+    private LocalDateTime loadedAt;
+
+    public SavedSearchService(SavedSearchRepository savedSearchRepository,
+                              SearchAlertRepository searchAlertRepository,
+                              ListingRepository listingRepository,
+                              @Value("${app.alerts.max-searches-per-user:20}") int maxSearchesPerUser) {
+        this.savedSearchRepository = savedSearchRepository;
+        this.searchAlertRepository = searchAlertRepository;
+        this.listingRepository = listingRepository;
+        this.maxSearchesPerUser = maxSearchesPerUser;
+    }
+
+    /**
+     * Загружает сохранённые поиски при старте приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+    }
+
+    /**
+     * Строит индекс заново по всем поискам в базе и подменяет им текущий.
+     */
+    @Scheduled(fixedDelayString = "${app.alerts.searches-rebuild:1d}",
+            initialDelayString = "${app.alerts.searches-rebuild:1d}")
+    public synchronized void rebuild() {
+        SavedSearchIndex rebuilt = new SavedSearchIndex();
+        LocalDateTime last = load(rebuilt, afterId -> savedSearchRepository.findAllAfter(afterId, LOAD_BATCH_SIZE));
+        index = rebuilt;
+        loadedAt = last;
+        log.info("Загружено сохранённых поисков: {}", rebuilt.size());
+    }
+
+    /**
+     * Дочитывает поиски, сохранённые после последней загрузки, в том числе на других узлах.
+     * Поиски за последние {@link #REFRESH_OVERLAP} до последнего прочитанного перечитываются.
+     */
+    @Scheduled(fixedDelayString = "${app.alerts.searches-refresh:1m}",
+            initialDelayString = "${app.alerts.searches-refresh:1m}")
+    public synchronized void refresh() {
+        LocalDateTime since = loadedAt != null ? loadedAt.minus(REFRESH_OVERLAP) : EPOCH;
+        LocalDateTime last = load(index,
+                afterId -> savedSearchRepository.findCreatedSince(since, afterId, LOAD_BATCH_SIZE));
+        if (last != null && (loadedAt == null || last.isAfter(loadedAt))) {
+            loadedAt = last;
+        }
+    }
+
+    /**
+     * Читает поиски порциями по возрастанию id и добавляет их в индекс.
+     *
+     * @return наибольшее время создания прочитанного поиска; null, если поисков нет
+     */
+    private LocalDateTime load(SavedSearchIndex target, LongFunction<List<SavedSearch>> pageAfter) {
+        LocalDateTime last = null;
+        long afterId = 0L;
+        List<SavedSearch> batch;
+        do {
+            batch = pageAfter.apply(afterId);
+            for (SavedSearch savedSearch : batch) {
+                target.add(savedSearch.getId(), ListingQuery.from(toFilter(savedSearch)));
+                afterId = savedSearch.getId();
+                if (last == null || savedSearch.getCreatedAt().isAfter(last)) {
+                    last = savedSearch.getCreatedAt();
+                }
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        return last;
+    }
+
+    /**
+     * Сохраняет условия поиска пользователя. Сортировка и страница не сохраняются.
+     *
+     * @param user   пользователь
+     * @param filter фильтр поиска
+     * @return сохранённый поиск; пусто, если фильтр без условий, запрос длиннее {@value #MAX_QUERY_LENGTH}
+     * символов или у пользователя уже слишком много поисков
+     */
+    public Optional<SavedSearch> save(User user, PostSearchFilter filter) {
+        ListingQuery query = ListingQuery.from(filter);
+        if (query.conditionKey().isEmpty()
+                || filter.getQuery() != null && filter.getQuery().length() > MAX_QUERY_LENGTH
+                || savedSearchRepository.findByUserId(user.getId()).size() >= maxSearchesPerUser) {
+            return Optional.empty();
+        }
+        SavedSearch savedSearch = new SavedSearch();
+        savedSearch.setUser(user);
+        savedSearch.setQuery(filter.getQuery());
+        savedSearch.setBrandId(filter.getBrandId());
+        savedSearch.setModelId(filter.getModelId());
+        savedSearch.setCategoryId(filter.getCategoryId());
+        savedSearch.setBodyId(filter.getBodyId());
+        savedSearch.setEngineId(filter.getEngineId());
+        savedSearch.setTransmissionTypeId(filter.getTransmissionTypeId());
+        savedSearch.setDriveTypeId(filter.getDriveTypeId());
+        savedSearch.setCarColorId(filter.getCarColorId());
+        savedSearch.setFuelTypeId(filter.getFuelTypeId());
+        savedSearch.setWheelSideId(filter.getWheelSideId());
+        savedSearch.setPriceFrom(filter.getPriceFrom());
+        savedSearch.setPriceTo(filter.getPriceTo());
+        savedSearch.setYearFrom(filter.getYearFrom());
+        savedSearch.setYearTo(filter.getYearTo());
+        savedSearch.setMileageFrom(filter.getMileageFrom());
+        savedSearch.setMileageTo(filter.getMileageTo());
+        savedSearch.setCreatedAt(LocalDateTime.now());
+        savedSearchRepository.create(savedSearch);
+        index.add(savedSearch.getId(), query);
+        return Optional.of(savedSearch);
+    }
+
+    /**
+     * Удаляет сохранённый поиск пользователя.
+     *
+     * @param userId id пользователя
+     * @param id     id сохранённого поиска
+     * @return true, если поиск принадлежал пользователю и удалён
+     */
+    public boolean delete(long userId, long id) {
+        boolean deleted = savedSearchRepository.delete(id, userId);
+        if (deleted) {
+            index.remove(id);
+        }
+        return deleted;
+    }
+
+    /**
+     * Сохранённые поиски пользователя, сначала более новые.
+     *
+     * @param userId id пользователя
+     * @return сохранённые поиски
+     */
+    public List<SavedSearch> findByUserId(long userId) {
+        return savedSearchRepository.findByUserId(userId);
+    }
+
+    /**
+     * Ставит в очередь уведомления по сохранённым поискам, под которые подходит новое объявление.
+     * Ошибка только записывается в журнал: объявление к этому моменту уже создано.
+     *
+     * @param postId id нового объявления
+     */
+    public void postCreated(long postId) {
+        try {
+            Optional<ListingRow> row = listingRepository.findActiveRow(postId);
+            if (row.isPresent()) {
+                List<Long> matched = index.match(row.get());
+                int queued = searchAlertRepository.enqueue(postId, matched, LocalDateTime.now());
+                log.debug("Объявление {} подошло под сохранённых поисков: {}, уведомлений в очереди: {}",
+                        postId, matched.size(), queued);
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось поставить уведомления о новом объявлении {}", postId, e);
+        }
+    }
+
+    /**
+     * Фильтр поиска с условиями сохранённого поиска и сортировкой по умолчанию.
+     *
+     * @param savedSearch сохранённый поиск
+     * @return фильтр поиска
+     */
+    public static PostSearchFilter toFilter(SavedSearch savedSearch) {
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setQuery(savedSearch.getQuery());
+        filter.setBrandId(savedSearch.getBrandId());
+        filter.setModelId(savedSearch.getModelId());
+        filter.setCategoryId(savedSearch.getCategoryId());
+        filter.setBodyId(savedSearch.getBodyId());
+        filter.setEngineId(savedSearch.getEngineId());
+        filter.setTransmissionTypeId(savedSearch.getTransmissionTypeId());
+        filter.setDriveTypeId(savedSearch.getDriveTypeId());
+        filter.setCarColorId(savedSearch.getCarColorId());
+        filter.setFuelTypeId(savedSearch.getFuelTypeId());
+        filter.setWheelSideId(savedSearch.getWheelSideId());
+        filter.setPriceFrom(savedSearch.getPriceFrom());
+        filter.setPriceTo(savedSearch.getPriceTo());
+        filter.setYearFrom(savedSearch.getYearFrom());
+        filter.setYearTo(savedSearch.getYearTo());
+        filter.setMileageFrom(savedSearch.getMileageFrom());
+        filter.setMileageTo(savedSearch.getMileageTo());
+        return filter;
+    }
+}
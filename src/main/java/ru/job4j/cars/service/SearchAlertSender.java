@@ -0,0 +1,20 @@
+package ru.job4j.cars.service;
+
+import ru.job4j.cars.dto.SearchAlertDto;
+
+import java.util.List;
+
+/**
+ * Канал доставки уведомлений по сохранённым поискам.
+ */
+public interface SearchAlertSender {
+
+    /**
+     * Отправляет пользователю одно сообщение обо всех новых объявлениях из пакета.
+     * Исключение оставляет уведомления в очереди до следующей попытки.
+     *
+     * @param userId id пользователя
+     * @param alerts уведомления пользователя
+     */
+    void send(long userId, List<SearchAlertDto> alerts);
+}
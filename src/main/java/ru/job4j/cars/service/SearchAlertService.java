@@ -0,0 +1,97 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.dto.SearchAlertDto;
+import ru.job4j.cars.repository.SearchAlertRepository;
+import ru.job4j.cars.scheduling.ClusterJob;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отправка уведомлений по сохранённым поискам из очереди search_alerts.
+ * Уведомления читаются порциями по возрастанию id, группируются по пользователю — одно сообщение
+ * на пользователя в порции — и после отправки помечаются одним UPDATE. Если канал отказал, порция
+ * останавливается, а неотправленные уведомления ждут следующего запуска, так что каждое уведомление
+ * доставляется хотя бы один раз. Отправленные уведомления хранятся app.alerts.sent-retention.
+ * В кластере выполняется одним узлом.
+ */
+@Slf4j
+@Service
+public class SearchAlertService implements ClusterJob {
+
+    private final SearchAlertRepository searchAlertRepository;
+
+    private final SearchAlertSender sender;
+
+    private final Duration interval;
+
+    private final int batchSize;
+
+    private final Duration sentRetention;
+
+    public SearchAlertService(SearchAlertRepository searchAlertRepository,
+                              SearchAlertSender sender,
+                              @Value("${app.alerts.delivery-interval:1m}") Duration interval,
+                              @Value("${app.alerts.delivery-batch-size:500}") int batchSize,
+                              @Value("${app.alerts.sent-retention:7d}") Duration sentRetention) {
+        this.searchAlertRepository = searchAlertRepository;
+        this.sender = sender;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.sentRetention = sentRetention;
+    }
+
+    @Override
+    public String name() {
+        return "search-alerts";
+    }
+
+    @Override
+    public Duration interval() {
+        return interval;
+    }
+
+    @Override
+    public void run() {
+        deliver();
+        searchAlertRepository.deleteSentBefore(LocalDateTime.now().minus(sentRetention));
+    }
+
+    /**
+     * Отправляет все накопившиеся уведомления, порция за порцией.
+     *
+     * @return число отправленных уведомлений
+     */
+    public int deliver() {
+        int total = 0;
+        List<SearchAlertDto> batch;
+        do {
+            batch = searchAlertRepository.findUnsent(batchSize);
+            Map<Long, List<SearchAlertDto>> byUser = new LinkedHashMap<>();
+            for (SearchAlertDto alert : batch) {
+                byUser.computeIfAbsent(alert.getUserId(), key -> new ArrayList<>()).add(alert);
+            }
+            List<Long> sent = new ArrayList<>(batch.size());
+            try {
+                byUser.forEach((userId, alerts) -> {
+                    sender.send(userId, alerts);
+                    alerts.forEach(alert -> sent.add(alert.getId()));
+                });
+            } finally {
+                searchAlertRepository.markSent(sent, LocalDateTime.now());
+                total += sent.size();
+            }
+        } while (batch.size() == batchSize);
+        if (total > 0) {
+            log.info("Отправлено уведомлений по сохранённым поискам: {}", total);
+        }
+        return total;
+    }
+}
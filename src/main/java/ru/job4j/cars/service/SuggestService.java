@@ -0,0 +1,79 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.model.Brand;
+import ru.job4j.cars.model.CarModel;
+import ru.job4j.cars.notify.CacheInvalidationBus;
+import ru.job4j.cars.repository.BrandRepository;
+import ru.job4j.cars.repository.CarModelRepository;
+import ru.job4j.cars.search.SuggestIndex;
+import ru.job4j.cars.search.Suggestion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Подсказки марок и моделей при вводе по индексу в памяти ({@link SuggestIndex}).
+ * Индекс строится из справочников при первом запросе и сбрасывается при любом изменении марок
+ * или моделей на любом узле ({@link CacheInvalidationBus}); следующий запрос строит его заново.
+ */
+@Slf4j
+@Service
+public class SuggestService {
+
+    private final BrandRepository brandRepository;
+
+    private final CarModelRepository carModelRepository;
+
+    private volatile SuggestIndex index;
+
+    public SuggestService(BrandRepository brandRepository, CarModelRepository carModelRepository,
+                          CacheInvalidationBus cacheInvalidationBus) {
+        this.brandRepository = brandRepository;
+        this.carModelRepository = carModelRepository;
+        cacheInvalidationBus.register(BrandService.CACHE_REGION, key -> invalidate(), this::invalidate);
+        cacheInvalidationBus.register(CarModelService.CACHE_REGION, key -> invalidate(), this::invalidate);
+    }
+
+    /**
+     * Подсказки для введённого начала названия марки или модели.
+     *
+     * @param query   введённый текст
+     * @param brandId если задан — только модели этой марки
+     * @param limit   максимальное число подсказок
+     * @return подсказки в порядке уместности
+     */
+    public List<Suggestion> suggest(String query, Long brandId, int limit) {
+        SuggestIndex current = index;
+        if (current == null) {
+            current = build();
+        }
+        return current.suggest(query, brandId, limit);
+    }
+
+    /**
+     * Сбрасывает индекс после изменения справочника марок или моделей.
+     * Ждёт окончания идущего построения, чтобы оно не вернуло индекс со старыми данными.
+     */
+    public synchronized void invalidate() {
+        index = null;
+    }
+
+    private synchronized SuggestIndex build() {
+        if (index == null) {
+            List<Suggestion> suggestions = new ArrayList<>();
+            for (Brand brand : brandRepository.findAllOrderById()) {
+                suggestions.add(Suggestion.brand(brand.getId(), brand.getName()));
+            }
+            for (CarModel model : carModelRepository.findAllWithBrand()) {
+                Brand brand = model.getBrand();
+                suggestions.add(Suggestion.model(model.getId(), model.getName(),
+                        brand != null ? brand.getId() : null, brand != null ? brand.getName() : null));
+            }
+            index = SuggestIndex.of(suggestions);
+            log.debug("Индекс подсказок марок и моделей построен: {} названий", suggestions.size());
+        }
+        return index;
+    }
+}
@@ -0,0 +1,210 @@
+package ru.job4j.cars.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничитель приёма загрузок файлов.
+ * Пропускает не больше заданного числа одновременных загрузок и не больше заданного
+ * количества байт в секунду (token bucket по заявленному размеру запроса).
+ * Остальные запросы получают отказ со временем, через которое имеет смысл повторить попытку,
+ * поэтому всплеск загрузок не занимает все потоки Tomcat и диск.
+ */
+@Slf4j
+@Service
+public class UploadBulkhead {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Semaphore slots;
+
+    private final int maxConcurrent;
+
+    private final long queueWaitMillis;
+
+    private final long bytesPerSecond;
+
+    private final long burstBytes;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    private final Counter admitted;
+
+    private final Counter rejectedByConcurrency;
+
+    private final Counter rejectedByRate;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    /**
+     * @param maxConcurrent максимальное число одновременных загрузок
+     * @param queueWait     сколько запрос может ждать свободного слота
+     * @param byteRate      допустимый поток байт в секунду, 0 отключает ограничение
+     * @param byteBurst     объём, который можно принять разом, не меньше максимального размера запроса
+     * @param registry      реестр метрик
+     */
+    public UploadBulkhead(@Value("${app.upload.max-concurrent:8}") int maxConcurrent,
+                          @Value("${app.upload.queue-wait:200ms}") Duration queueWait,
+                          @Value("${app.upload.byte-rate:50MB}") DataSize byteRate,
+                          @Value("${app.upload.byte-burst:100MB}") DataSize byteBurst,
+                          MeterRegistry registry) {
+        this.maxConcurrent = maxConcurrent;
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.queueWaitMillis = queueWait.toMillis();
+        this.bytesPerSecond = byteRate.toBytes();
+        this.burstBytes = Math.max(byteBurst.toBytes(), bytesPerSecond);
+        this.tokens = burstBytes;
+        this.lastRefillNanos = System.nanoTime();
+        Gauge.builder("upload.queued", queued, AtomicInteger::get)
+                .description("Загрузки, ожидающие свободного слота")
+                .register(registry);
+        Gauge.builder("upload.in_flight", slots, s -> maxConcurrent - s.availablePermits())
+                .description("Загрузки, принимаемые в данный момент")
+                .register(registry);
+        Gauge.builder("upload.in_flight.bytes", inFlightBytes, AtomicLong::get)
+                .description("Заявленный объём принимаемых в данный момент загрузок")
+                .baseUnit("bytes")
+                .register(registry);
+        this.admitted = Counter.builder("upload.admitted").register(registry);
+        this.rejectedByConcurrency = Counter.builder("upload.rejected").tag("reason", "concurrency").register(registry);
+        this.rejectedByRate = Counter.builder("upload.rejected").tag("reason", "rate").register(registry);
+    }
+
+    /**
+     * Пытается принять загрузку заявленного размера.
+     *
+     * @param bytes заявленный размер запроса в байтах
+     * @return допуск, который нужно освободить по окончании запроса, или отказ
+     */
+    public Admission tryAdmit(long bytes) {
+        long size = Math.max(0L, bytes);
+        long retryAfter = reserveBytes(size);
+        if (retryAfter > 0) {
+            rejectedByRate.increment();
+            log.debug("Загрузка {} байт отклонена: превышен поток байт", size);
+            return Admission.rejected(retryAfter);
+        }
+        if (!acquireSlot()) {
+            refundBytes(size);
+            rejectedByConcurrency.increment();
+            log.debug("Загрузка {} байт отклонена: нет свободных слотов", size);
+            return Admission.rejected(1L);
+        }
+        inFlightBytes.addAndGet(size);
+        admitted.increment();
+        return Admission.granted(() -> {
+            inFlightBytes.addAndGet(-size);
+            slots.release();
+        });
+    }
+
+    /**
+     * @return максимальное число одновременных загрузок
+     */
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    private boolean acquireSlot() {
+        queued.incrementAndGet();
+        try {
+            return slots.tryAcquire(queueWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Списывает байты из бюджета.
+     *
+     * @param bytes размер запроса
+     * @return 0, если байты списаны, иначе через сколько секунд бюджет их позволит
+     */
+    private synchronized long reserveBytes(long bytes) {
+        if (bytesPerSecond <= 0) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(burstBytes, tokens + (double) (now - lastRefillNanos) * bytesPerSecond / NANOS_PER_SECOND);
+        lastRefillNanos = now;
+        double needed = Math.min(bytes, burstBytes);
+        if (tokens >= needed) {
+            tokens -= needed;
+            return 0L;
+        }
+        return Math.max(1L, (long) Math.ceil((needed - tokens) / bytesPerSecond));
+    }
+
+    private synchronized void refundBytes(long bytes) {
+        if (bytesPerSecond > 0) {
+            tokens = Math.min(burstBytes, tokens + Math.min(bytes, burstBytes));
+        }
+    }
+
+    /**
+     * Результат попытки принять загрузку.
+     */
+    public static final class Admission {
+
+        private final boolean granted;
+
+        private final long retryAfterSeconds;
+
+        private final Runnable onRelease;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admission(boolean granted, long retryAfterSeconds, Runnable onRelease) {
+            this.granted = granted;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.onRelease = onRelease;
+        }
+
+        static Admission granted(Runnable onRelease) {
+            return new Admission(true, 0L, onRelease);
+        }
+
+        static Admission rejected(long retryAfterSeconds) {
+            return new Admission(false, retryAfterSeconds, () -> { });
+        }
+
+        public boolean isGranted() {
+            return granted;
+        }
+
+        /**
+         * @return значение заголовка Retry-After для отказа
+         */
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        /**
+         * Освобождает слот и возвращает объём в счётчик; повторные вызовы игнорируются.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                onRelease.run();
+            }
+        }
+    }
+}
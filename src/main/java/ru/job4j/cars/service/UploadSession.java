@@ -0,0 +1,94 @@
+package ru.job4j.cars.service;
+
+import ru.job4j.cars.dto.UploadSessionStatusDto;
+
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сессия докачиваемой загрузки одного файла.
+ * Принятые байты пишутся во временный файл, смещение растёт по мере записи,
+ * поэтому после обрыва соединения клиент продолжает с последнего принятого байта.
+ */
+class UploadSession {
+
+    private final String id;
+
+    private final long userId;
+
+    private final String fileName;
+
+    private final String contentType;
+
+    private final long size;
+
+    private final Path tempFile;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile long offset;
+
+    private volatile long lastTouchedMillis;
+
+    UploadSession(String id, long userId, String fileName, String contentType, long size, Path tempFile) {
+        this.id = id;
+        this.userId = userId;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = size;
+        this.tempFile = tempFile;
+        touch();
+    }
+
+    String id() {
+        return id;
+    }
+
+    long userId() {
+        return userId;
+    }
+
+    String fileName() {
+        return fileName;
+    }
+
+    String contentType() {
+        return contentType;
+    }
+
+    long size() {
+        return size;
+    }
+
+    Path tempFile() {
+        return tempFile;
+    }
+
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    long offset() {
+        return offset;
+    }
+
+    void offset(long offset) {
+        this.offset = offset;
+    }
+
+    boolean isComplete() {
+        return offset == size;
+    }
+
+    void touch() {
+        lastTouchedMillis = System.currentTimeMillis();
+    }
+
+    boolean isExpired(long now, long ttlMillis) {
+        return now - lastTouchedMillis > ttlMillis;
+    }
+
+    UploadSessionStatusDto status() {
+        return new UploadSessionStatusDto(id, fileName, size, offset, isComplete());
+    }
+}
@@ -0,0 +1,44 @@
+package ru.job4j.cars.service;
+
+/**
+ * Ошибка протокола докачиваемой загрузки.
+ */
+public class UploadSessionException extends RuntimeException {
+
+    /**
+     * Причина ошибки, по ней контроллер выбирает HTTP-статус.
+     */
+    public enum Reason {
+        NOT_FOUND,
+        OFFSET_MISMATCH,
+        BUSY,
+        TOO_LARGE,
+        INCOMPLETE,
+        LIMIT_EXCEEDED
+    }
+
+    private final Reason reason;
+
+    private final long offset;
+
+    public UploadSessionException(Reason reason, String message) {
+        this(reason, message, -1L);
+    }
+
+    public UploadSessionException(Reason reason, String message, long offset) {
+        super(message);
+        this.reason = reason;
+        this.offset = offset;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return текущее смещение сессии или -1, если оно неизвестно
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
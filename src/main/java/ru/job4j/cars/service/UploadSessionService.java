@@ -0,0 +1,325 @@
+package ru.job4j.cars.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import ru.job4j.cars.dto.UploadSessionStatusDto;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Докачиваемая загрузка фотографий частями.
+ * Клиент открывает сессию с размером файла, отправляет части с указанием смещения,
+ * после обрыва узнаёт принятое смещение и продолжает с него. Когда все файлы собраны,
+ * они одним запросом привязываются к объявлению через {@link PhotoIngestService}.
+ * Брошенные сессии удаляются в фоне.
+ */
+@Slf4j
+@Service
+public class UploadSessionService {
+
+    private static final String TEMP_SUFFIX = ".part";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Имя файла вместе с префиксом UUID должно поместиться в post_photos.photo_path.
+     */
+    private static final int MAX_FILE_NAME_LENGTH = 150;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    private final PhotoIngestService photoIngestService;
+
+    /**
+     * Каталог временных файлов рядом с каталогом загрузок, чтобы перенос не копировал файл.
+     */
+    private final Path tempDir;
+
+    private final long maxFileBytes;
+
+    private final long ttlMillis;
+
+    private final int maxSessionsPerUser;
+
+    public UploadSessionService(PhotoIngestService photoIngestService,
+                                @Value("${spring.servlet.multipart.max-file-size:10MB}") DataSize maxFileSize,
+                                @Value("${app.upload.chunked.session-ttl:24h}") Duration sessionTtl,
+                                @Value("${app.upload.chunked.max-sessions-per-user:20}") int maxSessionsPerUser) {
+        this.photoIngestService = photoIngestService;
+        this.tempDir = photoIngestService.uploadDir().resolveSibling("tmp");
+        this.maxFileBytes = maxFileSize.toBytes();
+        this.ttlMillis = sessionTtl.toMillis();
+        this.maxSessionsPerUser = maxSessionsPerUser;
+    }
+
+    /**
+     * Открывает сессию загрузки файла.
+     *
+     * @param userId      владелец сессии
+     * @param fileName    исходное имя файла
+     * @param contentType заявленный тип файла
+     * @param size        полный размер файла в байтах
+     * @return состояние новой сессии
+     * @throws IOException если не удалось создать временный файл
+     */
+    public UploadSessionStatusDto open(long userId, String fileName, String contentType, long size) throws IOException {
+        if (size <= 0 || size > maxFileBytes) {
+            throw new UploadSessionException(UploadSessionException.Reason.TOO_LARGE,
+                    "Размер файла должен быть от 1 до " + maxFileBytes + " байт");
+        }
+        long opened = sessions.values().stream().filter(s -> s.userId() == userId).count();
+        if (opened >= maxSessionsPerUser) {
+            throw new UploadSessionException(UploadSessionException.Reason.LIMIT_EXCEEDED,
+                    "Слишком много незавершённых загрузок");
+        }
+        Files.createDirectories(tempDir);
+        String id = UUID.randomUUID().toString();
+        Path tempFile = Files.createFile(tempDir.resolve(id + TEMP_SUFFIX));
+        UploadSession session = new UploadSession(id, userId, safeFileName(fileName), contentType, size, tempFile);
+        sessions.put(id, session);
+        log.debug("Открыта сессия загрузки {} на {} байт", id, size);
+        return session.status();
+    }
+
+    /**
+     * Состояние сессии: сколько байт принято.
+     *
+     * @param userId владелец сессии
+     * @param id     идентификатор сессии
+     * @return состояние сессии
+     */
+    public UploadSessionStatusDto status(long userId, String id) {
+        return find(userId, id).status();
+    }
+
+    /**
+     * Дописывает часть файла, начиная с указанного смещения.
+     * Смещение должно совпадать с уже принятым объёмом; байты пишутся позиционной записью
+     * в {@link FileChannel}, и смещение сессии растёт по мере записи, поэтому при обрыве
+     * соединения уже принятая часть не теряется.
+     *
+     * @param userId владелец сессии
+     * @param id     идентификатор сессии
+     * @param offset смещение, с которого начинается часть
+     * @param body   тело запроса с байтами части
+     * @return состояние сессии после записи
+     * @throws IOException если не удалось прочитать запрос или записать файл
+     */
+    public UploadSessionStatusDto append(long userId, String id, long offset, InputStream body) throws IOException {
+        UploadSession session = find(userId, id);
+        if (!session.lock().tryLock()) {
+            throw new UploadSessionException(UploadSessionException.Reason.BUSY,
+                    "Часть файла уже принимается", session.offset());
+        }
+        try {
+            if (offset != session.offset()) {
+                throw new UploadSessionException(UploadSessionException.Reason.OFFSET_MISMATCH,
+                        "Ожидалось смещение " + session.offset(), session.offset());
+            }
+            write(session, body);
+            session.touch();
+            return session.status();
+        } finally {
+            session.lock().unlock();
+        }
+    }
+
+    /**
+     * Привязывает собранные файлы к объявлению и закрывает их сессии.
+     * Сессии забираются из списка до переноса файлов, чтобы их не закрыл параллельный запрос,
+     * а записи фотографий создаются одной транзакцией. Если перенести или зарегистрировать
+     * хотя бы один файл не удалось, файлы возвращаются во временный каталог и сессии
+     * восстанавливаются: клиент может повторить запрос.
+     *
+     * @param userId    владелец сессий
+     * @param post      объявление
+     * @param uploadIds идентификаторы сессий
+     * @return созданные фотографии
+     * @throws IOException если не удалось перенести файл в каталог загрузок
+     */
+    public List<PostPhoto> commit(long userId, Post post, List<String> uploadIds) throws IOException {
+        List<UploadSession> claimed = claim(userId, uploadIds);
+        Map<UploadSession, Path> moved = new HashMap<>();
+        try {
+            Path uploadDir = Files.createDirectories(photoIngestService.uploadDir());
+            List<PostPhoto> photos = new ArrayList<>();
+            for (UploadSession session : claimed) {
+                Path target = uploadDir.resolve(UUID.randomUUID() + "_" + session.fileName());
+                Files.move(session.tempFile(), target);
+                moved.put(session, target);
+                photos.add(photoIngestService.describe(target, session.contentType(), post));
+            }
+            return photoIngestService.registerAll(photos);
+        } catch (IOException | RuntimeException e) {
+            restore(claimed, moved);
+            throw e;
+        }
+    }
+
+    /**
+     * Удаляет сессии, к которым давно не обращались, и временные файлы,
+     * оставшиеся без сессии после перезапуска приложения.
+     */
+    @Scheduled(fixedDelayString = "${app.upload.chunked.cleanup-interval:10m}")
+    public void cleanupExpired() {
+        long now = System.currentTimeMillis();
+        for (UploadSession session : sessions.values()) {
+            if (session.isExpired(now, ttlMillis) && session.lock().tryLock()) {
+                try {
+                    if (sessions.remove(session.id(), session)) {
+                        deleteQuietly(session.tempFile());
+                        log.debug("Удалена просроченная сессия загрузки {}", session.id());
+                    }
+                } finally {
+                    session.lock().unlock();
+                }
+            }
+        }
+        deleteOrphans(now);
+    }
+
+    private void write(UploadSession session, InputStream body) throws IOException {
+        ReadableByteChannel in = Channels.newChannel(body);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(session.tempFile(), StandardOpenOption.WRITE)) {
+            long position = session.offset();
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                if (position + buffer.remaining() > session.size()) {
+                    throw new UploadSessionException(UploadSessionException.Reason.TOO_LARGE,
+                            "Передано больше заявленного размера файла", position);
+                }
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                session.offset(position);
+                buffer.clear();
+            }
+        }
+    }
+
+    private UploadSession find(long userId, String id) {
+        UploadSession session = sessions.get(id);
+        if (session == null || session.userId() != userId) {
+            throw new UploadSessionException(UploadSessionException.Reason.NOT_FOUND,
+                    "Сессия загрузки " + id + " не найдена");
+        }
+        return session;
+    }
+
+    /**
+     * Проверяет, что все сессии собраны, и забирает их из списка открытых.
+     */
+    private List<UploadSession> claim(long userId, List<String> uploadIds) {
+        List<UploadSession> completed = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(uploadIds)) {
+            UploadSession session = find(userId, id);
+            if (!session.isComplete()) {
+                throw new UploadSessionException(UploadSessionException.Reason.INCOMPLETE,
+                        "Файл " + session.fileName() + " загружен не полностью", session.offset());
+            }
+            completed.add(session);
+        }
+        List<UploadSession> claimed = new ArrayList<>();
+        for (UploadSession session : completed) {
+            if (!sessions.remove(session.id(), session)) {
+                restore(claimed, Map.of());
+                throw new UploadSessionException(UploadSessionException.Reason.NOT_FOUND,
+                        "Сессия загрузки " + session.id() + " не найдена");
+            }
+            claimed.add(session);
+        }
+        return claimed;
+    }
+
+    /**
+     * Возвращает перенесённые файлы во временный каталог и восстанавливает сессии.
+     * Сессия, файл которой вернуть не удалось, закрывается вместе с файлом.
+     */
+    private void restore(List<UploadSession> claimed, Map<UploadSession, Path> moved) {
+        for (UploadSession session : claimed) {
+            Path target = moved.get(session);
+            if (target == null || moveBack(target, session.tempFile())) {
+                session.touch();
+                sessions.put(session.id(), session);
+            }
+        }
+    }
+
+    private boolean moveBack(Path target, Path tempFile) {
+        try {
+            Files.move(target, tempFile);
+            return true;
+        } catch (IOException e) {
+            log.warn("Не удалось вернуть файл {} во временный каталог: {}", target, e.getMessage());
+            deleteQuietly(target);
+            return false;
+        }
+    }
+
+    private void deleteOrphans(long now) {
+        if (!Files.isDirectory(tempDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .filter(file -> !sessions.containsKey(sessionId(file)))
+                    .filter(file -> isOlderThanTtl(file, now))
+                    .forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Не удалось просмотреть каталог временных загрузок: {}", e.getMessage());
+        }
+    }
+
+    private String sessionId(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - TEMP_SUFFIX.length());
+    }
+
+    private boolean isOlderThanTtl(Path file, long now) {
+        try {
+            return now - Files.getLastModifiedTime(file).toMillis() > ttlMillis;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл {}: {}", file, e.getMessage());
+        }
+    }
+
+    private String safeFileName(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            return "photo";
+        }
+        String name = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1)
+                .replaceAll("[^\\p{L}\\p{N}._-]", "_");
+        return name.length() > MAX_FILE_NAME_LENGTH ? name.substring(name.length() - MAX_FILE_NAME_LENGTH) : name;
+    }
+}
@@ -0,0 +1,91 @@
+package ru.job4j.cars.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.util.Map;
+
+/**
+ * Счётчики просмотров объявлений.
+ * <p>
+ * Просмотр не обновляет строку объявления: на популярных объявлениях такие UPDATE выстраивались бы
+ * в очередь за блокировкой строки. Просмотры накапливаются в памяти ({@link CounterBuffer})
+ * и раз в app.posts.views-flush-interval прибавляются к базе пакетными UPDATE.
+ * Перед остановкой приложения накопленное сбрасывается в базу.
+ * <p>
+ * У каждого узла свои счётчики, поэтому сброс выполняется на каждом узле по {@code @Scheduled}.
+ */
+@Slf4j
+@Service
+public class ViewCounterService {
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final CounterBuffer views = new CounterBuffer(FLUSH_BATCH_SIZE);
+
+    private final PostRepository postRepository;
+
+    private final PopularityService popularityService;
+
+    public ViewCounterService(PostRepository postRepository, PopularityService popularityService) {
+        this.postRepository = postRepository;
+        this.popularityService = popularityService;
+    }
+
+    /**
+     * Учитывает просмотр объявления.
+     *
+     * @param postId id объявления
+     */
+    public void record(long postId) {
+        views.add(postId, 1);
+    }
+
+    /**
+     * Просмотры объявления, ещё не записанные в базу.
+     *
+     * @param postId id объявления
+     * @return число просмотров
+     */
+    public long pending(long postId) {
+        return views.pending(postId);
+    }
+
+    /**
+     * Записывает накопленные просмотры в базу порциями и передаёт записанные в оценки популярности.
+     * Порции, которые записать не удалось, возвращаются в счётчики и попадут в следующий сброс.
+     * Ошибка оценок популярности порцию не возвращает: просмотры уже в базе, и повторная запись
+     * посчитала бы их дважды.
+     */
+    @Scheduled(fixedDelayString = "${app.posts.views-flush-interval:10s}",
+            initialDelayString = "${app.posts.views-flush-interval:10s}")
+    public synchronized void flush() {
+        try {
+            views.flush(batch -> {
+                postRepository.addViews(batch);
+                recordPopularity(batch);
+            });
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать просмотры объявлений", e);
+        }
+    }
+
+    private void recordPopularity(Map<Long, Long> batch) {
+        try {
+            popularityService.recordViews(batch);
+        } catch (RuntimeException e) {
+            log.error("Не удалось учесть просмотры в оценках популярности", e);
+        }
+    }
+
+    /**
+     * Сбрасывает накопленные просмотры при остановке приложения.
+     */
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+}
@@ -0,0 +1,5 @@
+ALTER TABLE post_photos ADD COLUMN width INT;
+ALTER TABLE post_photos ADD COLUMN height INT;
+ALTER TABLE post_photos ADD COLUMN byte_size BIGINT;
+ALTER TABLE post_photos ADD COLUMN mime_type VARCHAR(50);
+ALTER TABLE post_photos ADD COLUMN placeholder VARCHAR(2048);
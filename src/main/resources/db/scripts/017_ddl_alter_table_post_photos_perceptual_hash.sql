@@ -0,0 +1 @@
+ALTER TABLE post_photos ADD COLUMN perceptual_hash BIGINT;
@@ -0,0 +1,24 @@
+--liquibase formatted sql
+
+--changeset cars:018-1
+-- Соединение объявлений с автомобилями
+CREATE INDEX IF NOT EXISTS idx_posts_car_id ON posts (car_id);
+-- Фильтры по автомобилю: марка и модель обычно выбираются вместе и сужаются годом
+CREATE INDEX IF NOT EXISTS idx_cars_brand_model_year ON cars (brand_id, model_id, year_of_manufacture);
+CREATE INDEX IF NOT EXISTS idx_cars_model_year ON cars (model_id, year_of_manufacture);
+CREATE INDEX IF NOT EXISTS idx_cars_body_year ON cars (body_id, year_of_manufacture);
+CREATE INDEX IF NOT EXISTS idx_cars_fuel_type_transmission ON cars (fuel_type_id, transmission_type_id);
+CREATE INDEX IF NOT EXISTS idx_cars_transmission_type ON cars (transmission_type_id);
+CREATE INDEX IF NOT EXISTS idx_cars_year_of_manufacture ON cars (year_of_manufacture);
+CREATE INDEX IF NOT EXISTS idx_cars_mileage ON cars (mileage);
+
+--changeset cars:018-2 dbms:!postgresql
+-- Сортировки активных объявлений по дате и цене для баз без частичных индексов
+CREATE INDEX IF NOT EXISTS idx_posts_status_created_at ON posts (status, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_posts_status_price ON posts (status, price, id);
+
+--changeset cars:018-3 dbms:postgresql runInTransaction:false
+-- Частичные индексы только по активным объявлениям: поиск никогда не читает остальные,
+-- поэтому индексы меньше и дешевле. Строятся без блокировки записи в таблицу.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_active_created_at ON posts (created_at DESC, id DESC) WHERE status = 'active';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_active_price ON posts (price, id) WHERE status = 'active';
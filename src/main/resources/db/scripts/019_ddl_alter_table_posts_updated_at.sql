@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset cars:019-1
+-- Время последнего изменения объявления: метка, с которой индекс поиска догоняет изменения
+ALTER TABLE posts ADD COLUMN updated_at TIMESTAMP;
+UPDATE posts SET updated_at = created_at;
+ALTER TABLE posts ALTER COLUMN updated_at SET NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_posts_updated_at ON posts (updated_at);
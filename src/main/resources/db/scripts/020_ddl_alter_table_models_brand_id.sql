@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset cars:020-1
+-- Модель относится к марке: форма объявления загружает модели только выбранной марки
+ALTER TABLE models ADD COLUMN brand_id BIGINT;
+-- Марка существующих моделей берётся из автомобилей с этой моделью
+UPDATE models SET brand_id = (SELECT MIN(c.brand_id) FROM cars c WHERE c.model_id = models.id);
+ALTER TABLE models ADD CONSTRAINT fk_models_brand FOREIGN KEY (brand_id) REFERENCES brands(id) ON DELETE RESTRICT;
+CREATE INDEX IF NOT EXISTS idx_models_brand_id_name ON models (brand_id, name);
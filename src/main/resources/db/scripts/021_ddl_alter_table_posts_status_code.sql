@@ -0,0 +1,26 @@
+--liquibase formatted sql
+
+--changeset cars:021-1
+-- Статус объявления хранится кодом ru.job4j.cars.model.PostStatus: 1 — активно, 2 — продано, 3 — снято.
+-- Старые строковые значения сравниваются с учётом регистра, как их сравнивал запрос активных объявлений:
+-- активно только 'active', остальные значения (в том числе 'ACTIVE' тестового объявления из 015) считаются снятыми.
+DROP INDEX IF EXISTS idx_posts_status_created_at;
+DROP INDEX IF EXISTS idx_posts_status_price;
+DROP INDEX IF EXISTS idx_posts_active_created_at;
+DROP INDEX IF EXISTS idx_posts_active_price;
+ALTER TABLE posts ADD COLUMN status_code SMALLINT;
+UPDATE posts SET status_code = CASE status WHEN 'active' THEN 1 WHEN 'sold' THEN 2 ELSE 3 END;
+ALTER TABLE posts ALTER COLUMN status_code SET NOT NULL;
+ALTER TABLE posts DROP COLUMN status;
+ALTER TABLE posts RENAME COLUMN status_code TO status;
+ALTER TABLE posts ADD CONSTRAINT ck_posts_status CHECK (status IN (1, 2, 3));
+
+--changeset cars:021-2 dbms:!postgresql
+-- Сортировки активных объявлений по дате и цене для баз без частичных индексов
+CREATE INDEX IF NOT EXISTS idx_posts_status_created_at ON posts (status, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_posts_status_price ON posts (status, price, id);
+
+--changeset cars:021-3 dbms:postgresql runInTransaction:false
+-- Частичные индексы только по активным объявлениям, как в 018, но по коду статуса
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_active_created_at ON posts (created_at DESC, id DESC) WHERE status = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_active_price ON posts (price, id) WHERE status = 1;
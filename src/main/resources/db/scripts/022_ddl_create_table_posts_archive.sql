@@ -0,0 +1,62 @@
+--liquibase formatted sql
+
+--changeset cars:022-1 dbms:postgresql
+-- Архив неактивных объявлений, секционированный по году создания. Внешних ключей у архива нет:
+-- автомобили и пользователи могут удаляться независимо от архивных записей.
+CREATE TABLE IF NOT EXISTS posts_archive (
+    id BIGINT NOT NULL,
+    status SMALLINT NOT NULL,
+    description VARCHAR(255),
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    car_id BIGINT,
+    user_id BIGINT,
+    archived_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_posts_archive PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+CREATE TABLE IF NOT EXISTS posts_archive_default PARTITION OF posts_archive DEFAULT;
+
+--changeset cars:022-2 dbms:postgresql splitStatements:false
+-- Секции по годам; годы позже 2035 попадают в секцию по умолчанию, пока для них не добавлена своя
+DO $$
+BEGIN
+    FOR y IN 2015..2035 LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS posts_archive_%s PARTITION OF posts_archive '
+                || 'FOR VALUES FROM (%L) TO (%L)',
+                y, make_date(y, 1, 1), make_date(y + 1, 1, 1));
+    END LOOP;
+END $$;
+
+--changeset cars:022-3 dbms:!postgresql
+-- Архив неактивных объявлений для баз без секционирования
+CREATE TABLE IF NOT EXISTS posts_archive (
+    id BIGINT NOT NULL,
+    status SMALLINT NOT NULL,
+    description VARCHAR(255),
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    car_id BIGINT,
+    user_id BIGINT,
+    archived_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_posts_archive PRIMARY KEY (id, created_at)
+);
+
+--changeset cars:022-4
+-- Фотографии архивных объявлений; файлы остаются на диске по прежним путям
+CREATE TABLE IF NOT EXISTS post_photos_archive (
+    id BIGINT PRIMARY KEY,
+    post_id BIGINT NOT NULL,
+    photo_path VARCHAR(255) NOT NULL,
+    width INT,
+    height INT,
+    byte_size BIGINT,
+    mime_type VARCHAR(50),
+    placeholder VARCHAR(2048),
+    perceptual_hash BIGINT
+);
+CREATE INDEX IF NOT EXISTS idx_post_photos_archive_post_id ON post_photos_archive (post_id);
+CREATE INDEX IF NOT EXISTS idx_posts_archive_user_id ON posts_archive (user_id);
+-- Поиск объявлений для архивации: неактивные, давно не менявшиеся
+CREATE INDEX IF NOT EXISTS idx_posts_status_updated_at ON posts (status, updated_at);
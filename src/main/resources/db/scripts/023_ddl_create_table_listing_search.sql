@@ -0,0 +1,42 @@
+--liquibase formatted sql
+
+--changeset cars:023-1
+-- Плоская таблица поиска: объявление и атрибуты автомобиля без соединений со справочниками.
+-- Заполняется приложением при записи объявлений, существующие объявления дозаполняются при старте.
+CREATE TABLE IF NOT EXISTS listing_search (
+    post_id BIGINT PRIMARY KEY,
+    status SMALLINT NOT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    brand_id BIGINT NOT NULL,
+    model_id BIGINT NOT NULL,
+    category_id BIGINT NOT NULL,
+    body_id BIGINT NOT NULL,
+    engine_id BIGINT NOT NULL,
+    transmission_type_id BIGINT NOT NULL,
+    drive_type_id BIGINT NOT NULL,
+    car_color_id BIGINT NOT NULL,
+    fuel_type_id BIGINT NOT NULL,
+    wheel_side_id BIGINT NOT NULL,
+    year_of_manufacture BIGINT NOT NULL,
+    mileage BIGINT NOT NULL,
+    cover_photo_path VARCHAR(255),
+    CONSTRAINT fk_listing_search_post FOREIGN KEY (post_id)
+        REFERENCES posts(id) ON DELETE CASCADE
+);
+
+--changeset cars:023-2 dbms:!postgresql
+-- Сортировки и самые частые фильтры активных объявлений для баз без частичных индексов
+CREATE INDEX IF NOT EXISTS idx_listing_search_created_at ON listing_search (status, created_at DESC, post_id DESC);
+CREATE INDEX IF NOT EXISTS idx_listing_search_price ON listing_search (status, price, post_id);
+CREATE INDEX IF NOT EXISTS idx_listing_search_year ON listing_search (status, year_of_manufacture DESC, post_id DESC);
+CREATE INDEX IF NOT EXISTS idx_listing_search_mileage ON listing_search (status, mileage, post_id);
+CREATE INDEX IF NOT EXISTS idx_listing_search_brand_model ON listing_search (status, brand_id, model_id, year_of_manufacture);
+
+--changeset cars:023-3 dbms:postgresql
+-- Частичные индексы только по активным объявлениям; таблица новая и пустая, поэтому без CONCURRENTLY
+CREATE INDEX IF NOT EXISTS idx_listing_search_created_at ON listing_search (created_at DESC, post_id DESC) WHERE status = 1;
+CREATE INDEX IF NOT EXISTS idx_listing_search_price ON listing_search (price, post_id) WHERE status = 1;
+CREATE INDEX IF NOT EXISTS idx_listing_search_year ON listing_search (year_of_manufacture DESC, post_id DESC) WHERE status = 1;
+CREATE INDEX IF NOT EXISTS idx_listing_search_mileage ON listing_search (mileage, post_id) WHERE status = 1;
+CREATE INDEX IF NOT EXISTS idx_listing_search_brand_model ON listing_search (brand_id, model_id, year_of_manufacture) WHERE status = 1;
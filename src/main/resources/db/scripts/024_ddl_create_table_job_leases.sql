@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset cars:024-1
+-- Аренды фоновых задач: задачу выполняет только узел, владеющий непросроченной арендой
+CREATE TABLE IF NOT EXISTS job_leases (
+    name VARCHAR(100) PRIMARY KEY,
+    owner VARCHAR(100) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+--changeset cars:024-2
+-- Новый статус объявления: истёк срок размещения (ru.job4j.cars.model.PostStatus.EXPIRED)
+ALTER TABLE posts DROP CONSTRAINT ck_posts_status;
+ALTER TABLE posts ADD CONSTRAINT ck_posts_status CHECK (status IN (1, 2, 3, 4));
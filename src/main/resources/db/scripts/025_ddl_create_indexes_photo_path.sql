@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset cars:025-1
+-- Проверка ссылок на файлы при удалении файлов фотографий без ссылок
+CREATE INDEX IF NOT EXISTS idx_post_photos_photo_path ON post_photos (photo_path);
+CREATE INDEX IF NOT EXISTS idx_post_photos_archive_photo_path ON post_photos_archive (photo_path);
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset cars:026-1
+-- Счётчик просмотров объявления; приложение накапливает просмотры в памяти и прибавляет их порциями
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS views BIGINT NOT NULL DEFAULT 0;
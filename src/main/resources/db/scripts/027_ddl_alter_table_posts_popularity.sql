@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset cars:027-1
+-- Затухающая оценка популярности объявления в логарифмической форме (ru.job4j.cars.ranking.DecayedScore)
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS popularity DOUBLE PRECISION;
+
+--changeset cars:027-2 dbms:!postgresql
+-- Самые популярные активные объявления для баз без частичных индексов
+CREATE INDEX IF NOT EXISTS idx_posts_status_popularity ON posts (status, popularity DESC);
+
+--changeset cars:027-3 dbms:postgresql runInTransaction:false
+-- Частичный индекс только по активным объявлениям с оценкой
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_active_popularity ON posts (popularity DESC)
+    WHERE status = 1 AND popularity IS NOT NULL;
@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset cars:028-1
+-- Избранные объявления пользователей: одна строка на пару пользователь — объявление
+CREATE TABLE IF NOT EXISTS favorites (
+    user_id BIGINT NOT NULL,
+    post_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_favorites PRIMARY KEY (user_id, post_id),
+    CONSTRAINT fk_favorites_user FOREIGN KEY (user_id)
+        REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_favorites_post FOREIGN KEY (post_id)
+        REFERENCES posts(id) ON DELETE CASCADE
+);
+-- Каскадное удаление и пересчёт по объявлению; выборка по пользователю идёт по первичному ключу
+CREATE INDEX IF NOT EXISTS idx_favorites_post_id ON favorites (post_id);
+
+--changeset cars:028-2
+-- Число добавлений в избранное, хранится в объявлении, чтобы карточки не считали его запросом
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS favorite_count INT NOT NULL DEFAULT 0;
@@ -0,0 +1,57 @@
+--liquibase formatted sql
+
+--changeset cars:029-1
+-- Сохранённые поиски пользователей: условия фильтра поиска, по которым новые объявления проверяются при создании
+CREATE TABLE IF NOT EXISTS saved_searches (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    query VARCHAR(255),
+    brand_id BIGINT,
+    model_id BIGINT,
+    category_id BIGINT,
+    body_id BIGINT,
+    engine_id BIGINT,
+    transmission_type_id BIGINT,
+    drive_type_id BIGINT,
+    car_color_id BIGINT,
+    fuel_type_id BIGINT,
+    wheel_side_id BIGINT,
+    price_from DECIMAL(10, 2),
+    price_to DECIMAL(10, 2),
+    year_from BIGINT,
+    year_to BIGINT,
+    mileage_from BIGINT,
+    mileage_to BIGINT,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_saved_searches_user FOREIGN KEY (user_id)
+        REFERENCES users(id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_saved_searches_user_id ON saved_searches (user_id);
+
+--changeset cars:029-2
+-- Очередь уведомлений о новых объявлениях по сохранённым поискам; sent_at заполняется после отправки
+CREATE TABLE IF NOT EXISTS search_alerts (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    saved_search_id BIGINT NOT NULL,
+    post_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP,
+    CONSTRAINT uq_search_alerts_search_post UNIQUE (saved_search_id, post_id),
+    CONSTRAINT fk_search_alerts_user FOREIGN KEY (user_id)
+        REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_search_alerts_saved_search FOREIGN KEY (saved_search_id)
+        REFERENCES saved_searches(id) ON DELETE CASCADE,
+    CONSTRAINT fk_search_alerts_post FOREIGN KEY (post_id)
+        REFERENCES posts(id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_search_alerts_post_id ON search_alerts (post_id);
+
+--changeset cars:029-3 dbms:!postgresql
+-- Выборка неотправленных уведомлений по порядку для баз без частичных индексов
+CREATE INDEX IF NOT EXISTS idx_search_alerts_sent_at_id ON search_alerts (sent_at, id);
+
+--changeset cars:029-4 dbms:postgresql runInTransaction:false
+-- Частичный индекс только по неотправленным уведомлениям: отправленные в него не попадают
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_search_alerts_unsent ON search_alerts (id)
+    WHERE sent_at IS NULL;
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset cars:030-1
+-- Исходящие события изменений объявлений, их автомобилей и фотографий (transactional outbox):
+-- строка пишется в той же транзакции, что и изменение, и рассылается подписчикам на каждом узле
+CREATE TABLE IF NOT EXISTS listing_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    post_id BIGINT NOT NULL,
+    entity VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    change_type VARCHAR(16) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT ck_listing_events_entity CHECK (entity IN ('POST', 'CAR', 'PHOTO')),
+    CONSTRAINT ck_listing_events_change_type CHECK (change_type IN ('CREATED', 'UPDATED', 'DELETED'))
+);
+-- Удаление разосланных событий по сроку хранения
+CREATE INDEX IF NOT EXISTS idx_listing_events_created_at ON listing_events (created_at);
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset cars:031-1
+-- Счётчик сбросов кешей в памяти узлов: каждый разосланный сброс увеличивает его на единицу,
+-- и узел, увидевший пропуск в номерах, сбрасывает свои кеши целиком
+CREATE TABLE IF NOT EXISTS cache_epoch (
+    id SMALLINT PRIMARY KEY,
+    epoch BIGINT NOT NULL,
+    CONSTRAINT ck_cache_epoch_single_row CHECK (id = 1)
+);
+INSERT INTO cache_epoch (id, epoch) VALUES (1, 0);
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset cars:032-1
+-- Модель без марки не попадает в форму объявления и не проходит проверку марки при создании автомобиля,
+-- поэтому марка модели становится обязательной. Марка ещё раз берётся из автомобилей с этой моделью,
+-- а модели без автомобилей относятся к марке «Без марки», откуда их переносят в нужную марку
+UPDATE models SET brand_id = (SELECT MIN(c.brand_id) FROM cars c WHERE c.model_id = models.id)
+WHERE brand_id IS NULL;
+INSERT INTO brands (name) SELECT 'Без марки'
+WHERE EXISTS (SELECT 1 FROM models WHERE brand_id IS NULL)
+  AND NOT EXISTS (SELECT 1 FROM brands WHERE name = 'Без марки');
+UPDATE models SET brand_id = (SELECT id FROM brands WHERE name = 'Без марки') WHERE brand_id IS NULL;
+ALTER TABLE models ALTER COLUMN brand_id SET NOT NULL;
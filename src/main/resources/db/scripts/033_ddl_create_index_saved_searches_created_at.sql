@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset cars:033-1
+-- Дочитывание сохранённых поисков, созданных за последние минуты, в том числе на других узлах
+CREATE INDEX IF NOT EXISTS idx_saved_searches_created_at ON saved_searches (created_at);
@@ -0,0 +1,56 @@
+// Новые объявления без обновления страницы.
+// Контейнер с атрибутом data-live-url подписывается на поток событий и показывает
+// карточки новых объявлений в начале списка. Браузер сам переподключается при обрыве.
+(function () {
+    'use strict'
+
+    var MAX_CARDS = 20
+
+    function text(tag, className, value) {
+        var element = document.createElement(tag)
+        element.className = className
+        element.textContent = value
+        return element
+    }
+
+    function card(listing) {
+        var link = document.createElement('a')
+        link.className = 'post-link'
+        link.href = '/post/' + listing.id
+        var body = document.createElement('div')
+        body.className = 'post-card'
+        var info = document.createElement('div')
+        info.className = 'post-info'
+        info.appendChild(text('h3', 'post-title', listing.description || ''))
+        info.appendChild(text('p', '', listing.brand + ' ' + listing.model + ', ' + listing.year))
+        info.appendChild(text('p', '', Number(listing.price).toLocaleString('ru-RU',
+            {style: 'currency', currency: 'RUB'})))
+        body.appendChild(info)
+        if (listing.photoUrl) {
+            var image = document.createElement('img')
+            image.src = listing.photoUrl
+            image.alt = 'Фото для поста ' + listing.id
+            image.loading = 'lazy'
+            image.className = 'post-image'
+            body.appendChild(image)
+        }
+        link.appendChild(body)
+        return link
+    }
+
+    function bind(container) {
+        if (!window.EventSource) {
+            return
+        }
+        var source = new EventSource(container.dataset.liveUrl)
+        source.addEventListener('listing', function (event) {
+            container.insertBefore(card(JSON.parse(event.data)), container.firstChild)
+            while (container.children.length > MAX_CARDS) {
+                container.removeChild(container.lastChild)
+            }
+            container.hidden = false
+        })
+    }
+
+    document.querySelectorAll('[data-live-url]').forEach(bind)
+})()
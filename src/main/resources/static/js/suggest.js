@@ -0,0 +1,99 @@
+// Подсказки марок и моделей при вводе.
+// Поле с атрибутом data-suggest-url получает выпадающий список подсказок; выбранная подсказка
+// выставляет значения списков марки и модели из data-brand-select и data-model-select.
+// Если нужной модели ещё нет в списке (модели загружаются после выбора марки),
+// её id сохраняется в data-pending-value списка моделей.
+(function () {
+    'use strict'
+
+    var DELAY_MS = 100
+
+    function bind(input) {
+        var brandSelect = document.getElementById(input.dataset.brandSelect)
+        var modelSelect = document.getElementById(input.dataset.modelSelect)
+        var list = document.createElement('div')
+        var timer = null
+        var lastQuery = null
+
+        list.className = 'list-group position-absolute w-100 shadow-sm'
+        list.style.zIndex = 1000
+        input.parentNode.classList.add('position-relative')
+        input.parentNode.appendChild(list)
+
+        function clear() {
+            list.innerHTML = ''
+        }
+
+        function label(suggestion) {
+            return suggestion.type === 'MODEL' && suggestion.brandName
+                ? suggestion.brandName + ' ' + suggestion.name
+                : suggestion.name
+        }
+
+        function choose(suggestion) {
+            input.value = label(suggestion)
+            clear()
+            if (brandSelect && suggestion.brandId !== null) {
+                brandSelect.value = suggestion.brandId
+                brandSelect.dispatchEvent(new Event('change'))
+            }
+            if (modelSelect) {
+                var modelId = suggestion.type === 'MODEL' ? String(suggestion.id) : ''
+                modelSelect.value = modelId
+                if (modelSelect.value !== modelId) {
+                    modelSelect.dataset.pendingValue = modelId
+                }
+            }
+        }
+
+        function show(suggestions) {
+            clear()
+            suggestions.forEach(function (suggestion) {
+                var item = document.createElement('button')
+                item.type = 'button'
+                item.className = 'list-group-item list-group-item-action'
+                item.textContent = label(suggestion)
+                // mousedown срабатывает раньше blur поля, который прячет список
+                item.addEventListener('mousedown', function (event) {
+                    event.preventDefault()
+                    choose(suggestion)
+                })
+                list.appendChild(item)
+            })
+        }
+
+        input.addEventListener('input', function () {
+            var query = input.value.trim()
+            clearTimeout(timer)
+            if (!query) {
+                lastQuery = null
+                clear()
+                return
+            }
+            timer = setTimeout(function () {
+                lastQuery = query
+                fetch(input.dataset.suggestUrl + '?q=' + encodeURIComponent(query))
+                    .then(function (response) {
+                        return response.ok ? response.json() : []
+                    })
+                    .then(function (suggestions) {
+                        if (lastQuery === query) {
+                            show(suggestions)
+                        }
+                    })
+                    .catch(clear)
+            }, DELAY_MS)
+        })
+        input.addEventListener('blur', clear)
+        input.addEventListener('keydown', function (event) {
+            if (event.key === 'Escape') {
+                clear()
+            } else if (event.key === 'Enter' && list.firstChild) {
+                event.preventDefault()
+                list.firstChild.dispatchEvent(new Event('mousedown'))
+            }
+        })
+    }
+
+    document.querySelectorAll('[data-suggest-url]').forEach(bind)
+})()
@@ -6,8 +6,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.ui.Model;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import ru.job4j.cars.dto.PostCreationDto;
+import ru.job4j.cars.image.ImageDecoder;
+import ru.job4j.cars.image.PhotoMetadataExtractor;
 import ru.job4j.cars.model.*;
 import ru.job4j.cars.service.*;
 import ru.job4j.cars.testutil.TestDatabaseConfig;
@@ -20,6 +23,7 @@ import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -70,7 +74,8 @@ public class PostControllerTest {
                 postService, carService, brandService, carModelService,
                 categoryService, bodyService, engineService, transmissionTypeService,
                 driveTypeService, carColorService, fuelTypeService, wheelSideService,
-                postPhotoService
+                new PhotoIngestService(postPhotoService, new PhotoMetadataExtractor(
+                        new ImageDecoder(DataSize.ofMegabytes(16), Duration.ofSeconds(1), 50_000_000L)))
         );
 
         testUser = testUtils.createTestUser("testUser");
@@ -189,7 +194,7 @@ public class PostControllerTest {
         Car savedCar = testUtils.createTestCar("VIN12345678901234");
         when(carService.create(any(Car.class))).thenReturn(savedCar);
 
-        Post savedPost = testUtils.createTestPost(testUser, savedCar, "active", new BigDecimal("1000000.00"));
+        Post savedPost = testUtils.createTestPost(testUser, savedCar, PostStatus.ACTIVE, new BigDecimal("1000000.00"));
         when(postService.create(any(Post.class))).thenReturn(savedPost);
 
         String redirectUrl = postController.createPost(dto, session);
@@ -296,7 +301,7 @@ public class PostControllerTest {
 
         Post post = postController.createPostFromDto(dto, car, user);
 
-        assertThat(post.getStatus()).isEqualTo("active");
+        assertThat(post.getStatus()).isEqualTo(PostStatus.ACTIVE);
         assertThat(post.getDescription()).isEqualTo("Test description");
         assertThat(post.getPrice()).isEqualByComparingTo(new BigDecimal("1000000.00"));
         assertThat(post.getCar()).isEqualTo(car);
@@ -311,7 +316,7 @@ public class PostControllerTest {
     void savePhotosShouldCreateFilesAndDatabaseRecords() throws IOException {
         Post post = testUtils.createTestPost(testUser,
                 testUtils.createTestCar("VIN12345678901234"),
-                "active",
+                PostStatus.ACTIVE,
                 new BigDecimal("1000000.00"));
 
         List<MultipartFile> photos = createTestPhotos();
@@ -331,7 +336,7 @@ public class PostControllerTest {
     void savePhotosWithEmptyListShouldDoNothing() throws IOException {
         Post post = testUtils.createTestPost(testUser,
                 testUtils.createTestCar("VIN12345678901234"),
-                "active",
+                PostStatus.ACTIVE,
                 new BigDecimal("1000000.00"));
 
         postController.savePhotos(List.of(), post);
@@ -346,7 +351,7 @@ public class PostControllerTest {
     void savePhotosWithNullListShouldDoNothing() throws IOException {
         Post post = testUtils.createTestPost(testUser,
                 testUtils.createTestCar("VIN12345678901234"),
-                "active",
+                PostStatus.ACTIVE,
                 new BigDecimal("1000000.00"));
 
         postController.savePhotos(null, post);
@@ -0,0 +1,55 @@
+package ru.job4j.cars.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для перцептивного хеша (DifferenceHash)
+ */
+class DifferenceHashTest {
+
+    /**
+     * Уменьшенная копия изображения даёт почти тот же хеш.
+     */
+    @Test
+    void whenImageResizedThenHashIsClose() {
+        BufferedImage original = gradient(800, 600, false);
+        BufferedImage resized = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        graphics.drawImage(original, 0, 0, 200, 150, null);
+        graphics.dispose();
+
+        int distance = DifferenceHash.distance(DifferenceHash.of(original), DifferenceHash.of(resized));
+
+        assertThat(distance).isLessThanOrEqualTo(4);
+    }
+
+    /**
+     * Разные изображения дают далёкие хеши.
+     */
+    @Test
+    void whenImagesDifferThenHashesAreFar() {
+        long first = DifferenceHash.of(gradient(400, 300, false));
+        long second = DifferenceHash.of(gradient(400, 300, true));
+
+        assertThat(DifferenceHash.distance(first, second)).isGreaterThan(20);
+    }
+
+    private BufferedImage gradient(int width, int height, boolean reversed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            int level = 255 * x / width;
+            int shade = reversed ? 255 - level : level;
+            for (int y = 0; y < height; y++) {
+                int wave = (y * 7 / height) % 2 == 0 ? shade : 255 - shade;
+                image.setRGB(x, y, new Color(wave, wave, wave).getRGB());
+            }
+        }
+        return image;
+    }
+}
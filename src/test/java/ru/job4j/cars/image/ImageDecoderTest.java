@@ -0,0 +1,86 @@
+package ru.job4j.cars.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты для декодера изображений (ImageDecoder)
+ */
+class ImageDecoderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImageDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        decoder = new ImageDecoder(DataSize.ofMegabytes(1), Duration.ofMillis(100), 10_000_000L);
+    }
+
+    /**
+     * Размеры читаются из заголовка без декодирования.
+     */
+    @Test
+    void whenProbeThenReturnsDimensionsAndMimeType() throws IOException {
+        Path file = writePng(640, 480);
+
+        ImageInfo info = decoder.probe(file);
+
+        assertThat(info.width()).isEqualTo(640);
+        assertThat(info.height()).isEqualTo(480);
+        assertThat(info.mimeType()).isEqualTo("image/png");
+    }
+
+    /**
+     * Большое изображение декодируется в уменьшенном разрешении.
+     */
+    @Test
+    void whenDecodeWithMaxSideThenImageIsSubsampled() throws IOException {
+        Path file = writePng(2000, 1000);
+
+        int[] size = decoder.decode(file, 200, (image, info) -> new int[] {image.getWidth(), image.getHeight()});
+
+        assertThat(size[0]).isLessThanOrEqualTo(200);
+        assertThat(size[1]).isLessThanOrEqualTo(100);
+    }
+
+    /**
+     * Шаг субдискретизации увеличивается, пока растр не уложится в бюджет памяти.
+     */
+    @Test
+    void whenTargetExceedsBudgetThenSubsamplingGrows() {
+        int step = decoder.subsampling(4000, 4000, 4000);
+
+        long width = (4000 + step - 1) / step;
+        assertThat(width * width * 4).isLessThanOrEqualTo(DataSize.ofMegabytes(1).toBytes());
+    }
+
+    /**
+     * Файл, не являющийся изображением, отклоняется.
+     */
+    @Test
+    void whenFileIsNotImageThenThrows() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("fake.jpg"), "test image content");
+
+        assertThatThrownBy(() -> decoder.probe(file)).isInstanceOf(ImageDecodeException.class);
+    }
+
+    private Path writePng(int width, int height) throws IOException {
+        Path file = tempDir.resolve(width + "x" + height + ".png");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file;
+    }
+}
@@ -0,0 +1,103 @@
+package ru.job4j.cars.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты для индекса перцептивных хешей (PerceptualHashIndex)
+ */
+class PerceptualHashIndexTest {
+
+    private final PerceptualHashIndex index = new PerceptualHashIndex();
+
+    /**
+     * Находятся хеши в пределах радиуса, в том числе отличающиеся во всех четырёх частях.
+     */
+    @Test
+    void whenSearchThenFindsHashesWithinDistance() {
+        long hash = 0x1234_5678_9ABC_DEF0L;
+        index.add(1L, 10L, hash);
+        index.add(2L, 20L, hash ^ 0x0001_0001_0001_0001L);
+        index.add(3L, 30L, hash ^ 0xFFFF_0000_0000_0000L);
+
+        List<PhotoMatch> matches = index.search(hash, 4);
+
+        assertThat(matches).containsExactly(new PhotoMatch(1L, 10L, 0), new PhotoMatch(2L, 20L, 4));
+        assertThat(index.postOf(2L)).isEqualTo(20L);
+        assertThat(index.postOf(4L)).isNull();
+    }
+
+    /**
+     * Результат поиска совпадает с полным перебором на случайных хешах.
+     */
+    @Test
+    void whenSearchRandomHashesThenSameAsBruteForce() {
+        Random random = new Random(42);
+        long[] hashes = new long[5_000];
+        long base = random.nextLong();
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = base ^ randomBits(random, random.nextInt(20));
+            index.add(i, i / 4, hashes[i]);
+        }
+
+        List<PhotoMatch> matches = index.search(base, 12);
+
+        long expected = Arrays.stream(hashes).filter(h -> Long.bitCount(h ^ base) <= 12).count();
+        assertThat(matches).hasSize((int) expected);
+        assertThat(matches).allMatch(match -> match.distance() == Long.bitCount(hashes[(int) match.photoId()] ^ base));
+        assertThat(matches).isSortedAccordingTo((a, b) -> Integer.compare(a.distance(), b.distance()));
+    }
+
+    /**
+     * Удалённые фотографии и фотографии удалённого объявления больше не находятся.
+     */
+    @Test
+    void whenRemoveThenNotFound() {
+        index.add(1L, 10L, 7L);
+        index.add(2L, 10L, 7L);
+        index.add(3L, 20L, 7L);
+
+        index.remove(3L);
+        assertThat(index.search(7L, 0)).extracting(PhotoMatch::photoId).containsExactly(1L, 2L);
+
+        index.removePost(10L);
+        assertThat(index.search(7L, 0)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    /**
+     * Повторное добавление фотографии заменяет её хеш.
+     */
+    @Test
+    void whenAddSamePhotoTwiceThenHashReplaced() {
+        index.add(1L, 10L, 0L);
+        index.add(1L, 10L, -1L);
+
+        assertThat(index.search(0L, 0)).isEmpty();
+        assertThat(index.hashOf(1L)).isEqualTo(-1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    /**
+     * Радиус больше поддерживаемого отклоняется.
+     */
+    @Test
+    void whenDistanceTooLargeThenThrows() {
+        assertThatThrownBy(() -> index.search(0L, PerceptualHashIndex.MAX_DISTANCE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private long randomBits(Random random, int count) {
+        long bits = 0L;
+        while (Long.bitCount(bits) < count) {
+            bits |= 1L << random.nextInt(64);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,136 @@
+package ru.job4j.cars.live;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты для кольцевого буфера событий (EventRing)
+ */
+class EventRingTest {
+
+    private static byte[] bytes(long sequence) {
+        return ("id: " + sequence).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * События получают номера по порядку и читаются по номеру.
+     */
+    @Test
+    void whenAppendThenReadBySequence() {
+        EventRing ring = new EventRing(4);
+
+        assertThat(ring.append(10, bytes(1))).isEqualTo(1L);
+        assertThat(ring.append(20, bytes(2))).isEqualTo(2L);
+
+        assertThat(ring.next()).isEqualTo(3L);
+        assertThat(ring.oldest()).isEqualTo(1L);
+        assertThat(ring.get(1)).isEqualTo(bytes(1));
+        assertThat(ring.get(2)).isEqualTo(bytes(2));
+    }
+
+    /**
+     * Ёмкость округляется до степени двойки, вытесненные события не читаются.
+     */
+    @Test
+    void whenOverflowThenOldestEventsEvicted() {
+        EventRing ring = new EventRing(3);
+        for (int i = 1; i <= 6; i++) {
+            ring.append(i, bytes(i));
+        }
+
+        assertThat(ring.capacity()).isEqualTo(4);
+        assertThat(ring.oldest()).isEqualTo(3L);
+        assertThat(ring.get(2)).isNull();
+        assertThat(ring.get(3)).isEqualTo(bytes(3));
+        assertThat(ring.get(6)).isEqualTo(bytes(6));
+    }
+
+    /**
+     * Продолжение находится по общему номеру события, а не по номеру в буфере: узлы с разным
+     * числом записей пульса отдают после одного и того же номера одни и те же события.
+     */
+    @Test
+    void whenFirstAfterEventIdThenSameEventsOnEveryNode() {
+        EventRing first = new EventRing(8);
+        EventRing second = new EventRing(8);
+        first.append(EventRing.NO_ID, bytes(0));
+        first.append(101, bytes(101));
+        first.append(105, bytes(105));
+        first.append(EventRing.NO_ID, bytes(0));
+        first.append(109, bytes(109));
+        second.append(101, bytes(101));
+        second.append(105, bytes(105));
+        second.append(109, bytes(109));
+
+        assertThat(first.get(first.firstAfter(101))).isEqualTo(bytes(105));
+        assertThat(second.get(second.firstAfter(101))).isEqualTo(bytes(105));
+        assertThat(first.get(first.firstAfter(106))).isEqualTo(bytes(0));
+        assertThat(first.get(first.firstAfter(106) + 1)).isEqualTo(bytes(109));
+        assertThat(second.get(second.firstAfter(106))).isEqualTo(bytes(109));
+        assertThat(first.firstAfter(109)).isEqualTo(first.next());
+        assertThat(second.firstAfter(200)).isEqualTo(second.next());
+    }
+
+    /**
+     * Если событие с полученным номером уже вытеснено, отдаются все хранящиеся события после него.
+     */
+    @Test
+    void whenLastEventEvictedThenAllBufferedEventsAfterIt() {
+        EventRing ring = new EventRing(2);
+        ring.append(1, bytes(1));
+        ring.append(2, bytes(2));
+        ring.append(3, bytes(3));
+
+        assertThat(ring.firstAfter(1)).isEqualTo(ring.oldest());
+        assertThat(ring.get(ring.firstAfter(1))).isEqualTo(bytes(2));
+    }
+
+    /**
+     * Неположительная ёмкость недопустима.
+     */
+    @Test
+    void whenCapacityNotPositiveThenException() {
+        assertThatThrownBy(() -> new EventRing(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Читатель, который идёт за писателем, видит каждое событие по порядку или замечает, что отстал.
+     */
+    @Test
+    void whenReadConcurrentlyThenEventsInOrderOrLagDetected() throws InterruptedException {
+        EventRing ring = new EventRing(64);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Long> read = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            long cursor = 1;
+            while (!done.get() || cursor < ring.next()) {
+                if (cursor < ring.next()) {
+                    byte[] frame = ring.get(cursor);
+                    if (frame == null) {
+                        cursor = ring.oldest();
+                        continue;
+                    }
+                    read.add(Arrays.equals(frame, bytes(cursor)) ? cursor : -cursor);
+                    cursor++;
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 100_000; i++) {
+            ring.append(i, bytes(i));
+        }
+        done.set(true);
+        reader.join();
+
+        assertThat(read).allMatch(sequence -> sequence > 0).isSorted().doesNotHaveDuplicates();
+        assertThat(read.get(read.size() - 1)).isEqualTo(100_000L);
+    }
+}
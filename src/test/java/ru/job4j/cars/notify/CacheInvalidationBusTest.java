@@ -0,0 +1,177 @@
+package ru.job4j.cars.notify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.job4j.cars.repository.CacheEpochRepository;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для сброса кешей на всех узлах (CacheInvalidationBus)
+ */
+class CacheInvalidationBusTest {
+
+    private SessionFactory sessionFactory;
+    private CacheEpochRepository cacheEpochRepository;
+    private final List<PgListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Остановка слушателей и закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        listeners.forEach(PgListener::stop);
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    private void setUp(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.cacheEpochRepository = new CacheEpochRepository(new CrudRepository(sessionFactory));
+    }
+
+    private void setUpH2() throws Exception {
+        setUp(TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties"));
+    }
+
+    private CacheInvalidationBus h2Node() {
+        return node("jdbc:h2:mem:bus", "", "", Duration.ofSeconds(5));
+    }
+
+    private CacheInvalidationBus node(String url, String username, String password, Duration reconnectDelay) {
+        PgListener listener = new PgListener(url, username, password, reconnectDelay);
+        listeners.add(listener);
+        return new CacheInvalidationBus(cacheEpochRepository, listener, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Кеш для проверок: сброшенные ключи и число полных сбросов.
+     */
+    private record Cache(List<String> evicted, AtomicInteger flushes) {
+
+        static Cache register(CacheInvalidationBus bus, String region) {
+            Cache cache = new Cache(new CopyOnWriteArrayList<>(), new AtomicInteger());
+            bus.register(region, cache.evicted()::add, cache.flushes()::incrementAndGet);
+            return cache;
+        }
+    }
+
+    /**
+     * Сброс на своём узле выполняется сразу и сдвигает номер узла.
+     */
+    @Test
+    void whenPublishThenEvictedLocallyAndEpochAdvanced() throws Exception {
+        setUpH2();
+        CacheInvalidationBus bus = h2Node();
+        Cache models = Cache.register(bus, "models");
+        Cache brands = Cache.register(bus, "brands");
+        bus.start();
+
+        bus.publish("models", "7");
+        bus.publish("models", null);
+
+        assertThat(models.evicted()).containsExactly("7");
+        assertThat(models.flushes()).hasValue(2);
+        assertThat(brands.evicted()).isEmpty();
+        assertThat(bus.epoch()).isEqualTo(2).isEqualTo(cacheEpochRepository.current());
+    }
+
+    /**
+     * Уведомление со следующим номером сбрасывает ключ, после пропуска номеров сбрасываются все кеши.
+     */
+    @Test
+    void whenMessageAfterGapThenEverythingFlushed() throws Exception {
+        setUpH2();
+        CacheInvalidationBus bus = h2Node();
+        Cache models = Cache.register(bus, "models");
+        Cache brands = Cache.register(bus, "brands");
+        bus.start();
+
+        bus.onMessage("1:models:7");
+        bus.onMessage("3:models:8");
+
+        assertThat(models.evicted()).containsExactly("7");
+        assertThat(models.flushes()).hasValue(2);
+        assertThat(brands.flushes()).hasValue(2);
+        assertThat(bus.epoch()).isEqualTo(3);
+    }
+
+    /**
+     * Сбросы другого узла без уведомлений обнаруживаются сверкой со счётчиком через один интервал.
+     */
+    @Test
+    void whenNotificationsLostThenSecondCheckFlushes() throws Exception {
+        setUpH2();
+        CacheInvalidationBus bus = h2Node();
+        CacheInvalidationBus other = h2Node();
+        Cache models = Cache.register(bus, "models");
+        bus.start();
+        other.start();
+
+        other.publish("models", "7");
+        bus.check();
+        assertThat(models.flushes()).hasValue(1);
+        bus.check();
+
+        assertThat(models.evicted()).isEmpty();
+        assertThat(models.flushes()).hasValue(2);
+        assertThat(bus.epoch()).isEqualTo(1);
+    }
+
+    /**
+     * На PostgreSQL сброс доходит до другого узла через LISTEN/NOTIFY, а после переподключения
+     * узел сбрасывает кеши целиком. Запускается с -Dtest.pg.url=jdbc:postgresql://localhost:5432/cars_test
+     * (и -Dtest.pg.username, -Dtest.pg.password); все таблицы этой базы удаляются.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "test.pg.url", matches = "jdbc:postgresql:.+")
+    void whenPostgresThenOtherNodeEvictsAndResyncsAfterReconnect() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("url", System.getProperty("test.pg.url"));
+        props.setProperty("username", System.getProperty("test.pg.username", "postgres"));
+        props.setProperty("password", System.getProperty("test.pg.password", "postgres"));
+        props.setProperty("driver", "org.postgresql.Driver");
+        props.setProperty("dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        TestDatabaseConfig.initializeDatabase(props);
+        setUp(TestDatabaseConfig.createSessionFactory(props));
+        CacheInvalidationBus writer = node(props.getProperty("url"), props.getProperty("username"),
+                props.getProperty("password"), Duration.ofMillis(100));
+        CacheInvalidationBus reader = node(props.getProperty("url"), props.getProperty("username"),
+                props.getProperty("password"), Duration.ofMillis(100));
+        Cache cache = Cache.register(reader, "models");
+        listeners.forEach(PgListener::start);
+        awaitTrue(() -> listeners.stream().allMatch(PgListener::isConnected));
+        int flushesAfterConnect = cache.flushes().get();
+
+        writer.publish("models", "7");
+        awaitTrue(() -> cache.evicted().contains("7"));
+        listeners.get(1).stop();
+        writer.publish("models", "8");
+        listeners.get(1).start();
+        awaitTrue(() -> cache.flushes().get() > flushesAfterConnect);
+
+        assertThat(cache.evicted()).containsExactly("7");
+        assertThat(reader.epoch()).isEqualTo(cacheEpochRepository.current());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,200 @@
+package ru.job4j.cars.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.notify.PgListener;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.ListingEventRepository;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты для доставки событий изменений объявлений (ListingEventRelay)
+ */
+class ListingEventRelayTest {
+
+    private SessionFactory sessionFactory;
+    private CrudRepository crudRepository;
+    private ListingEventRepository listingEventRepository;
+    private final List<Long> received = new ArrayList<>();
+
+    /**
+     * Инициализация базы перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        this.crudRepository = new CrudRepository(sessionFactory);
+        this.listingEventRepository = new ListingEventRepository(crudRepository);
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    private ListingEventRelay relay(Duration gapTimeout, ListingEventListener... listeners) {
+        return relay(gapTimeout, Duration.ofMinutes(1), new SimpleMeterRegistry(), listeners);
+    }
+
+    private ListingEventRelay relay(Duration gapTimeout, Duration missingTimeout, SimpleMeterRegistry registry,
+                                    ListingEventListener... listeners) {
+        ListingEventRelay relay = new ListingEventRelay(listingEventRepository, List.of(listeners),
+                new PgListener("jdbc:h2:mem:relay", "", "", Duration.ofSeconds(5)),
+                Duration.ofSeconds(1), 2, gapTimeout, registry);
+        relay.setMissingTimeout(missingTimeout);
+        return relay;
+    }
+
+    private void record(long postId) {
+        crudRepository.run(session -> ListingEventRepository.record(session, postId,
+                ListingEvent.Entity.POST, postId, ListingEvent.Change.UPDATED));
+    }
+
+    /**
+     * Событие с выданным, но ещё не видимым номером: под другим номером вставить его нельзя,
+     * поэтому дыра делается удалением события.
+     */
+    private long recordGap(long postId) {
+        record(postId);
+        long id = listingEventRepository.findLastId().orElseThrow();
+        crudRepository.run(session -> session.createNativeMutationQuery("DELETE FROM listing_events WHERE id = :id")
+                .setParameter("id", id)
+                .executeUpdate());
+        return id;
+    }
+
+    /**
+     * Событие с номером дыры становится видно: транзакция зафиксировалась позже следующих.
+     */
+    private void commitLate(long id, long postId) {
+        crudRepository.run(session -> session.createNativeMutationQuery("""
+                        INSERT INTO listing_events (id, post_id, entity, entity_id, change_type, created_at)
+                        VALUES (:id, :postId, 'POST', :postId, 'UPDATED', CURRENT_TIMESTAMP)
+                        """)
+                .setParameter("id", id)
+                .setParameter("postId", postId)
+                .executeUpdate());
+    }
+
+    private ListingEventListener collect() {
+        return events -> events.forEach(event -> received.add(event.postId()));
+    }
+
+    /**
+     * Старые события не доставляются, новые доставляются порциями по порядку.
+     */
+    @Test
+    void whenPollThenOnlyEventsAfterStartInOrder() {
+        record(1L);
+        ListingEventRelay relay = relay(Duration.ofMinutes(1), collect());
+        assertThat(relay.poll()).isZero();
+
+        record(2L);
+        record(3L);
+        record(4L);
+
+        assertThat(relay.poll()).isEqualTo(3);
+        assertThat(received).containsExactly(2L, 3L, 4L);
+        assertThat(relay.poll()).isZero();
+    }
+
+    /**
+     * Событие после дыры ждёт, пока дыра не заполнится или не выйдет время ожидания,
+     * а затем доставляется без неё; недостающий номер запоминается.
+     */
+    @Test
+    void whenGapThenWaitUntilTimeoutAndThenContinue() {
+        ListingEventRelay waiting = relay(Duration.ofMinutes(1), collect());
+        waiting.poll();
+        ListingEventRelay continuing = relay(Duration.ZERO, collect());
+        continuing.poll();
+        record(1L);
+        recordGap(2L);
+        record(3L);
+
+        assertThat(waiting.poll()).isEqualTo(1);
+        assertThat(waiting.poll()).isZero();
+        assertThat(continuing.poll()).isEqualTo(2);
+        assertThat(continuing.missing()).isEqualTo(1);
+        assertThat(received).containsExactly(1L, 1L, 3L);
+    }
+
+    /**
+     * Событие транзакции, зафиксировавшейся позже следующих и позже ожидания дыры, всё равно доставляется.
+     */
+    @Test
+    void whenEventCommittedAfterGapTimeoutThenDeliveredLate() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ListingEventRelay relay = relay(Duration.ZERO, Duration.ofMinutes(1), registry, collect());
+        relay.poll();
+        long gap = recordGap(2L);
+        record(3L);
+        assertThat(relay.poll()).isEqualTo(1);
+
+        commitLate(gap, 2L);
+
+        assertThat(relay.poll()).isEqualTo(1);
+        assertThat(received).containsExactly(3L, 2L);
+        assertThat(relay.missing()).isZero();
+        assertThat(registry.get("outbox.skipped").counter().count()).isZero();
+        assertThat(relay.poll()).isZero();
+    }
+
+    /**
+     * Номер, не появившийся за время ожидания недостающих, считается откаченным.
+     */
+    @Test
+    void whenMissingIdNeverAppearsThenCountedAsSkipped() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ListingEventRelay relay = relay(Duration.ZERO, Duration.ZERO, registry, collect());
+        relay.poll();
+        long gap = recordGap(2L);
+        record(3L);
+        relay.poll();
+
+        assertThat(relay.poll()).isZero();
+        commitLate(gap, 2L);
+
+        assertThat(relay.poll()).isZero();
+        assertThat(received).containsExactly(3L);
+        assertThat(relay.missing()).isZero();
+        assertThat(registry.get("outbox.skipped").counter().count()).isEqualTo(1.0);
+    }
+
+    /**
+     * После ошибки подписчика курсор не сдвигается и порция доставляется ещё раз.
+     */
+    @Test
+    void whenListenerFailsThenBatchRedelivered() {
+        boolean[] fail = {true};
+        ListingEventRelay relay = relay(Duration.ofMinutes(1), collect(), events -> {
+            if (fail[0]) {
+                throw new IllegalStateException("отказ подписчика");
+            }
+        });
+        relay.poll();
+        long cursor = relay.cursor();
+        record(1L);
+
+        assertThatThrownBy(relay::poll).isInstanceOf(IllegalStateException.class);
+        assertThat(relay.cursor()).isEqualTo(cursor);
+        fail[0] = false;
+        assertThat(relay.poll()).isEqualTo(1);
+        assertThat(received).containsExactly(1L, 1L);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.job4j.cars.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Тесты для кучи лучших объектов (TopKHeap) и затухающей оценки (DecayedScore)
+ */
+class TopKHeapTest {
+
+    /**
+     * Новый объект вытесняет наименьшую оценку, только если его оценка выше.
+     */
+    @Test
+    void whenHeapFullThenLowestScoreEvicted() {
+        TopKHeap heap = new TopKHeap(2);
+        heap.offer(1, 1.0);
+        heap.offer(2, 3.0);
+
+        assertThat(heap.offer(3, 0.5)).isFalse();
+        assertThat(heap.offer(4, 2.0)).isTrue();
+
+        assertThat(heap.sorted()).containsExactly(2L, 4L);
+        assertThat(heap.score(1)).isEmpty();
+    }
+
+    /**
+     * После случайных изменений и удалений куча совпадает с K лучшими среди оставшихся в ней объектов.
+     */
+    @Test
+    void whenScoresChangeAndRemovedThenOrderMatchesSort() {
+        TopKHeap heap = new TopKHeap(50);
+        Map<Long, Double> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            long id = random.nextInt(200);
+            if (random.nextInt(5) == 0) {
+                assertThat(heap.remove(id)).isEqualTo(expected.remove(id) != null);
+                continue;
+            }
+            double score = random.nextDouble();
+            boolean known = expected.containsKey(id);
+            double min = expected.values().stream().min(Double::compare).orElse(Double.NEGATIVE_INFINITY);
+            if (heap.offer(id, score)) {
+                if (!known && expected.size() == 50) {
+                    expected.values().remove(min);
+                }
+                expected.put(id, score);
+            } else {
+                assertThat(expected).hasSize(50).doesNotContainKey(id);
+                assertThat(score).isLessThanOrEqualTo(min);
+            }
+        }
+
+        assertThat(heap.size()).isEqualTo(expected.size());
+        assertThat(heap.sorted()).containsExactly(expected.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                .mapToLong(Map.Entry::getKey)
+                .toArray());
+    }
+
+    /**
+     * Событие, старшее на период полураспада, весит вдвое меньше, а суммы оценок не переполняются.
+     */
+    @Test
+    void whenEventOlderByHalfLifeThenHalfWeight() {
+        DecayedScore decay = new DecayedScore(Duration.ofDays(1));
+        long now = DecayedScore.EPOCH_MILLIS + Duration.ofDays(3650).toMillis();
+        double old = decay.of(2, now - Duration.ofDays(1).toMillis());
+        double fresh = decay.of(1, now);
+
+        assertThat(old).isCloseTo(fresh, within(1e-9));
+        assertThat(DecayedScore.plus(old, fresh)).isCloseTo(decay.of(2, now), within(1e-9));
+    }
+}
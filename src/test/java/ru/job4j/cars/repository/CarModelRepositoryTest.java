@@ -4,6 +4,8 @@ import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.job4j.cars.dto.CarModelDto;
+import ru.job4j.cars.model.Brand;
 import ru.job4j.cars.model.CarModel;
 import ru.job4j.cars.testutil.TestDatabaseConfig;
 
@@ -11,6 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Тесты для репозитория моделей автомобилей (CarModelRepository)
@@ -45,9 +48,7 @@ class CarModelRepositoryTest {
      * Создает тестовую модель автомобиля.
      */
     private CarModel createTestCarModel(String name) {
-        CarModel carModel = new CarModel();
-        carModel.setName(name + "_" + System.currentTimeMillis());
-        return carModel;
+        return createTestCarModel(name, createTestBrand("TestBrand"));
     }
 
     /**
@@ -157,4 +158,51 @@ class CarModelRepositoryTest {
         }
         assertThat(deletionResult).isTrue();
     }
-}
\ No newline at end of file
+
+    /**
+     * Модели марки возвращаются по названию, модели других марок — нет;
+     * модель находится вместе с маркой, только если относится к ней.
+     */
+    @Test
+    void whenFindByBrandThenOnlyModelsOfBrandSortedByName() {
+        Brand toyota = createTestBrand("Toyota");
+        Brand lada = createTestBrand("Lada");
+        CarModel rav4 = carModelRepository.create(createTestCarModel("RAV4", toyota));
+        CarModel camry = carModelRepository.create(createTestCarModel("Camry", toyota));
+        CarModel vesta = carModelRepository.create(createTestCarModel("Vesta", lada));
+
+        List<CarModelDto> models = carModelRepository.findAllByBrandId(toyota.getId());
+
+        assertThat(models).extracting(CarModelDto::getId).containsExactly(camry.getId(), rav4.getId());
+        assertThat(carModelRepository.findByIdAndBrandId(vesta.getId(), lada.getId())).isPresent();
+        assertThat(carModelRepository.findByIdAndBrandId(vesta.getId(), toyota.getId())).isEmpty();
+    }
+
+    /**
+     * Модель без марки не сохраняется, и после миграций в базе не остаётся моделей без марки.
+     */
+    @Test
+    void whenModelWithoutBrandThenNotSaved() {
+        CarModel carModel = createTestCarModel("Unknown", null);
+
+        long withoutBrand = crudRepository.tx(session -> session.createNativeQuery(
+                "SELECT COUNT(*) FROM models WHERE brand_id IS NULL", Long.class).getSingleResult());
+
+        assertThatThrownBy(() -> carModelRepository.create(carModel)).isInstanceOf(RuntimeException.class);
+        assertThat(withoutBrand).isZero();
+    }
+
+    private CarModel createTestCarModel(String name, Brand brand) {
+        CarModel carModel = new CarModel();
+        carModel.setName(name + "_" + System.currentTimeMillis());
+        carModel.setBrand(brand);
+        return carModel;
+    }
+
+    private Brand createTestBrand(String name) {
+        Brand brand = new Brand();
+        brand.setName(name + "_" + System.nanoTime());
+        crudRepository.run(session -> session.persist(brand));
+        return brand;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.job4j.cars.repository;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+import ru.job4j.cars.testutil.TestRepositoryUtils;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для репозитория избранного (FavoriteRepository)
+ */
+class FavoriteRepositoryTest {
+
+    private SessionFactory sessionFactory;
+    private FavoriteRepository favoriteRepository;
+    private PostRepository postRepository;
+    private TestRepositoryUtils testUtils;
+
+    /**
+     * Инициализация репозиториев перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        CrudRepository crudRepository = new CrudRepository(sessionFactory);
+        this.favoriteRepository = new FavoriteRepository(crudRepository);
+        this.postRepository = new PostRepository(crudRepository);
+        this.testUtils = new TestRepositoryUtils(sessionFactory, crudRepository);
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    /**
+     * Объявление добавляется в избранное один раз и убирается из него.
+     */
+    @Test
+    void whenAddTwiceThenStoredOnceUntilRemoved() {
+        User user = testUtils.createTestUser("favuser");
+        Post post = postRepository.create(testUtils.createTestPost(user, testUtils.createTestCar("FAVVIN01"),
+                PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+
+        assertThat(favoriteRepository.add(user.getId(), post.getId())).isTrue();
+        assertThat(favoriteRepository.add(user.getId(), post.getId())).isFalse();
+        assertThat(favoriteRepository.findPostIdsByUserId(user.getId())).containsExactly(post.getId());
+
+        assertThat(favoriteRepository.remove(user.getId(), post.getId())).isTrue();
+        assertThat(favoriteRepository.remove(user.getId(), post.getId())).isFalse();
+        assertThat(favoriteRepository.findPostIdsByUserId(user.getId())).isEmpty();
+    }
+
+    /**
+     * Несуществующее объявление в избранное не добавляется.
+     */
+    @Test
+    void whenPostMissingThenNotAdded() {
+        User user = testUtils.createTestUser("favuser");
+
+        assertThat(favoriteRepository.add(user.getId(), Long.MAX_VALUE)).isFalse();
+        assertThat(favoriteRepository.findPostIdsByUserId(user.getId())).isEmpty();
+    }
+
+    /**
+     * Пакетные приращения числа добавлений в избранное складываются, в том числе отрицательные.
+     */
+    @Test
+    void whenAddFavoriteCountsThenCountUpdated() {
+        User user = testUtils.createTestUser("favuser");
+        Post post = postRepository.create(testUtils.createTestPost(user, testUtils.createTestCar("FAVVIN02"),
+                PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+
+        postRepository.addFavoriteCounts(Map.of(post.getId(), 3L));
+        postRepository.addFavoriteCounts(Map.of(post.getId(), -1L));
+
+        assertThat(postRepository.findById(Math.toIntExact(post.getId())).orElseThrow().getFavoriteCount())
+                .isEqualTo(2);
+    }
+}
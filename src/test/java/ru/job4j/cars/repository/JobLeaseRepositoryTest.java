@@ -0,0 +1,64 @@
+package ru.job4j.cars.repository;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для репозитория аренд фоновых задач (JobLeaseRepository)
+ */
+class JobLeaseRepositoryTest {
+
+    private SessionFactory sessionFactory;
+    private JobLeaseRepository jobLeaseRepository;
+
+    /**
+     * Инициализация репозитория перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        this.jobLeaseRepository = new JobLeaseRepository(new CrudRepository(sessionFactory));
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    /**
+     * Действующую аренду продлевает только владелец, а другой узел получает её после освобождения.
+     */
+    @Test
+    void whenLeaseHeldThenOnlyOwnerRenewsUntilReleased() {
+        assertThat(jobLeaseRepository.tryAcquire("job", "node-1", Duration.ofMinutes(5))).isTrue();
+        assertThat(jobLeaseRepository.tryAcquire("job", "node-2", Duration.ofMinutes(5))).isFalse();
+        assertThat(jobLeaseRepository.tryAcquire("job", "node-1", Duration.ofMinutes(5))).isTrue();
+
+        jobLeaseRepository.release("job", "node-1");
+
+        assertThat(jobLeaseRepository.tryAcquire("job", "node-2", Duration.ofMinutes(5))).isTrue();
+        assertThat(jobLeaseRepository.findByName("job").orElseThrow().getOwner()).isEqualTo("node-2");
+    }
+
+    /**
+     * Просроченную аренду захватывает любой узел.
+     */
+    @Test
+    void whenLeaseExpiredThenOtherNodeAcquires() {
+        assertThat(jobLeaseRepository.tryAcquire("job", "node-1", Duration.ofMillis(-1))).isTrue();
+
+        assertThat(jobLeaseRepository.tryAcquire("job", "node-2", Duration.ofMinutes(5))).isTrue();
+    }
+}
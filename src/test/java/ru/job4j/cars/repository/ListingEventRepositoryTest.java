@@ -0,0 +1,146 @@
+package ru.job4j.cars.repository;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.model.Car;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.outbox.ListingEvent;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+import ru.job4j.cars.testutil.TestRepositoryUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Тесты для репозитория событий изменений объявлений (ListingEventRepository)
+ */
+class ListingEventRepositoryTest {
+
+    private SessionFactory sessionFactory;
+    private ListingEventRepository listingEventRepository;
+    private PostRepository postRepository;
+    private CarRepository carRepository;
+    private PostPhotoRepository postPhotoRepository;
+    private TestRepositoryUtils testUtils;
+
+    /**
+     * Инициализация репозиториев перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        CrudRepository crudRepository = new CrudRepository(sessionFactory);
+        this.listingEventRepository = new ListingEventRepository(crudRepository);
+        this.postRepository = new PostRepository(crudRepository);
+        this.carRepository = new CarRepository(crudRepository);
+        this.postPhotoRepository = new PostPhotoRepository(crudRepository);
+        this.testUtils = new TestRepositoryUtils(sessionFactory, crudRepository);
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    private Post post(User author, Car car) {
+        return postRepository.create(testUtils.createTestPost(author, car,
+                PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+    }
+
+    private List<ListingEvent> events() {
+        return listingEventRepository.findAfter(0, 100);
+    }
+
+    /**
+     * Создание, изменение и удаление объявления записывают события в порядке изменений.
+     */
+    @Test
+    void whenCreateUpdateDeletePostThenEventsInOrder() {
+        Post post = post(testUtils.createTestUser("author"), testUtils.createTestCar("EVENTVIN01"));
+        post.setPrice(new BigDecimal("900000.00"));
+        postRepository.update(post);
+        postRepository.delete(Math.toIntExact(post.getId()));
+        postRepository.delete(Math.toIntExact(post.getId()));
+
+        assertThat(events())
+                .extracting(ListingEvent::postId, ListingEvent::entity, ListingEvent::entityId, ListingEvent::change)
+                .containsExactly(
+                        tuple(post.getId(), ListingEvent.Entity.POST, post.getId(), ListingEvent.Change.CREATED),
+                        tuple(post.getId(), ListingEvent.Entity.POST, post.getId(), ListingEvent.Change.UPDATED),
+                        tuple(post.getId(), ListingEvent.Entity.POST, post.getId(), ListingEvent.Change.DELETED));
+        assertThat(events()).extracting(ListingEvent::id).isSorted();
+    }
+
+    /**
+     * Изменение автомобиля записывает событие для каждого его объявления.
+     */
+    @Test
+    void whenUpdateCarThenEventForEveryPostOfCar() {
+        User author = testUtils.createTestUser("author");
+        Car car = testUtils.createTestCar("EVENTVIN02");
+        Post first = post(author, car);
+        Post second = post(author, car);
+        long lastId = listingEventRepository.findLastId().orElseThrow();
+
+        car.setMileage(20000L);
+        carRepository.update(car);
+
+        assertThat(listingEventRepository.findAfter(lastId, 100))
+                .extracting(ListingEvent::postId, ListingEvent::entity, ListingEvent::entityId, ListingEvent::change)
+                .containsExactly(
+                        tuple(first.getId(), ListingEvent.Entity.CAR, car.getId(), ListingEvent.Change.UPDATED),
+                        tuple(second.getId(), ListingEvent.Entity.CAR, car.getId(), ListingEvent.Change.UPDATED));
+    }
+
+    /**
+     * Добавление и удаление фотографии записывают события объявления с id фотографии.
+     */
+    @Test
+    void whenCreateAndDeletePhotoThenPhotoEvents() {
+        Post post = post(testUtils.createTestUser("author"), testUtils.createTestCar("EVENTVIN03"));
+        PostPhoto photo = new PostPhoto();
+        photo.setPhotoPath("event_photo.jpg");
+        photo.setPost(post);
+        postPhotoRepository.create(photo);
+        postPhotoRepository.delete(Math.toIntExact(photo.getId()));
+
+        assertThat(listingEventRepository.findAfter(0, 100))
+                .extracting(ListingEvent::entity, ListingEvent::entityId, ListingEvent::change)
+                .containsExactly(
+                        tuple(ListingEvent.Entity.POST, post.getId(), ListingEvent.Change.CREATED),
+                        tuple(ListingEvent.Entity.PHOTO, photo.getId(), ListingEvent.Change.CREATED),
+                        tuple(ListingEvent.Entity.PHOTO, photo.getId(), ListingEvent.Change.DELETED));
+    }
+
+    /**
+     * Порция ограничена размером, старые события удаляются по времени записи.
+     */
+    @Test
+    void whenFindAfterWithLimitAndDeleteBeforeThenPagedAndPurged() {
+        User author = testUtils.createTestUser("author");
+        post(author, testUtils.createTestCar("EVENTVIN04"));
+        post(author, testUtils.createTestCar("EVENTVIN05"));
+        post(author, testUtils.createTestCar("EVENTVIN06"));
+        List<ListingEvent> first = listingEventRepository.findAfter(0, 2);
+
+        assertThat(first).hasSize(2);
+        assertThat(listingEventRepository.findAfter(first.get(1).id(), 2)).hasSize(1);
+        assertThat(listingEventRepository.deleteBefore(LocalDateTime.now().minusDays(1))).isZero();
+        assertThat(listingEventRepository.deleteBefore(LocalDateTime.now().plusMinutes(1))).isEqualTo(3);
+        assertThat(listingEventRepository.findLastId()).isEmpty();
+    }
+}
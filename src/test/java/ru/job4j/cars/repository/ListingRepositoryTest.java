@@ -0,0 +1,120 @@
+package ru.job4j.cars.repository;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.model.Car;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.search.ListingRow;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+import ru.job4j.cars.testutil.TestRepositoryUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для репозитория строк индекса поиска (ListingRepository)
+ */
+class ListingRepositoryTest {
+
+    private SessionFactory sessionFactory;
+    private PostRepository postRepository;
+    private ListingRepository listingRepository;
+    private TestRepositoryUtils testUtils;
+
+    /**
+     * Инициализация репозиториев перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        CrudRepository crudRepository = new CrudRepository(sessionFactory);
+        this.postRepository = new PostRepository(crudRepository);
+        this.listingRepository = new ListingRepository(crudRepository);
+        this.testUtils = new TestRepositoryUtils(sessionFactory, crudRepository);
+        testUtils.deleteSeedPosts();
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    /**
+     * Строка содержит id справочников автомобиля, цену в копейках и время создания в миллисекундах.
+     */
+    @Test
+    void whenFindActiveRowThenAllColumnsFilled() {
+        User user = testUtils.createTestUser("testuser");
+        Car car = testUtils.createTestCar("LISTVIN01");
+        Post post = postRepository.create(testUtils.createTestPost(user, car, PostStatus.ACTIVE, new BigDecimal("1234567.89")));
+
+        ListingRow row = listingRepository.findActiveRow(post.getId()).orElseThrow();
+
+        assertThat(row.postId()).isEqualTo(post.getId());
+        assertThat(row.brandId()).isEqualTo(car.getBrand().getId());
+        assertThat(row.carColorId()).isEqualTo(car.getCarColor().getId());
+        assertThat(row.wheelSideId()).isEqualTo(car.getWheelSide().getId());
+        assertThat(row.priceCents()).isEqualTo(123_456_789L);
+        assertThat(row.year()).isEqualTo(2020L);
+        assertThat(row.mileage()).isEqualTo(10_000L);
+        assertThat(row.createdAt()).isEqualTo(post.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    /**
+     * Неактивные объявления не попадают в индекс, страницы идут по возрастанию id.
+     */
+    @Test
+    void whenFindActiveRowsAfterThenOnlyActiveInIdOrder() {
+        User user = testUtils.createTestUser("testuser");
+        Post first = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("LISTVIN02"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post sold = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("LISTVIN03"), PostStatus.SOLD, new BigDecimal("1000000.00")));
+        Post second = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("LISTVIN04"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+
+        List<ListingRow> firstPage = listingRepository.findActiveRowsAfter(0L, 1);
+        List<ListingRow> secondPage = listingRepository.findActiveRowsAfter(firstPage.get(0).postId(), 10);
+
+        assertThat(firstPage).extracting(ListingRow::postId).containsExactly(first.getId());
+        assertThat(secondPage).extracting(ListingRow::postId).containsExactly(second.getId());
+        assertThat(listingRepository.findActiveRow(sold.getId())).isEmpty();
+    }
+
+    /**
+     * Изменение объявления сдвигает метку последнего изменения, а изменённые после метки
+     * объявления находятся с любым статусом.
+     */
+    @Test
+    void whenPostUpdatedThenFoundAfterWatermark() {
+        User user = testUtils.createTestUser("testuser");
+        Post unchanged = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("LISTVIN05"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post changed = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("LISTVIN06"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        LocalDateTime watermark = listingRepository.findLastUpdatedAt().orElseThrow();
+
+        changed.setStatus(PostStatus.SOLD);
+        postRepository.update(changed);
+
+        assertThat(listingRepository.findLastUpdatedAt().orElseThrow()).isAfter(watermark);
+        assertThat(listingRepository.findIdsUpdatedAfter(unchanged.getUpdatedAt())).contains(changed.getId())
+                .doesNotContain(unchanged.getId());
+        assertThat(listingRepository.findActiveIds()).containsExactly(unchanged.getId());
+        assertThat(listingRepository.findActiveRows(List.of(unchanged.getId(), changed.getId())))
+                .extracting(ListingRow::postId).containsExactly(unchanged.getId());
+    }
+}
@@ -0,0 +1,117 @@
+package ru.job4j.cars.repository;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.model.Car;
+import ru.job4j.cars.model.ListingSearch;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+import ru.job4j.cars.testutil.TestRepositoryUtils;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для репозитория плоской таблицы поиска (ListingSearchRepository)
+ */
+class ListingSearchRepositoryTest {
+
+    private SessionFactory sessionFactory;
+    private CrudRepository crudRepository;
+    private PostRepository postRepository;
+    private PostPhotoRepository postPhotoRepository;
+    private ListingSearchRepository listingSearchRepository;
+    private TestRepositoryUtils testUtils;
+
+    /**
+     * Инициализация репозиториев перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        this.crudRepository = new CrudRepository(sessionFactory);
+        this.postRepository = new PostRepository(crudRepository);
+        this.postPhotoRepository = new PostPhotoRepository(crudRepository);
+        this.listingSearchRepository = new ListingSearchRepository(crudRepository);
+        this.testUtils = new TestRepositoryUtils(sessionFactory, crudRepository);
+        testUtils.deleteSeedPosts();
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    /**
+     * Создание объявления и фотографии заполняет строку поиска атрибутами автомобиля и обложкой.
+     */
+    @Test
+    void whenPostAndPhotoCreatedThenRowHasCarAttributesAndCover() {
+        User user = testUtils.createTestUser("testuser");
+        Car car = testUtils.createTestCar("FLATVIN01");
+        Post post = postRepository.create(testUtils.createTestPost(user, car, PostStatus.ACTIVE, new BigDecimal("1500000.00")));
+        PostPhoto photo = new PostPhoto();
+        photo.setPhotoPath("cover.jpg");
+        photo.setPost(post);
+        postPhotoRepository.create(photo);
+
+        ListingSearch row = listingSearchRepository.findByPostId(post.getId()).orElseThrow();
+
+        assertThat(row.getStatus()).isEqualTo(PostStatus.ACTIVE);
+        assertThat(row.getPrice()).isEqualByComparingTo("1500000.00");
+        assertThat(row.getBrandId()).isEqualTo(car.getBrand().getId());
+        assertThat(row.getModelId()).isEqualTo(car.getModel().getId());
+        assertThat(row.getWheelSideId()).isEqualTo(car.getWheelSide().getId());
+        assertThat(row.getYearOfManufacture()).isEqualTo(car.getYearOfManufacture());
+        assertThat(row.getCoverPhotoPath()).isEqualTo("cover.jpg");
+    }
+
+    /**
+     * Изменение объявления обновляет строку поиска, а удаление убирает её.
+     */
+    @Test
+    void whenPostUpdatedThenRowUpdatedAndWhenDeletedThenRowRemoved() {
+        User user = testUtils.createTestUser("testuser");
+        Post post = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("FLATVIN02"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+
+        post.setStatus(PostStatus.SOLD);
+        postRepository.update(post);
+        assertThat(listingSearchRepository.findByPostId(post.getId()).orElseThrow().getStatus())
+                .isEqualTo(PostStatus.SOLD);
+
+        postRepository.delete(post.getId().intValue());
+        assertThat(listingSearchRepository.findByPostId(post.getId())).isEmpty();
+    }
+
+    /**
+     * Дозаполнение добавляет строки только объявлениям, у которых их нет.
+     */
+    @Test
+    void whenRowMissingThenBackfillRestoresIt() {
+        User user = testUtils.createTestUser("testuser");
+        Post first = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("FLATVIN03"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post second = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("FLATVIN04"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        crudRepository.run(session -> session.createNativeMutationQuery("DELETE FROM listing_search WHERE post_id = :id")
+                .setParameter("id", second.getId())
+                .executeUpdate());
+
+        assertThat(listingSearchRepository.backfill(0, 10)).containsExactly(second.getId());
+        assertThat(listingSearchRepository.backfill(0, 10)).isEmpty();
+        assertThat(listingSearchRepository.findByPostId(first.getId())).isPresent();
+        assertThat(listingSearchRepository.findByPostId(second.getId())).isPresent();
+    }
+}
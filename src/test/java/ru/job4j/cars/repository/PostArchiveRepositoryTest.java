@@ -0,0 +1,94 @@
+package ru.job4j.cars.repository;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+import ru.job4j.cars.testutil.TestRepositoryUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для репозитория архива объявлений (PostArchiveRepository)
+ */
+class PostArchiveRepositoryTest {
+
+    private SessionFactory sessionFactory;
+    private PostRepository postRepository;
+    private PostPhotoRepository postPhotoRepository;
+    private PostArchiveRepository postArchiveRepository;
+    private TestRepositoryUtils testUtils;
+
+    /**
+     * Инициализация репозиториев перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        CrudRepository crudRepository = new CrudRepository(sessionFactory);
+        this.postRepository = new PostRepository(crudRepository);
+        this.postPhotoRepository = new PostPhotoRepository(crudRepository);
+        this.postArchiveRepository = new PostArchiveRepository(crudRepository);
+        this.testUtils = new TestRepositoryUtils(sessionFactory, crudRepository);
+        testUtils.deleteSeedPosts();
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    /**
+     * Для архивации находятся только неактивные объявления, не менявшиеся до границы.
+     */
+    @Test
+    void whenFindArchivableThenOnlyInactiveBeforeBoundary() {
+        User user = testUtils.createTestUser("testuser");
+        postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("ARCHVIN01"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post sold = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("ARCHVIN02"), PostStatus.SOLD, new BigDecimal("1000000.00")));
+
+        assertThat(postArchiveRepository.findArchivableIds(LocalDateTime.now().plusMinutes(1), 10))
+                .containsExactly(sold.getId());
+        assertThat(postArchiveRepository.findArchivableIds(LocalDateTime.now().minusDays(1), 10)).isEmpty();
+    }
+
+    /**
+     * Архивация удаляет объявление и его фотографии из основных таблиц,
+     * а ставшее активным объявление не трогает.
+     */
+    @Test
+    void whenArchiveThenPostAndPhotosMovedAndActiveKept() {
+        User user = testUtils.createTestUser("testuser");
+        Post active = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("ARCHVIN03"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post sold = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("ARCHVIN04"), PostStatus.SOLD, new BigDecimal("1000000.00")));
+        PostPhoto photo = new PostPhoto();
+        photo.setPhotoPath("archived.jpg");
+        photo.setPost(sold);
+        postPhotoRepository.create(photo);
+
+        List<Long> archived = postArchiveRepository.archive(List.of(active.getId(), sold.getId()), LocalDateTime.now());
+
+        assertThat(archived).containsExactly(sold.getId());
+        assertThat(postRepository.findById(sold.getId().intValue())).isEmpty();
+        assertThat(postPhotoRepository.findByPostId(sold.getId().intValue())).isEmpty();
+        assertThat(postRepository.findById(active.getId().intValue())).isPresent();
+    }
+}
@@ -4,6 +4,7 @@ import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.job4j.cars.image.PhotoHash;
 import ru.job4j.cars.model.*;
 import ru.job4j.cars.testutil.TestDatabaseConfig;
 import ru.job4j.cars.testutil.TestRepositoryUtils;
@@ -14,6 +15,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Тесты для репозитория фотографий объявлений (PostPhotoRepository)
@@ -122,6 +124,7 @@ class PostPhotoRepositoryTest {
     private CarModel createTestModel() {
         CarModel model = new CarModel();
         model.setName("TestModel_" + System.currentTimeMillis());
+        model.setBrand(createTestBrand());
         crudRepository.run(session -> session.persist(model));
         return model;
     }
@@ -211,7 +214,7 @@ class PostPhotoRepositoryTest {
      */
     private Post createTestPost(User user, Car car) {
         Post post = new Post();
-        post.setStatus("active");
+        post.setStatus(PostStatus.ACTIVE);
         post.setDescription("Test description");
         post.setCreatedAt(LocalDateTime.now());
         post.setPrice(new BigDecimal("1000000.00"));
@@ -253,6 +256,79 @@ class PostPhotoRepositoryTest {
         assertThat(foundPhoto.get().getPhotoPath()).isEqualTo(photo.getPhotoPath());
     }
 
+    /**
+     * Тестирует сохранение нескольких фотографий одной транзакцией: ошибка в одной отменяет все.
+     */
+    @Test
+    void whenCreateAllWithInvalidPhotoThenNothingSaved() {
+        User user = createTestUser("testuser");
+        Car car = createTestCar("VIN001A");
+        Post post = createTestPost(user, car);
+        List<PostPhoto> valid = List.of(createTestPostPhoto(post, "/photos/all1.jpg"),
+                createTestPostPhoto(post, "/photos/all2.jpg"));
+
+        PostPhoto withoutPath = createTestPostPhoto(post, "/photos/all4.jpg");
+        withoutPath.setPhotoPath(null);
+        postPhotoRepository.createAll(valid);
+
+        assertThatThrownBy(() -> postPhotoRepository.createAll(List.of(
+                createTestPostPhoto(post, "/photos/all3.jpg"), withoutPath)))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(postPhotoRepository.findByPostId(Math.toIntExact(post.getId())))
+                .extracting(PostPhoto::getId).containsExactly(valid.get(0).getId(), valid.get(1).getId());
+    }
+
+    /**
+     * Тестирует сохранение метаданных фотографии: размеров, размера файла, типа и заглушки.
+     */
+    @Test
+    void whenCreatePostPhotoWithMetadataThenMetadataSaved() {
+        User user = createTestUser("testuser");
+        Car car = createTestCar("VIN001M");
+        Post post = createTestPost(user, car);
+        PostPhoto photo = createTestPostPhoto(post, "/photos/car1.jpg");
+        photo.setWidth(1920);
+        photo.setHeight(1080);
+        photo.setByteSize(524288L);
+        photo.setMimeType("image/jpeg");
+        photo.setPlaceholder("data:image/png;base64,iVBORw0KGgo=");
+
+        PostPhoto savedPhoto = postPhotoRepository.create(photo);
+
+        Optional<PostPhoto> foundPhoto = postPhotoRepository.findById(Math.toIntExact(savedPhoto.getId()));
+        assertThat(foundPhoto).isPresent();
+        assertThat(foundPhoto.get().getWidth()).isEqualTo(1920);
+        assertThat(foundPhoto.get().getHeight()).isEqualTo(1080);
+        assertThat(foundPhoto.get().getByteSize()).isEqualTo(524288L);
+        assertThat(foundPhoto.get().getMimeType()).isEqualTo("image/jpeg");
+        assertThat(foundPhoto.get().getPlaceholder()).isEqualTo("data:image/png;base64,iVBORw0KGgo=");
+    }
+
+    /**
+     * Тестирует постраничную выборку перцептивных хешей: фотографии без хеша пропускаются.
+     */
+    @Test
+    void whenFindPerceptualHashesAfterThenOnlyHashedPhotosInIdOrder() {
+        User user = createTestUser("testuser");
+        Car car = createTestCar("VIN001H");
+        Post post = createTestPost(user, car);
+        PostPhoto first = createTestPostPhoto(post, "/photos/hash1.jpg");
+        first.setPerceptualHash(0x0F0F0F0F0F0F0F0FL);
+        postPhotoRepository.create(first);
+        postPhotoRepository.create(createTestPostPhoto(post, "/photos/nohash.jpg"));
+        PostPhoto second = createTestPostPhoto(post, "/photos/hash2.jpg");
+        second.setPerceptualHash(-1L);
+        postPhotoRepository.create(second);
+
+        List<PhotoHash> all = postPhotoRepository.findPerceptualHashesAfter(0L, 10);
+        List<PhotoHash> afterFirst = postPhotoRepository.findPerceptualHashesAfter(first.getId(), 10);
+
+        assertThat(all).extracting(PhotoHash::photoId).containsExactly(first.getId(), second.getId());
+        assertThat(all).extracting(PhotoHash::hash).containsExactly(0x0F0F0F0F0F0F0F0FL, -1L);
+        assertThat(all).allMatch(hash -> hash.postId() == post.getId());
+        assertThat(afterFirst).extracting(PhotoHash::photoId).containsExactly(second.getId());
+    }
+
     /**
      * Тестирует обновление данных фотографии объявления в репозитории.
      * Проверяет, что изменение пути к фотографии корректно сохраняется
@@ -4,17 +4,23 @@ import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.job4j.cars.dto.PostScoreDto;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.dto.PostSort;
 import ru.job4j.cars.model.Car;
 import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostStatus;
 import ru.job4j.cars.model.User;
 import ru.job4j.cars.testutil.TestDatabaseConfig;
 import ru.job4j.cars.testutil.TestRepositoryUtils;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 /**
  * Тесты для репозитория объявлений (PostRepository)
@@ -35,6 +41,7 @@ class PostRepositoryTest {
         this.crudRepository = new CrudRepository(sessionFactory);
         this.postRepository = new PostRepository(crudRepository);
         this.testUtils = new TestRepositoryUtils(sessionFactory, crudRepository);
+        testUtils.deleteSeedPosts();
     }
 
     /**
@@ -54,14 +61,14 @@ class PostRepositoryTest {
     void whenCreatePostThenPostHasId() {
         User user = testUtils.createTestUser("testuser");
         Car car = testUtils.createTestCar("VIN001");
-        Post post = testUtils.createTestPost(user, car, "active", new BigDecimal("1000000.00"));
+        Post post = testUtils.createTestPost(user, car, PostStatus.ACTIVE, new BigDecimal("1000000.00"));
 
         Post savedPost = postRepository.create(post);
 
         assertThat(savedPost.getId()).isGreaterThan(0);
         Optional<Post> foundPost = postRepository.findById(Math.toIntExact(savedPost.getId()));
         assertThat(foundPost).isPresent();
-        assertThat(foundPost.get().getStatus()).isEqualTo("active");
+        assertThat(foundPost.get().getStatus()).isEqualTo(PostStatus.ACTIVE);
     }
 
     /**
@@ -71,16 +78,16 @@ class PostRepositoryTest {
     void whenUpdatePostThenChangesSaved() {
         User user = testUtils.createTestUser("testuser");
         Car car = testUtils.createTestCar("VIN002");
-        Post post = testUtils.createTestPost(user, car, "active", new BigDecimal("1000000.00"));
+        Post post = testUtils.createTestPost(user, car, PostStatus.ACTIVE, new BigDecimal("1000000.00"));
         Post savedPost = postRepository.create(post);
 
-        savedPost.setStatus("sold");
+        savedPost.setStatus(PostStatus.SOLD);
         savedPost.setPrice(new BigDecimal("950000.00"));
         postRepository.update(savedPost);
 
         Optional<Post> updatedPost = postRepository.findById(Math.toIntExact(savedPost.getId()));
         assertThat(updatedPost).isPresent();
-        assertThat(updatedPost.get().getStatus()).isEqualTo("sold");
+        assertThat(updatedPost.get().getStatus()).isEqualTo(PostStatus.SOLD);
         assertThat(updatedPost.get().getPrice()).isEqualTo(new BigDecimal("950000.00"));
     }
 
@@ -91,7 +98,7 @@ class PostRepositoryTest {
     void whenDeletePostThenPostNotFound() {
         User user = testUtils.createTestUser("testuser");
         Car car = testUtils.createTestCar("VIN003");
-        Post post = testUtils.createTestPost(user, car, "active", new BigDecimal("1000000.00"));
+        Post post = testUtils.createTestPost(user, car, PostStatus.ACTIVE, new BigDecimal("1000000.00"));
         Post savedPost = postRepository.create(post);
 
         postRepository.delete(Math.toIntExact(savedPost.getId()));
@@ -108,8 +115,8 @@ class PostRepositoryTest {
         User user = testUtils.createTestUser("testuser");
         Car car1 = testUtils.createTestCar("VIN004");
         Car car2 = testUtils.createTestCar("VIN005");
-        Post post1 = testUtils.createTestPost(user, car1, "active", new BigDecimal("1000000.00"));
-        Post post2 = testUtils.createTestPost(user, car2, "active", new BigDecimal("1500000.00"));
+        Post post1 = testUtils.createTestPost(user, car1, PostStatus.ACTIVE, new BigDecimal("1000000.00"));
+        Post post2 = testUtils.createTestPost(user, car2, PostStatus.ACTIVE, new BigDecimal("1500000.00"));
 
         postRepository.create(post1);
         postRepository.create(post2);
@@ -130,9 +137,9 @@ class PostRepositoryTest {
         Car car2 = testUtils.createTestCar("VIN007");
         Car car3 = testUtils.createTestCar("VIN008");
 
-        Post activePost1 = testUtils.createTestPost(user, car1, "active", new BigDecimal("1000000.00"));
-        Post activePost2 = testUtils.createTestPost(user, car2, "active", new BigDecimal("1200000.00"));
-        Post soldPost = testUtils.createTestPost(user, car3, "sold", new BigDecimal("800000.00"));
+        Post activePost1 = testUtils.createTestPost(user, car1, PostStatus.ACTIVE, new BigDecimal("1000000.00"));
+        Post activePost2 = testUtils.createTestPost(user, car2, PostStatus.ACTIVE, new BigDecimal("1200000.00"));
+        Post soldPost = testUtils.createTestPost(user, car3, PostStatus.SOLD, new BigDecimal("800000.00"));
 
         postRepository.create(activePost1);
         postRepository.create(activePost2);
@@ -141,7 +148,7 @@ class PostRepositoryTest {
         List<Post> activePosts = postRepository.findActivePostsOrderByCreatedAtDesc();
 
         assertThat(activePosts).hasSize(2);
-        assertThat(activePosts).allMatch(post -> "active".equals(post.getStatus()));
+        assertThat(activePosts).allMatch(post -> post.getStatus() == PostStatus.ACTIVE);
     }
 
     /**
@@ -151,7 +158,7 @@ class PostRepositoryTest {
     void whenFindByIdThenReturnsPostWithAllRelations() {
         User user = testUtils.createTestUser("testuser");
         Car car = testUtils.createTestCar("FULLVIN001");
-        Post post = testUtils.createTestPost(user, car, "active", new BigDecimal("1000000.00"));
+        Post post = testUtils.createTestPost(user, car, PostStatus.ACTIVE, new BigDecimal("1000000.00"));
         Post savedPost = postRepository.create(post);
 
         Optional<Post> foundPost = postRepository.findById(Math.toIntExact(savedPost.getId()));
@@ -175,9 +182,9 @@ class PostRepositoryTest {
         Car car2 = testUtils.createTestCar("VIN010");
         Car car3 = testUtils.createTestCar("VIN011");
 
-        Post user1Post1 = testUtils.createTestPost(user1, car1, "active", new BigDecimal("1000000.00"));
-        Post user1Post2 = testUtils.createTestPost(user1, car2, "active", new BigDecimal("1200000.00"));
-        Post user2Post = testUtils.createTestPost(user2, car3, "active", new BigDecimal("1500000.00"));
+        Post user1Post1 = testUtils.createTestPost(user1, car1, PostStatus.ACTIVE, new BigDecimal("1000000.00"));
+        Post user1Post2 = testUtils.createTestPost(user1, car2, PostStatus.ACTIVE, new BigDecimal("1200000.00"));
+        Post user2Post = testUtils.createTestPost(user2, car3, PostStatus.ACTIVE, new BigDecimal("1500000.00"));
 
         postRepository.create(user1Post1);
         postRepository.create(user1Post2);
@@ -188,4 +195,149 @@ class PostRepositoryTest {
         assertThat(user1Posts).hasSize(2);
         assertThat(user1Posts).allMatch(post -> post.getUser().getId().equals(user1.getId()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Тестирует поиск по марке и диапазону цены: проданные и не подходящие объявления не попадают.
+     */
+    @Test
+    void whenSearchByBrandAndPriceRangeThenReturnsMatchingActivePosts() {
+        User user = testUtils.createTestUser("testuser");
+        Car toyota = testUtils.createTestCar("SEARCHVIN01");
+        Car otherBrand = testUtils.createTestCarWithRequiredFields("SEARCHVIN02");
+        Car expensiveToyota = testUtils.createTestCar("SEARCHVIN03");
+        Car soldToyota = testUtils.createTestCar("SEARCHVIN04");
+        Post match = postRepository.create(testUtils.createTestPost(user, toyota, PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        postRepository.create(testUtils.createTestPost(user, otherBrand, PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        postRepository.create(testUtils.createTestPost(user, expensiveToyota, PostStatus.ACTIVE, new BigDecimal("3000000.00")));
+        postRepository.create(testUtils.createTestPost(user, soldToyota, PostStatus.SOLD, new BigDecimal("1000000.00")));
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setBrandId(toyota.getBrand().getId());
+        filter.setPriceTo(new BigDecimal("2000000"));
+
+        List<Post> found = postRepository.search(filter, 0, 10);
+
+        assertThat(found).extracting(Post::getId).containsExactly(match.getId());
+        assertThat(found.get(0).getCar().getBrand().getName()).isEqualTo("Toyota");
+        assertThat(found.get(0).getPostPhotos()).isEmpty();
+    }
+
+    /**
+     * Тестирует сортировку по убыванию цены и постраничную выборку.
+     */
+    @Test
+    void whenSearchSortedByPriceDescThenPagesFollowOrder() {
+        User user = testUtils.createTestUser("testuser");
+        Post cheap = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("SORTVIN01"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post expensive = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("SORTVIN02"), PostStatus.ACTIVE, new BigDecimal("3000000.00")));
+        Post middle = postRepository.create(testUtils.createTestPost(user,
+                testUtils.createTestCar("SORTVIN03"), PostStatus.ACTIVE, new BigDecimal("2000000.00")));
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setSort(PostSort.PRICE_DESC);
+
+        List<Post> firstPage = postRepository.search(filter, 0, 2);
+        List<Post> secondPage = postRepository.search(filter, 2, 2);
+
+        assertThat(firstPage).extracting(Post::getId).containsExactly(expensive.getId(), middle.getId());
+        assertThat(secondPage).extracting(Post::getId).containsExactly(cheap.getId());
+    }
+
+    /**
+     * Тестирует фильтр по диапазонам года выпуска и пробега.
+     */
+    @Test
+    void whenSearchByYearAndMileageRangeThenFiltered() {
+        User user = testUtils.createTestUser("testuser");
+        Car newCar = testUtils.createTestCar("RANGEVIN01");
+        Car oldCar = testUtils.createTestCar("RANGEVIN02");
+        oldCar.setYearOfManufacture(2005L);
+        oldCar.setMileage(250000L);
+        crudRepository.run(session -> session.merge(oldCar));
+        Post newPost = postRepository.create(testUtils.createTestPost(user, newCar, PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post oldPost = postRepository.create(testUtils.createTestPost(user, oldCar, PostStatus.ACTIVE, new BigDecimal("300000.00")));
+        PostSearchFilter recent = new PostSearchFilter();
+        recent.setYearFrom(2015L);
+        recent.setMileageTo(50000L);
+        PostSearchFilter highMileage = new PostSearchFilter();
+        highMileage.setMileageFrom(100000L);
+
+        assertThat(postRepository.search(recent, 0, 10)).extracting(Post::getId).containsExactly(newPost.getId());
+        assertThat(postRepository.search(highMileage, 0, 10)).extracting(Post::getId).containsExactly(oldPost.getId());
+    }
+
+    /**
+     * Тестирует фильтр по цвету и двигателю автомобиля.
+     */
+    @Test
+    void whenSearchByColorAndEngineThenFiltered() {
+        User user = testUtils.createTestUser("testuser");
+        Car redV8 = testUtils.createTestCar("COLORVIN01");
+        Car blackV6 = testUtils.createTestCarWithRequiredFields("COLORVIN02");
+        postRepository.create(testUtils.createTestPost(user, redV8, PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post match = postRepository.create(testUtils.createTestPost(user, blackV6, PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setCarColorId(blackV6.getCarColor().getId());
+        filter.setEngineId(blackV6.getEngine().getId());
+        PostSearchFilter mismatch = new PostSearchFilter();
+        mismatch.setCarColorId(blackV6.getCarColor().getId());
+        mismatch.setEngineId(redV8.getEngine().getId());
+
+        assertThat(postRepository.search(filter, 0, 10)).extracting(Post::getId).containsExactly(match.getId());
+        assertThat(postRepository.search(mismatch, 0, 10)).isEmpty();
+    }
+
+    /**
+     * Тестирует поиск по словам описания без учёта регистра и формы слова.
+     */
+    @Test
+    void whenSearchByQueryThenAllWordsRequired() {
+        User user = testUtils.createTestUser("testuser");
+        Post dealer = testUtils.createTestPost(user, testUtils.createTestCar("TEXTVIN01"), PostStatus.ACTIVE, new BigDecimal("1000000.00"));
+        dealer.setDescription("Машина от официального дилера");
+        Post owner = testUtils.createTestPost(user, testUtils.createTestCar("TEXTVIN02"), PostStatus.ACTIVE, new BigDecimal("1000000.00"));
+        owner.setDescription("Один владелец, машина не битая");
+        postRepository.create(dealer);
+        postRepository.create(owner);
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setQuery("машины ДИЛЕР");
+
+        assertThat(postRepository.search(filter, 0, 10)).extracting(Post::getId).containsExactly(dealer.getId());
+    }
+
+    /**
+     * Тестирует пакетное прибавление просмотров: сохранение объявления их не перезаписывает.
+     */
+    @Test
+    void whenAddViewsThenCountersIncreasedAndKeptOnUpdate() {
+        User user = testUtils.createTestUser("testuser");
+        Post first = postRepository.create(testUtils.createTestPost(user, testUtils.createTestCar("VIEWVIN01"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post second = postRepository.create(testUtils.createTestPost(user, testUtils.createTestCar("VIEWVIN02"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+
+        postRepository.addViews(Map.of(first.getId(), 3L, second.getId(), 1L));
+        postRepository.addViews(Map.of(first.getId(), 2L));
+        first.setPrice(new BigDecimal("900000.00"));
+        postRepository.update(first);
+
+        assertThat(postRepository.findById(Math.toIntExact(first.getId())).orElseThrow().getViews()).isEqualTo(5L);
+        assertThat(postRepository.findById(Math.toIntExact(second.getId())).orElseThrow().getViews()).isEqualTo(1L);
+    }
+
+    /**
+     * Тестирует сложение оценок популярности в логарифмической форме и выбор самых популярных активных объявлений.
+     */
+    @Test
+    void whenAddPopularityThenScoresSummedAndOnlyActiveReturned() {
+        User user = testUtils.createTestUser("testuser");
+        Post first = postRepository.create(testUtils.createTestPost(user, testUtils.createTestCar("POPVIN01"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post second = postRepository.create(testUtils.createTestPost(user, testUtils.createTestCar("POPVIN02"), PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+        Post sold = postRepository.create(testUtils.createTestPost(user, testUtils.createTestCar("POPVIN03"), PostStatus.SOLD, new BigDecimal("1000000.00")));
+
+        postRepository.addPopularity(Map.of(first.getId(), Math.log(2), second.getId(), Math.log(3), sold.getId(), 10.0));
+        postRepository.addPopularity(Map.of(first.getId(), Math.log(2)));
+
+        List<PostScoreDto> top = postRepository.findMostPopularActive(10);
+        assertThat(top).extracting(PostScoreDto::getId).containsExactly(first.getId(), second.getId());
+        assertThat(top.get(0).getScore()).isCloseTo(Math.log(4), within(1e-9));
+    }
+}
@@ -0,0 +1,154 @@
+package ru.job4j.cars.repository;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.dto.SearchAlertDto;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.model.SavedSearch;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+import ru.job4j.cars.testutil.TestRepositoryUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Тесты для репозиториев сохранённых поисков (SavedSearchRepository) и очереди уведомлений (SearchAlertRepository)
+ */
+class SearchAlertRepositoryTest {
+
+    private SessionFactory sessionFactory;
+    private SavedSearchRepository savedSearchRepository;
+    private SearchAlertRepository searchAlertRepository;
+    private PostRepository postRepository;
+    private TestRepositoryUtils testUtils;
+
+    /**
+     * Инициализация репозиториев перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        CrudRepository crudRepository = new CrudRepository(sessionFactory);
+        this.savedSearchRepository = new SavedSearchRepository(crudRepository);
+        this.searchAlertRepository = new SearchAlertRepository(crudRepository);
+        this.postRepository = new PostRepository(crudRepository);
+        this.testUtils = new TestRepositoryUtils(sessionFactory, crudRepository);
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    private SavedSearch savedSearch(User user, long brandId) {
+        return savedSearch(user, brandId, LocalDateTime.now());
+    }
+
+    private SavedSearch savedSearch(User user, long brandId, LocalDateTime createdAt) {
+        SavedSearch savedSearch = new SavedSearch();
+        savedSearch.setUser(user);
+        savedSearch.setBrandId(brandId);
+        savedSearch.setCreatedAt(createdAt);
+        return savedSearchRepository.create(savedSearch);
+    }
+
+    private Post post(User author, String vin) {
+        return postRepository.create(testUtils.createTestPost(author, testUtils.createTestCar(vin),
+                PostStatus.ACTIVE, new BigDecimal("1000000.00")));
+    }
+
+    /**
+     * Уведомление ставится один раз на поиск и объявление; поиски автора объявления пропускаются.
+     */
+    @Test
+    void whenEnqueueTwiceThenOneAlertPerSearchAndNoneForAuthor() {
+        User author = testUtils.createTestUser("author");
+        User reader = testUtils.createTestUser("reader");
+        SavedSearch own = savedSearch(author, 1L);
+        SavedSearch other = savedSearch(reader, 1L);
+        Post post = post(author, "ALERTVIN01");
+
+        assertThat(searchAlertRepository.enqueue(post.getId(), List.of(own.getId(), other.getId()),
+                LocalDateTime.now())).isEqualTo(1);
+        assertThat(searchAlertRepository.enqueue(post.getId(), List.of(own.getId(), other.getId()),
+                LocalDateTime.now())).isZero();
+
+        assertThat(searchAlertRepository.findUnsent(10))
+                .extracting(SearchAlertDto::getUserId, SearchAlertDto::getSavedSearchId, SearchAlertDto::getPostId)
+                .containsExactly(tuple(reader.getId(), other.getId(), post.getId()));
+    }
+
+    /**
+     * Отправленные уведомления не читаются повторно и удаляются после срока хранения.
+     */
+    @Test
+    void whenMarkSentThenNotUnsentAndDeletedLater() {
+        User author = testUtils.createTestUser("author");
+        User reader = testUtils.createTestUser("reader");
+        SavedSearch search = savedSearch(reader, 1L);
+        Post first = post(author, "ALERTVIN02");
+        Post second = post(author, "ALERTVIN03");
+        searchAlertRepository.enqueue(first.getId(), List.of(search.getId()), LocalDateTime.now());
+        searchAlertRepository.enqueue(second.getId(), List.of(search.getId()), LocalDateTime.now());
+
+        List<SearchAlertDto> unsent = searchAlertRepository.findUnsent(1);
+        assertThat(unsent).extracting(SearchAlertDto::getPostId).containsExactly(first.getId());
+        LocalDateTime sentAt = LocalDateTime.now().minusDays(10);
+        searchAlertRepository.markSent(List.of(unsent.get(0).getId()), sentAt);
+
+        assertThat(searchAlertRepository.findUnsent(10)).extracting(SearchAlertDto::getPostId)
+                .containsExactly(second.getId());
+        assertThat(searchAlertRepository.deleteSentBefore(LocalDateTime.now().minusDays(7))).isEqualTo(1);
+        assertThat(searchAlertRepository.findUnsent(10)).hasSize(1);
+    }
+
+    /**
+     * Чужой поиск не удаляется; удаление поиска удаляет и его уведомления.
+     */
+    @Test
+    void whenDeleteSearchThenOnlyOwnerCanAndAlertsRemoved() {
+        User author = testUtils.createTestUser("author");
+        User reader = testUtils.createTestUser("reader");
+        SavedSearch search = savedSearch(reader, 1L);
+        Post post = post(author, "ALERTVIN04");
+        searchAlertRepository.enqueue(post.getId(), List.of(search.getId()), LocalDateTime.now());
+
+        assertThat(savedSearchRepository.delete(search.getId(), author.getId())).isFalse();
+        assertThat(savedSearchRepository.findAllAfter(0, 10)).extracting(SavedSearch::getId)
+                .containsExactly(search.getId());
+
+        assertThat(savedSearchRepository.delete(search.getId(), reader.getId())).isTrue();
+        assertThat(savedSearchRepository.findByUserId(reader.getId())).isEmpty();
+        assertThat(searchAlertRepository.findUnsent(10)).isEmpty();
+    }
+
+    /**
+     * Поиски читаются с заданного времени создания порциями по возрастанию id.
+     */
+    @Test
+    void whenFindCreatedSinceThenOlderSearchesSkippedAndPagedById() {
+        User reader = testUtils.createTestUser("reader");
+        SavedSearch old = savedSearch(reader, 1L, LocalDateTime.now().minusHours(1));
+        SavedSearch fresh = savedSearch(reader, 2L);
+
+        assertThat(savedSearchRepository.findCreatedSince(LocalDateTime.now().minusMinutes(5), 0, 10))
+                .extracting(SavedSearch::getId).containsExactly(fresh.getId());
+        assertThat(savedSearchRepository.findCreatedSince(LocalDateTime.now().minusDays(1), 0, 1))
+                .extracting(SavedSearch::getId).containsExactly(old.getId());
+        assertThat(savedSearchRepository.findCreatedSince(LocalDateTime.now().minusDays(1), old.getId(), 10))
+                .extracting(SavedSearch::getId).containsExactly(fresh.getId());
+    }
+}
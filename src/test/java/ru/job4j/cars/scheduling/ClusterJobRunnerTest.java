@@ -0,0 +1,107 @@
+package ru.job4j.cars.scheduling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.JobLeaseRepository;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для запуска кластерных задач (ClusterJobRunner)
+ */
+class ClusterJobRunnerTest {
+
+    private SessionFactory sessionFactory;
+    private JobLeaseRepository jobLeaseRepository;
+    private SimpleMeterRegistry registry;
+
+    /**
+     * Инициализация репозитория аренд перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        this.jobLeaseRepository = new JobLeaseRepository(new CrudRepository(sessionFactory));
+        this.registry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    /**
+     * Пока аренда у одного узла, задачу выполняет только он; второй узел её пропускает.
+     */
+    @Test
+    void whenLeaseHeldByOtherNodeThenJobSkipped() {
+        CountingJob job = new CountingJob();
+        ClusterJobRunner first = new ClusterJobRunner(List.of(job), jobLeaseRepository, registry, 0);
+        ClusterJobRunner second = new ClusterJobRunner(List.of(job), jobLeaseRepository, registry, 0);
+
+        assertThat(first.runNow("counting")).isTrue();
+        assertThat(second.runNow("counting")).isFalse();
+        assertThat(first.runNow("counting")).isTrue();
+
+        assertThat(job.runs).hasValue(2);
+        assertThat(registry.get("jobs.skipped").tag("reason", "lease").counter().count()).isEqualTo(1);
+        assertThat(registry.get("jobs.run").tag("outcome", "success").timer().count()).isEqualTo(2);
+    }
+
+    /**
+     * Запуск поверх идущего запуска той же задачи на этом узле пропускается.
+     */
+    @Test
+    void whenJobAlreadyRunningThenOverlappingRunSkipped() {
+        AtomicInteger nested = new AtomicInteger(-1);
+        ClusterJobRunner[] runner = new ClusterJobRunner[1];
+        CountingJob job = new CountingJob() {
+            @Override
+            public void run() {
+                super.run();
+                nested.set(runner[0].runNow("counting") ? 1 : 0);
+            }
+        };
+        runner[0] = new ClusterJobRunner(List.of(job), jobLeaseRepository, registry, 0);
+
+        assertThat(runner[0].runNow("counting")).isTrue();
+
+        assertThat(nested).hasValue(0);
+        assertThat(job.runs).hasValue(1);
+        assertThat(registry.get("jobs.skipped").tag("reason", "running").counter().count()).isEqualTo(1);
+    }
+
+    private static class CountingJob implements ClusterJob {
+
+        private final AtomicInteger runs = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return "counting";
+        }
+
+        @Override
+        public Duration interval() {
+            return Duration.ofMinutes(1);
+        }
+
+        @Override
+        public void run() {
+            runs.incrementAndGet();
+        }
+    }
+}
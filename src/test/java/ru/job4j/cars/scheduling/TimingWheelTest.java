@@ -0,0 +1,66 @@
+package ru.job4j.cars.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для иерархического колеса таймеров (TimingWheel)
+ */
+class TimingWheelTest {
+
+    /**
+     * Событие срабатывает после своего срока, а не в начале его корзины; просроченное — на ближайшем шаге.
+     */
+    @Test
+    void whenAdvancePastDeadlineThenFiredOnce() {
+        TimingWheel wheel = new TimingWheel(10, 4, 0);
+        wheel.add(1, 15);
+        wheel.add(2, -5);
+        List<Long> fired = new ArrayList<>();
+
+        wheel.advance(10, fired::add);
+        assertThat(fired).containsExactly(2L);
+
+        wheel.advance(19, fired::add);
+        assertThat(fired).containsExactly(2L);
+
+        wheel.advance(20, fired::add);
+        assertThat(fired).containsExactly(2L, 1L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    /**
+     * Сроки далеко за окном нижнего уровня спускаются с верхних уровней и срабатывают
+     * не раньше срока и не позже чем через один шаг после него.
+     */
+    @Test
+    void whenDeadlinesSpanSeveralLevelsThenFiredWithinOneTick() {
+        long tick = 10;
+        TimingWheel wheel = new TimingWheel(tick, 4, 3);
+        Random random = new Random(42);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long id = 0; id < 1_000; id++) {
+            long deadline = random.nextInt(100_000);
+            deadlines.put(id, deadline);
+            wheel.add(id, deadline);
+        }
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = 0; now <= 100_100; now += 1 + random.nextInt(25)) {
+            long time = now;
+            wheel.advance(now, id -> firedAt.put(id, time));
+        }
+
+        assertThat(firedAt).hasSameSizeAs(deadlines);
+        assertThat(wheel.size()).isZero();
+        deadlines.forEach((id, deadline) -> assertThat(firedAt.get(id))
+                .isGreaterThan(deadline)
+                .isLessThanOrEqualTo(deadline + tick + 25));
+    }
+}
@@ -0,0 +1,237 @@
+package ru.job4j.cars.search;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.dto.PostSort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для индекса объявлений в памяти (ListingIndex)
+ */
+class ListingIndexTest {
+
+    private static ListingRow row(long postId, long brandId, long bodyId, long priceRub, long year, long mileage, long createdAt) {
+        return new ListingRow(postId, brandId, brandId * 10, 1L, bodyId, 1L, 1L, 1L, 1L, 1L, 1L,
+                priceRub * 100, year, mileage, createdAt, null);
+    }
+
+    /**
+     * Фильтр по марке и диапазону цены отбирает подходящие объявления в порядке сортировки.
+     */
+    @Test
+    void whenSearchByBrandAndPriceThenSortedMatches() {
+        ListingIndex index = ListingIndex.of(List.of(
+                row(1L, 1L, 1L, 500_000, 2015, 90_000, 100),
+                row(2L, 1L, 2L, 300_000, 2012, 150_000, 200),
+                row(3L, 2L, 1L, 400_000, 2018, 40_000, 300),
+                row(4L, 1L, 1L, 900_000, 2020, 10_000, 400)
+        ));
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setBrandId(1L);
+        filter.setPriceTo(new BigDecimal("600000"));
+        filter.setSort(PostSort.PRICE_ASC);
+
+        assertThat(index.search(ListingQuery.from(filter), 0, 10)).containsExactly(2L, 1L);
+    }
+
+    /**
+     * Неизвестное значение атрибута даёт пустой результат.
+     */
+    @Test
+    void whenUnknownFacetValueThenEmpty() {
+        ListingIndex index = ListingIndex.of(List.of(row(1L, 1L, 1L, 500_000, 2015, 90_000, 100)));
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setBodyId(99L);
+
+        assertThat(index.search(ListingQuery.from(filter), 0, 10)).isEmpty();
+    }
+
+    /**
+     * Изменённое объявление ищется по новым данным, удалённое не находится, версия растёт.
+     */
+    @Test
+    void whenUpsertAndRemoveThenSearchReflectsChanges() {
+        ListingIndex index = ListingIndex.of(List.of(
+                row(1L, 1L, 1L, 500_000, 2015, 90_000, 100),
+                row(2L, 1L, 1L, 300_000, 2012, 150_000, 200)
+        ));
+        long version = index.version();
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setBrandId(2L);
+
+        index.upsert(row(1L, 2L, 1L, 500_000, 2015, 90_000, 100));
+        index.upsert(row(3L, 2L, 1L, 100_000, 2010, 200_000, 300));
+        index.remove(2L);
+
+        assertThat(index.search(ListingQuery.from(filter), 0, 10)).containsExactly(3L, 1L);
+        assertThat(index.search(ListingQuery.from(new PostSearchFilter()), 0, 10)).containsExactly(3L, 1L);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.version()).isEqualTo(version + 3);
+    }
+
+    /**
+     * Количества по выбранному атрибуту считаются без его условия, по остальным — с учётом всего фильтра.
+     */
+    @Test
+    void whenFacetCountsThenSelectedFacetShowsAlternatives() {
+        ListingIndex index = ListingIndex.of(List.of(
+                row(1L, 1L, 1L, 500_000, 2015, 90_000, 100),
+                row(2L, 1L, 2L, 300_000, 2012, 150_000, 200),
+                row(3L, 2L, 1L, 400_000, 2018, 40_000, 300),
+                row(4L, 2L, 1L, 900_000, 2020, 10_000, 400)
+        ));
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setBrandId(1L);
+        filter.setPriceTo(new BigDecimal("600000"));
+
+        FacetCounts counts = index.facetCounts(ListingQuery.from(filter));
+
+        assertThat(counts.total()).isEqualTo(2);
+        assertThat(counts.counts().get(Facet.BRAND)).containsExactlyInAnyOrderEntriesOf(Map.of(1L, 2, 2L, 1));
+        assertThat(counts.counts().get(Facet.BODY)).containsExactlyInAnyOrderEntriesOf(Map.of(1L, 1, 2L, 1));
+    }
+
+    /**
+     * Один и тот же фильтр с другой сортировкой и страницей даёт тот же ключ.
+     */
+    @Test
+    void whenSortAndPageDifferThenSameConditionKey() {
+        PostSearchFilter first = new PostSearchFilter();
+        first.setBrandId(1L);
+        first.setYearFrom(2010L);
+        PostSearchFilter second = new PostSearchFilter();
+        second.setYearFrom(2010L);
+        second.setBrandId(1L);
+        second.setSort(PostSort.PRICE_DESC);
+        second.setPage(3);
+
+        assertThat(ListingQuery.from(first).conditionKey()).isEqualTo(ListingQuery.from(second).conditionKey());
+    }
+
+    /**
+     * Текстовый запрос требует все слова в любой форме, при сортировке по релевантности
+     * выше описание, где слово встречается чаще.
+     */
+    @Test
+    void whenTextQueryThenAllTermsRequiredAndRankedByRelevance() {
+        ListingIndex index = ListingIndex.of(List.of(
+                withDescription(row(1L, 1L, 1L, 500_000, 2015, 90_000, 100), "Машина от дилера, машина в идеале"),
+                withDescription(row(2L, 1L, 1L, 300_000, 2012, 150_000, 200), "Машины у дилера много, эта — одна из них"),
+                withDescription(row(3L, 1L, 1L, 400_000, 2018, 40_000, 300), "Один владелец"),
+                row(4L, 1L, 1L, 900_000, 2020, 10_000, 400)
+        ));
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setQuery("машину дилер");
+        filter.setSort(PostSort.RELEVANCE);
+
+        assertThat(index.search(ListingQuery.from(filter), 0, 10)).containsExactly(1L, 2L);
+        filter.setSort(PostSort.NEWEST);
+        assertThat(index.search(ListingQuery.from(filter), 0, 10)).containsExactly(2L, 1L);
+        filter.setQuery("владелец кузов");
+        assertThat(index.search(ListingQuery.from(filter), 0, 10)).isEmpty();
+    }
+
+    /**
+     * На случайных данных и фильтрах страницы совпадают с полным перебором
+     * (с учётом изменений после построения индекса).
+     */
+    @Test
+    void whenSearchRandomFiltersThenSameAsBruteForce() {
+        Random random = new Random(11);
+        Map<Long, ListingRow> rows = new HashMap<>();
+        for (long id = 1; id <= 5_000; id++) {
+            rows.put(id, randomRow(random, id));
+        }
+        ListingIndex index = ListingIndex.of(new ArrayList<>(rows.values()));
+        for (int i = 0; i < 1_000; i++) {
+            long id = random.nextInt(6_000) + 1;
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                rows.remove(id);
+            } else {
+                ListingRow row = randomRow(random, id);
+                index.upsert(row);
+                rows.put(id, row);
+            }
+        }
+        for (int i = 0; i < 300; i++) {
+            PostSearchFilter filter = randomFilter(random);
+            ListingQuery query = ListingQuery.from(filter);
+            int offset = random.nextInt(4) * 20;
+
+            assertThat(index.search(query, offset, 21)).as(filter.toString())
+                    .containsExactlyElementsOf(bruteForce(rows, query, offset, 21));
+        }
+    }
+
+    /**
+     * Объявление, значения которого не помещаются в столбцы индекса, в индекс не попадает.
+     */
+    @Test
+    void whenValueDoesNotFitColumnThenListingSkipped() {
+        ListingIndex index = ListingIndex.of(List.of(
+                row(1, 1, 1, 500_000, 2015, 50_000, 1),
+                row(2, 1, 1, 500_000, 70_000, 50_000, 2)));
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setBrandId(1L);
+
+        assertThat(index.search(ListingQuery.from(filter), 0, 10)).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    private static ListingRow withDescription(ListingRow row, String description) {
+        return new ListingRow(row.postId(), row.brandId(), row.modelId(), row.categoryId(), row.bodyId(),
+                row.engineId(), row.transmissionTypeId(), row.driveTypeId(), row.carColorId(), row.fuelTypeId(),
+                row.wheelSideId(), row.priceCents(), row.year(), row.mileage(), row.createdAt(), description);
+    }
+
+    private static ListingRow randomRow(Random random, long id) {
+        return row(id, random.nextInt(5) + 1, random.nextInt(4) + 1, (random.nextInt(100) + 1) * 10_000L,
+                1995 + random.nextInt(30), random.nextInt(300_000), random.nextInt(10_000));
+    }
+
+    private static PostSearchFilter randomFilter(Random random) {
+        PostSearchFilter filter = new PostSearchFilter();
+        if (random.nextBoolean()) {
+            filter.setBrandId((long) random.nextInt(6) + 1);
+        }
+        if (random.nextInt(3) == 0) {
+            filter.setBodyId((long) random.nextInt(4) + 1);
+        }
+        if (random.nextInt(3) == 0) {
+            filter.setPriceFrom(BigDecimal.valueOf(random.nextInt(1_000_000)));
+        }
+        if (random.nextInt(3) == 0) {
+            filter.setYearFrom((long) 1995 + random.nextInt(30));
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setMileageTo((long) random.nextInt(300_000));
+        }
+        filter.setSort(PostSort.values()[random.nextInt(PostSort.values().length)]);
+        return filter;
+    }
+
+    private static List<Long> bruteForce(Map<Long, ListingRow> rows, ListingQuery query, int offset, int limit) {
+        Comparator<ListingRow> order = Comparator.<ListingRow>comparingLong(row -> query.sortColumn().valueOf(row))
+                .thenComparingLong(ListingRow::postId);
+        return rows.values().stream()
+                .filter(row -> query.facets().entrySet().stream()
+                        .allMatch(facet -> facet.getKey().valueOf(row) == facet.getValue()))
+                .filter(row -> query.ranges().entrySet().stream()
+                        .allMatch(range -> range.getValue().contains(range.getKey().valueOf(row))))
+                .sorted(query.descending() ? order.reversed() : order)
+                .skip(offset)
+                .limit(limit)
+                .map(ListingRow::postId)
+                .toList();
+    }
+}
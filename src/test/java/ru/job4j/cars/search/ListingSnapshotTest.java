@@ -0,0 +1,96 @@
+package ru.job4j.cars.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.dto.PostSort;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты для снимка индекса объявлений на диске (ListingSnapshot)
+ */
+class ListingSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ListingRow row(long postId, long brandId, long priceRub, long year, String description) {
+        return new ListingRow(postId, brandId, brandId * 10, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L,
+                priceRub * 100, year, 50_000L, postId, description);
+    }
+
+    private static ListingIndex sampleIndex() {
+        ListingIndex index = ListingIndex.of(List.of(
+                row(1, 1, 900_000, 2015, "Один владелец, родной пробег"),
+                row(2, 1, 700_000, 2018, "Торг уместен"),
+                row(3, 2, 800_000, 2019, "Родная краска, один хозяин"),
+                row(4, 1, 600_000, 2012, null)));
+        index.remove(2);
+        return index;
+    }
+
+    /**
+     * Индекс, восстановленный из файла, находит те же объявления, что и исходный, в том числе по тексту.
+     */
+    @Test
+    void whenWriteAndReadThenSameSearchResults() throws IOException {
+        ListingIndex index = sampleIndex();
+        Path file = tempDir.resolve("listings.snapshot");
+
+        index.snapshot(42L).write(file);
+        ListingSnapshot snapshot = ListingSnapshot.read(file);
+        ListingIndex restored = snapshot.toIndex();
+
+        PostSearchFilter byBrand = new PostSearchFilter();
+        byBrand.setBrandId(1L);
+        byBrand.setSort(PostSort.PRICE_ASC);
+        PostSearchFilter byText = new PostSearchFilter();
+        byText.setQuery("родной");
+        assertThat(snapshot.watermark()).isEqualTo(42L);
+        assertThat(restored.postIds()).containsExactly(1L, 3L, 4L);
+        assertThat(restored.search(ListingQuery.from(byBrand), 0, 10)).containsExactly(4L, 1L);
+        assertThat(restored.search(ListingQuery.from(byText), 0, 10))
+                .containsExactlyElementsOf(index.search(ListingQuery.from(byText), 0, 10));
+    }
+
+    /**
+     * Восстановленный индекс принимает изменения как обычный.
+     */
+    @Test
+    void whenRestoredThenUpsertAndRemoveWork() throws IOException {
+        Path file = tempDir.resolve("listings.snapshot");
+        sampleIndex().snapshot(0L).write(file);
+        ListingIndex restored = ListingSnapshot.read(file).toIndex();
+
+        restored.upsert(row(5, 2, 500_000, 2020, "Один владелец"));
+        restored.remove(3);
+
+        PostSearchFilter byBrand = new PostSearchFilter();
+        byBrand.setBrandId(2L);
+        PostSearchFilter byText = new PostSearchFilter();
+        byText.setQuery("один");
+        assertThat(restored.search(ListingQuery.from(byBrand), 0, 10)).containsExactly(5L);
+        assertThat(restored.search(ListingQuery.from(byText), 0, 10)).containsExactlyInAnyOrder(1L, 5L);
+    }
+
+    /**
+     * Повреждённый файл не читается: контрольная сумма не совпадает.
+     */
+    @Test
+    void whenFileCorruptedThenIOException() throws IOException {
+        Path file = tempDir.resolve("listings.snapshot");
+        sampleIndex().snapshot(0L).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> ListingSnapshot.read(file)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,113 @@
+package ru.job4j.cars.search;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.dto.PostSearchFilter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для индекса сохранённых поисков (SavedSearchIndex)
+ */
+class SavedSearchIndexTest {
+
+    private static ListingRow row(long postId, long brandId, long modelId, long priceRub, long year, String description) {
+        return new ListingRow(postId, brandId, modelId, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L,
+                priceRub * 100, year, 50_000, 100, description);
+    }
+
+    private static PostSearchFilter filter(Long brandId, Long modelId, Long priceFrom, Long priceTo) {
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setBrandId(brandId);
+        filter.setModelId(modelId);
+        filter.setPriceFrom(priceFrom != null ? BigDecimal.valueOf(priceFrom) : null);
+        filter.setPriceTo(priceTo != null ? BigDecimal.valueOf(priceTo) : null);
+        return filter;
+    }
+
+    /**
+     * Объявление подходит под поиски по своей модели, марке и цене и не подходит под чужие.
+     */
+    @Test
+    void whenMatchThenOnlySearchesWithAllConditionsMet() {
+        SavedSearchIndex index = new SavedSearchIndex();
+        index.add(1L, ListingQuery.from(filter(1L, 10L, null, null)));
+        index.add(2L, ListingQuery.from(filter(1L, 11L, null, null)));
+        index.add(3L, ListingQuery.from(filter(1L, null, null, 600_000L)));
+        index.add(4L, ListingQuery.from(filter(null, null, 400_000L, 600_000L)));
+        index.add(5L, ListingQuery.from(filter(null, null, 700_000L, null)));
+        index.add(6L, ListingQuery.from(new PostSearchFilter()));
+
+        assertThat(index.match(row(100L, 1L, 10L, 500_000, 2015, null))).containsExactly(1L, 3L, 4L, 6L);
+        assertThat(index.match(row(101L, 2L, 20L, 800_000, 2015, null))).containsExactly(5L, 6L);
+    }
+
+    /**
+     * Слова запроса должны встретиться в описании, условия без индексируемых атрибутов тоже проверяются.
+     */
+    @Test
+    void whenQueryAndYearThenCheckedAgainstDescriptionAndYear() {
+        SavedSearchIndex index = new SavedSearchIndex();
+        PostSearchFilter text = new PostSearchFilter();
+        text.setQuery("дилером");
+        PostSearchFilter year = new PostSearchFilter();
+        year.setYearFrom(2018L);
+        index.add(1L, ListingQuery.from(text));
+        index.add(2L, ListingQuery.from(year));
+
+        assertThat(index.match(row(100L, 1L, 10L, 500_000, 2015, "Машина от дилера"))).containsExactly(1L);
+        assertThat(index.match(row(101L, 1L, 10L, 500_000, 2020, "Один владелец"))).containsExactly(2L);
+    }
+
+    /**
+     * Удалённый поиск больше не подходит, заменённый проверяется по новым условиям.
+     */
+    @Test
+    void whenRemoveOrReplaceThenNewConditionsUsed() {
+        SavedSearchIndex index = new SavedSearchIndex();
+        index.add(1L, ListingQuery.from(filter(1L, null, null, null)));
+        index.add(2L, ListingQuery.from(filter(1L, null, null, null)));
+        index.remove(1L);
+        index.add(2L, ListingQuery.from(filter(2L, null, null, null)));
+
+        assertThat(index.match(row(100L, 1L, 10L, 500_000, 2015, null))).isEmpty();
+        assertThat(index.match(row(101L, 2L, 20L, 500_000, 2015, null))).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    /**
+     * На случайных поисках и объявлениях индекс находит те же поиски, что и проверка каждого поиска.
+     */
+    @Test
+    void whenRandomSearchesThenSameAsCheckingEverySearch() {
+        Random random = new Random(42);
+        SavedSearchIndex index = new SavedSearchIndex();
+        List<ListingQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Long brandId = random.nextInt(3) == 0 ? null : (long) random.nextInt(5);
+            Long modelId = brandId != null && random.nextBoolean() ? brandId * 10 + random.nextInt(3) : null;
+            Long priceFrom = random.nextBoolean() ? (long) random.nextInt(2_000_000) : null;
+            Long priceTo = random.nextBoolean() ? (long) random.nextInt(2_000_000) : null;
+            ListingQuery query = ListingQuery.from(filter(brandId, modelId, priceFrom, priceTo));
+            queries.add(query);
+            index.add(i, query);
+        }
+        for (int postId = 0; postId < 200; postId++) {
+            long brandId = random.nextInt(5);
+            ListingRow row = row(postId, brandId, brandId * 10 + random.nextInt(3),
+                    random.nextInt(2_000_000), 2015, null);
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < queries.size(); i++) {
+                if (queries.get(i).matches(row, new HashSet<>())) {
+                    expected.add((long) i);
+                }
+            }
+            assertThat(index.match(row)).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.job4j.cars.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для сжатого множества слотов (SlotBitmap)
+ */
+class SlotBitmapTest {
+
+    /**
+     * Добавленные значения находятся, удалённые — нет, повторное добавление не меняет мощность.
+     */
+    @Test
+    void whenAddAndRemoveThenContainsOnlyRemaining() {
+        SlotBitmap bitmap = SlotBitmap.of(5, 70_000, 3, 5);
+
+        bitmap.remove(3);
+
+        assertThat(bitmap.contains(5)).isTrue();
+        assertThat(bitmap.contains(70_000)).isTrue();
+        assertThat(bitmap.contains(3)).isFalse();
+        assertThat(bitmap.cardinality()).isEqualTo(2);
+        assertThat(bitmap.toArray()).containsExactly(5, 70_000);
+    }
+
+    /**
+     * Блок, переполнивший массив, становится битовой картой и возвращается в массив после удалений
+     * без потери значений.
+     */
+    @Test
+    void whenBlockGrowsAndShrinksThenValuesKept() {
+        SlotBitmap bitmap = new SlotBitmap();
+        for (int i = 0; i <= SlotBitmap.ARRAY_MAX * 2; i += 2) {
+            bitmap.add(i);
+        }
+        for (int i = 0; i <= SlotBitmap.ARRAY_MAX * 2; i += 4) {
+            bitmap.remove(i);
+        }
+
+        assertThat(bitmap.cardinality()).isEqualTo(SlotBitmap.ARRAY_MAX / 2);
+        assertThat(bitmap.contains(2)).isTrue();
+        assertThat(bitmap.contains(4)).isFalse();
+    }
+
+    /**
+     * Пересечение и его мощность совпадают с пересечением обычных множеств.
+     */
+    @Test
+    void whenAndRandomSetsThenSameAsTreeSet() {
+        Random random = new Random(7);
+        SlotBitmap first = new SlotBitmap();
+        SlotBitmap second = new SlotBitmap();
+        TreeSet<Integer> firstSet = new TreeSet<>();
+        TreeSet<Integer> secondSet = new TreeSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(200_000);
+            first.add(value);
+            firstSet.add(value);
+            int sparse = random.nextInt(1_000_000);
+            if (sparse % 3 == 0) {
+                second.add(sparse);
+                secondSet.add(sparse);
+            }
+        }
+        firstSet.retainAll(secondSet);
+
+        assertThat(first.and(second).toArray()).containsExactly(firstSet.stream().mapToInt(Integer::intValue).toArray());
+        assertThat(first.andCardinality(second)).isEqualTo(firstSet.size());
+    }
+
+    /**
+     * Копия не зависит от исходного множества.
+     */
+    @Test
+    void whenCopyThenIndependent() {
+        SlotBitmap bitmap = SlotBitmap.of(1, 2);
+        SlotBitmap copy = bitmap.copy();
+
+        bitmap.remove(1);
+
+        assertThat(copy.toArray()).containsExactly(1, 2);
+    }
+
+    /**
+     * Параллельная фильтрация по блокам даёт то же множество, что и последовательная.
+     */
+    @Test
+    void whenFilterInParallelThenSameAsSequential() {
+        SlotBitmap bitmap = new SlotBitmap();
+        for (int i = 0; i < 300_000; i += 3) {
+            bitmap.add(i);
+        }
+
+        SlotBitmap sequential = bitmap.filter(slot -> slot % 7 == 0, false);
+        SlotBitmap parallel = bitmap.filter(slot -> slot % 7 == 0, true);
+
+        assertThat(parallel.toArray()).containsExactly(sequential.toArray());
+        assertThat(parallel.cardinality()).isEqualTo(300_000 / 21 + 1);
+        assertThat(bitmap.cardinality()).isEqualTo(100_000);
+    }
+}
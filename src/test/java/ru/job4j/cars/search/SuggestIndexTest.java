@@ -0,0 +1,63 @@
+package ru.job4j.cars.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для индекса подсказок марок и моделей (SuggestIndex)
+ */
+class SuggestIndexTest {
+
+    private final SuggestIndex index = SuggestIndex.of(List.of(
+            Suggestion.brand(1, "Toyota"),
+            Suggestion.brand(2, "Лада"),
+            Suggestion.brand(3, "Mercedes-Benz"),
+            Suggestion.model(10, "Camry", 1L, "Toyota"),
+            Suggestion.model(11, "Land Cruiser", 1L, "Toyota"),
+            Suggestion.model(12, "Веста", 2L, "Лада"),
+            Suggestion.model(13, "E-Class", 3L, "Mercedes-Benz"),
+            Suggestion.model(14, "Calibra", null, null)));
+
+    private List<String> names(String query, Long brandId, int limit) {
+        return index.suggest(query, brandId, limit).stream().map(Suggestion::name).toList();
+    }
+
+    /**
+     * Марка идёт первой, затем её модели; регистр и знаки препинания не важны,
+     * совпадает и начало любого слова названия.
+     */
+    @Test
+    void whenPrefixThenBrandFirstThenModels() {
+        assertThat(names("TOY", null, 10)).containsExactly("Toyota", "Camry", "Land Cruiser");
+        assertThat(names("toyota c", null, 10)).containsExactly("Camry");
+        assertThat(names("cru", null, 10)).containsExactly("Land Cruiser");
+        assertThat(names("mercedes b", null, 10)).containsExactly("Mercedes-Benz", "E-Class");
+        assertThat(names("ca", null, 10)).containsExactly("Calibra", "Camry");
+    }
+
+    /**
+     * Кириллица находит латинские названия через транслитерацию, латиница — кириллические,
+     * текст в другой раскладке клавиатуры тоже находит название.
+     */
+    @Test
+    void whenCyrillicLatinOrOtherLayoutThenSameBrand() {
+        assertThat(names("тойота", null, 1)).containsExactly("Toyota");
+        assertThat(names("lada", null, 1)).containsExactly("Лада");
+        assertThat(names("ещн", null, 1)).containsExactly("Toyota");
+        assertThat(names("kfl", null, 1)).containsExactly("Лада");
+    }
+
+    /**
+     * С маркой подсказываются только её модели; лимит и пустой запрос соблюдаются.
+     */
+    @Test
+    void whenBrandAndLimitThenOnlyModelsOfBrand() {
+        assertThat(names("c", 1L, 10)).containsExactly("Camry", "Land Cruiser");
+        assertThat(names("t", null, 2)).containsExactly("Toyota", "Camry");
+        assertThat(names("  ", null, 10)).isEmpty();
+        assertThat(names("zzz", null, 10)).isEmpty();
+    }
+}
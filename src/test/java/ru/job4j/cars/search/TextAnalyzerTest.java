@@ -0,0 +1,45 @@
+package ru.job4j.cars.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для разбора текста на термины (TextAnalyzer)
+ */
+class TextAnalyzerTest {
+
+    /**
+     * Текст приводится к нижнему регистру, «ё» — к «е», знаки препинания разделяют слова.
+     */
+    @Test
+    void whenTermsThenLowerCaseWordsWithoutPunctuation() {
+        assertThat(TextAnalyzer.terms("Один владелец, ПТС! Ёлка")).containsExactly("один", "владелец", "птс", "елк");
+    }
+
+    /**
+     * Разные формы русского и английского слова дают один термин.
+     */
+    @Test
+    void whenWordFormsThenSameTerm() {
+        assertThat(TextAnalyzer.terms("машина машины машину")).containsOnly("машин");
+        assertThat(TextAnalyzer.terms("owner owners")).containsOnly("owner");
+    }
+
+    /**
+     * Короткие слова и слова на «ss» не укорачиваются.
+     */
+    @Test
+    void whenShortWordThenNotStemmed() {
+        assertThat(TextAnalyzer.terms("кия glass bus")).containsExactly("кия", "glass", "bus");
+    }
+
+    /**
+     * Пустой текст не даёт терминов.
+     */
+    @Test
+    void whenNullOrBlankThenNoTerms() {
+        assertThat(TextAnalyzer.terms(null)).isEmpty();
+        assertThat(TextAnalyzer.terms(" , ")).isEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.job4j.cars.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.image.PhotoMatch;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.repository.PostPhotoRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Тесты для поиска похожих фотографий (DuplicatePhotoService)
+ */
+class DuplicatePhotoServiceTest {
+
+    private static final long HASH = 0x1234_5678_9ABC_DEF0L;
+
+    private DuplicatePhotoService service;
+
+    /**
+     * Сервис с подменённым репозиторием и радиусом поиска 10 бит.
+     */
+    @BeforeEach
+    void setUp() {
+        service = new DuplicatePhotoService(mock(PostPhotoRepository.class), 10);
+    }
+
+    private void register(long photoId, long postId, long hash) {
+        Post post = new Post();
+        post.setId(postId);
+        PostPhoto photo = new PostPhoto();
+        photo.setId(photoId);
+        photo.setPost(post);
+        photo.setPerceptualHash(hash);
+        service.register(photo);
+    }
+
+    /**
+     * Похожая фотография того же объявления не считается дубликатом, фотография другого объявления — считается.
+     */
+    @Test
+    void whenSimilarPhotoInSamePostThenOnlyOtherPostsReturned() {
+        register(1L, 10L, HASH);
+        register(2L, 10L, HASH ^ 0b11L);
+        register(3L, 20L, HASH ^ 0b111L);
+
+        assertThat(service.findDuplicatesOfPhoto(1L)).containsExactly(new PhotoMatch(3L, 20L, 3));
+        assertThat(service.findDuplicatesOfPhoto(4L)).isEmpty();
+    }
+}
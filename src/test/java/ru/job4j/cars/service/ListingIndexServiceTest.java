@@ -0,0 +1,102 @@
+package ru.job4j.cars.service;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.model.Car;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostStatus;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.repository.CarRepository;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.ListingRepository;
+import ru.job4j.cars.repository.PostRepository;
+import ru.job4j.cars.testutil.TestDatabaseConfig;
+import ru.job4j.cars.testutil.TestRepositoryUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для поиска объявлений по индексу в памяти (ListingIndexService)
+ */
+class ListingIndexServiceTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private SessionFactory sessionFactory;
+    private CrudRepository crudRepository;
+    private PostRepository postRepository;
+    private CarRepository carRepository;
+    private ListingRepository listingRepository;
+    private TestRepositoryUtils testUtils;
+
+    /**
+     * Инициализация репозиториев перед каждым тестом.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        this.sessionFactory = TestDatabaseConfig.setupTestEnvironment("db/liquibase_test.properties");
+        this.crudRepository = new CrudRepository(sessionFactory);
+        this.postRepository = new PostRepository(crudRepository);
+        this.carRepository = new CarRepository(crudRepository);
+        this.listingRepository = new ListingRepository(crudRepository);
+        this.testUtils = new TestRepositoryUtils(sessionFactory, crudRepository);
+        testUtils.deleteSeedPosts();
+    }
+
+    /**
+     * Закрытие SessionFactory после каждого теста.
+     */
+    @AfterEach
+    void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    private ListingIndexService service() {
+        return new ListingIndexService(listingRepository, postRepository, 100,
+                tempDir.resolve("listings.snapshot").toString());
+    }
+
+    private static PostSearchFilter yearFrom(long year) {
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setYearFrom(year);
+        return filter;
+    }
+
+    /**
+     * Изменение автомобиля, сделанное после записи снимка, видно в индексе, восстановленном из снимка,
+     * даже если объявление давно не менялось: метка снимка берётся по более свежему объявлению.
+     */
+    @Test
+    void whenCarUpdatedAfterSnapshotThenRestoredIndexHasChange() {
+        User user = testUtils.createTestUser("testuser");
+        Car car = testUtils.createTestCar("INDEXVIN01");
+        Post post = postRepository.create(testUtils.createTestPost(user, car, PostStatus.ACTIVE,
+                new BigDecimal("1000000.00")));
+        crudRepository.run(session -> session.createNativeMutationQuery("UPDATE posts SET updated_at = :old")
+                .setParameter("old", LocalDateTime.now().minusHours(1))
+                .executeUpdate());
+        postRepository.create(testUtils.createTestPost(user, testUtils.createTestCar("INDEXVIN02"),
+                PostStatus.ACTIVE, new BigDecimal("2000000.00")));
+        ListingIndexService stopped = service();
+        stopped.rebuild();
+        assertThat(stopped.search(yearFrom(2030L), 0, 10)).isEmpty();
+
+        car.setYearOfManufacture(2030L);
+        carRepository.update(car);
+        ListingIndexService restored = service();
+        restored.start();
+
+        assertThat(restored.search(yearFrom(2030L), 0, 10)).extracting(Post::getId).containsExactly(post.getId());
+    }
+}
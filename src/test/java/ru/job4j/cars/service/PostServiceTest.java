@@ -0,0 +1,81 @@
+package ru.job4j.cars.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.dto.PostSearchFilter;
+import ru.job4j.cars.dto.PostSearchPage;
+import ru.job4j.cars.dto.PostSort;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты для поиска объявлений постранично (PostService)
+ */
+class PostServiceTest {
+
+    private ListingIndexService listingIndexService;
+
+    private PopularityService popularityService;
+
+    private PostService service;
+
+    /**
+     * Сервис с подменёнными репозиторием, индексом и популярностью; индекс загружен.
+     */
+    @BeforeEach
+    void setUp() {
+        listingIndexService = mock(ListingIndexService.class);
+        popularityService = mock(PopularityService.class);
+        when(listingIndexService.isReady()).thenReturn(true);
+        service = new PostService(mock(PostRepository.class), mock(DuplicatePhotoService.class), listingIndexService,
+                popularityService, mock(SavedSearchService.class));
+    }
+
+    private static PostSearchFilter page(int page, PostSort sort) {
+        PostSearchFilter filter = new PostSearchFilter();
+        filter.setPage(page);
+        filter.setSort(sort);
+        return filter;
+    }
+
+    /**
+     * Страница, смещение которой не помещается в int, пуста и не доходит до индекса и популярности.
+     */
+    @Test
+    void whenHugePageThenEmptyPageWithoutSearch() {
+        PostSearchPage index = service.search(page(107_374_183, PostSort.NEWEST));
+        PostSearchPage popular = service.search(page(Integer.MAX_VALUE, PostSort.POPULAR));
+
+        assertThat(index.getPosts()).isEmpty();
+        assertThat(index.isHasNext()).isFalse();
+        assertThat(index.getPage()).isEqualTo(107_374_183);
+        assertThat(popular.getPosts()).isEmpty();
+        verify(listingIndexService, never()).search(any(), anyInt(), anyInt());
+        verify(popularityService, never()).page(anyInt(), anyInt());
+    }
+
+    /**
+     * На последней разрешённой странице нет ссылки на следующую, даже если результаты есть.
+     */
+    @Test
+    void whenLastAllowedPageThenNoNextPage() {
+        int last = PostService.MAX_SEARCH_RESULTS / PostService.SEARCH_PAGE_SIZE - 1;
+        when(listingIndexService.search(any(), anyInt(), anyInt()))
+                .thenReturn(Collections.nCopies(PostService.SEARCH_PAGE_SIZE + 1, new Post()));
+
+        PostSearchPage result = service.search(page(last, PostSort.NEWEST));
+
+        assertThat(result.getPosts()).hasSize(PostService.SEARCH_PAGE_SIZE);
+        assertThat(result.isHasNext()).isFalse();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.job4j.cars.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.model.SavedSearch;
+import ru.job4j.cars.repository.ListingRepository;
+import ru.job4j.cars.repository.SavedSearchRepository;
+import ru.job4j.cars.repository.SearchAlertRepository;
+import ru.job4j.cars.search.ListingRow;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты для сохранённых поисков (SavedSearchService)
+ */
+class SavedSearchServiceTest {
+
+    private static final long POST_ID = 100L;
+
+    private SavedSearchRepository savedSearchRepository;
+
+    private SearchAlertRepository searchAlertRepository;
+
+    private SavedSearchService service;
+
+    /**
+     * Сервис с подменёнными репозиториями; новое объявление марки 1.
+     */
+    @BeforeEach
+    void setUp() {
+        savedSearchRepository = mock(SavedSearchRepository.class);
+        searchAlertRepository = mock(SearchAlertRepository.class);
+        ListingRepository listingRepository = mock(ListingRepository.class);
+        when(listingRepository.findActiveRow(POST_ID)).thenReturn(Optional.of(new ListingRow(POST_ID,
+                1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 100_000_000L, 2020L, 10_000L, 0L, "")));
+        service = new SavedSearchService(savedSearchRepository, searchAlertRepository, listingRepository, 20);
+    }
+
+    private static SavedSearch savedSearch(long id, LocalDateTime createdAt) {
+        SavedSearch savedSearch = new SavedSearch();
+        savedSearch.setId(id);
+        savedSearch.setBrandId(1L);
+        savedSearch.setCreatedAt(createdAt);
+        return savedSearch;
+    }
+
+    /**
+     * Поиск, зафиксированный позже поиска с большим id, дочитывается: дочитывание начинается
+     * раньше последнего прочитанного поиска на перекрытие.
+     */
+    @Test
+    void whenSearchCommittedOutOfIdOrderThenRefreshPicksItUp() {
+        LocalDateTime loadedAt = LocalDateTime.now();
+        SavedSearch loaded = savedSearch(2L, loadedAt);
+        SavedSearch late = savedSearch(1L, loadedAt.minusSeconds(1));
+        when(savedSearchRepository.findAllAfter(anyLong(), anyInt())).thenReturn(List.of(loaded));
+        when(savedSearchRepository.findCreatedSince(any(), anyLong(), anyInt())).thenReturn(List.of(late, loaded));
+        service.rebuild();
+
+        service.refresh();
+        service.postCreated(POST_ID);
+
+        verify(savedSearchRepository).findCreatedSince(
+                eq(loadedAt.minus(SavedSearchService.REFRESH_OVERLAP)), eq(0L), anyInt());
+        verify(searchAlertRepository).enqueue(eq(POST_ID), eq(List.of(1L, 2L)), any());
+    }
+}
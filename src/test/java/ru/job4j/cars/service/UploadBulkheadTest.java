@@ -0,0 +1,72 @@
+package ru.job4j.cars.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты для ограничителя загрузок (UploadBulkhead)
+ */
+class UploadBulkheadTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * Загрузка сверх лимита одновременных получает отказ, а после освобождения слота проходит.
+     */
+    @Test
+    void whenAllSlotsTakenThenRejectedUntilReleased() {
+        UploadBulkhead bulkhead = new UploadBulkhead(1, Duration.ZERO,
+                DataSize.ofBytes(0), DataSize.ofBytes(0), registry);
+
+        UploadBulkhead.Admission first = bulkhead.tryAdmit(100);
+        UploadBulkhead.Admission second = bulkhead.tryAdmit(100);
+
+        assertThat(first.isGranted()).isTrue();
+        assertThat(second.isGranted()).isFalse();
+        assertThat(second.getRetryAfterSeconds()).isPositive();
+        assertThat(registry.get("upload.rejected").tag("reason", "concurrency").counter().count()).isEqualTo(1.0);
+
+        first.release();
+
+        assertThat(bulkhead.tryAdmit(100).isGranted()).isTrue();
+    }
+
+    /**
+     * Загрузка, не укладывающаяся в поток байт, получает отказ с оценкой времени ожидания.
+     */
+    @Test
+    void whenByteBudgetExhaustedThenRejectedWithRetryAfter() {
+        UploadBulkhead bulkhead = new UploadBulkhead(10, Duration.ZERO,
+                DataSize.ofMegabytes(1), DataSize.ofMegabytes(1), registry);
+
+        UploadBulkhead.Admission first = bulkhead.tryAdmit(DataSize.ofMegabytes(1).toBytes());
+        UploadBulkhead.Admission second = bulkhead.tryAdmit(DataSize.ofMegabytes(1).toBytes());
+
+        assertThat(first.isGranted()).isTrue();
+        assertThat(second.isGranted()).isFalse();
+        assertThat(second.getRetryAfterSeconds()).isBetween(1L, 2L);
+        assertThat(registry.get("upload.rejected").tag("reason", "rate").counter().count()).isEqualTo(1.0);
+    }
+
+    /**
+     * Объём принимаемых загрузок учитывается в метрике и освобождается один раз.
+     */
+    @Test
+    void whenAdmittedThenInFlightBytesTracked() {
+        UploadBulkhead bulkhead = new UploadBulkhead(2, Duration.ZERO,
+                DataSize.ofBytes(0), DataSize.ofBytes(0), registry);
+
+        UploadBulkhead.Admission admission = bulkhead.tryAdmit(500);
+
+        assertThat(registry.get("upload.in_flight.bytes").gauge().value()).isEqualTo(500.0);
+        admission.release();
+        admission.release();
+        assertThat(registry.get("upload.in_flight.bytes").gauge().value()).isEqualTo(0.0);
+        assertThat(registry.get("upload.in_flight").gauge().value()).isEqualTo(0.0);
+    }
+}
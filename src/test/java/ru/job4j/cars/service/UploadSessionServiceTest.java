@@ -0,0 +1,191 @@
+package ru.job4j.cars.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.job4j.cars.dto.UploadSessionStatusDto;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты для докачиваемой загрузки фотографий (UploadSessionService)
+ */
+class UploadSessionServiceTest {
+
+    private static final long USER_ID = 1L;
+
+    @TempDir
+    private Path root;
+
+    private Path uploadDir;
+
+    private PhotoIngestService photoIngestService;
+
+    /**
+     * Каталог загрузок во временном каталоге; описание файла возвращает несохранённую фотографию,
+     * а регистрация — переданный список.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        uploadDir = root.resolve("images");
+        photoIngestService = mock(PhotoIngestService.class);
+        when(photoIngestService.uploadDir()).thenReturn(uploadDir);
+        when(photoIngestService.describe(any(), any(), any())).thenAnswer(invocation -> {
+            PostPhoto photo = new PostPhoto();
+            photo.setPhotoPath(invocation.<Path>getArgument(0).getFileName().toString());
+            photo.setPost(invocation.getArgument(2));
+            return photo;
+        });
+        when(photoIngestService.registerAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private UploadSessionService service(Duration ttl) {
+        return new UploadSessionService(photoIngestService, DataSize.ofKilobytes(1), ttl, 20);
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Path> files(Path dir) throws Exception {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.toList();
+        }
+    }
+
+    /**
+     * Части дописываются по смещению, и после последней сессия собрана.
+     */
+    @Test
+    void whenChunksAppendedThenOffsetGrowsUntilComplete() throws Exception {
+        UploadSessionService service = service(Duration.ofHours(1));
+        String id = service.open(USER_ID, "car.jpg", "image/jpeg", 6).getId();
+
+        UploadSessionStatusDto first = service.append(USER_ID, id, 0, body("abc"));
+        UploadSessionStatusDto second = service.append(USER_ID, id, 3, body("def"));
+
+        assertThat(first.getOffset()).isEqualTo(3);
+        assertThat(first.isComplete()).isFalse();
+        assertThat(second.getOffset()).isEqualTo(6);
+        assertThat(second.isComplete()).isTrue();
+        assertThat(Files.readString(root.resolve("tmp").resolve(id + ".part"))).isEqualTo("abcdef");
+    }
+
+    /**
+     * Часть с чужим смещением отклоняется, а принятое смещение сообщается клиенту.
+     */
+    @Test
+    void whenOffsetMismatchThenRejectedWithAcceptedOffset() throws Exception {
+        UploadSessionService service = service(Duration.ofHours(1));
+        String id = service.open(USER_ID, "car.jpg", "image/jpeg", 6).getId();
+        service.append(USER_ID, id, 0, body("abc"));
+
+        assertThatThrownBy(() -> service.append(USER_ID, id, 1, body("bcd")))
+                .isInstanceOfSatisfying(UploadSessionException.class, e -> {
+                    assertThat(e.getReason()).isEqualTo(UploadSessionException.Reason.OFFSET_MISMATCH);
+                    assertThat(e.getOffset()).isEqualTo(3);
+                });
+        assertThat(service.status(USER_ID, id).getOffset()).isEqualTo(3);
+    }
+
+    /**
+     * Просроченная сессия удаляется вместе с временным файлом.
+     */
+    @Test
+    void whenSessionExpiredThenRemovedWithTempFile() throws Exception {
+        UploadSessionService service = service(Duration.ZERO);
+        String id = service.open(USER_ID, "car.jpg", "image/jpeg", 6).getId();
+        Thread.sleep(5);
+
+        service.cleanupExpired();
+
+        assertThatThrownBy(() -> service.status(USER_ID, id))
+                .isInstanceOfSatisfying(UploadSessionException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(UploadSessionException.Reason.NOT_FOUND));
+        assertThat(files(root.resolve("tmp"))).isEmpty();
+    }
+
+    /**
+     * Собранные файлы переносятся в каталог загрузок и регистрируются одним вызовом, сессии закрываются.
+     */
+    @Test
+    void whenCommitThenFilesMovedAndRegisteredTogether() throws Exception {
+        UploadSessionService service = service(Duration.ofHours(1));
+        String first = service.open(USER_ID, "front.jpg", "image/jpeg", 3).getId();
+        String second = service.open(USER_ID, "back.jpg", "image/jpeg", 3).getId();
+        service.append(USER_ID, first, 0, body("abc"));
+        service.append(USER_ID, second, 0, body("def"));
+        Post post = new Post();
+
+        List<PostPhoto> photos = service.commit(USER_ID, post, List.of(first, second));
+
+        assertThat(photos).hasSize(2).allSatisfy(photo -> assertThat(photo.getPost()).isSameAs(post));
+        assertThat(files(uploadDir)).hasSize(2);
+        assertThat(files(root.resolve("tmp"))).isEmpty();
+        verify(photoIngestService, times(1)).registerAll(anyList());
+        assertThatThrownBy(() -> service.status(USER_ID, first)).isInstanceOf(UploadSessionException.class);
+    }
+
+    /**
+     * Если регистрация не удалась, файлы возвращаются во временный каталог, сессии остаются открытыми,
+     * и повторный запрос проходит.
+     */
+    @Test
+    void whenRegistrationFailsThenSessionsRestoredAndCommitRetried() throws Exception {
+        UploadSessionService service = service(Duration.ofHours(1));
+        String id = service.open(USER_ID, "car.jpg", "image/jpeg", 3).getId();
+        service.append(USER_ID, id, 0, body("abc"));
+        when(photoIngestService.registerAll(anyList()))
+                .thenThrow(new IllegalStateException("База недоступна"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThatThrownBy(() -> service.commit(USER_ID, new Post(), List.of(id)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(service.status(USER_ID, id).isComplete()).isTrue();
+        assertThat(files(uploadDir)).isEmpty();
+        assertThat(Files.readString(root.resolve("tmp").resolve(id + ".part"))).isEqualTo("abc");
+        assertThat(service.commit(USER_ID, new Post(), List.of(id))).hasSize(1);
+        assertThat(files(uploadDir)).hasSize(1);
+    }
+
+    /**
+     * Незавершённая сессия не даёт закрыть остальные: ни одна сессия не закрывается.
+     */
+    @Test
+    void whenOneUploadIncompleteThenNothingCommitted() throws Exception {
+        UploadSessionService service = service(Duration.ofHours(1));
+        String complete = service.open(USER_ID, "front.jpg", "image/jpeg", 3).getId();
+        String partial = service.open(USER_ID, "back.jpg", "image/jpeg", 3).getId();
+        service.append(USER_ID, complete, 0, body("abc"));
+        service.append(USER_ID, partial, 0, body("d"));
+
+        assertThatThrownBy(() -> service.commit(USER_ID, new Post(), List.of(complete, partial)))
+                .isInstanceOfSatisfying(UploadSessionException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(UploadSessionException.Reason.INCOMPLETE));
+
+        assertThat(service.status(USER_ID, complete).isComplete()).isTrue();
+        assertThat(files(uploadDir)).isEmpty();
+    }
+}
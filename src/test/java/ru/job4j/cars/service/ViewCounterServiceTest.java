@@ -0,0 +1,73 @@
+package ru.job4j.cars.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тесты для счётчиков просмотров объявлений (ViewCounterService)
+ */
+class ViewCounterServiceTest {
+
+    private PostRepository postRepository;
+
+    private PopularityService popularityService;
+
+    private ViewCounterService service;
+
+    /**
+     * Сервис с подменёнными репозиторием и оценками популярности.
+     */
+    @BeforeEach
+    void setUp() {
+        postRepository = mock(PostRepository.class);
+        popularityService = mock(PopularityService.class);
+        service = new ViewCounterService(postRepository, popularityService);
+    }
+
+    /**
+     * Если просмотры не записались в базу, они остаются в счётчиках до следующего сброса.
+     */
+    @Test
+    void whenAddViewsFailsThenViewsKeptForNextFlush() {
+        doThrow(new IllegalStateException("База недоступна")).doNothing().when(postRepository).addViews(anyMap());
+        service.record(7L);
+        service.record(7L);
+
+        service.flush();
+
+        assertThat(service.pending(7L)).isEqualTo(2);
+        verify(popularityService, times(0)).recordViews(anyMap());
+
+        service.flush();
+
+        assertThat(service.pending(7L)).isZero();
+        verify(postRepository, times(2)).addViews(Map.of(7L, 2L));
+    }
+
+    /**
+     * Ошибка оценок популярности не возвращает уже записанные просмотры в счётчики.
+     */
+    @Test
+    void whenPopularityFailsThenViewsNotCountedTwice() {
+        doThrow(new IllegalStateException("Ошибка оценки")).when(popularityService).recordViews(anyMap());
+        doNothing().when(postRepository).addViews(anyMap());
+        service.record(7L);
+
+        service.flush();
+        service.flush();
+
+        assertThat(service.pending(7L)).isZero();
+        verify(postRepository, times(1)).addViews(Map.of(7L, 1L));
+    }
+}
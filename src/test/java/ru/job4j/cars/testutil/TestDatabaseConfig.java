@@ -80,7 +80,8 @@ public class TestDatabaseConfig {
         configuration.setProperty("hibernate.connection.url", props.getProperty("url"));
         configuration.setProperty("hibernate.connection.username", props.getProperty("username"));
         configuration.setProperty("hibernate.connection.password", props.getProperty("password"));
-        configuration.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        configuration.setProperty("hibernate.dialect",
+                props.getProperty("dialect", "org.hibernate.dialect.H2Dialect"));
 
         String driver = props.getProperty("driver");
         if (driver != null && !driver.isEmpty()) {
@@ -88,12 +88,23 @@ public class TestRepositoryUtils {
     }
 
     /**
-     * Создает тестовую модель автомобиля. Ищет по имени, если не найдена - создает.
+     * Создает тестовую модель автомобиля марки TestBrand. Ищет по имени, если не найдена - создает.
      *
      * @param name название модели
      * @return найденная или созданная модель
      */
     public CarModel createTestModel(String name) {
+        return createTestModel(name, createTestBrand("TestBrand"));
+    }
+
+    /**
+     * Создает тестовую модель автомобиля указанной марки. Ищет по имени, если не найдена - создает.
+     *
+     * @param name  название модели
+     * @param brand марка модели
+     * @return найденная или созданная модель
+     */
+    public CarModel createTestModel(String name, Brand brand) {
         String findQuery = "SELECT m FROM CarModel m WHERE m.name = :name";
         List<CarModel> existingModels = crudRepository.query(findQuery, CarModel.class, Map.of("name", name));
 
@@ -102,6 +113,7 @@ public class TestRepositoryUtils {
         } else {
             CarModel model = new CarModel();
             model.setName(name);
+            model.setBrand(brand);
             crudRepository.run(session -> {
                 session.persist(model);
                 session.flush();
@@ -359,7 +371,7 @@ public class TestRepositoryUtils {
     public Car createTestCarWithRequiredFields(String vin) {
         // Эти методы теперь ищут или создают
         Brand brand = createTestBrand("TestBrand");
-        CarModel model = createTestModel("TestModel");
+        CarModel model = createTestModel("TestModel", brand);
         Category category = createTestCategory("Легковой");
         Body body = createTestBody("Седан");
         Engine engine = createTestEngine("V6");
@@ -393,6 +405,17 @@ public class TestRepositoryUtils {
         return car;
     }
 
+    /**
+     * Удаляет объявления, созданные миграцией с тестовыми данными (015), вместе с их фотографиями.
+     * Нужен тестам, которые проверяют состав выборок объявлений и не должны зависеть от этих данных.
+     */
+    public void deleteSeedPosts() {
+        crudRepository.run(session -> {
+            session.createNativeMutationQuery("DELETE FROM post_photos").executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM posts").executeUpdate();
+        });
+    }
+
     /**
      * Создает тестовое объявление.
      *
@@ -402,7 +425,7 @@ public class TestRepositoryUtils {
      * @param price  цена
      * @return созданное объявление
      */
-    public Post createTestPost(User user, Car car, String status, BigDecimal price) {
+    public Post createTestPost(User user, Car car, PostStatus status, BigDecimal price) {
         Post post = new Post();
         post.setStatus(status);
         post.setDescription("Test description");